@@ -23,7 +23,118 @@ public class HttpConfiguration extends Configuration
     // the HTTP nukleus is acting as a client
     public static final String MAXIMUM_CONNECTIONS_PROPERTY_NAME = "nukleus.http.maximum.connections";
 
+    // Maximum number of pipelined requests awaiting a response on a single connection when
+    // the HTTP nukleus is acting as a server
+    public static final String MAXIMUM_PIPELINED_REQUESTS_PROPERTY_NAME = "nukleus.http.maximum.pipelined.requests";
+
+    // Maximum number of idempotent requests pipelined on each connection to a given target name and ref
+    // (i.e. route) when the HTTP nukleus is acting as a client, 1 disables pipelining
+    public static final String MAXIMUM_PIPELINED_REQUESTS_PER_CONNECTION_PROPERTY_NAME =
+            "nukleus.http.maximum.pipelined.requests.per.connection";
+
+    // Maximum number of requests waiting for a connection to a given target name and ref (i.e. route) when
+    // the HTTP nukleus is acting as a client, further requests are rejected with 503 (Service Unavailable)
+    public static final String MAXIMUM_QUEUED_REQUESTS_PROPERTY_NAME = "nukleus.http.maximum.queued.requests";
+
+    // Maximum time in milliseconds a request waits for a connection before it is rejected
+    // with 503 (Service Unavailable) when the HTTP nukleus is acting as a client
+    public static final String MAXIMUM_QUEUED_REQUEST_WAIT_PROPERTY_NAME = "nukleus.http.maximum.queued.request.wait";
+
+    // Time in milliseconds an idle persistent connection to a given target name and ref (i.e. route) is kept
+    // for reuse when the HTTP nukleus is acting as a client, this should be less than the target's own keep-alive timeout
+    public static final String KEEPALIVE_TIMEOUT_PROPERTY_NAME = "nukleus.http.keepalive.timeout";
+
+    // Maximum time in milliseconds a persistent connection is reused after it was opened when the HTTP nukleus is
+    // acting as a client, 0 means no limit
+    public static final String MAXIMUM_CONNECTION_LIFETIME_PROPERTY_NAME = "nukleus.http.maximum.connection.lifetime";
+
+    // Number of idle connections kept open to a given target name and ref (i.e. route), regardless of the keep-alive
+    // timeout, when the HTTP nukleus is acting as a client, bounded by the maximum connections per route
+    public static final String MINIMUM_IDLE_CONNECTIONS_PROPERTY_NAME = "nukleus.http.minimum.idle.connections";
+
+    // Minimum of the adaptive limit on connections to a given target name and ref (i.e. route) when the HTTP nukleus
+    // is acting as a client, the maximum is nukleus.http.maximum.connections, equal values disable adaptive sizing
+    public static final String MINIMUM_CONNECTIONS_PROPERTY_NAME = "nukleus.http.minimum.connections";
+
+    // Response time in milliseconds above which the adaptive connection limit backs off
+    public static final String RESPONSE_LATENCY_THRESHOLD_PROPERTY_NAME = "nukleus.http.response.latency.threshold";
+
+    // Consecutive failures (lost requests, 5xx responses or responses beyond the latency threshold) after which a
+    // target name and ref (i.e. route) is ejected from client request balancing, 0 disables outlier ejection
+    public static final String OUTLIER_CONSECUTIVE_FAILURES_PROPERTY_NAME = "nukleus.http.outlier.consecutive.failures";
+
+    // Time in milliseconds a target is first ejected for, doubling with each consecutive ejection
+    public static final String OUTLIER_EJECTION_TIME_PROPERTY_NAME = "nukleus.http.outlier.ejection.time";
+
+    // Maximum time in milliseconds a target is ejected for
+    public static final String OUTLIER_MAXIMUM_EJECTION_TIME_PROPERTY_NAME = "nukleus.http.outlier.maximum.ejection.time";
+
+    // Time in milliseconds after which a GET or HEAD request that has not begun to receive its response is duplicated
+    // on another connection when the HTTP nukleus is acting as a client, the first response wins, 0 disables hedging
+    public static final String HEDGED_REQUEST_DELAY_PROPERTY_NAME = "nukleus.http.hedged.request.delay";
+
+    // Maximum percentage of requests to a given target name and ref (i.e. route) that may be duplicated by hedging
+    public static final String HEDGED_REQUEST_BUDGET_PROPERTY_NAME = "nukleus.http.hedged.request.budget";
+
+    // Whether identical GET or HEAD requests received while one of them is awaiting its response share that
+    // response instead of being sent to the target when the HTTP nukleus is acting as a client
+    public static final String COLLAPSED_FORWARDING_PROPERTY_NAME = "nukleus.http.collapsed.forwarding";
+
+    // Comma-separated names of the request headers, besides the method, authority and path, that must have equal
+    // values for requests to share a response
+    public static final String COLLAPSED_FORWARDING_VARY_PROPERTY_NAME = "nukleus.http.collapsed.forwarding.vary";
+
+    // Whether response bodies are sent with chunked transfer-coding when the response has neither a content-length
+    // nor a transfer-encoding header, rather than being delimited by closing the connection
+    public static final String CHUNKED_RESPONSES_PROPERTY_NAME = "nukleus.http.chunked.responses";
+
+    // Maximum size of a response body without content-length that is buffered until the response ends so it can be
+    // sent with a Content-Length header, 0 to disable buffering
+    public static final String RESPONSE_BUFFER_THRESHOLD_PROPERTY_NAME = "nukleus.http.response.buffer.threshold";
+
+    // Whether response bodies are compressed with a content-coding accepted by the request when the HTTP nukleus
+    // is acting as a server
+    public static final String RESPONSE_COMPRESSION_PROPERTY_NAME = "nukleus.http.response.compression";
+
+    // Minimum content-length of a response body that is compressed, bodies of unknown length are always compressed
+    public static final String RESPONSE_COMPRESSION_MINIMUM_SIZE_PROPERTY_NAME =
+            "nukleus.http.response.compression.minimum.size";
+
+    // Comma-separated media types of the response bodies that are compressed, type/* matches any subtype
+    public static final String RESPONSE_COMPRESSION_CONTENT_TYPES_PROPERTY_NAME =
+            "nukleus.http.response.compression.content.types";
+
+    // Size in bytes of the off-heap memory storing cacheable responses to GET requests when the HTTP nukleus is
+    // acting as a client, 0 disables the response cache
+    public static final String RESPONSE_CACHE_CAPACITY_PROPERTY_NAME = "nukleus.http.response.cache.capacity";
+
+    // Maximum size in bytes of a stored response, including its headers
+    public static final String RESPONSE_CACHE_MAXIMUM_ENTRY_SIZE_PROPERTY_NAME = "nukleus.http.response.cache.maximum.entry.size";
+
     private static final int MAXIMUM_CONNECTIONS_DEFAULT = 10; // most browsers use 6, IE 11 uses 13
+    private static final int MAXIMUM_PIPELINED_REQUESTS_DEFAULT = 16;
+    private static final int MAXIMUM_PIPELINED_REQUESTS_PER_CONNECTION_DEFAULT = 1;
+    private static final int MAXIMUM_QUEUED_REQUESTS_DEFAULT = 1024;
+    private static final int MAXIMUM_QUEUED_REQUEST_WAIT_DEFAULT = 30000;
+    private static final int KEEPALIVE_TIMEOUT_DEFAULT = 30000;
+    private static final int MAXIMUM_CONNECTION_LIFETIME_DEFAULT = 0;
+    private static final int MINIMUM_IDLE_CONNECTIONS_DEFAULT = 0;
+    private static final int RESPONSE_LATENCY_THRESHOLD_DEFAULT = 1000;
+    private static final int OUTLIER_CONSECUTIVE_FAILURES_DEFAULT = 5;
+    private static final int OUTLIER_EJECTION_TIME_DEFAULT = 10000;
+    private static final int OUTLIER_MAXIMUM_EJECTION_TIME_DEFAULT = 300000;
+    private static final int HEDGED_REQUEST_DELAY_DEFAULT = 0;
+    private static final int HEDGED_REQUEST_BUDGET_DEFAULT = 5;
+    private static final boolean COLLAPSED_FORWARDING_DEFAULT = false;
+    private static final String COLLAPSED_FORWARDING_VARY_DEFAULT = "accept,accept-encoding,accept-language,authorization,cookie";
+    private static final boolean CHUNKED_RESPONSES_DEFAULT = false;
+    private static final int RESPONSE_BUFFER_THRESHOLD_DEFAULT = 0;
+    private static final boolean RESPONSE_COMPRESSION_DEFAULT = false;
+    private static final int RESPONSE_COMPRESSION_MINIMUM_SIZE_DEFAULT = 1024;
+    private static final String RESPONSE_COMPRESSION_CONTENT_TYPES_DEFAULT =
+            "text/*,application/json,application/javascript,application/xml,image/svg+xml";
+    private static final int RESPONSE_CACHE_CAPACITY_DEFAULT = 0;
+    private static final int RESPONSE_CACHE_MAXIMUM_ENTRY_SIZE_DEFAULT = 1024 * 1024;
 
     public HttpConfiguration(
         Configuration config)
@@ -36,4 +147,122 @@ public class HttpConfiguration extends Configuration
         return getInteger(MAXIMUM_CONNECTIONS_PROPERTY_NAME, MAXIMUM_CONNECTIONS_DEFAULT);
     }
 
+    public int maximumPipelinedRequests()
+    {
+        return getInteger(MAXIMUM_PIPELINED_REQUESTS_PROPERTY_NAME, MAXIMUM_PIPELINED_REQUESTS_DEFAULT);
+    }
+
+    public int maximumPipelinedRequestsPerConnection()
+    {
+        return getInteger(MAXIMUM_PIPELINED_REQUESTS_PER_CONNECTION_PROPERTY_NAME,
+                MAXIMUM_PIPELINED_REQUESTS_PER_CONNECTION_DEFAULT);
+    }
+
+    public int maximumQueuedRequests()
+    {
+        return getInteger(MAXIMUM_QUEUED_REQUESTS_PROPERTY_NAME, MAXIMUM_QUEUED_REQUESTS_DEFAULT);
+    }
+
+    public int maximumQueuedRequestWait()
+    {
+        return getInteger(MAXIMUM_QUEUED_REQUEST_WAIT_PROPERTY_NAME, MAXIMUM_QUEUED_REQUEST_WAIT_DEFAULT);
+    }
+
+    public int keepaliveTimeout()
+    {
+        return getInteger(KEEPALIVE_TIMEOUT_PROPERTY_NAME, KEEPALIVE_TIMEOUT_DEFAULT);
+    }
+
+    public int maximumConnectionLifetime()
+    {
+        return getInteger(MAXIMUM_CONNECTION_LIFETIME_PROPERTY_NAME, MAXIMUM_CONNECTION_LIFETIME_DEFAULT);
+    }
+
+    public int minimumIdleConnections()
+    {
+        return getInteger(MINIMUM_IDLE_CONNECTIONS_PROPERTY_NAME, MINIMUM_IDLE_CONNECTIONS_DEFAULT);
+    }
+
+    public int minimumConnectionsPerRoute()
+    {
+        return getInteger(MINIMUM_CONNECTIONS_PROPERTY_NAME, maximumConnectionsPerRoute());
+    }
+
+    public int responseLatencyThreshold()
+    {
+        return getInteger(RESPONSE_LATENCY_THRESHOLD_PROPERTY_NAME, RESPONSE_LATENCY_THRESHOLD_DEFAULT);
+    }
+
+    public int outlierConsecutiveFailures()
+    {
+        return getInteger(OUTLIER_CONSECUTIVE_FAILURES_PROPERTY_NAME, OUTLIER_CONSECUTIVE_FAILURES_DEFAULT);
+    }
+
+    public int outlierEjectionTime()
+    {
+        return getInteger(OUTLIER_EJECTION_TIME_PROPERTY_NAME, OUTLIER_EJECTION_TIME_DEFAULT);
+    }
+
+    public int outlierMaximumEjectionTime()
+    {
+        return getInteger(OUTLIER_MAXIMUM_EJECTION_TIME_PROPERTY_NAME, OUTLIER_MAXIMUM_EJECTION_TIME_DEFAULT);
+    }
+
+    public int hedgedRequestDelay()
+    {
+        return getInteger(HEDGED_REQUEST_DELAY_PROPERTY_NAME, HEDGED_REQUEST_DELAY_DEFAULT);
+    }
+
+    public int hedgedRequestBudget()
+    {
+        return getInteger(HEDGED_REQUEST_BUDGET_PROPERTY_NAME, HEDGED_REQUEST_BUDGET_DEFAULT);
+    }
+
+    public boolean collapsedForwarding()
+    {
+        return getBoolean(COLLAPSED_FORWARDING_PROPERTY_NAME, COLLAPSED_FORWARDING_DEFAULT);
+    }
+
+    public String[] collapsedForwardingVary()
+    {
+        final String vary = getProperty(COLLAPSED_FORWARDING_VARY_PROPERTY_NAME, COLLAPSED_FORWARDING_VARY_DEFAULT);
+        return vary.isEmpty() ? new String[0] : vary.split(",");
+    }
+
+    public boolean chunkedResponses()
+    {
+        return getBoolean(CHUNKED_RESPONSES_PROPERTY_NAME, CHUNKED_RESPONSES_DEFAULT);
+    }
+
+    public int responseBufferThreshold()
+    {
+        return getInteger(RESPONSE_BUFFER_THRESHOLD_PROPERTY_NAME, RESPONSE_BUFFER_THRESHOLD_DEFAULT);
+    }
+
+    public boolean responseCompression()
+    {
+        return getBoolean(RESPONSE_COMPRESSION_PROPERTY_NAME, RESPONSE_COMPRESSION_DEFAULT);
+    }
+
+    public int responseCompressionMinimumSize()
+    {
+        return getInteger(RESPONSE_COMPRESSION_MINIMUM_SIZE_PROPERTY_NAME, RESPONSE_COMPRESSION_MINIMUM_SIZE_DEFAULT);
+    }
+
+    public String[] responseCompressionContentTypes()
+    {
+        final String contentTypes = getProperty(RESPONSE_COMPRESSION_CONTENT_TYPES_PROPERTY_NAME,
+                RESPONSE_COMPRESSION_CONTENT_TYPES_DEFAULT);
+        return contentTypes.isEmpty() ? new String[0] : contentTypes.split(",");
+    }
+
+    public int responseCacheCapacity()
+    {
+        return getInteger(RESPONSE_CACHE_CAPACITY_PROPERTY_NAME, RESPONSE_CACHE_CAPACITY_DEFAULT);
+    }
+
+    public int responseCacheMaximumEntrySize()
+    {
+        return getInteger(RESPONSE_CACHE_MAXIMUM_ENTRY_SIZE_PROPERTY_NAME, RESPONSE_CACHE_MAXIMUM_ENTRY_SIZE_DEFAULT);
+    }
 }
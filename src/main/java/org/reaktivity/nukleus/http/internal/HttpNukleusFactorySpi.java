@@ -15,6 +15,7 @@
  */
 package org.reaktivity.nukleus.http.internal;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.reaktivity.nukleus.route.RouteKind.CLIENT;
 import static org.reaktivity.nukleus.route.RouteKind.SERVER;
 
@@ -23,6 +24,8 @@ import org.reaktivity.nukleus.Nukleus;
 import org.reaktivity.nukleus.NukleusBuilder;
 import org.reaktivity.nukleus.NukleusFactorySpi;
 import org.reaktivity.nukleus.http.internal.stream.ClientStreamFactoryBuilder;
+import org.reaktivity.nukleus.http.internal.stream.ConnectionPoolTimer;
+import org.reaktivity.nukleus.http.internal.stream.HttpRouteTable;
 import org.reaktivity.nukleus.http.internal.stream.ServerStreamFactoryBuilder;
 
 public final class HttpNukleusFactorySpi implements NukleusFactorySpi
@@ -41,9 +44,15 @@ public final class HttpNukleusFactorySpi implements NukleusFactorySpi
         NukleusBuilder builder)
     {
         HttpConfiguration httpConfig = new HttpConfiguration(config);
+        HttpRouteTable clientRoutes = new HttpRouteTable();
+        HttpRouteTable serverRoutes = new HttpRouteTable();
+        ConnectionPoolTimer connectionPoolTimer = new ConnectionPoolTimer(() -> NANOSECONDS.toMillis(System.nanoTime()));
 
-        return builder.streamFactory(CLIENT, new ClientStreamFactoryBuilder(httpConfig))
-                      .streamFactory(SERVER, new ServerStreamFactoryBuilder(httpConfig))
+        return builder.routeHandler(CLIENT, clientRoutes::handleRoute)
+                      .routeHandler(SERVER, serverRoutes::handleRoute)
+                      .streamFactory(CLIENT, new ClientStreamFactoryBuilder(httpConfig, clientRoutes, connectionPoolTimer))
+                      .streamFactory(SERVER, new ServerStreamFactoryBuilder(httpConfig, serverRoutes))
+                      .inject(connectionPoolTimer)
                       .build();
     }
 }
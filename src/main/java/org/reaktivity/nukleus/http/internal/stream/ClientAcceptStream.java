@@ -16,11 +16,7 @@
 package org.reaktivity.nukleus.http.internal.stream;
 
 import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
-import static org.reaktivity.nukleus.http.internal.util.HttpUtil.appendHeader;
 
-import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.Map;
 import java.util.function.Consumer;
 
 import org.agrona.DirectBuffer;
@@ -30,6 +26,9 @@ import org.reaktivity.nukleus.buffer.BufferPool;
 import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.http.internal.stream.ConnectionPool.Connection;
 import org.reaktivity.nukleus.http.internal.stream.ConnectionPool.ConnectionRequest;
+import org.reaktivity.nukleus.http.internal.stream.ConnectionPoolTimer.Timeout;
+import org.reaktivity.nukleus.http.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http.internal.types.ListFW;
 import org.reaktivity.nukleus.http.internal.types.OctetsFW;
 import org.reaktivity.nukleus.http.internal.types.stream.BeginFW;
 import org.reaktivity.nukleus.http.internal.types.stream.DataFW;
@@ -37,12 +36,32 @@ import org.reaktivity.nukleus.http.internal.types.stream.EndFW;
 import org.reaktivity.nukleus.http.internal.types.stream.ResetFW;
 import org.reaktivity.nukleus.http.internal.types.stream.WindowFW;
 
+/**
+ * Client request stream. A GET or HEAD request without a body may be hedged: when its response has not begun
+ * after the hedged request delay, the request head (kept in the slot) is written again on another connection.
+ * The first response to begin is delivered and the other connection is closed. When collapsed forwarding is
+ * enabled, a GET or HEAD request identical to one still awaiting its response is not sent, but shares that response.
+ * When the response cache is enabled, a GET request with a fresh stored response is not sent, but served from the cache.
+ * A request body of unknown length is sent with chunked transfer-coding, deferring data to the slot while its chunk
+ * does not fit the connection window.
+ */
 final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection>, MessageConsumer
 {
+    private static final int STREAM_BEFORE_BEGIN = 0;
+    private static final int STREAM_BEFORE_HEADERS_WRITTEN = 1;
+    private static final int STREAM_AFTER_BEGIN_OR_DATA = 2;
+    private static final int STREAM_AFTER_END = 3;
+    private static final int STREAM_AFTER_REPLY_OR_RESET = 4;
+    private static final int STREAM_NOT_SENT = 5;
+
+    private static final int THROTTLE_BEFORE_BEGIN = 0;
+    private static final int THROTTLE_BEFORE_HEADERS_WRITTEN = 1;
+    private static final int THROTTLE_NEXT_WINDOW = 2;
+
     private final ClientStreamFactory factory;
 
-    private MessageConsumer streamState;
-    private MessageConsumer throttleState;
+    private int streamState;
+    private int throttleState;
 
     private final long acceptId;
     private final String acceptName;
@@ -50,7 +69,6 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
     private final MessageConsumer acceptThrottle;
     private final String connectName;
     private final long connectRef;
-    private Map<String, String> headers;
     private MessageConsumer target;
     private Connection connection;
     private ConnectionRequest nextConnectionRequest;
@@ -61,11 +79,22 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
     private int slotOffset;
     private boolean endDeferred;
     private boolean persistent = true;
-
+    private boolean pipelinable;
+    private long deadline;
+    private boolean hedgeable;
+    private Correlation<ClientConnectReplyState> correlation;
+    private Timeout hedgeTimeout;
+    private Connection hedgeConnection;
+    private int hedgeSlotOffset;
+    private CollapsedResponse collapsedResponse;
+    private HttpCacheEntry storedResponse;
+    private HttpCacheEntry cacheEntry;
+    private boolean chunked;
+    private int lastChunkLength;
 
     ClientAcceptStream(ClientStreamFactory factory, MessageConsumer acceptThrottle,
             long acceptId, long acceptRef, String acceptName, long acceptCorrelationId,
-            String connectName, long connectRef, Map<String, String> headers)
+            String connectName, long connectRef)
     {
         this.factory = factory;
         this.acceptThrottle = acceptThrottle;
@@ -74,9 +103,8 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
         this.acceptCorrelationId = acceptCorrelationId;
         this.connectName = connectName;
         this.connectRef = connectRef;
-        this.headers = headers;
-        this.streamState = this::streamBeforeBegin;
-        this.throttleState = this::throttleBeforeBegin;
+        this.streamState = STREAM_BEFORE_BEGIN;
+        this.throttleState = THROTTLE_BEFORE_BEGIN;
     }
 
     @Override
@@ -86,7 +114,27 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
         int index,
         int length)
     {
-        streamState.accept(msgTypeId, buffer, index, length);
+        switch (streamState)
+        {
+        case STREAM_BEFORE_BEGIN:
+            streamBeforeBegin(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_BEFORE_HEADERS_WRITTEN:
+            streamBeforeHeadersWritten(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_AFTER_BEGIN_OR_DATA:
+            streamAfterBeginOrData(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_AFTER_END:
+            streamAfterEnd(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_AFTER_REPLY_OR_RESET:
+            streamAfterReplyOrReset(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_NOT_SENT:
+            streamNotSent(msgTypeId, buffer, index, length);
+            break;
+        }
     }
 
     private void streamBeforeBegin(
@@ -114,10 +162,10 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
         switch (msgTypeId)
         {
         case EndFW.TYPE_ID:
-            endDeferred = true;
+            processEndBeforeHeadersWritten(buffer, index, length);
             break;
         default:
-            this.factory.bufferPool.release(slotIndex);
+            releaseSlotIfNecessary();
             processUnexpected(buffer, index, length);
             break;
         }
@@ -167,7 +215,24 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
         else if (msgTypeId == EndFW.TYPE_ID)
         {
             factory.endRO.wrap(buffer, index, index + length);
-            this.streamState = this::streamAfterEnd;
+            this.streamState = STREAM_AFTER_END;
+        }
+    }
+
+    private void streamNotSent(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        if (msgTypeId == EndFW.TYPE_ID)
+        {
+            factory.endRO.wrap(buffer, index, index + length);
+            this.streamState = STREAM_AFTER_END;
+        }
+        else
+        {
+            processUnexpected(buffer, index, length);
         }
     }
 
@@ -180,27 +245,57 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
         if (slotIndex == BufferPool.NO_SLOT)
         {
             factory.writer.doReset(acceptThrottle, acceptId);
-            this.streamState = this::streamAfterReplyOrReset;
+            this.streamState = STREAM_AFTER_REPLY_OR_RESET;
         }
         else
         {
-            byte[] bytes = encodeHeaders(headers, buffer, index, length);
-            headers = null; // allow gc
+            final BeginFW begin = factory.beginRO.wrap(buffer, index, index + length);
+            final OctetsFW extension = begin.extension();
+            final MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+            final HttpHeadEncoder encoder = factory.headEncoder;
+
+            int headLimit = extension.sizeof() > 0 ?
+                    encoder.encodeRequest(extension.get(factory.beginExRO::wrap).headers(), slot, 0, slot.capacity()) :
+                    HttpHeadEncoder.HEAD_INVALID;
+
+            // a body of unknown length is sent as chunks, so the connection can still be reused after the request
+            final boolean unknownLength = !encoder.contentLength && !encoder.transferEncoding &&
+                                          !encoder.bodyless && !encoder.connect;
+            if (headLimit >= 0 && unknownLength)
+            {
+                headLimit = HttpHeadEncoder.encodeChunkedTransferEncoding(slot, headLimit, slot.capacity());
+            }
+
             slotPosition = 0;
-            MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
-            if (bytes.length > slot.capacity())
+            if (headLimit == HttpHeadEncoder.HEAD_INVALID)
+            {
+                factory.bufferPool.release(slotIndex);
+                processUnexpected(buffer, index, length);
+            }
+            else if (headLimit == HttpHeadEncoder.HEAD_TOO_LONG)
             {
                 // TODO: diagnostics (reset reason?)
                 factory.writer.doReset(acceptThrottle, acceptId);
                 factory.bufferPool.release(slotIndex);
             }
+            else if (serveFromCache(factory.beginExRO.headers()) ||
+                     storedResponse == null && collapse(factory.beginExRO.headers()))
+            {
+                factory.bufferPool.release(slotIndex);
+                slotIndex = NO_SLOT;
+                this.streamState = STREAM_NOT_SENT;
+            }
             else
             {
-                slot.putBytes(0, bytes);
-                slotPosition = bytes.length;
+                headLimit = prepareCacheEntry(factory.beginExRO.headers(), slot, headLimit);
+                persistent = encoder.persistent;
+                pipelinable = encoder.persistent && encoder.idempotent;
+                chunked = encoder.chunked || unknownLength;
+                hedgeable = factory.hedgedRequestDelay > 0 && encoder.safe && !chunked;
+                slotPosition = headLimit;
                 slotOffset = 0;
-                this.streamState = this::streamBeforeHeadersWritten;
-                this.throttleState = this::throttleBeforeHeadersWritten;
+                this.streamState = STREAM_BEFORE_HEADERS_WRITTEN;
+                this.throttleState = THROTTLE_BEFORE_HEADERS_WRITTEN;
                 target = factory.router.supplyTarget(connectName);
                 connectionPool = getConnectionPool(connectName, connectRef);
                 connectionPool.acquire(this);
@@ -208,85 +303,91 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
         }
     }
 
-    private byte[] encodeHeaders(Map<String, String> headers,
-                                 DirectBuffer buffer,
-                                 int index,
-                                 int length)
+    /**
+     * Serves the request with the response stored for it in the response cache, if fresh. A stale response
+     * is kept to be revalidated, so the request is not shared with identical requests.
+     *
+     * @return true if this request is served from the cache, so it is not sent
+     */
+    private boolean serveFromCache(
+        ListFW<HttpHeaderFW> headers)
     {
-        String[] pseudoHeaders = new String[4];
+        final HttpResponseCache responseCache = factory.responseCache;
+        storedResponse = responseCache != null ? responseCache.lookup(headers) : null;
+        final boolean served = storedResponse != null && storedResponse.fresh();
+        if (served)
+        {
+            storedResponse.serve(factory, acceptName, factory.supplyStreamId.getAsLong(), acceptCorrelationId);
+            storedResponse = null;
+        }
+        return served;
+    }
 
-        StringBuilder headersChars = new StringBuilder();
-        headers.forEach((name, value) ->
+    /**
+     * Prepares to store the response in the response cache. When a stale response is stored for the request,
+     * the request is made conditional on its validators.
+     *
+     * @return the limit of the request head in the slot
+     */
+    private int prepareCacheEntry(
+        ListFW<HttpHeaderFW> headers,
+        MutableDirectBuffer slot,
+        int headLimit)
+    {
+        final HttpResponseCache responseCache = factory.responseCache;
+        final int conditionalLimit = storedResponse != null ?
+                storedResponse.encodeConditions(slot, headLimit, slot.capacity()) : HttpHeadEncoder.HEAD_TOO_LONG;
+        final HttpCacheEntry stale = conditionalLimit >= 0 ? storedResponse : null;
+        storedResponse = null;
+        cacheEntry = responseCache != null ? responseCache.newEntry(headers, stale) : null;
+        return stale != null ? conditionalLimit : headLimit;
+    }
+
+    /**
+     * Subscribes to the response to an identical GET or HEAD request in flight, if any, otherwise to the response
+     * to this request.
+     *
+     * @return true if this request shares the response to another request, so it is not sent
+     */
+    private boolean collapse(
+        ListFW<HttpHeaderFW> headers)
+    {
+        final HttpRequestKey requestKey = factory.requestKey;
+        boolean collapsed = false;
+        if (requestKey != null && factory.headEncoder.safe && requestKey.wrap(headers))
         {
-            switch(name.toLowerCase())
+            final int keyHash = requestKey.hash();
+            final CollapsedResponse inFlight = factory.collapsedResponses.get(keyHash);
+            if (inFlight == null)
             {
-            case ":method":
-                pseudoHeaders[ClientStreamFactory.METHOD] = value;
-                switch(value.toLowerCase())
-                {
-                case "post":
-                case "insert":
-                    this.persistent = false;
-                }
-                break;
-            case ":scheme":
-                pseudoHeaders[ClientStreamFactory.SCHEME] = value;
-                break;
-            case ":authority":
-                pseudoHeaders[ClientStreamFactory.AUTHORITY] = value;
-                break;
-            case ":path":
-                pseudoHeaders[ClientStreamFactory.PATH] = value;
-                break;
-            case "host":
-                if (pseudoHeaders[ClientStreamFactory.AUTHORITY] == null)
-                {
-                    pseudoHeaders[ClientStreamFactory.AUTHORITY] = value;
-                }
-                else if (!pseudoHeaders[ClientStreamFactory.AUTHORITY].equals(value))
-                {
-                    processUnexpected(buffer, index, length);
-                }
-                break;
-            case "connection":
-                Arrays.asList(value.toLowerCase().split(",")).stream().forEach((element) ->
-                {
-                    switch(element)
-                    {
-                    case "close":
-                        this.persistent = false;
-                        break;
-                    }
-                });
-                appendHeader(headersChars, name, value);
-                break;
-            default:
-                appendHeader(headersChars, name, value);
+                collapsedResponse = new CollapsedResponse(factory, requestKey);
+                factory.collapsedResponses.put(keyHash, collapsedResponse);
+            }
+            else if (inFlight.matches(requestKey))
+            {
+                collapsedResponse = inFlight;
+                collapsed = true;
             }
-        });
 
-        if (pseudoHeaders[ClientStreamFactory.METHOD] == null ||
-            pseudoHeaders[ClientStreamFactory.SCHEME] == null ||
-            pseudoHeaders[ClientStreamFactory.PATH] == null ||
-            pseudoHeaders[ClientStreamFactory.AUTHORITY] == null)
-        {
-            processUnexpected(buffer, index, length);
+            if (collapsedResponse != null)
+            {
+                collapsedResponse.subscribe(acceptName, acceptCorrelationId);
+            }
         }
-
-        String payloadChars = new StringBuilder()
-                   .append(pseudoHeaders[ClientStreamFactory.METHOD]).append(" ").append(pseudoHeaders[ClientStreamFactory.PATH])
-                   .append(" HTTP/1.1").append("\r\n")
-                   .append("Host").append(": ").append(pseudoHeaders[ClientStreamFactory.AUTHORITY]).append("\r\n")
-                   .append(headersChars).append("\r\n").toString();
-        return payloadChars.getBytes(StandardCharsets.US_ASCII);
+        return collapsed;
     }
 
     private ConnectionPool getConnectionPool(final String targetName, long targetRef)
     {
-        Map<Long, ConnectionPool> connectionsByRef = this.factory.connectionPools.
+        Long2ObjectHashMap<ConnectionPool> connectionsByRef = this.factory.connectionPools.
                 computeIfAbsent(targetName, (n) -> new Long2ObjectHashMap<ConnectionPool>());
-        return connectionsByRef.computeIfAbsent(targetRef, (r) ->
-            new ConnectionPool(factory, targetName, targetRef));
+        ConnectionPool connectionPool = connectionsByRef.get(targetRef);
+        if (connectionPool == null)
+        {
+            connectionPool = new ConnectionPool(factory, targetName, targetRef);
+            connectionsByRef.put(targetRef, connectionPool);
+        }
+        return connectionPool;
     }
 
     private void processData(
@@ -296,17 +397,40 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
     {
         DataFW data = factory.dataRO.wrap(buffer, index, index + length);
 
+        // a request with a body is not hedged, nor shared with later requests
+        if (hedgeable)
+        {
+            hedgeable = false;
+            releaseSlotIfNecessary();
+        }
+        if (collapsedResponse != null)
+        {
+            collapsedResponse.closeSubscriptions();
+        }
+
         sourceWindow -= data.length();
+        final OctetsFW payload = this.factory.dataRO.payload();
         if (sourceWindow < 0)
         {
             processUnexpected(buffer, index, length);
         }
-        else
+        else if (!chunked)
         {
-            final OctetsFW payload = this.factory.dataRO.payload();
             factory.writer.doData(target, connection.connectStreamId, payload);
             connection.window -= payload.sizeof();
         }
+        else if (slotIndex == NO_SLOT && HttpHeadEncoder.chunkLength(payload.sizeof()) <= connection.window)
+        {
+            doChunk(payload);
+        }
+        else if (deferData(payload.buffer(), payload.offset(), payload.limit()))
+        {
+            flushDeferredData();
+        }
+        else
+        {
+            processUnexpected(buffer, index, length);
+        }
     }
 
     private void processEnd(
@@ -314,14 +438,314 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
         int index,
         int length)
     {
-        this.factory.endRO.wrap(buffer, index, index + length);
-        doEnd();
+        final EndFW end = this.factory.endRO.wrap(buffer, index, index + length);
+
+        if (!chunked)
+        {
+            doEnd();
+        }
+        else if (deferLastChunk(end.extension()))
+        {
+            endDeferred = true;
+            flushDeferredData();
+        }
+        else
+        {
+            // the request body cannot be completed, so the connection cannot be reused
+            releaseSlotIfNecessary();
+            connection.persistent = false;
+            connectionPool.release(connection, false);
+            processUnexpected(buffer, index, length);
+        }
+    }
+
+    private void processEndBeforeHeadersWritten(
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        final EndFW end = this.factory.endRO.wrap(buffer, index, index + length);
+
+        // the last chunk is written after the request head still held in the slot
+        if (!chunked || deferLastChunk(end.extension()))
+        {
+            endDeferred = true;
+        }
+        else
+        {
+            releaseSlotIfNecessary();
+            processUnexpected(buffer, index, length);
+        }
+    }
+
+    private void doChunk(
+        OctetsFW payload)
+    {
+        final int payloadLength = payload.sizeof();
+
+        // an empty chunk would end the request body
+        if (payloadLength > 0)
+        {
+            factory.writer.doHttpChunk(target, connection.connectStreamId, payload.buffer(), payload.offset(), payloadLength);
+            connection.window -= HttpHeadEncoder.chunkLength(payloadLength);
+        }
+    }
+
+    private boolean deferData(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        if (slotIndex == NO_SLOT)
+        {
+            slotIndex = factory.bufferPool.acquire(acceptId);
+            slotOffset = slotPosition = 0;
+        }
+
+        final boolean deferred = slotIndex != NO_SLOT;
+        if (deferred)
+        {
+            final int dataLength = limit - offset;
+            if (slotPosition + dataLength > factory.bufferPool.slotCapacity())
+            {
+                alignSlotData();
+            }
+            MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+            slot.putBytes(slotPosition, buffer, offset, dataLength);
+            slotPosition += dataLength;
+        }
+        return deferred;
+    }
+
+    private boolean deferLastChunk(
+        OctetsFW extension)
+    {
+        final ListFW<HttpHeaderFW> trailers = extension.sizeof() > 0 ?
+                extension.get(factory.endExRO::wrap).trailers() : null;
+
+        if (slotIndex == NO_SLOT)
+        {
+            slotIndex = factory.bufferPool.acquire(acceptId);
+            slotOffset = slotPosition = 0;
+        }
+
+        int lastChunkLimit = HttpHeadEncoder.HEAD_TOO_LONG;
+        if (slotIndex != NO_SLOT)
+        {
+            alignSlotData();
+            MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+            lastChunkLimit = factory.headEncoder.encodeLastChunk(trailers, slot, slotPosition, slot.capacity());
+            if (lastChunkLimit == HttpHeadEncoder.HEAD_TOO_LONG)
+            {
+                // the trailer is optional metadata, so it is dropped rather than the request when it does not fit
+                lastChunkLimit = factory.headEncoder.encodeLastChunk(null, slot, slotPosition, slot.capacity());
+            }
+        }
+
+        final boolean deferred = lastChunkLimit != HttpHeadEncoder.HEAD_TOO_LONG;
+        if (deferred)
+        {
+            lastChunkLength = lastChunkLimit - slotPosition;
+            slotPosition = lastChunkLimit;
+        }
+        return deferred;
+    }
+
+    private void alignSlotData()
+    {
+        int dataLength = slotPosition - slotOffset;
+        MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+        slot.putBytes(0, slot, slotOffset, dataLength);
+        slotOffset = 0;
+        slotPosition = dataLength;
+    }
+
+    private void flushDeferredData()
+    {
+        flushChunk();
+        if (slotPosition - slotOffset == lastChunkLength)
+        {
+            final int writableBytes = Math.min(lastChunkLength, connection.window);
+            if (writableBytes > 0)
+            {
+                MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+                factory.writer.doData(target, connection.connectStreamId, slot, slotOffset, writableBytes);
+                connection.window -= writableBytes;
+                slotOffset += writableBytes;
+                lastChunkLength -= writableBytes;
+            }
+        }
+
+        if (slotPosition == slotOffset)
+        {
+            releaseSlotIfNecessary();
+            if (endDeferred)
+            {
+                doEnd();
+            }
+        }
+    }
+
+    private void flushChunk()
+    {
+        final int window = connection.window;
+        final int bodyBytes = slotPosition - lastChunkLength - slotOffset;
+        final int payloadLength = window > 0 ? Math.min(bodyBytes, window - (HttpHeadEncoder.chunkLength(window) - window)) : 0;
+        if (payloadLength > 0)
+        {
+            MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+            factory.writer.doHttpChunk(target, connection.connectStreamId, slot, slotOffset, payloadLength);
+            connection.window -= HttpHeadEncoder.chunkLength(payloadLength);
+            slotOffset += payloadLength;
+        }
     }
 
     private void doEnd()
     {
-        connectionPool.setDefaultThrottle(connection);
-        this.streamState = this::streamAfterEnd;
+        connectionPool.requestComplete(connection);
+        this.streamState = STREAM_AFTER_END;
+
+        if (hedgeable && connection.pendingResponses == 1 && factory.correlations.get(connection.correlationId) == correlation)
+        {
+            if (hedgeTimeout == null)
+            {
+                hedgeTimeout = new Timeout(this::onHedgeTimeout);
+            }
+            connection.hedged = true;
+            factory.timer.schedule(hedgeTimeout, factory.timer.currentTimeMillis() + factory.hedgedRequestDelay);
+        }
+        else
+        {
+            releaseSlotIfNecessary();
+        }
+    }
+
+    private void onHedgeTimeout()
+    {
+        final Connection hedge = factory.correlations.get(connection.correlationId) == correlation ?
+                connectionPool.acquireHedge() : null;
+        if (hedge != null)
+        {
+            hedge.persistent = persistent;
+            hedge.hedged = true;
+            hedgeConnection = hedge;
+            hedgeSlotOffset = 0;
+            ClientConnectReplyState state =
+                    new ClientConnectReplyState(connectionPool, hedge, this, collapsedResponse, cacheEntry);
+            connectionPool.addRequest(hedge, new Correlation<>(acceptCorrelationId, acceptName, state));
+            factory.router.setThrottle(connectName, hedge.connectStreamId, this::handleHedgeThrottle);
+            if (hedge.window > 0)
+            {
+                useWindowToWriteHedgeHeaders();
+            }
+        }
+        else
+        {
+            finishHedge();
+        }
+    }
+
+    private void handleHedgeThrottle(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        final Connection hedge = hedgeConnection;
+        if (hedge != null)
+        {
+            switch (msgTypeId)
+            {
+            case WindowFW.TYPE_ID:
+                this.factory.windowRO.wrap(buffer, index, index + length);
+                hedge.window += this.factory.windowRO.update();
+                useWindowToWriteHedgeHeaders();
+                break;
+            case ResetFW.TYPE_ID:
+                hedge.persistent = false;
+                connectionPool.release(hedge, false);
+                break;
+            default:
+                // ignore
+                break;
+            }
+        }
+    }
+
+    private void useWindowToWriteHedgeHeaders()
+    {
+        int writableBytes = Math.min(slotPosition - hedgeSlotOffset, hedgeConnection.window);
+        MutableDirectBuffer slot = this.factory.bufferPool.buffer(slotIndex);
+        factory.writer.doData(target, hedgeConnection.connectStreamId, slot, hedgeSlotOffset, writableBytes);
+        hedgeConnection.window -= writableBytes;
+        hedgeSlotOffset += writableBytes;
+        if (hedgeSlotOffset == slotPosition)
+        {
+            releaseSlotIfNecessary();
+            connectionPool.requestComplete(hedgeConnection);
+        }
+    }
+
+    /**
+     * Called when the response to this request begins on the given connection, closing the other connection
+     * if the request was hedged.
+     */
+    void onResponseBegin(
+        Connection winner)
+    {
+        final Connection loser = hedgeConnection == null ? null : winner == hedgeConnection ? connection : hedgeConnection;
+        finishHedge();
+        if (loser != null)
+        {
+            connectionPool.cancel(loser);
+        }
+    }
+
+    /**
+     * Called when the response to this request is lost on the given connection.
+     *
+     * @return true if the response is lost, false if it is still awaited on the other connection of a hedged request
+     */
+    boolean onResponseLost(
+        Connection lost)
+    {
+        final Connection survivor = hedgeConnection == null ? null : lost == hedgeConnection ? connection : hedgeConnection;
+
+        // a duplicate request not yet completely written gets no response, so the response is lost with the original
+        final boolean incomplete = survivor != null && survivor == hedgeConnection && hedgeSlotOffset < slotPosition;
+        final boolean responseLost = survivor == null || incomplete;
+        if (!responseLost)
+        {
+            connection = survivor;
+        }
+        finishHedge();
+        if (incomplete)
+        {
+            connectionPool.cancel(survivor);
+        }
+        return responseLost;
+    }
+
+    private void finishHedge()
+    {
+        if (hedgeTimeout != null)
+        {
+            factory.timer.cancel(hedgeTimeout);
+        }
+        if (hedgeConnection != null)
+        {
+            if (hedgeSlotOffset < slotPosition)
+            {
+                // the duplicate request is incomplete, so the connection cannot be reused
+                hedgeConnection.persistent = false;
+                connectionPool.setDefaultThrottle(hedgeConnection);
+            }
+            hedgeConnection.hedged = false;
+            hedgeConnection = null;
+        }
+        connection.hedged = false;
+        hedgeable = false;
+        releaseSlotIfNecessary();
     }
 
     private void processUnexpected(
@@ -335,7 +759,7 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
 
         factory.writer.doReset(acceptThrottle, streamId);
 
-        this.streamState = this::streamAfterReplyOrReset;
+        this.streamState = STREAM_AFTER_REPLY_OR_RESET;
     }
 
     private void handleThrottle(
@@ -344,7 +768,18 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
         int index,
         int length)
     {
-        throttleState.accept(msgTypeId, buffer, index, length);
+        switch (throttleState)
+        {
+        case THROTTLE_BEFORE_BEGIN:
+            throttleBeforeBegin(msgTypeId, buffer, index, length);
+            break;
+        case THROTTLE_BEFORE_HEADERS_WRITTEN:
+            throttleBeforeHeadersWritten(msgTypeId, buffer, index, length);
+            break;
+        case THROTTLE_NEXT_WINDOW:
+            throttleNextWindow(msgTypeId, buffer, index, length);
+            break;
+        }
     }
 
     private void throttleBeforeBegin(
@@ -396,9 +831,12 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
         {
         case WindowFW.TYPE_ID:
             this.factory.windowRO.wrap(buffer, index, index + length);
-            int update = this.factory.windowRO.update();
-            connection.window += update;
-            doSourceWindow(update);
+            connection.window += this.factory.windowRO.update();
+            if (chunked && slotIndex != NO_SLOT)
+            {
+                flushDeferredData();
+            }
+            updateSourceWindow();
             break;
         case ResetFW.TYPE_ID:
             processReset(buffer, index, length);
@@ -419,24 +857,42 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
         int bytesDeferred = slotPosition - slotOffset;
         if (bytesDeferred == 0)
         {
-            this.factory.bufferPool.release(slotIndex);
-            slotIndex = BufferPool.NO_SLOT;
+            if (!hedgeable)
+            {
+                releaseSlotIfNecessary();
+            }
             if (endDeferred)
             {
                 doEnd();
             }
             else
             {
-                streamState = this::streamAfterBeginOrData;
-                throttleState = this::throttleNextWindow;
-                if (connection.window > 0)
-                {
-                    doSourceWindow(connection.window);
-                }
+                streamState = STREAM_AFTER_BEGIN_OR_DATA;
+                throttleState = THROTTLE_NEXT_WINDOW;
+                updateSourceWindow();
             }
         }
     }
 
+    private void updateSourceWindow()
+    {
+        final int window = connection.window;
+        int maximumWindow = window;
+        if (chunked)
+        {
+            // bounded by the space left in the slot, where data is deferred when its chunk does not fit the window
+            final int slotWindow = factory.bufferPool.slotCapacity() - HttpHeadEncoder.LAST_CHUNK_LENGTH -
+                    (slotIndex != NO_SLOT ? slotPosition - slotOffset : 0);
+            maximumWindow = slotIndex != NO_SLOT ? slotWindow :
+                    Math.min(window - (HttpHeadEncoder.chunkLength(window) - window), slotWindow);
+        }
+
+        if (maximumWindow > sourceWindow)
+        {
+            doSourceWindow(maximumWindow - sourceWindow);
+        }
+    }
+
     private void doSourceWindow(int update)
     {
         sourceWindow += update;
@@ -482,15 +938,60 @@ final class ClientAcceptStream implements ConnectionRequest, Consumer<Connection
         return nextConnectionRequest;
     }
 
+    @Override
+    public boolean pipelinable()
+    {
+        return pipelinable;
+    }
+
+    @Override
+    public void deadline(long deadline)
+    {
+        this.deadline = deadline;
+    }
+
+    @Override
+    public long deadline()
+    {
+        return deadline;
+    }
+
+    @Override
+    public void reject()
+    {
+        releaseSlotIfNecessary();
+        if (cacheEntry != null)
+        {
+            cacheEntry.abandon();
+        }
+        if (collapsedResponse != null)
+        {
+            collapsedResponse.onResponseLost(connectionPool);
+        }
+        else
+        {
+            connectionPool.doServiceUnavailable(acceptName, acceptCorrelationId);
+        }
+        if (endDeferred)
+        {
+            this.streamState = STREAM_AFTER_END;
+        }
+        else
+        {
+            factory.writer.doReset(acceptThrottle, acceptId);
+            this.streamState = STREAM_AFTER_REPLY_OR_RESET;
+        }
+    }
+
     @Override
     public void accept(Connection connection)
     {
         this.connection = connection;
         connection.persistent = persistent;
-        ClientConnectReplyState state = new ClientConnectReplyState(connectionPool, connection);
-        final Correlation<ClientConnectReplyState> correlation =
-                new Correlation<>(acceptCorrelationId, acceptName, state);
-        factory.correlations.put(connection.correlationId, correlation);
+        ClientConnectReplyState state =
+                new ClientConnectReplyState(connectionPool, connection, hedgeable ? this : null, collapsedResponse, cacheEntry);
+        correlation = new Correlation<>(acceptCorrelationId, acceptName, state);
+        connectionPool.addRequest(connection, correlation);
         factory.router.setThrottle(connectName, connection.connectStreamId, this::handleThrottle);
         if (connection.window > 0)
         {
@@ -21,12 +21,51 @@ final class ClientConnectReplyState
 {
     final ConnectionPool connectionPool;
     final Connection connection;
+    final ClientAcceptStream hedgedRequest;
+    final CollapsedResponse collapsedResponse;
+    final HttpCacheEntry cacheEntry;
 
     ClientConnectReplyState(ConnectionPool connectionPool,
-                            Connection connection)
+                            Connection connection,
+                            ClientAcceptStream hedgedRequest,
+                            CollapsedResponse collapsedResponse,
+                            HttpCacheEntry cacheEntry)
     {
        this.connectionPool = connectionPool;
        this.connection = connection;
+       this.hedgedRequest = hedgedRequest;
+       this.collapsedResponse = collapsedResponse;
+       this.cacheEntry = cacheEntry;
+    }
+
+    /**
+     * @return the request to notify of its response, if it may be hedged on another connection, otherwise null
+     */
+    static ClientAcceptStream hedgedRequest(
+        Correlation<?> correlation)
+    {
+        final Object state = correlation.state();
+        return state instanceof ClientConnectReplyState ? ((ClientConnectReplyState) state).hedgedRequest : null;
+    }
+
+    /**
+     * @return the response shared with identical requests, if any, otherwise null
+     */
+    static CollapsedResponse collapsedResponse(
+        Correlation<?> correlation)
+    {
+        final Object state = correlation.state();
+        return state instanceof ClientConnectReplyState ? ((ClientConnectReplyState) state).collapsedResponse : null;
+    }
+
+    /**
+     * @return the response cache entry to store the response in, if any, otherwise null
+     */
+    static HttpCacheEntry cacheEntry(
+        Correlation<?> correlation)
+    {
+        final Object state = correlation.state();
+        return state instanceof ClientConnectReplyState ? ((ClientConnectReplyState) state).cacheEntry : null;
     }
 
     @Override
@@ -15,22 +15,16 @@
  */
 package org.reaktivity.nukleus.http.internal.stream;
 
-import static java.lang.Integer.parseInt;
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
-import static org.reaktivity.nukleus.http.internal.stream.ClientStreamFactory.CRLFCRLF_BYTES;
 import static org.reaktivity.nukleus.http.internal.stream.ClientStreamFactory.CRLF_BYTES;
-import static org.reaktivity.nukleus.http.internal.stream.ClientStreamFactory.SEMICOLON_BYTES;
+import static org.reaktivity.nukleus.http.internal.stream.ClientStreamFactory.CRLFCRLF_BYTES;
 import static org.reaktivity.nukleus.http.internal.util.BufferUtil.limitOfBytes;
 
-import java.util.Arrays;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.function.Consumer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.reaktivity.nukleus.buffer.BufferPool;
 import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.http.internal.stream.ConnectionPool.Connection;
@@ -43,13 +37,40 @@ import org.reaktivity.nukleus.http.internal.types.stream.WindowFW;
 
 final class ClientConnectReplyStream implements MessageConsumer
 {
+    private static final int STREAM_BEFORE_BEGIN = 0;
+    private static final int STREAM_WHEN_NOT_BUFFERING = 1;
+    private static final int STREAM_WHEN_BUFFERING = 2;
+    private static final int STREAM_BEFORE_END = 3;
+    private static final int STREAM_AFTER_END = 4;
+    private static final int STREAM_AFTER_RESET = 5;
+
+    private static final int THROTTLE_BEFORE_BEGIN = 0;
+    private static final int THROTTLE_AFTER_BEGIN = 1;
+
+    private static final int WINDOW_UNBOUNDED = 0;
+    private static final int WINDOW_BOUNDED = 1;
+
+    private static final int DECODE_NONE = 0;
+    private static final int DECODE_HTTP_BEGIN = 1;
+    private static final int DECODE_HTTP_DATA = 2;
+    private static final int DECODE_HTTP_CHUNK = 3;
+    private static final int DECODE_HTTP_CHUNK_DATA = 4;
+    private static final int DECODE_HTTP_CHUNK_END = 5;
+    private static final int DECODE_HTTP_DATA_AFTER_UPGRADE = 6;
+    private static final int DECODE_SKIP_DATA = 7;
+    private static final int DECODE_HTTP_CHUNK_TRAILERS = 8;
+
+    private static final DirectBuffer STATUS_NAME = new UnsafeBuffer(":status".getBytes(US_ASCII));
+
     private final ClientStreamFactory factory;
     private final String connectReplyName;
     private final MessageConsumer connectReplyThrottle;
+    private final HttpHeadScanner headScanner = new HttpHeadScanner();
+    private final MessageConsumer throttle;
 
-    private MessageConsumer streamState;
-    private MessageConsumer throttleState;
-    private DecoderState decoderState;
+    private int streamState;
+    private int throttleState;
+    private int decoderState;
 
     private enum ResponseState
     {
@@ -67,6 +88,8 @@ final class ClientConnectReplyStream implements MessageConsumer
     private MessageConsumer acceptReply;
     private long acceptReplyId;
     private String acceptReplyName;
+    private CollapsedResponse collapsedResponse;
+    private HttpCacheEntry cacheEntry;
 
     private long acceptCorrelationId;
     private int contentRemaining;
@@ -81,9 +104,10 @@ final class ClientConnectReplyStream implements MessageConsumer
     private int connectReplyWindowBytesAdjustment;
     private int connectReplyWindowFrames;
     private int connectReplyWindowFramesAdjustment;
-    private Consumer<WindowFW> windowHandler;
+    private int windowState;
     private int connectReplyWindowBytesDeltaRemaining;
 
+
     @Override
     public String toString()
     {
@@ -101,15 +125,36 @@ final class ClientConnectReplyStream implements MessageConsumer
         this.connectReplyThrottle = connectReplyThrottle;
         this.acceptReplyId = connectReplyId;
         this.connectReplyName = connectReplyName;
-        this.streamState = this::handleStreamBeforeBegin;
-        this.throttleState = this::handleThrottleBeforeBegin;
-        this.windowHandler = this::handleWindow;
+        this.streamState = STREAM_BEFORE_BEGIN;
+        this.throttleState = THROTTLE_BEFORE_BEGIN;
+        this.windowState = WINDOW_UNBOUNDED;
+        this.throttle = this::handleThrottle;
     }
 
     @Override
     public void accept(int msgTypeId, DirectBuffer buffer, int index, int length)
     {
-        streamState.accept(msgTypeId, buffer, index, length);
+        switch (streamState)
+        {
+        case STREAM_BEFORE_BEGIN:
+            handleStreamBeforeBegin(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_WHEN_NOT_BUFFERING:
+            handleStreamWhenNotBuffering(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_WHEN_BUFFERING:
+            handleStreamWhenBuffering(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_BEFORE_END:
+            handleStreamBeforeEnd(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_AFTER_END:
+            handleStreamAfterEnd(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_AFTER_RESET:
+            handleStreamAfterReset(msgTypeId, buffer, index, length);
+            break;
+        }
     }
 
     private void handleStreamBeforeBegin(
@@ -213,7 +258,7 @@ final class ClientConnectReplyStream implements MessageConsumer
             break;
         case EndFW.TYPE_ID:
             this.factory.endRO.wrap(buffer, index, index + length);
-            this.streamState = this::handleStreamAfterEnd;
+            this.streamState = STREAM_AFTER_END;
             break;
         default:
             break;
@@ -236,13 +281,13 @@ final class ClientConnectReplyStream implements MessageConsumer
     {
         factory.writer.doReset(connectReplyThrottle, streamId);
 
-        this.streamState = this::handleStreamAfterReset;
+        this.streamState = STREAM_AFTER_RESET;
     }
 
     private void handleInvalidResponse(boolean resetSource)
     {
-        this.decoderState = this::decodeSkipData;
-        this.streamState = this::handleStreamAfterReset;
+        this.decoderState = DECODE_SKIP_DATA;
+        this.streamState = STREAM_AFTER_RESET;
 
         if (resetSource)
         {
@@ -253,6 +298,7 @@ final class ClientConnectReplyStream implements MessageConsumer
         }
 
         connection.persistent = false;
+        abandonCacheEntryIfNecessary();
         doCleanup(!resetSource);
     }
 
@@ -263,14 +309,13 @@ final class ClientConnectReplyStream implements MessageConsumer
         final long sourceRef = begin.sourceRef();
         long connectCorrelationId = begin.correlationId();
 
-        @SuppressWarnings("unchecked")
-        final Correlation<ClientConnectReplyState> correlation =
-                (Correlation<ClientConnectReplyState>) factory.correlations.get(connectCorrelationId);
-        connection = correlation.state().connection;
-        connectionPool = correlation.state().connectionPool;
-        connection.setInput(connectReplyThrottle, sourceId);
-        if (sourceRef == 0L && correlation != null)
+        // Connections are found by correlation rather than by request, as they may be opened ahead of requests
+        final Connection connection = factory.connections.get(connectCorrelationId);
+        if (sourceRef == 0L && connection != null)
         {
+            this.connection = connection;
+            this.connectionPool = connection.pool();
+            connection.setInput(this, connectReplyThrottle, sourceId);
             httpResponseBegin();
         }
         else
@@ -333,16 +378,42 @@ final class ClientConnectReplyStream implements MessageConsumer
 
     private int decode(DirectBuffer buffer, int offset, int limit)
     {
-        boolean decoderStateChanged = true;
-        while (offset < limit && decoderStateChanged)
+        boolean decoderProgressed = true;
+        while (offset < limit && decoderProgressed)
         {
-            DecoderState previous = decoderState;
-            offset = decoderState.decode(buffer, offset, limit);
-            decoderStateChanged = previous != decoderState;
+            final int previousState = decoderState;
+            final int previousOffset = offset;
+            offset = decode(decoderState, buffer, offset, limit);
+            decoderProgressed = previousState != decoderState || previousOffset != offset;
         }
         return offset;
     }
 
+    private int decode(int decoderState, DirectBuffer buffer, int offset, int limit)
+    {
+        switch (decoderState)
+        {
+        case DECODE_HTTP_BEGIN:
+            return decodeHttpBegin(buffer, offset, limit);
+        case DECODE_HTTP_DATA:
+            return decodeHttpData(buffer, offset, limit);
+        case DECODE_HTTP_CHUNK:
+            return decodeHttpChunk(buffer, offset, limit);
+        case DECODE_HTTP_CHUNK_DATA:
+            return decodeHttpChunkData(buffer, offset, limit);
+        case DECODE_HTTP_CHUNK_END:
+            return decodeHttpChunkEnd(buffer, offset, limit);
+        case DECODE_HTTP_CHUNK_TRAILERS:
+            return decodeHttpChunkTrailers(buffer, offset, limit);
+        case DECODE_HTTP_DATA_AFTER_UPGRADE:
+            return decodeHttpDataAfterUpgrade(buffer, offset, limit);
+        case DECODE_SKIP_DATA:
+            return decodeSkipData(buffer, offset, limit);
+        default:
+            return offset;
+        }
+    }
+
     private void handleDataPayloadWhenDecodeIncomplete(
         final OctetsFW payload)
     {
@@ -358,7 +429,7 @@ final class ClientConnectReplyStream implements MessageConsumer
         }
         else
         {
-            streamState = this::handleStreamWhenBuffering;
+            streamState = STREAM_WHEN_BUFFERING;
 
             handleDataPayloadWhenBuffering(payload);
         }
@@ -406,7 +477,7 @@ final class ClientConnectReplyStream implements MessageConsumer
         {
             factory.bufferPool.release(slotIndex);
             slotIndex = NO_SLOT;
-            streamState = this::handleStreamWhenNotBuffering;
+            streamState = STREAM_WHEN_NOT_BUFFERING;
             if (endDeferred)
             {
                 connection.persistent = false;
@@ -444,16 +515,16 @@ final class ClientConnectReplyStream implements MessageConsumer
     {
         int dataLength = slotPosition - slotOffset;
         MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
-        factory.temporarySlot.putBytes(0, slot, slotOffset, dataLength);
-        slot.putBytes(0, factory.temporarySlot, 0, dataLength);
+        // overlapping move towards the start of the slot, copyMemory has memmove semantics
+        slot.putBytes(0, slot, slotOffset, dataLength);
         slotOffset = 0;
         slotPosition = dataLength;
     }
 
     private void doCleanup(boolean doEnd)
     {
-        decoderState = (b, o, l) -> o;
-        streamState = this::handleStreamAfterEnd;
+        decoderState = DECODE_NONE;
+        streamState = STREAM_AFTER_END;
         responseState = ResponseState.FINAL;
         releaseSlotIfNecessary();
         connectionPool.release(connection, doEnd);
@@ -467,8 +538,13 @@ final class ClientConnectReplyStream implements MessageConsumer
         this.responseState = ResponseState.HEADERS;
         int result = limit;
 
-        final int endOfHeadersAt = limitOfBytes(payload, offset, limit, CRLFCRLF_BYTES);
-        if (endOfHeadersAt == -1)
+        final int endOfHeadersAt = headScanner.limitOfHead(payload, offset, limit);
+        if (factory.correlations.get(connection.correlationId) == null)
+        {
+            // no request awaits a response, such as on a connection opened ahead of requests
+            handleInvalidResponse(true);
+        }
+        else if (endOfHeadersAt == -1)
         {
             result = offset;
             int length = limit - offset;
@@ -492,63 +568,60 @@ final class ClientConnectReplyStream implements MessageConsumer
         final int length,
         final int content)
     {
-        // TODO: replace with lightweight approach (start)
-        String[] lines = payload.getStringWithoutLengthUtf8(offset, length).split("\r\n");
-        String[] start = lines[0].split("\\s+");
-
-        Pattern versionPattern = Pattern.compile("HTTP/1\\.(\\d)");
-        Matcher versionMatcher = versionPattern.matcher(start[0]);
-        if (!versionMatcher.matches())
+        final HttpResponseParser response = factory.responseParser;
+        if (!response.parse(payload, offset, offset + length))
         {
             handleInvalidResponse(true);
         }
         else
         {
-            final Map<String, String> headers = decodeHttpHeaders(start, lines);
-            // TODO: replace with lightweight approach (end)
+            contentRemaining = response.contentLength;
+            isChunkedTransfer = response.chunked;
 
             resolveTarget();
 
-            factory.writer.doHttpBegin(acceptReply, acceptReplyId, 0L, acceptCorrelationId,
-                    hs -> headers.forEach((k, v) -> hs.item(i -> i.representation((byte) 0).name(k).value(v))));
-            factory.router.setThrottle(acceptReplyName, acceptReplyId, this::handleThrottle);
+            final HttpHeaderBlock headers = decodeHttpHeaders(response, factory.headerBlock);
+            factory.writer.doHttpBegin(acceptReply, acceptReplyId, 0L, acceptCorrelationId, headers);
+            if (collapsedResponse != null)
+            {
+                collapsedResponse.setThrottle(throttle, acceptReplyId);
+            }
+            else
+            {
+                factory.router.setThrottle(acceptReplyName, acceptReplyId, throttle);
+            }
 
-            boolean upgraded = "101".equals(headers.get(":status"));
-            String connectionOptions = headers.get("connection");
-            if (connectionOptions != null)
+            connection.responseStatus = response.status;
+            connection.responseLatency = factory.timer.currentTimeMillis() - connection.requestStartedAt;
+            boolean upgraded = response.status == 101;
+            if (response.connectionClose)
             {
-                Arrays.asList(connectionOptions.toLowerCase().split(",")).stream().forEach((element) ->
-                {
-                    if (element.equals("close"))
-                    {
-                        connection.persistent = false;
-                    }
-                });
+                connection.persistent = false;
             }
 
             if (upgraded)
             {
                 connection.persistent = false;
                 connectionPool.release(connection, false);
-                this.decoderState = this::decodeHttpDataAfterUpgrade;
-                throttleState = this::handleThrottleAfterBegin;
-                windowHandler = this::handleWindow;
+                this.decoderState = DECODE_HTTP_DATA_AFTER_UPGRADE;
+                throttleState = THROTTLE_AFTER_BEGIN;
+                windowState = WINDOW_UNBOUNDED;
                 this.responseState = ResponseState.DATA;
             }
             else if (contentRemaining > 0)
             {
-                decoderState = this::decodeHttpData;
-                throttleState = this::handleThrottleAfterBegin;
-                windowHandler = this::handleBoundedWindow;
+                decoderState = DECODE_HTTP_DATA;
+                throttleState = THROTTLE_AFTER_BEGIN;
+                windowState = WINDOW_BOUNDED;
                 this.responseState = ResponseState.DATA;
 
                 connectReplyWindowBytesDeltaRemaining = Math.max(contentRemaining - content, 0);
             }
             else if (isChunkedTransfer)
             {
-                decoderState = this::decodeHttpChunk;
-                throttleState = this::handleThrottleAfterBegin;
-                windowHandler = this::handleBoundedWindow;
+                decoderState = DECODE_HTTP_CHUNK;
+                throttleState = THROTTLE_AFTER_BEGIN;
+                windowState = WINDOW_BOUNDED;
                 this.responseState = ResponseState.DATA;
 
                 // 0\r\n\r\n
@@ -559,63 +632,26 @@ final class ClientConnectReplyStream implements MessageConsumer
             {
                 // no content
                 httpResponseComplete();
-                windowHandler = this::handleWindow;
+                windowState = WINDOW_UNBOUNDED;
             }
         }
     }
 
-    private Map<String, String> decodeHttpHeaders(
-        String[] start,
-        String[] lines)
+    private static HttpHeaderBlock decodeHttpHeaders(
+        HttpResponseParser response,
+        HttpHeaderBlock headers)
     {
-        Map<String, String> headers = new LinkedHashMap<>();
-        headers.put(":status", start[1]);
-
-        Pattern headerPattern = Pattern.compile("([^\\s:]+)\\s*:\\s*(.*)");
-        boolean contentLengthFound = false;
-        contentRemaining = 0;
-        isChunkedTransfer = false;
-        for (int i = 1; i < lines.length; i++)
-        {
-            Matcher headerMatcher = headerPattern.matcher(lines[i]);
-            if (!headerMatcher.matches())
-            {
-                throw new IllegalStateException("illegal http header syntax");
-            }
+        final DirectBuffer values = response.valueBuffer();
+        final DirectBuffer names = response.nameBuffer();
 
-            String name = headerMatcher.group(1).toLowerCase();
-            String value = headerMatcher.group(2);
+        headers.reset()
+               .header(STATUS_NAME, 0, STATUS_NAME.capacity(),
+                       values, response.statusOffset, HttpResponseParser.STATUS_LENGTH);
 
-            if ("transfer-encoding".equals(name))
-            {
-                // TODO: support other transfer encodings
-                if (contentLengthFound || !"chunked".equals(value))
-                {
-                    handleInvalidResponse(true);
-                }
-                else
-                {
-                    isChunkedTransfer = true;
-                    headers.put(name, value);
-                }
-            }
-            else if ("content-length".equals(name))
-            {
-                if (contentLengthFound || isChunkedTransfer)
-                {
-                    handleInvalidResponse(true);
-                }
-                else
-                {
-                    contentRemaining = parseInt(value);
-                    contentLengthFound = true;
-                    headers.put(name, value);
-                }
-            }
-            else
-            {
-                headers.put(name, value);
-            }
+        for (int field = 0; field < response.fieldCount(); field++)
+        {
+            headers.header(names, response.nameOffset(field), response.nameLength(field),
+                           values, response.valueOffset(field), response.valueLength(field));
         }
 
         return headers;
@@ -662,30 +698,23 @@ final class ClientConnectReplyStream implements MessageConsumer
         }
         else
         {
-            final int semicolonAt = limitOfBytes(payload, offset, chunkHeaderLimit, SEMICOLON_BYTES);
-            final int chunkSizeLimit = semicolonAt == -1 ? chunkHeaderLimit - 2 : semicolonAt - 1;
-            final int chunkSizeLength = chunkSizeLimit - offset;
-
-            try
-            {
-                final String chunkSizeHex = payload.getStringWithoutLengthUtf8(offset, chunkSizeLength);
-                chunkSizeRemaining = Integer.parseInt(chunkSizeHex, 16);
-            }
-            catch (NumberFormatException ex)
+            final int chunkSize = HttpChunkParser.chunkSize(payload, offset, chunkHeaderLimit - CRLF_BYTES.length);
+            if (chunkSize == HttpChunkParser.CHUNK_SIZE_INVALID)
             {
                 handleInvalidResponse(true);
             }
-
-            if (chunkSizeRemaining == 0)
+            else if (chunkSize == 0)
             {
-                httpResponseComplete();
+                decoderState = DECODE_HTTP_CHUNK_TRAILERS;
+                result = chunkHeaderLimit;
             }
             else
             {
-                connectReplyWindowBytesAdjustment += chunkSizeLength + CRLF_BYTES.length + CRLF_BYTES.length;
+                chunkSizeRemaining = chunkSize;
+                connectReplyWindowBytesAdjustment += chunkHeaderLimit - offset + CRLF_BYTES.length;
                 connectReplyWindowBytesDeltaRemaining += chunkSizeRemaining;
 
-                decoderState = this::decodeHttpChunkData;
+                decoderState = DECODE_HTTP_CHUNK_DATA;
                 result = chunkHeaderLimit;
             }
         }
@@ -710,7 +739,7 @@ final class ClientConnectReplyStream implements MessageConsumer
             }
             else
             {
-                decoderState = this::decodeHttpChunk;
+                decoderState = DECODE_HTTP_CHUNK;
                 result = offset + 2;
             }
         }
@@ -718,6 +747,54 @@ final class ClientConnectReplyStream implements MessageConsumer
         return result;
     };
 
+    private int decodeHttpChunkTrailers(
+        final DirectBuffer payload,
+        final int offset,
+        final int limit)
+    {
+        int result = offset;
+
+        if (limit - offset > 1 && payload.getByte(offset) == '\r' && payload.getByte(offset + 1) == '\n')
+        {
+            httpResponseComplete();
+            result = offset + CRLF_BYTES.length;
+        }
+        else
+        {
+            final int trailersLimit = limitOfBytes(payload, offset, limit, CRLFCRLF_BYTES);
+            if (trailersLimit == -1)
+            {
+                if (limit - offset >= factory.maximumHeadersSize)
+                {
+                    handleInvalidResponse(true);
+                    result = limit;
+                }
+                else
+                {
+                    // trailer fields are not covered by the window granted for the terminating chunk
+                    final int windowBytesDelta = factory.maximumHeadersSize - (limit - offset) - connectReplyWindowBytes;
+                    if (windowBytesDelta > 0)
+                    {
+                        connectReplyWindowBytes += windowBytesDelta;
+                        factory.writer.doWindow(connectReplyThrottle, sourceId, windowBytesDelta, windowBytesDelta);
+                    }
+                }
+            }
+            else if (!factory.chunkParser.parseTrailers(payload, offset, trailersLimit))
+            {
+                handleInvalidResponse(true);
+                result = limit;
+            }
+            else
+            {
+                httpResponseComplete(factory.chunkParser.trailers(factory.headerBlock));
+                result = trailersLimit;
+            }
+        }
+
+        return result;
+    }
+
     private int decodeHttpChunkData(
         final DirectBuffer payload,
         final int offset,
@@ -739,7 +816,7 @@ final class ClientConnectReplyStream implements MessageConsumer
 
         if (chunkSizeRemaining == 0)
         {
-            decoderState = this::decodeHttpChunkEnd;
+            decoderState = DECODE_HTTP_CHUNK_END;
         }
 
         return offset + writableBytes;
@@ -773,22 +850,10 @@ final class ClientConnectReplyStream implements MessageConsumer
         return limit;
     };
 
-    @SuppressWarnings("unused")
-    private int decodeHttpEnd(
-        DirectBuffer payload,
-        int offset,
-        int limit)
-    {
-        // TODO: consider chunks, trailers
-        factory.writer.doHttpEnd(acceptReply, acceptReplyId);
-        connectionPool.release(connection, true);
-        return limit;
-    }
-
     private void httpResponseBegin()
     {
-        this.streamState = this::handleStreamWhenNotBuffering;
-        this.decoderState = this::decodeHttpBegin;
+        this.streamState = STREAM_WHEN_NOT_BUFFERING;
+        this.decoderState = DECODE_HTTP_BEGIN;
         this.responseState = ResponseState.BEFORE_HEADERS;
 
         final int connectReplyWindowBytesDelta =
@@ -797,7 +862,7 @@ final class ClientConnectReplyStream implements MessageConsumer
         connectReplyWindowBytes += connectReplyWindowBytesDelta;
         connectReplyWindowFrames = this.factory.maximumHeadersSize;
 
-        // TODO: Support HTTP/1.1 Pipelined Responses (may be buffered already)
+        // Pipelined responses already received are decoded from the remaining payload or buffered slot
         connectReplyWindowBytesAdjustment = 0;
         connectReplyWindowFramesAdjustment = 0;
 
@@ -807,7 +872,20 @@ final class ClientConnectReplyStream implements MessageConsumer
     private void httpResponseComplete()
     {
         factory.writer.doHttpEnd(acceptReply, acceptReplyId);
+        httpResponseEnded();
+    }
+
+    private void httpResponseComplete(
+        HttpHeaderBlock trailers)
+    {
+        factory.writer.doHttpEnd(acceptReply, acceptReplyId, trailers);
+        httpResponseEnded();
+    }
+
+    private void httpResponseEnded()
+    {
         acceptReply = null;
+        cacheEntry = null;
 
         if (connection.persistent)
         {
@@ -815,18 +893,47 @@ final class ClientConnectReplyStream implements MessageConsumer
         }
         else
         {
-            this.streamState = this::handleStreamBeforeEnd;
+            this.streamState = STREAM_BEFORE_END;
             this.responseState = ResponseState.FINAL;
         }
 
         connectionPool.release(connection, true);
     }
 
+    /**
+     * Stops decoding the response, as it is no longer needed, resetting the connect reply stream.
+     */
+    void cancel()
+    {
+        releaseSlotIfNecessary();
+        if (streamState != STREAM_AFTER_RESET && streamState != STREAM_AFTER_END)
+        {
+            handleUnexpected(sourceId);
+        }
+    }
+
     private void resolveTarget()
     {
         final Correlation<?> correlation = factory.correlations.remove(connection.correlationId);
+        final ClientAcceptStream hedgedRequest = ClientConnectReplyState.hedgedRequest(correlation);
+        if (hedgedRequest != null)
+        {
+            hedgedRequest.onResponseBegin(connection);
+        }
+        this.collapsedResponse = ClientConnectReplyState.collapsedResponse(correlation);
+        if (collapsedResponse != null)
+        {
+            // identical requests received from now on are sent, as they may no longer receive the whole response
+            collapsedResponse.closeSubscriptions();
+        }
+        this.cacheEntry = ClientConnectReplyState.cacheEntry(correlation);
         this.acceptReplyName = correlation.source();
-        this.acceptReply = factory.router.supplyTarget(acceptReplyName);
+        this.acceptReply = collapsedResponse != null ? collapsedResponse : factory.router.supplyTarget(acceptReplyName);
+        if (cacheEntry != null)
+        {
+            // the response is stored while it is written to the accept reply stream
+            this.acceptReply = cacheEntry.respond(factory, acceptReplyName, acceptReply);
+        }
         this.acceptReplyId = factory.supplyStreamId.getAsLong();
         this.acceptCorrelationId = correlation.id();
         this.acceptReplyWindowBytes = 0;
@@ -838,7 +945,15 @@ final class ClientConnectReplyStream implements MessageConsumer
         int index,
         int length)
     {
-        throttleState.accept(msgTypeId, buffer, index, length);
+        switch (throttleState)
+        {
+        case THROTTLE_BEFORE_BEGIN:
+            handleThrottleBeforeBegin(msgTypeId, buffer, index, length);
+            break;
+        case THROTTLE_AFTER_BEGIN:
+            handleThrottleAfterBegin(msgTypeId, buffer, index, length);
+            break;
+        }
     }
 
     private void handleThrottleBeforeBegin(
@@ -869,7 +984,14 @@ final class ClientConnectReplyStream implements MessageConsumer
         {
         case WindowFW.TYPE_ID:
             final WindowFW window = this.factory.windowRO.wrap(buffer, index, index + length);
-            windowHandler.accept(window);
+            if (windowState == WINDOW_BOUNDED)
+            {
+                handleBoundedWindow(window);
+            }
+            else
+            {
+                handleWindow(window);
+            }
             break;
         case ResetFW.TYPE_ID:
             final ResetFW reset = this.factory.resetRO.wrap(buffer, index, index + length);
@@ -951,11 +1073,21 @@ final class ClientConnectReplyStream implements MessageConsumer
         ResetFW reset)
     {
         releaseSlotIfNecessary();
+        abandonCacheEntryIfNecessary();
         factory.writer.doReset(connectReplyThrottle, sourceId);
         connection.persistent = false;
         connectionPool.release(connection, false);
     }
 
+    private void abandonCacheEntryIfNecessary()
+    {
+        if (cacheEntry != null)
+        {
+            cacheEntry.abandon();
+            cacheEntry = null;
+        }
+    }
+
     private void releaseSlotIfNecessary()
     {
         if (slotIndex != NO_SLOT)
@@ -964,10 +1096,4 @@ final class ClientConnectReplyStream implements MessageConsumer
             slotIndex = NO_SLOT;
         }
     }
-
-    @FunctionalInterface interface DecoderState
-    {
-        int decode(DirectBuffer buffer, int offset, int limit);
-    }
-
 }
\ No newline at end of file
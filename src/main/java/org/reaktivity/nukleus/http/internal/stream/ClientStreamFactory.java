@@ -17,13 +17,9 @@ package org.reaktivity.nukleus.http.internal.stream;
 
 import static java.util.Objects.requireNonNull;
 
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.function.LongSupplier;
 
 import org.agrona.DirectBuffer;
@@ -32,16 +28,16 @@ import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.reaktivity.nukleus.buffer.BufferPool;
 import org.reaktivity.nukleus.function.MessageConsumer;
-import org.reaktivity.nukleus.function.MessagePredicate;
 import org.reaktivity.nukleus.http.internal.HttpConfiguration;
+import org.reaktivity.nukleus.http.internal.stream.ConnectionPool.Connection;
 import org.reaktivity.nukleus.http.internal.types.OctetsFW;
-import org.reaktivity.nukleus.http.internal.types.control.HttpRouteExFW;
 import org.reaktivity.nukleus.http.internal.types.control.RouteFW;
 import org.reaktivity.nukleus.http.internal.types.stream.BeginFW;
 import org.reaktivity.nukleus.http.internal.types.stream.DataFW;
 import org.reaktivity.nukleus.http.internal.types.stream.EndFW;
 import org.reaktivity.nukleus.http.internal.types.stream.FrameFW;
 import org.reaktivity.nukleus.http.internal.types.stream.HttpBeginExFW;
+import org.reaktivity.nukleus.http.internal.types.stream.HttpEndExFW;
 import org.reaktivity.nukleus.http.internal.types.stream.ResetFW;
 import org.reaktivity.nukleus.http.internal.types.stream.WindowFW;
 import org.reaktivity.nukleus.route.RouteManager;
@@ -49,10 +45,8 @@ import org.reaktivity.nukleus.stream.StreamFactory;
 
 public final class ClientStreamFactory implements StreamFactory
 {
-    static final Map<String, String> EMPTY_HEADERS = Collections.emptyMap();
-    static final byte[] CRLFCRLF_BYTES = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
     static final byte[] CRLF_BYTES = "\r\n".getBytes(StandardCharsets.US_ASCII);
-    static final byte[] SEMICOLON_BYTES = ";".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] CRLFCRLF_BYTES = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
 
     // Pseudo-headers
     static final int METHOD = 0;
@@ -61,52 +55,105 @@ public final class ClientStreamFactory implements StreamFactory
     static final int PATH = 3;
 
     final FrameFW frameRO = new FrameFW();
-    final RouteFW routeRO = new RouteFW();
-    private HttpRouteExFW routeExRO = new HttpRouteExFW();
 
     final BeginFW beginRO = new BeginFW();
     final HttpBeginExFW beginExRO = new HttpBeginExFW();
+    private final HttpBeginExHeaders beginExHeaders = new HttpBeginExHeaders();
 
     final DataFW dataRO = new DataFW();
     final EndFW endRO = new EndFW();
+    final HttpEndExFW endExRO = new HttpEndExFW();
 
     final WindowFW windowRO = new WindowFW();
     final ResetFW resetRO = new ResetFW();
 
     final RouteManager router;
+    final HttpRouteTable routes;
     final LongSupplier supplyStreamId;
     final LongSupplier supplyCorrelationId;
     final BufferPool bufferPool;
     final MessageWriter writer;
 
     final int maximumHeadersSize;
+    final HttpResponseParser responseParser;
+    final HttpChunkParser chunkParser;
+    final HttpHeaderBlock headerBlock;
+    final HttpHeadEncoder headEncoder;
+    private final HttpRouteTable.TargetLoad targetLoad;
 
     Long2ObjectHashMap<Correlation<?>> correlations;
+    final Long2ObjectHashMap<Connection> connections;
 
-    final Map<String, Map<Long, ConnectionPool>> connectionPools;
+    final Map<String, Long2ObjectHashMap<ConnectionPool>> connectionPools;
     final int maximumConnectionsPerRoute;
-
-    final UnsafeBuffer temporarySlot;
+    final int minimumConnectionsPerRoute;
+    final int responseLatencyThreshold;
+    final int outlierConsecutiveFailures;
+    final int outlierEjectionTime;
+    final int outlierMaximumEjectionTime;
+    final int hedgedRequestDelay;
+    final int hedgedRequestBudget;
+    final int maximumPipelinedRequestsPerConnection;
+    final int maximumQueuedRequests;
+    final int maximumQueuedRequestWait;
+    final int keepaliveTimeout;
+    final int maximumConnectionLifetime;
+    final int minimumIdleConnections;
+    final ConnectionPoolTimer timer;
+    final HttpRequestKey requestKey;
+    final Long2ObjectHashMap<CollapsedResponse> collapsedResponses;
+    final MutableDirectBuffer collapsedFrameBuffer;
+    final HttpResponseCache responseCache;
 
     public ClientStreamFactory(
         HttpConfiguration configuration,
         RouteManager router,
+        HttpRouteTable routes,
         MutableDirectBuffer writeBuffer,
         BufferPool bufferPool,
         LongSupplier supplyStreamId,
         LongSupplier supplyCorrelationId,
-        Long2ObjectHashMap<Correlation<?>> correlations)
+        Long2ObjectHashMap<Correlation<?>> correlations,
+        Long2ObjectHashMap<Connection> connections,
+        ConnectionPoolTimer timer)
     {
         this.router = requireNonNull(router);
+        this.routes = requireNonNull(routes);
         this.writer = new MessageWriter(requireNonNull(writeBuffer));
         this.bufferPool = requireNonNull(bufferPool);
         this.supplyStreamId = requireNonNull(supplyStreamId);
         this.supplyCorrelationId = supplyCorrelationId;
         this.correlations = requireNonNull(correlations);
+        this.connections = requireNonNull(connections);
         this.connectionPools = new HashMap<>();
         this.maximumConnectionsPerRoute = configuration.maximumConnectionsPerRoute();
+        this.minimumConnectionsPerRoute = configuration.minimumConnectionsPerRoute();
+        this.responseLatencyThreshold = configuration.responseLatencyThreshold();
+        this.outlierConsecutiveFailures = configuration.outlierConsecutiveFailures();
+        this.outlierEjectionTime = configuration.outlierEjectionTime();
+        this.outlierMaximumEjectionTime = configuration.outlierMaximumEjectionTime();
+        this.hedgedRequestDelay = configuration.hedgedRequestDelay();
+        this.hedgedRequestBudget = configuration.hedgedRequestBudget();
+        this.maximumPipelinedRequestsPerConnection = configuration.maximumPipelinedRequestsPerConnection();
+        this.maximumQueuedRequests = configuration.maximumQueuedRequests();
+        this.maximumQueuedRequestWait = configuration.maximumQueuedRequestWait();
+        this.keepaliveTimeout = configuration.keepaliveTimeout();
+        this.maximumConnectionLifetime = configuration.maximumConnectionLifetime();
+        this.minimumIdleConnections = Math.min(configuration.minimumIdleConnections(), maximumConnectionsPerRoute);
+        this.timer = requireNonNull(timer);
         this.maximumHeadersSize = bufferPool.slotCapacity();
-        this.temporarySlot = new UnsafeBuffer(ByteBuffer.allocateDirect(bufferPool.slotCapacity()));
+        this.responseParser = new HttpResponseParser(maximumHeadersSize);
+        this.chunkParser = new HttpChunkParser(maximumHeadersSize);
+        this.headerBlock = new HttpHeaderBlock();
+        this.headEncoder = new HttpHeadEncoder();
+        this.requestKey = configuration.collapsedForwarding() ?
+                new HttpRequestKey(configuration.collapsedForwardingVary(), maximumHeadersSize) : null;
+        this.collapsedResponses = new Long2ObjectHashMap<>();
+        this.collapsedFrameBuffer = requestKey != null ? new UnsafeBuffer(new byte[writeBuffer.capacity()]) : null;
+        this.responseCache = configuration.responseCacheCapacity() > 0 ?
+                new HttpResponseCache(configuration.responseCacheCapacity(), configuration.responseCacheMaximumEntrySize(),
+                        writeBuffer.capacity(), timer::currentTimeMillis) : null;
+        this.targetLoad = this::targetLoad;
     }
 
     @Override
@@ -140,18 +187,10 @@ public final class ClientStreamFactory implements StreamFactory
         final String acceptName = begin.source().asString();
 
         final OctetsFW extension = beginRO.extension();
+        final HttpBeginExFW beginEx = extension.sizeof() > 0 ? extension.get(beginExRO::wrap) : null;
+        beginExHeaders.wrap(beginEx != null ? beginEx.headers() : null);
 
-        // TODO: avoid object creation
-        Map<String, String> headers = EMPTY_HEADERS;
-        if (extension.sizeof() > 0)
-        {
-            final HttpBeginExFW beginEx = extension.get(beginExRO::wrap);
-            Map<String, String> headers0 = new LinkedHashMap<>();
-            beginEx.headers().forEach(h -> headers0.put(h.name().asString(), h.value().asString()));
-            headers = headers0;
-        }
-
-        final RouteFW route = resolveTarget(acceptRef, headers);
+        final RouteFW route = routes.resolve(acceptName, acceptRef, beginExHeaders, targetLoad);
 
         MessageConsumer newStream = null;
 
@@ -164,12 +203,21 @@ public final class ClientStreamFactory implements StreamFactory
 
             newStream = new ClientAcceptStream(this,
                     acceptThrottle, acceptId, acceptRef, acceptName, acceptCorrelationId,
-                    connectName, connectRef, headers);
+                    connectName, connectRef);
         }
 
         return newStream;
     }
 
+    private int targetLoad(
+        String connectName,
+        long connectRef)
+    {
+        final Long2ObjectHashMap<ConnectionPool> connectionsByRef = connectionPools.get(connectName);
+        final ConnectionPool connectionPool = connectionsByRef != null ? connectionsByRef.get(connectRef) : null;
+        return connectionPool != null ? connectionPool.targetLoad() : 0;
+    }
+
     private MessageConsumer newConnectReplyStream(BeginFW begin, MessageConsumer connectReplyThrottle)
     {
         final String connectReplyName = begin.source().asString();
@@ -178,27 +226,4 @@ public final class ClientStreamFactory implements StreamFactory
         return new ClientConnectReplyStream(this, connectReplyThrottle, connectReplyId,
                 connectReplyName);
     }
-
-    private RouteFW resolveTarget(
-        long sourceRef,
-        Map<String, String> headers)
-    {
-        final MessagePredicate filter = (t, b, o, l) ->
-        {
-            final RouteFW route = routeRO.wrap(b, o, l);
-            final OctetsFW extension = route.extension();
-            boolean headersMatch = true;
-            if (extension.sizeof() > 0)
-            {
-                final HttpRouteExFW routeEx = extension.get(routeExRO::wrap);
-                headersMatch = routeEx.headers().anyMatch(
-                        h -> !Objects.equals(h.value(), headers.get(h.name())));
-            }
-            return route.sourceRef() == sourceRef && headersMatch;
-        };
-
-        return router.resolve(filter, (msgTypeId, buffer, index, length) ->
-            routeRO.wrap(buffer, index, index + length));
-    }
-
 }
@@ -23,6 +23,7 @@ import org.agrona.collections.Long2ObjectHashMap;
 import org.reaktivity.nukleus.Configuration;
 import org.reaktivity.nukleus.buffer.BufferPool;
 import org.reaktivity.nukleus.http.internal.HttpConfiguration;
+import org.reaktivity.nukleus.http.internal.stream.ConnectionPool.Connection;
 import org.reaktivity.nukleus.route.RouteManager;
 import org.reaktivity.nukleus.stream.StreamFactory;
 import org.reaktivity.nukleus.stream.StreamFactoryBuilder;
@@ -30,7 +31,10 @@ import org.reaktivity.nukleus.stream.StreamFactoryBuilder;
 public final class ClientStreamFactoryBuilder implements StreamFactoryBuilder
 {
     private final Configuration config;
+    private final HttpRouteTable routes;
     private final Long2ObjectHashMap<Correlation<?>> correlations;
+    private final Long2ObjectHashMap<Connection> connections;
+    private final ConnectionPoolTimer timer;
 
     private RouteManager router;
     private MutableDirectBuffer writeBuffer;
@@ -39,10 +43,15 @@ public final class ClientStreamFactoryBuilder implements StreamFactoryBuilder
     private Supplier<BufferPool> supplyBufferPool;
 
     public ClientStreamFactoryBuilder(
-        Configuration config)
+        Configuration config,
+        HttpRouteTable routes,
+        ConnectionPoolTimer timer)
     {
         this.config = config;
+        this.routes = routes;
+        this.timer = timer;
         this.correlations = new Long2ObjectHashMap<>();
+        this.connections = new Long2ObjectHashMap<>();
     }
 
     @Override
@@ -90,7 +99,7 @@ public final class ClientStreamFactoryBuilder implements StreamFactoryBuilder
     {
         final BufferPool bufferPool = supplyBufferPool.get();
 
-        return new ClientStreamFactory((HttpConfiguration) config, router, writeBuffer,
-                bufferPool, supplyStreamId, supplyCorrelationId, correlations);
+        return new ClientStreamFactory((HttpConfiguration) config, router, routes, writeBuffer,
+                bufferPool, supplyStreamId, supplyCorrelationId, correlations, connections, timer);
     }
 }
@@ -0,0 +1,273 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.http.internal.types.stream.AbortFW;
+import org.reaktivity.nukleus.http.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.http.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.http.internal.types.stream.EndFW;
+import org.reaktivity.nukleus.http.internal.types.stream.ResetFW;
+import org.reaktivity.nukleus.http.internal.types.stream.WindowFW;
+
+/**
+ * Response to a GET or HEAD request shared by every identical request received while it is in flight.
+ * The connect reply stream writes the response here as if to a single accept reply stream, and each frame
+ * is written again on the accept reply stream of every subscriber. The window granted to the connect reply
+ * stream is the least window granted by any subscriber still reading the response.
+ */
+final class CollapsedResponse implements MessageConsumer
+{
+    private final ClientStreamFactory factory;
+    private final byte[] key;
+    private final int keyHash;
+    private final List<Subscriber> subscribers = new ArrayList<>();
+
+    private final BeginFW beginRO = new BeginFW();
+    private final DataFW dataRO = new DataFW();
+    private final EndFW endRO = new EndFW();
+
+    private MessageConsumer throttle;
+    private long throttleId;
+    private int activeSubscribers;
+    private long windowBytes;
+    private long windowFrames;
+
+    CollapsedResponse(
+        ClientStreamFactory factory,
+        HttpRequestKey requestKey)
+    {
+        this.factory = factory;
+        this.key = requestKey.toByteArray();
+        this.keyHash = requestKey.hash();
+    }
+
+    boolean matches(
+        HttpRequestKey requestKey)
+    {
+        return requestKey.equals(key);
+    }
+
+    void subscribe(
+        String acceptName,
+        long acceptCorrelationId)
+    {
+        subscribers.add(new Subscriber(acceptName, acceptCorrelationId));
+        activeSubscribers++;
+    }
+
+    /**
+     * Stops further identical requests from subscribing, called when the response begins or is lost.
+     */
+    void closeSubscriptions()
+    {
+        if (factory.collapsedResponses.get(keyHash) == this)
+        {
+            factory.collapsedResponses.remove(keyHash);
+        }
+    }
+
+    void setThrottle(
+        MessageConsumer throttle,
+        long throttleId)
+    {
+        this.throttle = throttle;
+        this.throttleId = throttleId;
+    }
+
+    /**
+     * Responds with 503 (Service Unavailable) to every subscriber.
+     */
+    void onResponseLost(
+        ConnectionPool connectionPool)
+    {
+        closeSubscriptions();
+        for (int i = 0; i < subscribers.size(); i++)
+        {
+            final Subscriber subscriber = subscribers.get(i);
+            connectionPool.doServiceUnavailable(subscriber.acceptName, subscriber.acceptCorrelationId);
+        }
+        subscribers.clear();
+        activeSubscribers = 0;
+    }
+
+    @Override
+    public void accept(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        // the frame is in the shared write buffer, which is reused to write it to each subscriber
+        final MutableDirectBuffer frame = factory.collapsedFrameBuffer;
+        frame.putBytes(0, buffer, index, length);
+
+        switch (msgTypeId)
+        {
+        case BeginFW.TYPE_ID:
+            final BeginFW begin = beginRO.wrap(frame, 0, length);
+            for (int i = 0; i < subscribers.size(); i++)
+            {
+                subscribers.get(i).doBegin(begin);
+            }
+            break;
+        case DataFW.TYPE_ID:
+            final DataFW data = dataRO.wrap(frame, 0, length);
+            for (int i = 0; i < subscribers.size(); i++)
+            {
+                final Subscriber subscriber = subscribers.get(i);
+                if (subscriber.active)
+                {
+                    factory.writer.doData(subscriber.acceptReply, subscriber.acceptReplyId, data.payload());
+                }
+            }
+            break;
+        case EndFW.TYPE_ID:
+            final EndFW end = endRO.wrap(frame, 0, length);
+            for (int i = 0; i < subscribers.size(); i++)
+            {
+                final Subscriber subscriber = subscribers.get(i);
+                if (subscriber.active)
+                {
+                    factory.writer.doEnd(subscriber.acceptReply, subscriber.acceptReplyId, end.extension());
+                }
+            }
+            break;
+        case AbortFW.TYPE_ID:
+            for (int i = 0; i < subscribers.size(); i++)
+            {
+                final Subscriber subscriber = subscribers.get(i);
+                if (subscriber.active)
+                {
+                    factory.writer.doAbort(subscriber.acceptReply, subscriber.acceptReplyId);
+                }
+            }
+            break;
+        default:
+            // ignore
+            break;
+        }
+    }
+
+    private void onWindow(
+        Subscriber subscriber,
+        int update,
+        int frames)
+    {
+        subscriber.windowBytes += update;
+        subscriber.windowFrames += frames;
+        doWindow();
+    }
+
+    private void onReset(
+        Subscriber subscriber)
+    {
+        if (subscriber.active)
+        {
+            subscriber.active = false;
+            activeSubscribers--;
+            if (activeSubscribers == 0)
+            {
+                factory.writer.doReset(throttle, throttleId);
+            }
+            else
+            {
+                doWindow();
+            }
+        }
+    }
+
+    private void doWindow()
+    {
+        long minimumBytes = Long.MAX_VALUE;
+        long minimumFrames = Long.MAX_VALUE;
+        for (int i = 0; i < subscribers.size(); i++)
+        {
+            final Subscriber subscriber = subscribers.get(i);
+            if (subscriber.active)
+            {
+                minimumBytes = Math.min(minimumBytes, subscriber.windowBytes);
+                minimumFrames = Math.min(minimumFrames, subscriber.windowFrames);
+            }
+        }
+
+        final int update = (int) (minimumBytes - windowBytes);
+        final int frames = (int) (minimumFrames - windowFrames);
+        if (update > 0 || frames > 0)
+        {
+            windowBytes += Math.max(update, 0);
+            windowFrames += Math.max(frames, 0);
+            factory.writer.doWindow(throttle, throttleId, Math.max(update, 0), Math.max(frames, 0));
+        }
+    }
+
+    private final class Subscriber implements MessageConsumer
+    {
+        private final String acceptName;
+        private final long acceptCorrelationId;
+
+        private MessageConsumer acceptReply;
+        private long acceptReplyId;
+        private long windowBytes;
+        private long windowFrames;
+        private boolean active = true;
+
+        private Subscriber(
+            String acceptName,
+            long acceptCorrelationId)
+        {
+            this.acceptName = acceptName;
+            this.acceptCorrelationId = acceptCorrelationId;
+        }
+
+        private void doBegin(
+            BeginFW begin)
+        {
+            acceptReply = factory.router.supplyTarget(acceptName);
+            acceptReplyId = factory.supplyStreamId.getAsLong();
+            factory.writer.doBegin(acceptReply, acceptReplyId, 0L, acceptCorrelationId, begin.extension());
+            factory.router.setThrottle(acceptName, acceptReplyId, this);
+        }
+
+        @Override
+        public void accept(
+            int msgTypeId,
+            DirectBuffer buffer,
+            int index,
+            int length)
+        {
+            switch (msgTypeId)
+            {
+            case WindowFW.TYPE_ID:
+                final WindowFW window = factory.windowRO.wrap(buffer, index, index + length);
+                onWindow(this, window.update(), window.frames());
+                break;
+            case ResetFW.TYPE_ID:
+                factory.resetRO.wrap(buffer, index, index + length);
+                onReset(this);
+                break;
+            default:
+                // ignore
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+/**
+ * Additive increase, multiplicative decrease (AIMD) limit on the connections to a given target name and ref
+ * (i.e. route). The limit grows by one connection per limit responses received within the latency threshold
+ * while the connections are in use, and backs off when a response is slow or is lost to a reset or closed
+ * connection. The limit stays between the configured minimum and maximum, so equal bounds make it static.
+ */
+final class ConnectionLimiter
+{
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minimum;
+    private final int maximum;
+    private final long latencyThreshold;
+
+    private int limit;
+    private int responses;
+
+    ConnectionLimiter(
+        int minimum,
+        int maximum,
+        long latencyThreshold)
+    {
+        // at least one connection, otherwise a limit backed off to zero could never grow again
+        this.minimum = Math.max(1, Math.min(minimum, maximum));
+        this.maximum = maximum;
+        this.latencyThreshold = latencyThreshold;
+        this.limit = this.minimum;
+    }
+
+    int limit()
+    {
+        return limit;
+    }
+
+    void onResponse(
+        long latency,
+        int connectionsInUse)
+    {
+        if (latency > latencyThreshold)
+        {
+            backoff();
+        }
+        else if (connectionsInUse * 2 >= limit && ++responses >= limit)
+        {
+            limit = Math.min(limit + 1, maximum);
+            responses = 0;
+        }
+    }
+
+    void onDropped()
+    {
+        backoff();
+    }
+
+    private void backoff()
+    {
+        limit = Math.max((int) (limit * BACKOFF_RATIO), minimum);
+        responses = 0;
+    }
+}
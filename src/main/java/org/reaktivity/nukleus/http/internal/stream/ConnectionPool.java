@@ -16,26 +16,45 @@
 package org.reaktivity.nukleus.http.internal.stream;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
 import java.util.function.Consumer;
 
 import org.agrona.DirectBuffer;
 import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.http.internal.stream.ConnectionPoolTimer.Timeout;
 import org.reaktivity.nukleus.http.internal.types.stream.ResetFW;
 import org.reaktivity.nukleus.http.internal.types.stream.WindowFW;
 
 /**
- * A set of connections (target streams) to be used to talk to a given target on a given route (targetRef)
+ * A set of connections (target streams) to be used to talk to a given target on a given route (targetRef).
+ * Idle connections are reused most recently used first, so surplus connections stay idle until they
+ * reach the keep-alive timeout and are closed, while the minimum idle connections are opened ahead of
+ * requests and kept open.
  */
 final class ConnectionPool
 {
+    private static final int HEDGE_CREDITS = 100;
+    private static final int MAXIMUM_HEDGE_CREDITS = 10 * HEDGE_CREDITS;
+    private static final int MAXIMUM_PREWARM_BACKOFF = 10;
+
     private final Deque<Connection> availableConnections;
+    private final List<Connection> connections;
     private final String connectName;
     private final long connectRef;
     private final ClientStreamFactory factory;
+    private final ConnectionLimiter limiter;
+    private final OutlierDetector outlierDetector;
+    private final Timeout prewarmTimeout;
 
     private int connectionsInUse;
     private ConnectionRequest nextRequest;
+    private ConnectionRequest lastRequest;
+    private int queuedRequests;
+    private int pendingResponses;
+    private int hedgeCredits;
+    private int prewarmFailures;
 
     ConnectionPool(ClientStreamFactory factory, String connectName, long connectRef)
     {
@@ -43,23 +62,125 @@ final class ConnectionPool
         this.connectName = connectName;
         this.connectRef = connectRef;
         this.availableConnections = new ArrayDeque<Connection>(factory.maximumConnectionsPerRoute);
+        this.connections = new ArrayList<Connection>(factory.maximumConnectionsPerRoute);
+        this.limiter = new ConnectionLimiter(factory.minimumConnectionsPerRoute, factory.maximumConnectionsPerRoute,
+                factory.responseLatencyThreshold);
+        this.outlierDetector = new OutlierDetector(factory.outlierConsecutiveFailures, factory.outlierEjectionTime,
+                factory.outlierMaximumEjectionTime);
+        this.prewarmTimeout = new Timeout(this::prewarm);
+        factory.timer.register(this);
+        prewarm();
     }
 
     public void acquire(ConnectionRequest request)
     {
-        Connection connection = availableConnections.poll();
-        if (connection == null && connectionsInUse < factory.maximumConnectionsPerRoute)
-        {
-            connection = newConnection();
-        }
+        hedgeCredits = Math.min(hedgeCredits + factory.hedgedRequestBudget, MAXIMUM_HEDGE_CREDITS);
+        Connection connection = acquireConnection(request);
         if (connection != null)
         {
             request.getConsumer().accept(connection);
         }
-        else
+        else if (queuedRequests < factory.maximumQueuedRequests)
         {
+            request.deadline(factory.timer.currentTimeMillis() + factory.maximumQueuedRequestWait);
             enqueue(request);
         }
+        else
+        {
+            request.reject();
+        }
+        prewarm();
+    }
+
+    /**
+     * Rejects queued requests that have waited for a connection beyond their deadline.
+     * Deadlines increase from head to tail, as all requests wait for the same maximum time.
+     */
+    int expireRequests(long now)
+    {
+        int expiredRequests = 0;
+        while (nextRequest != null && nextRequest.deadline() <= now)
+        {
+            dequeue().reject();
+            expiredRequests++;
+        }
+        return expiredRequests;
+    }
+
+    private Connection acquireConnection(ConnectionRequest request)
+    {
+        Connection connection = availableConnections.pollLast();
+        if (connection != null)
+        {
+            factory.timer.cancel(connection.idleTimeout);
+        }
+        if (connection == null && connectionsInUse < limiter.limit())
+        {
+            connection = newConnection();
+        }
+        if (connection == null && request.pipelinable())
+        {
+            connection = pipelinedConnection();
+        }
+        return connection;
+    }
+
+    /**
+     * Acquires an idle or new connection for a duplicate of a slow request, without queueing or pipelining,
+     * as long as duplicates stay within the hedged request budget (a percentage of requests).
+     *
+     * @return the connection, or null if none is available or the budget is spent
+     */
+    Connection acquireHedge()
+    {
+        Connection connection = null;
+        if (hedgeCredits >= HEDGE_CREDITS)
+        {
+            connection = availableConnections.pollLast();
+            if (connection != null)
+            {
+                factory.timer.cancel(connection.idleTimeout);
+            }
+            else if (nextRequest == null && connectionsInUse < limiter.limit())
+            {
+                connection = newConnection();
+            }
+
+            if (connection != null)
+            {
+                hedgeCredits -= HEDGE_CREDITS;
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Discards the response awaited on the connection, closing the connection, as the response is no longer needed.
+     */
+    void cancel(Connection connection)
+    {
+        factory.correlations.remove(connection.correlationId);
+        pendingResponses -= connection.pendingResponses;
+        connection.pendingResponses = 0;
+        connection.persistent = false;
+        connection.cancelInput();
+        release(connection, true);
+    }
+
+    private Connection pipelinedConnection()
+    {
+        Connection pipelined = null;
+        for (int i = 0; i < connections.size(); i++)
+        {
+            final Connection connection = connections.get(i);
+            if (connection.persistent && !connection.requestInProgress && !connection.hedged &&
+                connection.pendingResponses < factory.maximumPipelinedRequestsPerConnection &&
+                (pipelined == null || connection.pendingResponses < pipelined.pendingResponses))
+            {
+                pipelined = connection;
+            }
+        }
+        return pipelined;
     }
 
     private Connection newConnection()
@@ -67,38 +188,118 @@ final class ConnectionPool
         final long correlationId = factory.supplyCorrelationId.getAsLong();
         final long streamId = factory.supplyStreamId.getAsLong();
         Connection connection = new Connection(streamId, correlationId);
+        connection.expiresAt = factory.maximumConnectionLifetime > 0 ?
+                factory.timer.currentTimeMillis() + factory.maximumConnectionLifetime : Long.MAX_VALUE;
         MessageConsumer output = factory.router.supplyTarget(connectName);
         factory.writer.doBegin(output, streamId, connectRef, correlationId);
         factory.router.setThrottle(connectName, streamId, connection::handleThrottleDefault);
+        connections.add(connection);
+        factory.connections.put(correlationId, connection);
         connectionsInUse++;
         return connection;
     }
 
+    /**
+     * Records a request written on the connection, responses are matched to requests in the order they were written.
+     */
+    public void addRequest(Connection connection, Correlation<?> correlation)
+    {
+        if (connection.pendingResponses == 0)
+        {
+            factory.correlations.put(connection.correlationId, correlation);
+            connection.requestStartedAt = factory.timer.currentTimeMillis();
+        }
+        else
+        {
+            connection.pipelinedCorrelations.add(correlation);
+        }
+        connection.pendingResponses++;
+        pendingResponses++;
+        connection.requestInProgress = true;
+    }
+
+    public void requestComplete(Connection connection)
+    {
+        connection.requestInProgress = false;
+        setDefaultThrottle(connection);
+        if (connection.persistent && connection.pendingResponses == 0)
+        {
+            makeAvailable(connection);
+        }
+        acquireNextRequests();
+        prewarm();
+    }
+
     public void release(Connection connection, boolean doEndIfNotPersistent)
     {
+        final long now = factory.timer.currentTimeMillis();
         final Correlation<?> correlation = factory.correlations.remove(connection.correlationId);
         if (correlation != null)
         {
             // We did not yet send response headers (high level begin) to the client accept reply stream.
             // This implies we got an incomplete response. We report this as service unavailable (503).
-            MessageConsumer acceptReply = factory.router.supplyTarget(correlation.source());
-            long targetId = factory.supplyStreamId.getAsLong();
-            long sourceCorrelationId = correlation.id();
-            factory.writer.doHttpBegin(acceptReply, targetId, 0L, sourceCorrelationId,
-                    hs -> hs.item(h -> h.representation((byte) 0).name(":status").value("503")));
-            factory.writer.doHttpEnd(acceptReply, targetId);
+            final ClientAcceptStream hedgedRequest = ClientConnectReplyState.hedgedRequest(correlation);
+            if (hedgedRequest == null || hedgedRequest.onResponseLost(connection))
+            {
+                doServiceUnavailable(correlation);
+            }
+            limiter.onDropped();
+            outlierDetector.onFailure(now);
+        }
+        else if (connection.pendingResponses > 0)
+        {
+            // Latency up to the response head, so that long response bodies do not count as slow responses
+            final long latency = connection.responseLatency;
+            limiter.onResponse(latency, connectionsInUse);
+            if (connection.responseStatus >= 500 || latency > factory.responseLatencyThreshold)
+            {
+                outlierDetector.onFailure(now);
+            }
+            else
+            {
+                outlierDetector.onSuccess();
+            }
         }
         if (connection.persistent)
         {
-            setDefaultThrottle(connection);
-            availableConnections.add(connection);
+            // Response complete, the next pipelined request (if any) is now awaiting its response
+            if (connection.pendingResponses > 0)
+            {
+                connection.pendingResponses--;
+                pendingResponses--;
+            }
+            final Correlation<?> pipelined = connection.pipelinedCorrelations.poll();
+            if (pipelined != null)
+            {
+                factory.correlations.put(connection.correlationId, pipelined);
+                connection.requestStartedAt = now;
+            }
+            if (connection.pendingResponses == 0 && !connection.requestInProgress)
+            {
+                setDefaultThrottle(connection);
+                makeAvailable(connection);
+            }
         }
         else
         {
-            connectionsInUse--;
+            // Server closed mid-pipeline, requests written after the last complete response will get no response
+            Correlation<?> pipelined;
+            while ((pipelined = connection.pipelinedCorrelations.poll()) != null)
+            {
+                doServiceUnavailable(pipelined);
+            }
+            pendingResponses -= connection.pendingResponses;
+            connection.pendingResponses = 0;
 
             // In case the connection was previously released when it was still persistent
             availableConnections.removeFirstOccurrence(connection);
+            factory.timer.cancel(connection.idleTimeout);
+
+            if (connections.remove(connection))
+            {
+                factory.connections.remove(connection.correlationId);
+                connectionsInUse--;
+            }
 
             if (doEndIfNotPersistent)
             {
@@ -107,34 +308,174 @@ final class ConnectionPool
                 connection.endSent = true;
             }
         }
-        if (nextRequest != null)
+        acquireNextRequests();
+        prewarm();
+    }
+
+    /**
+     * @return the number of requests waiting for a connection or for their response
+     */
+    int outstandingRequests()
+    {
+        return queuedRequests + pendingResponses;
+    }
+
+    /**
+     * @return the load used to balance requests across the targets of matching routes
+     */
+    int targetLoad()
+    {
+        final int outstandingRequests = outstandingRequests();
+        return outlierDetector.isSelectable(factory.timer.currentTimeMillis(), outstandingRequests) ?
+                outstandingRequests : HttpRouteTable.TargetLoad.EJECTED;
+    }
+
+    /**
+     * @return the number of idle connections available for reuse
+     */
+    int idleConnections()
+    {
+        return availableConnections.size();
+    }
+
+    /**
+     * Opens connections ahead of requests until the pool holds the minimum idle connections,
+     * unless requests are still waiting for a connection, the target is ejected as an outlier,
+     * or the target recently refused a connection.
+     */
+    private void prewarm()
+    {
+        if (!prewarmTimeout.isScheduled() &&
+            outlierDetector.isSelectable(factory.timer.currentTimeMillis(), outstandingRequests()))
+        {
+            while (nextRequest == null &&
+                   availableConnections.size() < factory.minimumIdleConnections &&
+                   connectionsInUse < limiter.limit())
+            {
+                makeAvailable(newConnection());
+            }
+        }
+    }
+
+    /**
+     * Defers opening connections ahead of requests after the target refused or dropped a connection, for a
+     * back-off time that doubles with each consecutive refusal, so an unavailable target is not reconnected to
+     * in a loop.
+     */
+    private void deferPrewarm()
+    {
+        final long now = factory.timer.currentTimeMillis();
+        final long backoff = ConnectionPoolTimer.TICK_MILLIS << Math.min(prewarmFailures, MAXIMUM_PREWARM_BACKOFF);
+        final long maximumBackoff = Math.max(factory.outlierMaximumEjectionTime, ConnectionPoolTimer.TICK_MILLIS);
+        prewarmFailures++;
+        factory.timer.schedule(prewarmTimeout, now + Math.min(backoff, maximumBackoff));
+    }
+
+    private void makeAvailable(Connection connection)
+    {
+        final long now = factory.timer.currentTimeMillis();
+        if (now >= connection.expiresAt || connectionsInUse > limiter.limit())
+        {
+            evict(connection);
+        }
+        else
+        {
+            availableConnections.add(connection);
+            factory.timer.schedule(connection.idleTimeout, Math.min(now + factory.keepaliveTimeout, connection.expiresAt));
+        }
+    }
+
+    private void onIdleTimeout(Connection connection)
+    {
+        final long now = factory.timer.currentTimeMillis();
+        if (now < connection.expiresAt && availableConnections.size() <= factory.minimumIdleConnections)
+        {
+            factory.timer.schedule(connection.idleTimeout, Math.min(now + factory.keepaliveTimeout, connection.expiresAt));
+        }
+        else
         {
-            ConnectionRequest current = nextRequest;
-            nextRequest = nextRequest.next();
-            acquire(current);
+            evict(connection);
         }
     }
 
+    /**
+     * Closes an idle connection, either because it reached the keep-alive timeout or its maximum lifetime,
+     * or because the connection limit has backed off.
+     */
+    private void evict(Connection connection)
+    {
+        connection.persistent = false;
+        release(connection, true);
+    }
+
     public void setDefaultThrottle(Connection connection)
     {
         factory.router.setThrottle(connectName, connection.connectStreamId, connection::handleThrottleDefault);
     }
 
+    private void doServiceUnavailable(Correlation<?> correlation)
+    {
+        final HttpCacheEntry cacheEntry = ClientConnectReplyState.cacheEntry(correlation);
+        if (cacheEntry != null)
+        {
+            cacheEntry.abandon();
+        }
+        final CollapsedResponse collapsedResponse = ClientConnectReplyState.collapsedResponse(correlation);
+        if (collapsedResponse != null)
+        {
+            collapsedResponse.onResponseLost(this);
+        }
+        else
+        {
+            doServiceUnavailable(correlation.source(), correlation.id());
+        }
+    }
+
+    void doServiceUnavailable(String acceptName, long sourceCorrelationId)
+    {
+        MessageConsumer acceptReply = factory.router.supplyTarget(acceptName);
+        long targetId = factory.supplyStreamId.getAsLong();
+        factory.writer.doHttpBegin(acceptReply, targetId, 0L, sourceCorrelationId,
+                hs -> hs.item(h -> h.representation((byte) 0).name(":status").value("503")));
+        factory.writer.doHttpEnd(acceptReply, targetId);
+    }
+
+    private void acquireNextRequests()
+    {
+        Connection connection = nextRequest != null ? acquireConnection(nextRequest) : null;
+        while (connection != null)
+        {
+            dequeue().getConsumer().accept(connection);
+            connection = nextRequest != null ? acquireConnection(nextRequest) : null;
+        }
+    }
+
     private void enqueue(ConnectionRequest request)
     {
-        if (this.nextRequest == null)
+        request.next(null);
+        if (lastRequest == null)
         {
-            this.nextRequest = request;
+            nextRequest = request;
         }
-        else if (request != this.nextRequest)
+        else
         {
-            ConnectionRequest latest = this.nextRequest;
-            while (latest.next() != null)
-            {
-                latest = latest.next();
-            }
-            latest.next(request);
+            lastRequest.next(request);
         }
+        lastRequest = request;
+        queuedRequests++;
+    }
+
+    private ConnectionRequest dequeue()
+    {
+        final ConnectionRequest request = nextRequest;
+        nextRequest = request.next();
+        request.next(null);
+        if (nextRequest == null)
+        {
+            lastRequest = null;
+        }
+        queuedRequests--;
+        return request;
     }
 
     public interface ConnectionRequest
@@ -144,31 +485,69 @@ final class ConnectionPool
         void next(ConnectionRequest next);
 
         ConnectionRequest next();
+
+        boolean pipelinable();
+
+        void deadline(long deadline);
+
+        long deadline();
+
+        /**
+         * Called when no connection is acquired for the request, because too many requests are queued
+         * or the request has waited beyond its deadline.
+         */
+        void reject();
     }
 
     public class Connection
     {
         final long connectStreamId;
         final long correlationId;
+        final Deque<Correlation<?>> pipelinedCorrelations;
+        final Timeout idleTimeout;
+        long expiresAt;
+        long requestStartedAt;
+        long responseLatency;
+        int responseStatus;
+        boolean hedged;
         int window;
         boolean persistent = true;
         boolean endSent;
+        boolean requestInProgress;
+        int pendingResponses;
 
         private long connectReplyStreamId;
         private MessageConsumer connectReplyThrottle;
+        private ClientConnectReplyStream input;
+
+        ConnectionPool pool()
+        {
+            return ConnectionPool.this;
+        }
 
         Connection(long outputStreamId, long outputCorrelationId)
         {
             this.connectStreamId = outputStreamId;
             this.correlationId = outputCorrelationId;
+            this.pipelinedCorrelations = new ArrayDeque<>(factory.maximumPipelinedRequestsPerConnection);
+            this.idleTimeout = new Timeout(() -> onIdleTimeout(this));
         }
 
-        void setInput(MessageConsumer connectReplyThrottle, long connectReplyStreamId)
+        void setInput(ClientConnectReplyStream input, MessageConsumer connectReplyThrottle, long connectReplyStreamId)
         {
+            this.input = input;
             this.connectReplyThrottle = connectReplyThrottle;
             this.connectReplyStreamId = connectReplyStreamId;
         }
 
+        void cancelInput()
+        {
+            if (input != null)
+            {
+                input.cancel();
+            }
+        }
+
         void handleThrottleDefault(
             int msgTypeId,
             DirectBuffer buffer,
@@ -178,6 +557,12 @@ final class ConnectionPool
             switch (msgTypeId)
             {
             case ResetFW.TYPE_ID:
+                if (pendingResponses == 0 && !endSent)
+                {
+                    // the target refused or dropped the connection without a request to report it on
+                    outlierDetector.onFailure(factory.timer.currentTimeMillis());
+                    deferPrewarm();
+                }
                 persistent = false;
                 release(this, false);
                 if (connectReplyThrottle != null)
@@ -188,6 +573,7 @@ final class ConnectionPool
             case WindowFW.TYPE_ID:
                 final WindowFW window = factory.windowRO.wrap(buffer, index, index + length);
                 this.window += window.update();
+                prewarmFailures = 0;
                 break;
             default:
                 // ignore
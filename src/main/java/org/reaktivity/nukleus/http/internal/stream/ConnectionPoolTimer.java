@@ -0,0 +1,197 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.reaktivity.nukleus.Nukleus;
+
+/**
+ * Drives the time based behavior of the client connection pools (such as expiring queued connection requests
+ * and evicting idle connections) from the nukleus duty cycle, shared by all client stream factories.
+ * <p>
+ * Timeouts are kept in a hashed timing wheel, so scheduling and cancelling are O(1) and each tick only visits
+ * the timeouts hashed to its bucket, at the cost of timeouts expiring up to one tick after their deadline.
+ * <p>
+ * Only elapsed time is measured, so the time source should be monotonic rather than the wall clock, which
+ * may be stepped by clock synchronization.
+ */
+public final class ConnectionPoolTimer implements Nukleus
+{
+    static final long TICK_MILLIS = 100L;
+
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final LongSupplier currentTimeMillis;
+    private final List<ConnectionPool> pools;
+    private final Timeout[] wheel;
+    private final Timeout[] wheelTails;
+
+    private long lastTimeMillis;
+    private long lastTick;
+
+    public ConnectionPoolTimer(
+        LongSupplier currentTimeMillis)
+    {
+        this.currentTimeMillis = currentTimeMillis;
+        this.pools = new ArrayList<>();
+        this.wheel = new Timeout[WHEEL_SIZE];
+        this.wheelTails = new Timeout[WHEEL_SIZE];
+        this.lastTimeMillis = currentTimeMillis.getAsLong();
+        this.lastTick = lastTimeMillis / TICK_MILLIS;
+    }
+
+    @Override
+    public int process()
+    {
+        final long now = currentTimeMillis.getAsLong();
+
+        int workCount = 0;
+        if (now != lastTimeMillis)
+        {
+            lastTimeMillis = now;
+            for (int i = 0; i < pools.size(); i++)
+            {
+                workCount += pools.get(i).expireRequests(now);
+            }
+
+            final long tick = now / TICK_MILLIS;
+            final long ticks = Math.min(tick - lastTick, WHEEL_SIZE);
+            for (long i = 1; i <= ticks; i++)
+            {
+                workCount += expireTimeouts((int) ((lastTick + i) & WHEEL_MASK), now);
+            }
+            lastTick = Math.max(tick, lastTick);
+        }
+        return workCount;
+    }
+
+    long currentTimeMillis()
+    {
+        return currentTimeMillis.getAsLong();
+    }
+
+    void register(
+        ConnectionPool pool)
+    {
+        pools.add(pool);
+    }
+
+    void schedule(
+        Timeout timeout,
+        long deadline)
+    {
+        cancel(timeout);
+
+        // timeouts expire on the first tick at or after their deadline
+        final long tick = Math.max((deadline + TICK_MILLIS - 1) / TICK_MILLIS, lastTick + 1);
+        final int bucket = (int) (tick & WHEEL_MASK);
+        final Timeout tail = wheelTails[bucket];
+
+        // timeouts with the same deadline tick expire in the order they were scheduled
+        timeout.deadline = deadline;
+        timeout.bucket = bucket;
+        timeout.previous = tail;
+        timeout.next = null;
+        if (tail != null)
+        {
+            tail.next = timeout;
+        }
+        else
+        {
+            wheel[bucket] = timeout;
+        }
+        wheelTails[bucket] = timeout;
+    }
+
+    void cancel(
+        Timeout timeout)
+    {
+        if (timeout.bucket != Timeout.NOT_SCHEDULED)
+        {
+            if (timeout.previous != null)
+            {
+                timeout.previous.next = timeout.next;
+            }
+            else
+            {
+                wheel[timeout.bucket] = timeout.next;
+            }
+            if (timeout.next != null)
+            {
+                timeout.next.previous = timeout.previous;
+            }
+            else
+            {
+                wheelTails[timeout.bucket] = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = Timeout.NOT_SCHEDULED;
+        }
+    }
+
+    private int expireTimeouts(
+        int bucket,
+        long now)
+    {
+        int expired = 0;
+        Timeout timeout = wheel[bucket];
+        while (timeout != null)
+        {
+            if (timeout.deadline <= now)
+            {
+                cancel(timeout);
+                timeout.task.run();
+                expired++;
+
+                // the task may have cancelled or rescheduled other timeouts in this bucket
+                timeout = wheel[bucket];
+            }
+            else
+            {
+                timeout = timeout.next;
+            }
+        }
+        return expired;
+    }
+
+    static final class Timeout
+    {
+        private static final int NOT_SCHEDULED = -1;
+
+        private final Runnable task;
+
+        private long deadline;
+        private int bucket = NOT_SCHEDULED;
+        private Timeout previous;
+        private Timeout next;
+
+        Timeout(
+            Runnable task)
+        {
+            this.task = task;
+        }
+
+        boolean isScheduled()
+        {
+            return bucket != NOT_SCHEDULED;
+        }
+    }
+}
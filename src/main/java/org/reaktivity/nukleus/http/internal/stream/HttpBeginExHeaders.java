@@ -0,0 +1,107 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.reaktivity.nukleus.http.internal.stream.HttpRouteTable.hash;
+
+import java.util.function.Predicate;
+
+import org.reaktivity.nukleus.http.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http.internal.types.ListFW;
+import org.reaktivity.nukleus.http.internal.types.String16FW;
+import org.reaktivity.nukleus.http.internal.types.StringFW;
+
+/**
+ * Matches route headers against the headers of an {@code HttpBeginExFW} in place.
+ */
+final class HttpBeginExHeaders implements HttpRouteTable.RequestHeaders
+{
+    private static final byte[] AUTHORITY = ":authority".getBytes(US_ASCII);
+
+    // StringFW and String16FW are prefixed by an 8-bit and a 16-bit length respectively
+    private static final int NAME_LENGTH_SIZE = 1;
+    private static final int VALUE_LENGTH_SIZE = 2;
+
+    private final Predicate<HttpHeaderFW> hashAuthority = this::hashAuthority;
+    private final Predicate<HttpHeaderFW> matchHeader = this::matchHeader;
+
+    private ListFW<HttpHeaderFW> headers;
+    private int authorityHash;
+    private byte[] name;
+    private byte[] value;
+
+    /**
+     * @param headers  the request headers, or null if the request has no begin extension
+     */
+    HttpBeginExHeaders wrap(
+        ListFW<HttpHeaderFW> headers)
+    {
+        this.headers = headers;
+        return this;
+    }
+
+    @Override
+    public int authorityHash()
+    {
+        authorityHash = 0;
+        if (headers != null)
+        {
+            headers.anyMatch(hashAuthority);
+        }
+        return authorityHash;
+    }
+
+    @Override
+    public boolean matches(
+        byte[] name,
+        byte[] value)
+    {
+        this.name = name;
+        this.value = value;
+        return headers != null && headers.anyMatch(matchHeader);
+    }
+
+    private boolean hashAuthority(
+        HttpHeaderFW header)
+    {
+        final boolean found = nameEquals(header.name(), AUTHORITY);
+        if (found)
+        {
+            final String16FW value = header.value();
+            final int offset = value.offset() + VALUE_LENGTH_SIZE;
+            authorityHash = hash(value.buffer(), offset, value.limit() - offset);
+        }
+        return found;
+    }
+
+    private boolean matchHeader(
+        HttpHeaderFW header)
+    {
+        final String16FW headerValue = header.value();
+        final int offset = headerValue.offset() + VALUE_LENGTH_SIZE;
+        return nameEquals(header.name(), name) &&
+                HttpRouteTable.equals(headerValue.buffer(), offset, headerValue.limit() - offset, value);
+    }
+
+    private static boolean nameEquals(
+        StringFW headerName,
+        byte[] name)
+    {
+        final int offset = headerName.offset() + NAME_LENGTH_SIZE;
+        return HttpHeadParser.equalsIgnoreCase(headerName.buffer(), offset, headerName.limit() - offset, name);
+    }
+}
@@ -0,0 +1,513 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.reaktivity.nukleus.http.internal.stream.ClientStreamFactory.CRLF_BYTES;
+import static org.reaktivity.nukleus.http.internal.stream.HttpResponseCache.BLOCK_SIZE;
+import static org.reaktivity.nukleus.http.internal.stream.HttpResponseCache.NO_BLOCK;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.http.internal.types.OctetsFW;
+import org.reaktivity.nukleus.http.internal.types.stream.AbortFW;
+import org.reaktivity.nukleus.http.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.http.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.http.internal.types.stream.EndFW;
+import org.reaktivity.nukleus.http.internal.types.stream.HttpBeginExFW;
+import org.reaktivity.nukleus.http.internal.types.stream.ResetFW;
+import org.reaktivity.nukleus.http.internal.types.stream.WindowFW;
+
+/**
+ * Response stored, or being stored, in the {@link HttpResponseCache}. While the response is received, the
+ * connect reply stream writes it here as if to the accept reply stream, and each frame is passed on unchanged
+ * after its bytes are appended to the entry. The response to a request revalidating a stale entry is passed on
+ * in the same way, unless it is 304 (Not Modified), in which case the stale entry is refreshed and served instead.
+ */
+final class HttpCacheEntry implements MessageConsumer
+{
+    private static final byte[] IF_NONE_MATCH = "If-None-Match: ".getBytes(US_ASCII);
+    private static final byte[] IF_MODIFIED_SINCE = "If-Modified-Since: ".getBytes(US_ASCII);
+
+    private static final int STATUS_NOT_MODIFIED = 304;
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_STORING = 1;
+    private static final int STATE_STORED = 2;
+    private static final int STATE_NOT_STORED = 3;
+    private static final int STATE_EVICTED = 4;
+
+    private final HttpResponseCache cache;
+    private final byte[] request;
+
+    final byte[] key;
+    final int keyHash;
+
+    byte[][] varyNames;
+    byte[] varyKey;
+    int firstBlock = NO_BLOCK;
+    int headLength;
+    HttpCacheEntry lessRecentlyUsed;
+    HttpCacheEntry moreRecentlyUsed;
+
+    private HttpCacheEntry stale;
+    private int state;
+    private int lastBlock = NO_BLOCK;
+    private int length;
+    private int readers;
+    private long responseTime;
+    private long initialAge;
+    private long freshnessLifetime;
+    private byte[] etag;
+    private byte[] lastModified;
+
+    private ClientStreamFactory factory;
+    private String acceptReplyName;
+    private MessageConsumer acceptReply;
+    private long acceptReplyId;
+    private long acceptCorrelationId;
+    private boolean revalidated;
+
+    HttpCacheEntry(
+        HttpResponseCache cache,
+        byte[] key,
+        int keyHash,
+        byte[] request,
+        HttpCacheEntry stale)
+    {
+        this.cache = cache;
+        this.key = key;
+        this.keyHash = keyHash;
+        this.request = request;
+        this.stale = stale;
+        if (stale != null)
+        {
+            // keeps the stale entry from being evicted while it is revalidated
+            stale.retain();
+        }
+    }
+
+    boolean fresh()
+    {
+        return currentAge(cache.currentTimeMillis()) < freshnessLifetime;
+    }
+
+    boolean revalidatable()
+    {
+        return etag != null || lastModified != null;
+    }
+
+    /**
+     * @return the age in milliseconds of the stored response (RFC 7234 4.2.3)
+     */
+    long currentAge(
+        long now)
+    {
+        return initialAge + Math.max(now - responseTime, 0L);
+    }
+
+    /**
+     * Makes the request head in the slot conditional on the validators of this stale entry, by adding
+     * If-None-Match and If-Modified-Since before the empty line ending the head.
+     *
+     * @return the new limit of the request head, or -1 if the conditional head does not fit within the limit
+     */
+    int encodeConditions(
+        MutableDirectBuffer buffer,
+        int headLimit,
+        int limit)
+    {
+        int required = 0;
+        if (etag != null)
+        {
+            required += IF_NONE_MATCH.length + etag.length + CRLF_BYTES.length;
+        }
+        if (lastModified != null)
+        {
+            required += IF_MODIFIED_SINCE.length + lastModified.length + CRLF_BYTES.length;
+        }
+
+        int progress = -1;
+        if (headLimit + required <= limit)
+        {
+            progress = headLimit - CRLF_BYTES.length;
+            if (etag != null)
+            {
+                progress = HttpHeadEncoder.encode(buffer, progress, limit, IF_NONE_MATCH);
+                progress = HttpHeadEncoder.encode(buffer, progress, limit, etag);
+                progress = HttpHeadEncoder.encode(buffer, progress, limit, CRLF_BYTES);
+            }
+            if (lastModified != null)
+            {
+                progress = HttpHeadEncoder.encode(buffer, progress, limit, IF_MODIFIED_SINCE);
+                progress = HttpHeadEncoder.encode(buffer, progress, limit, lastModified);
+                progress = HttpHeadEncoder.encode(buffer, progress, limit, CRLF_BYTES);
+            }
+            progress = HttpHeadEncoder.encode(buffer, progress, limit, CRLF_BYTES);
+        }
+        return progress;
+    }
+
+    /**
+     * Starts passing on the response frames to the accept reply stream.
+     *
+     * @return this entry, to be written to in place of the accept reply stream
+     */
+    MessageConsumer respond(
+        ClientStreamFactory factory,
+        String acceptReplyName,
+        MessageConsumer acceptReply)
+    {
+        this.factory = factory;
+        this.acceptReplyName = acceptReplyName;
+        this.acceptReply = acceptReply;
+        return this;
+    }
+
+    /**
+     * Writes the stored response on a new accept reply stream, throttled by the window granted to it.
+     */
+    void serve(
+        ClientStreamFactory factory,
+        String acceptReplyName,
+        long acceptReplyId,
+        long acceptCorrelationId)
+    {
+        new Replay(factory, acceptReplyName, acceptReplyId, acceptCorrelationId);
+    }
+
+    /**
+     * Stops storing the response, called when the response is lost, reset or invalid. Any remaining frames
+     * are still passed on to the accept reply stream.
+     */
+    void abandon()
+    {
+        if (state == STATE_STORING || state == STATE_PENDING)
+        {
+            cache.releaseBlocks(firstBlock);
+            firstBlock = NO_BLOCK;
+            lastBlock = NO_BLOCK;
+            state = STATE_NOT_STORED;
+        }
+        releaseStale();
+    }
+
+    @Override
+    public void accept(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        switch (msgTypeId)
+        {
+        case BeginFW.TYPE_ID:
+            final BeginFW begin = cache.beginRO.wrap(buffer, index, index + length);
+            final OctetsFW extension = begin.extension();
+            acceptReplyId = begin.streamId();
+            acceptCorrelationId = begin.correlationId();
+            onResponseBegin(extension.sizeof() > 0 ? extension.get(cache.beginExRO::wrap) : null);
+            if (!revalidated)
+            {
+                acceptReply.accept(msgTypeId, buffer, index, length);
+            }
+            break;
+        case DataFW.TYPE_ID:
+            final DataFW data = cache.dataRO.wrap(buffer, index, index + length);
+            final OctetsFW payload = data.payload();
+            onResponseData(payload.buffer(), payload.offset(), payload.sizeof());
+            if (!revalidated)
+            {
+                acceptReply.accept(msgTypeId, buffer, index, length);
+            }
+            break;
+        case EndFW.TYPE_ID:
+            final EndFW end = cache.endRO.wrap(buffer, index, index + length);
+            final boolean trailers = end.extension().sizeof() > 0;
+            if (revalidated)
+            {
+                stale.serve(factory, acceptReplyName, acceptReplyId, acceptCorrelationId);
+            }
+            else
+            {
+                acceptReply.accept(msgTypeId, buffer, index, length);
+            }
+            onResponseEnd(trailers);
+            break;
+        case AbortFW.TYPE_ID:
+            abandon();
+            acceptReply.accept(msgTypeId, buffer, index, length);
+            break;
+        default:
+            acceptReply.accept(msgTypeId, buffer, index, length);
+            break;
+        }
+    }
+
+    void onResponseBegin(
+        HttpBeginExFW beginEx)
+    {
+        final boolean storable = beginEx != null && cache.scanResponse(beginEx.headers());
+
+        if (stale != null && beginEx != null && cache.status == STATUS_NOT_MODIFIED)
+        {
+            // RFC 7234 4.3.4: the stale entry is fresh again, though its stored header fields are not updated
+            stale.refresh(cache);
+            revalidated = true;
+            state = STATE_NOT_STORED;
+        }
+        else if (storable && state == STATE_PENDING)
+        {
+            varyNames = cache.varyNames;
+            varyKey = varyNames.length > 0 ? cache.varyKey(cache.requestHeaders(request), varyNames) : null;
+            refresh(cache);
+
+            if ((varyNames.length == 0 || varyKey != null) &&
+                write(beginEx.buffer(), beginEx.offset(), beginEx.sizeof()))
+            {
+                headLength = length;
+                state = STATE_STORING;
+            }
+            else
+            {
+                abandon();
+            }
+        }
+        else
+        {
+            abandon();
+        }
+    }
+
+    void onResponseData(
+        DirectBuffer buffer,
+        int offset,
+        int length)
+    {
+        if (state == STATE_STORING && !write(buffer, offset, length))
+        {
+            abandon();
+        }
+    }
+
+    void onResponseEnd(
+        boolean trailers)
+    {
+        if (state == STATE_STORING && !trailers)
+        {
+            state = STATE_STORED;
+            cache.store(this);
+        }
+        else
+        {
+            // stored responses are replayed without trailers, so responses ending with trailers are not stored
+            abandon();
+        }
+        releaseStale();
+    }
+
+    void retain()
+    {
+        readers++;
+    }
+
+    boolean retained()
+    {
+        return readers > 0;
+    }
+
+    void release()
+    {
+        readers--;
+        if (readers == 0 && state == STATE_EVICTED)
+        {
+            cache.releaseBlocks(firstBlock);
+            firstBlock = NO_BLOCK;
+        }
+    }
+
+    /**
+     * Called when the entry is removed from the cache, its blocks being released once it is no longer read.
+     */
+    void evict()
+    {
+        state = STATE_EVICTED;
+        if (readers == 0)
+        {
+            cache.releaseBlocks(firstBlock);
+            firstBlock = NO_BLOCK;
+        }
+    }
+
+    private void refresh(
+        HttpResponseCache scanned)
+    {
+        responseTime = scanned.currentTimeMillis();
+        initialAge = scanned.age;
+        freshnessLifetime = scanned.freshnessLifetime != -1L ? scanned.freshnessLifetime : freshnessLifetime;
+        etag = scanned.etag != null ? scanned.etag : etag;
+        lastModified = scanned.lastModified != null ? scanned.lastModified : lastModified;
+    }
+
+    private void releaseStale()
+    {
+        if (stale != null)
+        {
+            stale.release();
+            stale = null;
+        }
+    }
+
+    private boolean write(
+        DirectBuffer buffer,
+        int offset,
+        int length)
+    {
+        final MutableDirectBuffer arena = cache.arena();
+        boolean written = this.length + length <= cache.maximumEntrySize;
+        int progress = 0;
+        while (written && progress < length)
+        {
+            final int blockPosition = this.length % BLOCK_SIZE;
+            if (blockPosition == 0)
+            {
+                final int block = cache.allocateBlock();
+                if (block == NO_BLOCK)
+                {
+                    written = false;
+                }
+                else if (lastBlock == NO_BLOCK)
+                {
+                    firstBlock = block;
+                    lastBlock = block;
+                }
+                else
+                {
+                    cache.linkBlock(lastBlock, block);
+                    lastBlock = block;
+                }
+            }
+
+            if (written)
+            {
+                final int writable = Math.min(length - progress, BLOCK_SIZE - blockPosition);
+                arena.putBytes(lastBlock * BLOCK_SIZE + blockPosition, buffer, offset + progress, writable);
+                progress += writable;
+                this.length += writable;
+            }
+        }
+        return written;
+    }
+
+    private final class Replay implements MessageConsumer
+    {
+        private final ClientStreamFactory factory;
+        private final MessageConsumer acceptReply;
+        private final long acceptReplyId;
+
+        private final WindowFW windowRO = new WindowFW();
+
+        private int block;
+        private int blockPosition;
+        private int remaining;
+        private long windowBytes;
+        private long windowFrames;
+        private boolean ended;
+
+        private Replay(
+            ClientStreamFactory factory,
+            String acceptReplyName,
+            long acceptReplyId,
+            long acceptCorrelationId)
+        {
+            this.factory = factory;
+            this.acceptReply = factory.router.supplyTarget(acceptReplyName);
+            this.acceptReplyId = acceptReplyId;
+            this.remaining = length - headLength;
+            this.block = remaining > 0 ? cache.block(firstBlock, headLength) : NO_BLOCK;
+            this.blockPosition = headLength % BLOCK_SIZE;
+
+            retain();
+            factory.writer.doHttpBegin(acceptReply, acceptReplyId, 0L, acceptCorrelationId,
+                    cache.storedHeaders(HttpCacheEntry.this, factory.headerBlock));
+            factory.router.setThrottle(acceptReplyName, acceptReplyId, this);
+            flush();
+        }
+
+        @Override
+        public void accept(
+            int msgTypeId,
+            DirectBuffer buffer,
+            int index,
+            int length)
+        {
+            switch (msgTypeId)
+            {
+            case WindowFW.TYPE_ID:
+                final WindowFW window = windowRO.wrap(buffer, index, index + length);
+                windowBytes += window.update();
+                windowFrames += window.frames();
+                flush();
+                break;
+            case ResetFW.TYPE_ID:
+                end(false);
+                break;
+            default:
+                // ignore
+                break;
+            }
+        }
+
+        private void flush()
+        {
+            final MutableDirectBuffer arena = cache.arena();
+            while (remaining > 0 && windowBytes > 0 && windowFrames > 0)
+            {
+                final int writable = (int) Math.min(Math.min(remaining, windowBytes), BLOCK_SIZE - blockPosition);
+                factory.writer.doHttpData(acceptReply, acceptReplyId, arena, block * BLOCK_SIZE + blockPosition, writable);
+                windowBytes -= writable;
+                windowFrames--;
+                remaining -= writable;
+                blockPosition += writable;
+                if (blockPosition == BLOCK_SIZE && remaining > 0)
+                {
+                    block = cache.nextBlock(block);
+                    blockPosition = 0;
+                }
+            }
+
+            if (remaining == 0)
+            {
+                end(true);
+            }
+        }
+
+        private void end(
+            boolean complete)
+        {
+            if (!ended)
+            {
+                ended = true;
+                if (complete)
+                {
+                    factory.writer.doHttpEnd(acceptReply, acceptReplyId);
+                }
+                release();
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import org.agrona.DirectBuffer;
+
+/**
+ * Parses the framing of a chunked message body (RFC 7230 section 4.1) in place: the chunk-size lines,
+ * ignoring chunk extensions, and the trailer fields following the last chunk.
+ */
+final class HttpChunkParser extends HttpHeadParser
+{
+    static final int CHUNK_SIZE_INVALID = -1;
+
+    HttpChunkParser(
+        int maximumHeadSize)
+    {
+        super(maximumHeadSize);
+    }
+
+    /**
+     * Parses the hexadecimal chunk-size, ignoring any chunk extensions that follow it.
+     *
+     * @param offset  the offset of the chunk-size
+     * @param limit   the offset of the CRLF terminating the chunk-size line
+     * @return the chunk size, or CHUNK_SIZE_INVALID if the line is malformed
+     */
+    static int chunkSize(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        int cursor = offset;
+        int size = 0;
+        boolean overflow = false;
+        while (cursor < limit && isClass(buffer.getByte(cursor), CHAR_HEX))
+        {
+            overflow |= size > Integer.MAX_VALUE >> 4;
+            final int ch = buffer.getByte(cursor) | 0x20;
+            size = (size << 4) | (ch <= '9' ? ch - '0' : ch - 'a' + 10);
+            cursor++;
+        }
+
+        final int digits = cursor - offset;
+        while (cursor < limit && isClass(buffer.getByte(cursor), CHAR_WHITESPACE))
+        {
+            cursor++;
+        }
+
+        // chunk-ext = *( BWS ";" BWS chunk-ext-name [ BWS "=" BWS chunk-ext-val ] )
+        final boolean valid = digits > 0 && !overflow && (cursor == limit || buffer.getByte(cursor) == ';');
+
+        return valid ? size : CHUNK_SIZE_INVALID;
+    }
+
+    /**
+     * @param buffer  the buffer containing the trailer fields
+     * @param offset  the offset of the first trailer field
+     * @param limit   the limit of the trailer fields, including the terminating empty line
+     * @return true if the trailer fields are well-formed, otherwise false
+     */
+    boolean parseTrailers(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        reset(buffer);
+        return parseFields(offset, limit);
+    }
+
+    /**
+     * @return the trailer fields parsed by the most recent {@link #parseTrailers}, with lower case names
+     */
+    HttpHeaderBlock trailers(
+        HttpHeaderBlock trailers)
+    {
+        trailers.reset();
+        for (int field = 0; field < fieldCount(); field++)
+        {
+            trailers.header(nameBuffer(), nameOffset(field), nameLength(field),
+                            valueBuffer(), valueOffset(field), valueLength(field));
+        }
+        return trailers;
+    }
+}
@@ -0,0 +1,412 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.reaktivity.nukleus.http.internal.stream.HttpHeadParser.equalsIgnoreCase;
+import static org.reaktivity.nukleus.http.internal.stream.HttpHeadParser.toLowerCase;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * Compresses response bodies with the gzip or deflate content-coding (RFC 7230 section 4.2) negotiated from
+ * the Accept-Encoding header of the request. Deflaters are kept in a pool and reused across responses, and
+ * the gzip and zlib wrappers are written around raw deflate data so one pool serves both content-codings.
+ */
+final class HttpContentEncoder
+{
+    static final int CODING_GZIP = 0x01;
+    static final int CODING_DEFLATE = 0x02;
+
+    private static final int CODING_ANY = CODING_GZIP | CODING_DEFLATE;
+
+    private static final byte[] GZIP = "gzip".getBytes(US_ASCII);
+    private static final byte[] X_GZIP = "x-gzip".getBytes(US_ASCII);
+    private static final byte[] DEFLATE = "deflate".getBytes(US_ASCII);
+    private static final byte[] ANY = "*".getBytes(US_ASCII);
+
+    static final byte[] CONTENT_ENCODING_GZIP_CRLF = "Content-Encoding: gzip\r\n".getBytes(US_ASCII);
+    static final byte[] CONTENT_ENCODING_DEFLATE_CRLF = "Content-Encoding: deflate\r\n".getBytes(US_ASCII);
+
+    // RFC 1952 member header without optional fields (compression method deflate, unknown operating system)
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, 0x08, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xff };
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    // RFC 1950 header for deflate with a 32K window and the default compression level
+    private static final byte[] ZLIB_HEADER = { 0x78, (byte) 0x9c };
+    private static final int ZLIB_TRAILER_LENGTH = 4;
+
+    // room needed in the output for a header or trailer to be written whole
+    private static final int MINIMUM_OUTPUT = GZIP_HEADER.length + GZIP_TRAILER_LENGTH;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Deque<Deflater> deflaters;
+    private final byte[] input;
+    private final byte[] output;
+    private final MutableDirectBuffer outputBuffer;
+    private final byte[][] contentTypes;
+
+    final int minimumSize;
+
+    HttpContentEncoder(
+        int bufferCapacity,
+        int minimumSize,
+        String[] contentTypes)
+    {
+        this.deflaters = new ArrayDeque<>();
+        this.input = new byte[bufferCapacity];
+        this.output = new byte[bufferCapacity];
+        this.outputBuffer = new UnsafeBuffer(output);
+        this.minimumSize = minimumSize;
+        this.contentTypes = new byte[contentTypes.length][];
+        for (int i = 0; i < contentTypes.length; i++)
+        {
+            this.contentTypes[i] = contentTypes[i].trim().toLowerCase().getBytes(US_ASCII);
+        }
+    }
+
+    /**
+     * @return the buffer holding the output of the most recent {@link Encoding#encode}
+     */
+    DirectBuffer output()
+    {
+        return outputBuffer;
+    }
+
+    /**
+     * Returns whether responses with the given Content-Type may be compressed, matching the media type without
+     * its parameters against the configured media types, where {@code type/*} matches any subtype.
+     */
+    boolean compressible(
+        DirectBuffer buffer,
+        int offset,
+        int length)
+    {
+        int limit = offset;
+        while (limit < offset + length && buffer.getByte(limit) != ';')
+        {
+            limit++;
+        }
+        while (limit > offset && HttpHeadParser.isClass(buffer.getByte(limit - 1), HttpHeadParser.CHAR_WHITESPACE))
+        {
+            limit--;
+        }
+
+        boolean compressible = false;
+        for (int i = 0; !compressible && i < contentTypes.length; i++)
+        {
+            final byte[] contentType = contentTypes[i];
+            final int wildcard = contentType.length - 1;
+            compressible = contentType.length > 1 && contentType[wildcard] == '*' && contentType[wildcard - 1] == '/' ?
+                    limit - offset > wildcard && startsWithIgnoreCase(buffer, offset, contentType, wildcard) :
+                    equalsIgnoreCase(buffer, offset, limit - offset, contentType);
+        }
+        return compressible;
+    }
+
+    /**
+     * Parses the value of an Accept-Encoding header field (RFC 7231 section 5.3.4).
+     *
+     * @return the content-codings that are acceptable, as a combination of {@link #CODING_GZIP} and {@link #CODING_DEFLATE}
+     */
+    static int acceptedCodings(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        int accepted = 0;
+        int excluded = 0;
+        boolean anyAccepted = false;
+
+        int progress = offset;
+        while (progress < limit)
+        {
+            int elementLimit = progress;
+            while (elementLimit < limit && buffer.getByte(elementLimit) != ',')
+            {
+                elementLimit++;
+            }
+
+            final int codingOffset = skipWhitespace(buffer, progress, elementLimit);
+            int codingLimit = codingOffset;
+            while (codingLimit < elementLimit && HttpHeadParser.isClass(buffer.getByte(codingLimit), HttpHeadParser.CHAR_TOKEN))
+            {
+                codingLimit++;
+            }
+
+            final int codingLength = codingLimit - codingOffset;
+            final boolean acceptable = !zeroQuality(buffer, codingLimit, elementLimit);
+            if (equalsIgnoreCase(buffer, codingOffset, codingLength, ANY))
+            {
+                anyAccepted = acceptable;
+            }
+            else
+            {
+                final int coding = equalsIgnoreCase(buffer, codingOffset, codingLength, GZIP) ||
+                                   equalsIgnoreCase(buffer, codingOffset, codingLength, X_GZIP) ? CODING_GZIP :
+                                   equalsIgnoreCase(buffer, codingOffset, codingLength, DEFLATE) ? CODING_DEFLATE : 0;
+                accepted |= acceptable ? coding : 0;
+                excluded |= acceptable ? 0 : coding;
+            }
+
+            progress = elementLimit + 1;
+        }
+
+        return anyAccepted ? accepted | (CODING_ANY & ~excluded) : accepted;
+    }
+
+    /**
+     * Selects the content-coding for a response from those accepted by the request, preferring gzip.
+     *
+     * @return {@link #CODING_GZIP}, {@link #CODING_DEFLATE} or 0 if neither is accepted
+     */
+    static int selectCoding(
+        int acceptedCodings)
+    {
+        return (acceptedCodings & CODING_GZIP) != 0 ? CODING_GZIP : acceptedCodings & CODING_DEFLATE;
+    }
+
+    static byte[] contentEncoding(
+        int coding)
+    {
+        return coding == CODING_GZIP ? CONTENT_ENCODING_GZIP_CRLF : CONTENT_ENCODING_DEFLATE_CRLF;
+    }
+
+    Encoding supplyEncoding(
+        int coding)
+    {
+        final Deflater deflater = deflaters.isEmpty() ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : deflaters.poll();
+        return new Encoding(coding, deflater);
+    }
+
+    /**
+     * The compression state of one response body.
+     */
+    final class Encoding
+    {
+        private final Deflater deflater;
+        private final Checksum checksum;
+        private final byte[] header;
+        private final int trailerLength;
+
+        private boolean headerWritten;
+        private boolean trailerWritten;
+        private int consumed;
+
+        private Encoding(
+            int coding,
+            Deflater deflater)
+        {
+            this.deflater = deflater;
+            this.checksum = coding == CODING_GZIP ? new CRC32() : new Adler32();
+            this.header = coding == CODING_GZIP ? GZIP_HEADER : ZLIB_HEADER;
+            this.trailerLength = coding == CODING_GZIP ? GZIP_TRAILER_LENGTH : ZLIB_TRAILER_LENGTH;
+        }
+
+        /**
+         * Compresses body data into the {@link HttpContentEncoder#output() output} buffer, finishing the compressed
+         * body once all of the data has been consumed when {@code finish} is true.
+         *
+         * @param maximumLength  the maximum number of bytes to produce
+         * @return the number of bytes produced, with {@link #consumed()} reporting how much of the data was consumed
+         */
+        int encode(
+            DirectBuffer buffer,
+            int offset,
+            int length,
+            boolean finish,
+            int maximumLength)
+        {
+            final int outputLimit = Math.min(maximumLength, output.length);
+            int progress = 0;
+            consumed = 0;
+
+            if (outputLimit >= MINIMUM_OUTPUT)
+            {
+                if (!headerWritten)
+                {
+                    System.arraycopy(header, 0, output, 0, header.length);
+                    progress += header.length;
+                    headerWritten = true;
+                }
+
+                final int inputLength = Math.min(length, input.length);
+                buffer.getBytes(offset, input, 0, inputLength);
+                final long bytesRead = deflater.getBytesRead();
+                deflater.setInput(input, 0, inputLength);
+                progress = deflate(progress, outputLimit);
+                consumed = (int) (deflater.getBytesRead() - bytesRead);
+                checksum.update(input, 0, consumed);
+
+                // data that was not consumed is offered again with the next call, so the deflater must not keep it
+                deflater.setInput(EMPTY, 0, 0);
+
+                // no more data may be offered once finishing, so it only starts after all of the data was consumed
+                if (finish && consumed == length)
+                {
+                    deflater.finish();
+                    progress = deflate(progress, outputLimit);
+                }
+
+                if (deflater.finished() && !trailerWritten)
+                {
+                    progress = encodeTrailer(progress);
+                    trailerWritten = true;
+                }
+            }
+
+            return progress;
+        }
+
+        /**
+         * @return the number of bytes of data consumed by the most recent {@link #encode}
+         */
+        int consumed()
+        {
+            return consumed;
+        }
+
+        /**
+         * @return true once the compressed body has been produced in full, including its trailer
+         */
+        boolean finished()
+        {
+            return trailerWritten;
+        }
+
+        /**
+         * Returns the deflater to the pool of the encoder for use by another response.
+         */
+        void release()
+        {
+            deflater.reset();
+            deflaters.add(deflater);
+        }
+
+        private int deflate(
+            int offset,
+            int limit)
+        {
+            // the trailer is written whole, so room is kept for it while deflating
+            return offset + deflater.deflate(output, offset, limit - offset - trailerLength, Deflater.NO_FLUSH);
+        }
+
+        private int encodeTrailer(
+            int offset)
+        {
+            final long checksum = this.checksum.getValue();
+            if (trailerLength == GZIP_TRAILER_LENGTH)
+            {
+                // RFC 1952: CRC-32 and size modulo 2^32 of the uncompressed data, both little-endian
+                putIntLittleEndian(offset, (int) checksum);
+                putIntLittleEndian(offset + 4, (int) deflater.getBytesRead());
+            }
+            else
+            {
+                // RFC 1950: Adler-32 of the uncompressed data, big-endian
+                output[offset] = (byte) (checksum >>> 24);
+                output[offset + 1] = (byte) (checksum >>> 16);
+                output[offset + 2] = (byte) (checksum >>> 8);
+                output[offset + 3] = (byte) checksum;
+            }
+            return offset + trailerLength;
+        }
+
+        private void putIntLittleEndian(
+            int offset,
+            int value)
+        {
+            output[offset] = (byte) value;
+            output[offset + 1] = (byte) (value >>> 8);
+            output[offset + 2] = (byte) (value >>> 16);
+            output[offset + 3] = (byte) (value >>> 24);
+        }
+    }
+
+    private static boolean zeroQuality(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        boolean zero = false;
+
+        int progress = skipWhitespace(buffer, offset, limit);
+        while (progress < limit && buffer.getByte(progress) == ';')
+        {
+            progress = skipWhitespace(buffer, progress + 1, limit);
+            final boolean quality = progress + 1 < limit && toLowerCase(buffer.getByte(progress)) == 'q' &&
+                                    buffer.getByte(progress + 1) == '=';
+
+            int valueLimit = progress;
+            while (valueLimit < limit && buffer.getByte(valueLimit) != ';')
+            {
+                valueLimit++;
+            }
+
+            if (quality)
+            {
+                // qvalue = ( "0" [ "." 0*3DIGIT ] ) / ( "1" [ "." 0*3("0") ] ), so zero has no non-zero digit
+                zero = true;
+                for (int i = progress + 2; i < valueLimit; i++)
+                {
+                    final byte ch = buffer.getByte(i);
+                    zero &= ch == '0' || ch == '.' || HttpHeadParser.isClass(ch, HttpHeadParser.CHAR_WHITESPACE);
+                }
+            }
+
+            progress = valueLimit;
+        }
+
+        return zero;
+    }
+
+    private static int skipWhitespace(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        int progress = offset;
+        while (progress < limit && HttpHeadParser.isClass(buffer.getByte(progress), HttpHeadParser.CHAR_WHITESPACE))
+        {
+            progress++;
+        }
+        return progress;
+    }
+
+    private static boolean startsWithIgnoreCase(
+        DirectBuffer buffer,
+        int offset,
+        byte[] lowerCasePrefix,
+        int prefixLength)
+    {
+        boolean matches = true;
+        for (int i = 0; matches && i < prefixLength; i++)
+        {
+            matches = toLowerCase(buffer.getByte(offset + i)) == lowerCasePrefix[i];
+        }
+        return matches;
+    }
+}
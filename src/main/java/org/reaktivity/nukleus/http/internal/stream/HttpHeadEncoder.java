@@ -0,0 +1,890 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.reaktivity.nukleus.http.internal.stream.HttpHeadParser.equalsIgnoreCase;
+import static org.reaktivity.nukleus.http.internal.stream.HttpHeadParser.toLowerCase;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.reaktivity.nukleus.http.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http.internal.types.ListFW;
+import org.reaktivity.nukleus.http.internal.types.String16FW;
+import org.reaktivity.nukleus.http.internal.types.StringFW;
+
+/**
+ * Encodes HTTP/1.1 message heads from {@code HttpBeginExFW} header flyweights straight into a buffer slot.
+ */
+final class HttpHeadEncoder
+{
+    static final int HEAD_TOO_LONG = -1;
+    static final int HEAD_INVALID = -2;
+
+    private static final byte[] STATUS = ":status".getBytes(US_ASCII);
+    private static final byte[] METHOD = ":method".getBytes(US_ASCII);
+    private static final byte[] SCHEME = ":scheme".getBytes(US_ASCII);
+    private static final byte[] AUTHORITY = ":authority".getBytes(US_ASCII);
+    private static final byte[] PATH = ":path".getBytes(US_ASCII);
+    private static final byte[] HOST = "host".getBytes(US_ASCII);
+    private static final byte[] CONTENT_LENGTH = "content-length".getBytes(US_ASCII);
+    private static final byte[] TRANSFER_ENCODING = "transfer-encoding".getBytes(US_ASCII);
+    private static final byte[] CHUNKED = "chunked".getBytes(US_ASCII);
+    private static final byte[] CONTENT_TYPE = "content-type".getBytes(US_ASCII);
+    private static final byte[] CONTENT_ENCODING = "content-encoding".getBytes(US_ASCII);
+    private static final byte[] CACHE_CONTROL = "cache-control".getBytes(US_ASCII);
+    private static final byte[] NO_TRANSFORM = "no-transform".getBytes(US_ASCII);
+    private static final byte[] VARY = "vary".getBytes(US_ASCII);
+    private static final byte[] CONNECTION = "connection".getBytes(US_ASCII);
+    private static final byte[] CLOSE = "close".getBytes(US_ASCII);
+    private static final byte[] POST = "post".getBytes(US_ASCII);
+    private static final byte[] INSERT = "insert".getBytes(US_ASCII);
+    private static final byte[] GET = "get".getBytes(US_ASCII);
+    private static final byte[] HEAD = "head".getBytes(US_ASCII);
+    private static final byte[] CONNECT = "connect".getBytes(US_ASCII);
+    private static final byte[][] IDEMPOTENT_METHODS =
+    {
+        "get".getBytes(US_ASCII),
+        "head".getBytes(US_ASCII),
+        "options".getBytes(US_ASCII),
+        "trace".getBytes(US_ASCII),
+        "put".getBytes(US_ASCII),
+        "delete".getBytes(US_ASCII)
+    };
+    private static final byte[][] BODYLESS_METHODS =
+    {
+        "get".getBytes(US_ASCII),
+        "head".getBytes(US_ASCII),
+        "options".getBytes(US_ASCII),
+        "trace".getBytes(US_ASCII),
+        "delete".getBytes(US_ASCII)
+    };
+
+    private static final byte[] HTTP_1_1 = "HTTP/1.1 ".getBytes(US_ASCII);
+    private static final byte[] SPACE_HTTP_1_1_CRLF_HOST = " HTTP/1.1\r\nHost: ".getBytes(US_ASCII);
+    private static final byte[] SPACE = " ".getBytes(US_ASCII);
+    private static final byte[] COLON_SPACE = ": ".getBytes(US_ASCII);
+    private static final byte[] CRLF = "\r\n".getBytes(US_ASCII);
+    private static final byte[] CONTENT_LENGTH_COLON_SPACE = "Content-Length: ".getBytes(US_ASCII);
+    private static final byte[] LAST_CHUNK_SIZE_CRLF = "0\r\n".getBytes(US_ASCII);
+    private static final byte[] COMMA_SPACE_ACCEPT_ENCODING_CRLF = ", Accept-Encoding\r\n".getBytes(US_ASCII);
+    private static final byte[] VARY_ACCEPT_ENCODING_CRLF = "Vary: Accept-Encoding\r\n".getBytes(US_ASCII);
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(US_ASCII);
+
+    static final byte[] TRANSFER_ENCODING_CHUNKED_CRLF = "Transfer-Encoding: chunked\r\n".getBytes(US_ASCII);
+    static final int LAST_CHUNK_LENGTH = LAST_CHUNK_SIZE_CRLF.length + CRLF.length;
+
+    // StringFW and String16FW are prefixed by an 8-bit and a 16-bit length respectively
+    private static final int NAME_LENGTH_SIZE = 1;
+    private static final int VALUE_LENGTH_SIZE = 2;
+
+    private static final int MINIMUM_STATUS = 100;
+    private static final int MAXIMUM_STATUS = 599;
+    private static final byte[][] STATUS_LINES = new byte[MAXIMUM_STATUS + 1 - MINIMUM_STATUS][];
+    private static final byte[] DEFAULT_STATUS_LINE;
+
+    static
+    {
+        status(100, "Continue");
+        status(101, "Switching Protocols");
+        status(200, "OK");
+        status(201, "Created");
+        status(202, "Accepted");
+        status(203, "Non-Authoritative Information");
+        status(204, "No Content");
+        status(205, "Reset Content");
+        status(206, "Partial Content");
+        status(300, "Multiple Choices");
+        status(301, "Moved Permanently");
+        status(302, "Found");
+        status(303, "See Other");
+        status(304, "Not Modified");
+        status(305, "Use Proxy");
+        status(307, "Temporary Redirect");
+        status(308, "Permanent Redirect");
+        status(400, "Bad Request");
+        status(401, "Unauthorized");
+        status(402, "Payment Required");
+        status(403, "Forbidden");
+        status(404, "Not Found");
+        status(405, "Method Not Allowed");
+        status(406, "Not Acceptable");
+        status(407, "Proxy Authentication Required");
+        status(408, "Request Timeout");
+        status(409, "Conflict");
+        status(410, "Gone");
+        status(411, "Length Required");
+        status(412, "Precondition Failed");
+        status(413, "Payload Too Large");
+        status(414, "URI Too Long");
+        status(415, "Unsupported Media Type");
+        status(416, "Range Not Satisfiable");
+        status(417, "Expectation Failed");
+        status(426, "Upgrade Required");
+        status(428, "Precondition Required");
+        status(429, "Too Many Requests");
+        status(431, "Request Header Fields Too Large");
+        status(500, "Internal Server Error");
+        status(501, "Not Implemented");
+        status(502, "Bad Gateway");
+        status(503, "Service Unavailable");
+        status(504, "Gateway Timeout");
+        status(505, "HTTP Version Not Supported");
+        status(507, "Insufficient Storage");
+        status(511, "Network Authentication Required");
+
+        DEFAULT_STATUS_LINE = STATUS_LINES[200 - MINIMUM_STATUS];
+    }
+
+    private static final int CANONICAL_NAMES_MASK = 0xff;
+    private static final byte[][] LOWER_CASE_NAMES = new byte[CANONICAL_NAMES_MASK + 1][];
+    private static final byte[][] CANONICAL_NAMES = new byte[CANONICAL_NAMES_MASK + 1][];
+
+    static
+    {
+        canonical("Accept", "Accept-Charset", "Accept-Encoding", "Accept-Language", "Accept-Ranges",
+                  "Access-Control-Allow-Credentials", "Access-Control-Allow-Headers", "Access-Control-Allow-Methods",
+                  "Access-Control-Allow-Origin", "Access-Control-Expose-Headers", "Access-Control-Max-Age",
+                  "Access-Control-Request-Headers", "Access-Control-Request-Method",
+                  "Age", "Allow", "Authorization", "Cache-Control", "Connection", "Content-Disposition",
+                  "Content-Encoding", "Content-Language", "Content-Length", "Content-Location", "Content-MD5",
+                  "Content-Range", "Content-Security-Policy", "Content-Type", "Cookie", "Date", "DNT", "ETag",
+                  "Expect", "Expires", "Forwarded", "From", "Host", "If-Match", "If-Modified-Since", "If-None-Match",
+                  "If-Range", "If-Unmodified-Since", "Keep-Alive", "Last-Modified", "Link", "Location",
+                  "Max-Forwards", "Origin", "Pragma", "Proxy-Authenticate", "Proxy-Authorization", "Range", "Referer",
+                  "Retry-After", "Sec-WebSocket-Accept", "Sec-WebSocket-Extensions", "Sec-WebSocket-Key",
+                  "Sec-WebSocket-Protocol", "Sec-WebSocket-Version", "Server", "Set-Cookie",
+                  "Strict-Transport-Security", "TE", "Trailer", "Transfer-Encoding", "Upgrade", "User-Agent", "Vary",
+                  "Via", "Warning", "WWW-Authenticate", "X-Content-Type-Options", "X-Forwarded-For",
+                  "X-Forwarded-Host", "X-Forwarded-Proto", "X-Frame-Options", "X-Request-ID", "X-XSS-Protection");
+    }
+
+    private final Predicate<HttpHeaderFW> encodeStatusLine = this::encodeStatusLine;
+    private final Consumer<HttpHeaderFW> encodeResponseHeader = this::encodeResponseHeader;
+    private final Consumer<HttpHeaderFW> scanRequestHeader = this::scanRequestHeader;
+    private final Consumer<HttpHeaderFW> encodeRequestHeader = this::encodeRequestHeader;
+
+    private MutableDirectBuffer buffer;
+    private int limit;
+    private int progress;
+
+    private int methodOffset;
+    private int methodLength;
+    private int pathOffset;
+    private int pathLength;
+    private int authorityOffset;
+    private int authorityLength;
+    private int hostOffset;
+    private int hostLength;
+    private boolean hasScheme;
+    private byte[] contentEncodingField;
+    private boolean vary;
+
+    /**
+     * Set by {@link #encodeRequest} to false if the request method or Connection header prevent
+     * the connection from being reused for another request.
+     */
+    boolean persistent;
+
+    /**
+     * Set by {@link #encodeRequest} to true if the request method is idempotent (RFC 7231 section 4.2.2),
+     * so the request may be pipelined behind other requests on the same connection.
+     */
+    boolean idempotent;
+
+    /**
+     * Set by {@link #encodeRequest} to true if the request method is GET or HEAD, which only retrieve
+     * a representation, so a duplicate of the request may be sent when the first is slow to respond.
+     */
+    boolean safe;
+
+    /**
+     * Set by {@link #encodeRequest} to true if the request method is GET, HEAD, OPTIONS, TRACE or DELETE, which are
+     * sent without a body unless it is delimited by a Content-Length or Transfer-Encoding header field.
+     */
+    boolean bodyless;
+
+    /**
+     * Set by {@link #encodeRequest} to true if the request method is CONNECT, so the request is followed
+     * by a tunnel rather than a body.
+     */
+    boolean connect;
+
+    /**
+     * Set by {@link #encodeResponse} to the status code of the response, or -1 if the {@code :status} header is invalid.
+     */
+    int status;
+
+    /**
+     * Set by {@link #encodeRequest} and {@link #encodeResponse} to true if the message has a Content-Length header field.
+     */
+    boolean contentLength;
+
+    /**
+     * Set by {@link #encodeRequest} and {@link #encodeResponse} to true if the message has a Transfer-Encoding
+     * header field.
+     */
+    boolean transferEncoding;
+
+    /**
+     * Set by {@link #encodeRequest} and {@link #encodeResponse} to true if the Transfer-Encoding of the message
+     * is chunked, so the message body must be encoded as chunks.
+     */
+    boolean chunked;
+
+    /**
+     * Set by {@link #encodeResponse} to the value of the Content-Length header field, or -1 if absent or invalid.
+     */
+    long contentLengthValue;
+
+    /**
+     * Set by {@link #encodeResponse} to the offset of the Content-Type header field value in the headers buffer,
+     * with {@link #contentTypeLength} set to its length, or -1 if the response has no Content-Type.
+     */
+    int contentTypeOffset;
+    int contentTypeLength;
+
+    /**
+     * Set by {@link #encodeResponse} to true if the response has a Content-Encoding header field, or a Cache-Control
+     * no-transform directive, so its body must not be compressed.
+     */
+    boolean contentEncoding;
+
+    /**
+     * Encodes the status-line and header fields of a response, taking the status from the {@code :status} header.
+     *
+     * @param headers  the response headers, or null if the response has no begin extension
+     * @return the limit of the encoded response head, or -1 if it does not fit
+     */
+    int encodeResponse(
+        ListFW<HttpHeaderFW> headers,
+        MutableDirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        return encodeResponse(headers, buffer, offset, limit, null);
+    }
+
+    /**
+     * Encodes the status-line and header fields of a response whose body is compressed, replacing Content-Length
+     * and Transfer-Encoding by the given Content-Encoding header field and chunked transfer-coding, and adding
+     * Accept-Encoding to the Vary header field.
+     *
+     * @param contentEncodingField  the encoded Content-Encoding header field, or null if the body is not compressed
+     * @return the limit of the encoded response head, or -1 if it does not fit
+     */
+    int encodeResponse(
+        ListFW<HttpHeaderFW> headers,
+        MutableDirectBuffer buffer,
+        int offset,
+        int limit,
+        byte[] contentEncodingField)
+    {
+        this.buffer = buffer;
+        this.limit = limit;
+        this.progress = offset;
+        this.contentEncodingField = contentEncodingField;
+        this.vary = false;
+        this.status = 200;
+        this.contentLength = false;
+        this.transferEncoding = false;
+        this.chunked = false;
+        this.contentLengthValue = -1L;
+        this.contentTypeOffset = -1;
+        this.contentTypeLength = 0;
+        this.contentEncoding = false;
+
+        if (headers == null || !headers.anyMatch(encodeStatusLine))
+        {
+            progress = encode(buffer, progress, limit, DEFAULT_STATUS_LINE);
+        }
+
+        if (headers != null)
+        {
+            headers.forEach(encodeResponseHeader);
+        }
+
+        if (contentEncodingField != null)
+        {
+            progress = encode(buffer, progress, limit, contentEncodingField);
+            progress = vary ? progress : encode(buffer, progress, limit, VARY_ACCEPT_ENCODING_CRLF);
+            progress = encode(buffer, progress, limit, TRANSFER_ENCODING_CHUNKED_CRLF);
+        }
+
+        progress = encode(buffer, progress, limit, CRLF);
+        this.buffer = null;
+        this.contentEncodingField = null;
+
+        return progress;
+    }
+
+    /**
+     * Encodes the request-line, Host header field and remaining header fields of a request,
+     * taking the request-line and Host from the {@code :method}, {@code :path} and {@code :authority} headers.
+     *
+     * @param headers  the request headers
+     * @return the limit of the encoded request head, {@link #HEAD_TOO_LONG} if it does not fit,
+     *         or {@link #HEAD_INVALID} if pseudo-headers are missing or the Host header disagrees with {@code :authority}
+     */
+    int encodeRequest(
+        ListFW<HttpHeaderFW> headers,
+        MutableDirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        methodLength = -1;
+        pathLength = -1;
+        authorityLength = -1;
+        hostLength = -1;
+        hasScheme = false;
+        persistent = true;
+        idempotent = false;
+        safe = false;
+        bodyless = false;
+        connect = false;
+        contentLength = false;
+        transferEncoding = false;
+        chunked = false;
+
+        headers.forEach(scanRequestHeader);
+
+        if (authorityLength == -1)
+        {
+            authorityOffset = hostOffset;
+            authorityLength = hostLength;
+        }
+
+        final DirectBuffer values = headers.buffer();
+        if (methodLength == -1 || pathLength == -1 || authorityLength == -1 || !hasScheme ||
+            (hostLength != -1 && !equals(values, hostOffset, hostLength, authorityOffset, authorityLength)))
+        {
+            return HEAD_INVALID;
+        }
+
+        this.buffer = buffer;
+        this.limit = limit;
+        this.progress = offset;
+
+        progress = encode(buffer, progress, limit, values, methodOffset, methodLength);
+        progress = encode(buffer, progress, limit, SPACE);
+        progress = encode(buffer, progress, limit, values, pathOffset, pathLength);
+        progress = encode(buffer, progress, limit, SPACE_HTTP_1_1_CRLF_HOST);
+        progress = encode(buffer, progress, limit, values, authorityOffset, authorityLength);
+        progress = encode(buffer, progress, limit, CRLF);
+
+        headers.forEach(encodeRequestHeader);
+
+        progress = encode(buffer, progress, limit, CRLF);
+        this.buffer = null;
+
+        return progress;
+    }
+
+    /**
+     * Adds a Transfer-Encoding: chunked header field to the end of an encoded message head.
+     *
+     * @param headLimit  the limit of the encoded message head
+     * @return the new limit of the message head, or -1 if it does not fit
+     */
+    static int encodeChunkedTransferEncoding(
+        MutableDirectBuffer buffer,
+        int headLimit,
+        int limit)
+    {
+        // the header field replaces the empty line ending the head, which is then encoded after it
+        int progress = encode(buffer, headLimit - CRLF.length, limit, TRANSFER_ENCODING_CHUNKED_CRLF);
+        progress = encode(buffer, progress, limit, CRLF);
+        return progress;
+    }
+
+    /**
+     * Encodes the last chunk of a chunked body, followed by the trailer fields and the empty line that ends the body.
+     *
+     * @param trailers  the trailer fields, or null if the body has no trailer
+     * @return the limit of the encoded last chunk, or -1 if it does not fit
+     */
+    int encodeLastChunk(
+        ListFW<HttpHeaderFW> trailers,
+        MutableDirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        this.buffer = buffer;
+        this.limit = limit;
+        this.progress = encode(buffer, offset, limit, LAST_CHUNK_SIZE_CRLF);
+        this.contentEncodingField = null;
+
+        if (trailers != null)
+        {
+            trailers.forEach(encodeResponseHeader);
+        }
+
+        progress = encode(buffer, progress, limit, CRLF);
+        this.buffer = null;
+
+        return progress;
+    }
+
+    /**
+     * Encodes a chunk of a chunked body, prefixing the payload with its size in hexadecimal.
+     *
+     * @return the limit of the encoded chunk, or -1 if it does not fit
+     */
+    static int encodeChunk(
+        MutableDirectBuffer buffer,
+        int offset,
+        int limit,
+        DirectBuffer payload,
+        int payloadOffset,
+        int payloadLength)
+    {
+        int progress = -1;
+        if (offset != -1 && offset + chunkLength(payloadLength) <= limit)
+        {
+            progress = offset + chunkLength(payloadLength) - payloadLength - CRLF.length - CRLF.length;
+            for (int size = payloadLength, i = progress - 1; i >= offset; size >>>= 4, i--)
+            {
+                buffer.putByte(i, HEX_DIGITS[size & 0x0f]);
+            }
+            buffer.putBytes(progress, CRLF);
+            progress += CRLF.length;
+            buffer.putBytes(progress, payload, payloadOffset, payloadLength);
+            progress += payloadLength;
+            buffer.putBytes(progress, CRLF);
+            progress += CRLF.length;
+        }
+        return progress;
+    }
+
+    /**
+     * Returns the encoded length of a chunk with the given payload length, including its size line and final CRLF.
+     */
+    static int chunkLength(
+        int payloadLength)
+    {
+        int digits = 1;
+        for (int size = payloadLength >>> 4; size != 0; size >>>= 4)
+        {
+            digits++;
+        }
+        return digits + CRLF.length + payloadLength + CRLF.length;
+    }
+
+    /**
+     * Encodes a Content-Length header field.
+     *
+     * @return the limit of the encoded header field, or -1 if it does not fit
+     */
+    static int encodeContentLength(
+        MutableDirectBuffer buffer,
+        int offset,
+        int limit,
+        int length)
+    {
+        int progress = -1;
+        if (offset != -1 && offset + contentLengthFieldLength(length) <= limit)
+        {
+            progress = offset + contentLengthFieldLength(length) - CRLF.length;
+            buffer.putBytes(offset, CONTENT_LENGTH_COLON_SPACE);
+            for (int value = length, i = progress - 1; i >= offset + CONTENT_LENGTH_COLON_SPACE.length; value /= 10, i--)
+            {
+                buffer.putByte(i, (byte) ('0' + value % 10));
+            }
+            buffer.putBytes(progress, CRLF);
+            progress += CRLF.length;
+        }
+        return progress;
+    }
+
+    /**
+     * Returns the encoded length of a Content-Length header field with the given value.
+     */
+    static int contentLengthFieldLength(
+        int length)
+    {
+        int digits = 1;
+        for (int value = length / 10; value != 0; value /= 10)
+        {
+            digits++;
+        }
+        return CONTENT_LENGTH_COLON_SPACE.length + digits + CRLF.length;
+    }
+
+    /**
+     * Encodes a header field, writing well-known names in their canonical case and other names
+     * with each hyphen-separated word capitalized.
+     *
+     * @return the limit of the encoded header field, or -1 if it does not fit
+     */
+    static int encodeHeader(
+        MutableDirectBuffer buffer,
+        int offset,
+        int limit,
+        DirectBuffer name,
+        int nameOffset,
+        int nameLength,
+        DirectBuffer value,
+        int valueOffset,
+        int valueLength)
+    {
+        int progress = offset;
+
+        if (progress != -1 && progress + nameLength + COLON_SPACE.length + valueLength + CRLF.length <= limit)
+        {
+            final byte[] canonical = canonicalName(name, nameOffset, nameLength);
+            if (canonical != null)
+            {
+                buffer.putBytes(progress, canonical);
+            }
+            else
+            {
+                boolean upper = true;
+                for (int i = 0; i < nameLength; i++)
+                {
+                    final byte ch = name.getByte(nameOffset + i);
+                    buffer.putByte(progress + i, upper && ch >= 'a' && ch <= 'z' ? (byte) (ch - ('a' - 'A')) : ch);
+                    upper = ch == '-';
+                }
+            }
+            progress += nameLength;
+
+            buffer.putBytes(progress, COLON_SPACE);
+            progress += COLON_SPACE.length;
+            buffer.putBytes(progress, value, valueOffset, valueLength);
+            progress += valueLength;
+            buffer.putBytes(progress, CRLF);
+            progress += CRLF.length;
+        }
+        else
+        {
+            progress = -1;
+        }
+
+        return progress;
+    }
+
+    static int encode(
+        MutableDirectBuffer buffer,
+        int offset,
+        int limit,
+        byte[] bytes)
+    {
+        int progress = -1;
+        if (offset != -1 && offset + bytes.length <= limit)
+        {
+            buffer.putBytes(offset, bytes);
+            progress = offset + bytes.length;
+        }
+        return progress;
+    }
+
+    static int encode(
+        MutableDirectBuffer buffer,
+        int offset,
+        int limit,
+        DirectBuffer bytes,
+        int bytesOffset,
+        int bytesLength)
+    {
+        int progress = -1;
+        if (offset != -1 && offset + bytesLength <= limit)
+        {
+            buffer.putBytes(offset, bytes, bytesOffset, bytesLength);
+            progress = offset + bytesLength;
+        }
+        return progress;
+    }
+
+    private boolean encodeStatusLine(
+        HttpHeaderFW header)
+    {
+        final StringFW name = header.name();
+        final int nameOffset = name.offset() + NAME_LENGTH_SIZE;
+        final boolean found = equalsIgnoreCase(name.buffer(), nameOffset, name.limit() - nameOffset, STATUS);
+
+        if (found)
+        {
+            final String16FW value = header.value();
+            final DirectBuffer valueBuffer = value.buffer();
+            final int valueOffset = value.offset() + VALUE_LENGTH_SIZE;
+            final int valueLength = value.limit() - valueOffset;
+
+            status = parseStatus(valueBuffer, valueOffset, valueLength);
+            // a backend may send any three digit status, only those up to 599 may have a registered reason-phrase
+            final byte[] statusLine = status != -1 && status <= MAXIMUM_STATUS ? STATUS_LINES[status - MINIMUM_STATUS] : null;
+
+            if (statusLine != null)
+            {
+                progress = encode(buffer, progress, limit, statusLine);
+            }
+            else
+            {
+                // no registered reason-phrase, RFC 7230 3.1.2 permits it to be empty
+                progress = encode(buffer, progress, limit, HTTP_1_1);
+                progress = encode(buffer, progress, limit, valueBuffer, valueOffset, valueLength);
+                progress = encode(buffer, progress, limit, SPACE);
+                progress = encode(buffer, progress, limit, CRLF);
+            }
+        }
+
+        return found;
+    }
+
+    private void encodeResponseHeader(
+        HttpHeaderFW header)
+    {
+        final StringFW name = header.name();
+        final DirectBuffer nameBuffer = name.buffer();
+        final int nameOffset = name.offset() + NAME_LENGTH_SIZE;
+        final int nameLength = name.limit() - nameOffset;
+
+        // pseudo-headers such as :status are not HTTP/1.1 header fields
+        if (nameLength > 0 && nameBuffer.getByte(nameOffset) != ':')
+        {
+            final String16FW value = header.value();
+            final DirectBuffer valueBuffer = value.buffer();
+            final int valueOffset = value.offset() + VALUE_LENGTH_SIZE;
+            final int valueLength = value.limit() - valueOffset;
+
+            boolean encoded = true;
+            if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, CONTENT_LENGTH))
+            {
+                contentLength = true;
+                contentLengthValue = parseContentLength(valueBuffer, valueOffset, valueLength);
+                encoded = contentEncodingField == null;
+            }
+            else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, TRANSFER_ENCODING))
+            {
+                transferEncoding = true;
+                chunked = equalsIgnoreCase(valueBuffer, valueOffset, valueLength, CHUNKED);
+                encoded = contentEncodingField == null;
+            }
+            else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, CONTENT_TYPE))
+            {
+                contentTypeOffset = valueOffset;
+                contentTypeLength = valueLength;
+            }
+            else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, CONTENT_ENCODING) ||
+                     equalsIgnoreCase(nameBuffer, nameOffset, nameLength, CACHE_CONTROL) &&
+                     HttpHeadParser.hasConnectionOption(valueBuffer, valueOffset, valueOffset + valueLength, NO_TRANSFORM))
+            {
+                contentEncoding = true;
+            }
+
+            if (encoded)
+            {
+                progress = encodeHeader(buffer, progress, limit, nameBuffer, nameOffset, nameLength,
+                                        valueBuffer, valueOffset, valueLength);
+            }
+
+            if (contentEncodingField != null && progress != -1 && equalsIgnoreCase(nameBuffer, nameOffset, nameLength, VARY))
+            {
+                // the representation now also varies by the content-codings the request accepts
+                vary = true;
+                progress = encode(buffer, progress - CRLF.length, limit, COMMA_SPACE_ACCEPT_ENCODING_CRLF);
+            }
+        }
+    }
+
+    private void scanRequestHeader(
+        HttpHeaderFW header)
+    {
+        final StringFW name = header.name();
+        final DirectBuffer nameBuffer = name.buffer();
+        final int nameOffset = name.offset() + NAME_LENGTH_SIZE;
+        final int nameLength = name.limit() - nameOffset;
+
+        final String16FW value = header.value();
+        final DirectBuffer valueBuffer = value.buffer();
+        final int valueOffset = value.offset() + VALUE_LENGTH_SIZE;
+        final int valueLength = value.limit() - valueOffset;
+
+        if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, METHOD))
+        {
+            methodOffset = valueOffset;
+            methodLength = valueLength;
+            if (equalsIgnoreCase(valueBuffer, valueOffset, valueLength, POST) ||
+                equalsIgnoreCase(valueBuffer, valueOffset, valueLength, INSERT))
+            {
+                persistent = false;
+            }
+            safe = equalsIgnoreCase(valueBuffer, valueOffset, valueLength, GET) ||
+                   equalsIgnoreCase(valueBuffer, valueOffset, valueLength, HEAD);
+            connect = equalsIgnoreCase(valueBuffer, valueOffset, valueLength, CONNECT);
+            for (int i = 0; !idempotent && i < IDEMPOTENT_METHODS.length; i++)
+            {
+                idempotent = equalsIgnoreCase(valueBuffer, valueOffset, valueLength, IDEMPOTENT_METHODS[i]);
+            }
+            for (int i = 0; !bodyless && i < BODYLESS_METHODS.length; i++)
+            {
+                bodyless = equalsIgnoreCase(valueBuffer, valueOffset, valueLength, BODYLESS_METHODS[i]);
+            }
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, SCHEME))
+        {
+            hasScheme = true;
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, AUTHORITY))
+        {
+            authorityOffset = valueOffset;
+            authorityLength = valueLength;
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, PATH))
+        {
+            pathOffset = valueOffset;
+            pathLength = valueLength;
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, HOST))
+        {
+            hostOffset = valueOffset;
+            hostLength = valueLength;
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, CONNECTION) &&
+                 HttpHeadParser.hasConnectionOption(valueBuffer, valueOffset, valueOffset + valueLength, CLOSE))
+        {
+            persistent = false;
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, CONTENT_LENGTH))
+        {
+            contentLength = true;
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, TRANSFER_ENCODING))
+        {
+            transferEncoding = true;
+            chunked = equalsIgnoreCase(valueBuffer, valueOffset, valueLength, CHUNKED);
+        }
+    }
+
+    private void encodeRequestHeader(
+        HttpHeaderFW header)
+    {
+        final StringFW name = header.name();
+        final DirectBuffer nameBuffer = name.buffer();
+        final int nameOffset = name.offset() + NAME_LENGTH_SIZE;
+        final int nameLength = name.limit() - nameOffset;
+
+        // pseudo-headers are encoded in the request-line, host as the Host header that follows it
+        if (nameLength > 0 && nameBuffer.getByte(nameOffset) != ':' &&
+            !equalsIgnoreCase(nameBuffer, nameOffset, nameLength, HOST))
+        {
+            final String16FW value = header.value();
+            final int valueOffset = value.offset() + VALUE_LENGTH_SIZE;
+            progress = encodeHeader(buffer, progress, limit, nameBuffer, nameOffset, nameLength,
+                                    value.buffer(), valueOffset, value.limit() - valueOffset);
+        }
+    }
+
+    private static boolean equals(
+        DirectBuffer buffer,
+        int offset,
+        int length,
+        int otherOffset,
+        int otherLength)
+    {
+        boolean equals = length == otherLength;
+        for (int i = 0; equals && i < length; i++)
+        {
+            equals = buffer.getByte(offset + i) == buffer.getByte(otherOffset + i);
+        }
+        return equals;
+    }
+
+    private static long parseContentLength(
+        DirectBuffer buffer,
+        int offset,
+        int length)
+    {
+        long value = length > 0 && length <= 18 ? 0L : -1L;
+        for (int i = 0; value != -1L && i < length; i++)
+        {
+            final byte ch = buffer.getByte(offset + i);
+            value = ch >= '0' && ch <= '9' ? value * 10 + ch - '0' : -1L;
+        }
+        return value;
+    }
+
+    private static int parseStatus(
+        DirectBuffer buffer,
+        int offset,
+        int length)
+    {
+        int status = length == HttpResponseParser.STATUS_LENGTH ? 0 : -1;
+        for (int i = 0; status != -1 && i < length; i++)
+        {
+            final byte ch = buffer.getByte(offset + i);
+            status = ch >= '0' && ch <= '9' ? status * 10 + ch - '0' : -1;
+        }
+        return status >= MINIMUM_STATUS ? status : -1;
+    }
+
+    private static byte[] canonicalName(
+        DirectBuffer name,
+        int offset,
+        int length)
+    {
+        int hash = 0;
+        for (int i = 0; i < length; i++)
+        {
+            hash = 31 * hash + toLowerCase(name.getByte(offset + i));
+        }
+
+        byte[] canonical = null;
+        for (int index = hash & CANONICAL_NAMES_MASK;
+             canonical == null && LOWER_CASE_NAMES[index] != null;
+             index = (index + 1) & CANONICAL_NAMES_MASK)
+        {
+            if (equalsIgnoreCase(name, offset, length, LOWER_CASE_NAMES[index]))
+            {
+                canonical = CANONICAL_NAMES[index];
+            }
+        }
+        return canonical;
+    }
+
+    private static void status(
+        int status,
+        String reason)
+    {
+        STATUS_LINES[status - MINIMUM_STATUS] = String.format("HTTP/1.1 %d %s\r\n", status, reason).getBytes(US_ASCII);
+    }
+
+    private static void canonical(
+        String... names)
+    {
+        for (String name : names)
+        {
+            final byte[] lowerCase = name.toLowerCase().getBytes(US_ASCII);
+
+            int hash = 0;
+            for (byte ch : lowerCase)
+            {
+                hash = 31 * hash + ch;
+            }
+
+            int index = hash & CANONICAL_NAMES_MASK;
+            while (LOWER_CASE_NAMES[index] != null)
+            {
+                index = (index + 1) & CANONICAL_NAMES_MASK;
+            }
+
+            LOWER_CASE_NAMES[index] = lowerCase;
+            CANONICAL_NAMES[index] = name.getBytes(US_ASCII);
+        }
+    }
+}
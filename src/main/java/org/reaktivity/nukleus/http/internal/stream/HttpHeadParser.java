@@ -0,0 +1,462 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.reaktivity.nukleus.http.internal.stream.ServerStreamFactory.HttpStatus;
+
+/**
+ * Flyweight-style parser for the header fields of an HTTP/1.x message head (RFC 7230 section 3.2).
+ * Instances are reused for every message and record header fields as offsets into the parsed buffer,
+ * so no objects are created while parsing a well-formed head.
+ */
+abstract class HttpHeadParser
+{
+    static final int CHAR_TOKEN = 0x01;
+    static final int CHAR_WHITESPACE = 0x02;
+    static final int CHAR_DIGIT = 0x04;
+    static final int CHAR_HEX = 0x08;
+    static final int CHAR_FIELD_VALUE = 0x10;
+    static final int CHAR_TARGET = 0x20;
+
+    private static final byte[] CHAR_CLASSES = new byte[256];
+
+    static
+    {
+        for (int ch = 0x21; ch < 0x7f; ch++)
+        {
+            CHAR_CLASSES[ch] |= CHAR_FIELD_VALUE | CHAR_TARGET;
+        }
+        for (int ch = 0x80; ch < 0x100; ch++)
+        {
+            CHAR_CLASSES[ch] |= CHAR_FIELD_VALUE;
+        }
+        for (int ch = '0'; ch <= '9'; ch++)
+        {
+            CHAR_CLASSES[ch] |= CHAR_TOKEN | CHAR_DIGIT | CHAR_HEX;
+        }
+        for (int ch = 'a'; ch <= 'z'; ch++)
+        {
+            CHAR_CLASSES[ch] |= CHAR_TOKEN;
+            CHAR_CLASSES[ch - 'a' + 'A'] |= CHAR_TOKEN;
+        }
+        for (int ch = 'a'; ch <= 'f'; ch++)
+        {
+            CHAR_CLASSES[ch] |= CHAR_HEX;
+            CHAR_CLASSES[ch - 'a' + 'A'] |= CHAR_HEX;
+        }
+        for (byte ch : "!#$%&'*+-.^_`|~".getBytes(US_ASCII))
+        {
+            CHAR_CLASSES[ch] |= CHAR_TOKEN;
+        }
+        for (byte ch : "\"<>\\^`{|}".getBytes(US_ASCII))
+        {
+            CHAR_CLASSES[ch] &= ~CHAR_TARGET;
+        }
+        CHAR_CLASSES[' '] |= CHAR_WHITESPACE | CHAR_FIELD_VALUE;
+        CHAR_CLASSES['\t'] |= CHAR_WHITESPACE | CHAR_FIELD_VALUE;
+    }
+
+    private static final byte[] HOST = "host".getBytes(US_ASCII);
+    private static final byte[] CONTENT_LENGTH = "content-length".getBytes(US_ASCII);
+    private static final byte[] TRANSFER_ENCODING = "transfer-encoding".getBytes(US_ASCII);
+    private static final byte[] CONNECTION = "connection".getBytes(US_ASCII);
+    private static final byte[] UPGRADE = "upgrade".getBytes(US_ASCII);
+    private static final byte[] CHUNKED = "chunked".getBytes(US_ASCII);
+    private static final byte[] CLOSE = "close".getBytes(US_ASCII);
+
+    private static final int FIELD_NAME_OFFSET = 0;
+    private static final int FIELD_NAME_LENGTH = 1;
+    private static final int FIELD_VALUE_OFFSET = 2;
+    private static final int FIELD_VALUE_LENGTH = 3;
+    private static final int FIELD_SIZE = 4;
+
+    // shortest possible header field line is "a:\r\n"
+    private static final int MINIMUM_FIELD_LINE = 4;
+
+    final HttpStatus httpStatus = new HttpStatus();
+
+    private final MutableDirectBuffer names;
+    private final int[] fields;
+
+    DirectBuffer buffer;
+    int fieldCount;
+    int hostField;
+    int contentLength;
+    boolean contentLengthFound;
+    boolean chunked;
+    boolean connectionClose;
+    boolean upgrade;
+
+    private int namesLimit;
+
+    HttpHeadParser(
+        int maximumHeadSize)
+    {
+        this.names = new UnsafeBuffer(new byte[maximumHeadSize]);
+        this.fields = new int[(maximumHeadSize / MINIMUM_FIELD_LINE + 1) * FIELD_SIZE];
+    }
+
+    static boolean isClass(
+        byte ch,
+        int charClass)
+    {
+        return (CHAR_CLASSES[ch & 0xff] & charClass) != 0;
+    }
+
+    static byte toLowerCase(
+        byte ch)
+    {
+        return ch >= 'A' && ch <= 'Z' ? (byte) (ch + ('a' - 'A')) : ch;
+    }
+
+    static boolean equalsIgnoreCase(
+        DirectBuffer buffer,
+        int offset,
+        int length,
+        byte[] lowerCaseValue)
+    {
+        boolean matches = length == lowerCaseValue.length;
+        for (int i = 0; matches && i < length; i++)
+        {
+            matches = toLowerCase(buffer.getByte(offset + i)) == lowerCaseValue[i];
+        }
+        return matches;
+    }
+
+    static boolean equalsIgnoreCase(
+        DirectBuffer buffer,
+        int offset,
+        int length,
+        DirectBuffer lowerCaseBuffer,
+        int lowerCaseOffset,
+        int lowerCaseLength)
+    {
+        boolean matches = length == lowerCaseLength;
+        for (int i = 0; matches && i < length; i++)
+        {
+            matches = toLowerCase(buffer.getByte(offset + i)) == lowerCaseBuffer.getByte(lowerCaseOffset + i);
+        }
+        return matches;
+    }
+
+    final int fieldCount()
+    {
+        return fieldCount;
+    }
+
+    /**
+     * @return the buffer holding the lower case header field names
+     */
+    final DirectBuffer nameBuffer()
+    {
+        return names;
+    }
+
+    final int nameOffset(
+        int field)
+    {
+        return fields[field * FIELD_SIZE + FIELD_NAME_OFFSET];
+    }
+
+    final int nameLength(
+        int field)
+    {
+        return fields[field * FIELD_SIZE + FIELD_NAME_LENGTH];
+    }
+
+    /**
+     * @return the buffer holding the header field values, as passed to the most recent parse
+     */
+    final DirectBuffer valueBuffer()
+    {
+        return buffer;
+    }
+
+    final int valueOffset(
+        int field)
+    {
+        return fields[field * FIELD_SIZE + FIELD_VALUE_OFFSET];
+    }
+
+    final int valueLength(
+        int field)
+    {
+        return fields[field * FIELD_SIZE + FIELD_VALUE_LENGTH];
+    }
+
+    final boolean isHost(
+        int field)
+    {
+        return equalsIgnoreCase(names, nameOffset(field), nameLength(field), HOST);
+    }
+
+    /**
+     * @return the index of the first header field with the given name, or -1 if not present
+     */
+    final int field(
+        DirectBuffer name,
+        int offset,
+        int length)
+    {
+        int result = -1;
+        for (int field = 0; result == -1 && field < fieldCount; field++)
+        {
+            if (equalsIgnoreCase(name, offset, length, names, nameOffset(field), nameLength(field)))
+            {
+                result = field;
+            }
+        }
+        return result;
+    }
+
+    void reset(
+        DirectBuffer buffer)
+    {
+        this.buffer = buffer;
+        this.httpStatus.reset();
+        this.fieldCount = 0;
+        this.namesLimit = 0;
+        this.hostField = -1;
+        this.contentLength = 0;
+        this.contentLengthFound = false;
+        this.chunked = false;
+        this.connectionClose = false;
+        this.upgrade = false;
+    }
+
+    final boolean invalid(
+        int status,
+        String message)
+    {
+        httpStatus.status = status;
+        httpStatus.message = message;
+        return false;
+    }
+
+    /**
+     * Parses header fields up to and including the empty line terminating the message head.
+     * @return true if the header fields are well-formed, otherwise false with httpStatus describing the problem
+     */
+    final boolean parseFields(
+        int offset,
+        int limit)
+    {
+        int cursor = offset;
+        boolean valid = true;
+        boolean endOfHead = false;
+        while (valid && !endOfHead)
+        {
+            if (cursor + 1 >= limit)
+            {
+                valid = invalid(400, "Bad Request");
+            }
+            else if (buffer.getByte(cursor) == '\r' && buffer.getByte(cursor + 1) == '\n')
+            {
+                endOfHead = true;
+            }
+            else
+            {
+                cursor = parseField(cursor, limit);
+                valid = cursor != -1;
+            }
+        }
+        return valid;
+    }
+
+    private int parseField(
+        int offset,
+        int limit)
+    {
+        int cursor = offset;
+        while (cursor < limit && isClass(buffer.getByte(cursor), CHAR_TOKEN))
+        {
+            cursor++;
+        }
+
+        final int nameLength = cursor - offset;
+        if (nameLength == 0 || cursor == limit || buffer.getByte(cursor) != ':')
+        {
+            final boolean folded = nameLength == 0 && cursor < limit && isClass(buffer.getByte(cursor), CHAR_WHITESPACE);
+            invalid(400, folded ? "Bad Request - obsolete line folding not supported" : "Bad Request");
+            return -1;
+        }
+
+        cursor++;
+        while (cursor < limit && isClass(buffer.getByte(cursor), CHAR_WHITESPACE))
+        {
+            cursor++;
+        }
+
+        final int valueOffset = cursor;
+        int valueLimit = cursor;
+        while (cursor < limit && isClass(buffer.getByte(cursor), CHAR_FIELD_VALUE))
+        {
+            if (!isClass(buffer.getByte(cursor), CHAR_WHITESPACE))
+            {
+                valueLimit = cursor + 1;
+            }
+            cursor++;
+        }
+
+        if (cursor + 1 >= limit || buffer.getByte(cursor) != '\r' || buffer.getByte(cursor + 1) != '\n')
+        {
+            invalid(400, "Bad Request");
+            return -1;
+        }
+
+        return addField(offset, nameLength, valueOffset, valueLimit - valueOffset) ? cursor + 2 : -1;
+    }
+
+    private boolean addField(
+        int nameOffset,
+        int nameLength,
+        int valueOffset,
+        int valueLength)
+    {
+        final int field = fieldCount++;
+        final int base = field * FIELD_SIZE;
+
+        for (int i = 0; i < nameLength; i++)
+        {
+            names.putByte(namesLimit + i, toLowerCase(buffer.getByte(nameOffset + i)));
+        }
+
+        fields[base + FIELD_NAME_OFFSET] = namesLimit;
+        fields[base + FIELD_NAME_LENGTH] = nameLength;
+        fields[base + FIELD_VALUE_OFFSET] = valueOffset;
+        fields[base + FIELD_VALUE_LENGTH] = valueLength;
+        namesLimit += nameLength;
+
+        return decodeWellKnownField(field, nameLength, valueOffset, valueLength);
+    }
+
+    private boolean decodeWellKnownField(
+        int field,
+        int nameLength,
+        int valueOffset,
+        int valueLength)
+    {
+        final int nameOffset = nameOffset(field);
+        boolean valid = true;
+
+        if (equalsIgnoreCase(names, nameOffset, nameLength, HOST))
+        {
+            hostField = field;
+        }
+        else if (equalsIgnoreCase(names, nameOffset, nameLength, TRANSFER_ENCODING))
+        {
+            if (contentLengthFound)
+            {
+                valid = invalid(400, "Bad Request");
+            }
+            else if (!equalsIgnoreCase(buffer, valueOffset, valueLength, CHUNKED))
+            {
+                // TODO: support other transfer encodings
+                valid = invalid(501, "Unsupported transfer-encoding " +
+                        buffer.getStringWithoutLengthUtf8(valueOffset, valueLength));
+            }
+            else
+            {
+                chunked = true;
+            }
+        }
+        else if (equalsIgnoreCase(names, nameOffset, nameLength, CONTENT_LENGTH))
+        {
+            if (contentLengthFound || chunked)
+            {
+                valid = invalid(400, "Bad Request");
+            }
+            else
+            {
+                valid = decodeContentLength(valueOffset, valueLength);
+                contentLengthFound = true;
+            }
+        }
+        else if (equalsIgnoreCase(names, nameOffset, nameLength, CONNECTION))
+        {
+            decodeConnectionOptions(valueOffset, valueOffset + valueLength);
+        }
+        else if (equalsIgnoreCase(names, nameOffset, nameLength, UPGRADE))
+        {
+            upgrade = true;
+        }
+
+        return valid;
+    }
+
+    private boolean decodeContentLength(
+        int offset,
+        int length)
+    {
+        long value = 0L;
+        boolean valid = length > 0;
+        for (int cursor = offset; valid && cursor < offset + length; cursor++)
+        {
+            final byte ch = buffer.getByte(cursor);
+            value = value * 10 + ch - '0';
+            valid = isClass(ch, CHAR_DIGIT) && value <= Integer.MAX_VALUE;
+        }
+
+        contentLength = (int) value;
+        return valid || invalid(400, "Bad Request");
+    }
+
+    private void decodeConnectionOptions(
+        int offset,
+        int limit)
+    {
+        connectionClose |= hasConnectionOption(buffer, offset, limit, CLOSE);
+    }
+
+    /**
+     * @return true if the comma-separated Connection header value contains the given option, ignoring case
+     */
+    static boolean hasConnectionOption(
+        DirectBuffer buffer,
+        int offset,
+        int limit,
+        byte[] lowerCaseOption)
+    {
+        boolean found = false;
+        int cursor = offset;
+        while (!found && cursor < limit)
+        {
+            while (cursor < limit && (buffer.getByte(cursor) == ',' || isClass(buffer.getByte(cursor), CHAR_WHITESPACE)))
+            {
+                cursor++;
+            }
+
+            final int optionOffset = cursor;
+            while (cursor < limit && isClass(buffer.getByte(cursor), CHAR_TOKEN))
+            {
+                cursor++;
+            }
+
+            found = equalsIgnoreCase(buffer, optionOffset, cursor - optionOffset, lowerCaseOption);
+
+            while (cursor < limit && buffer.getByte(cursor) != ',')
+            {
+                cursor++;
+            }
+        }
+        return found;
+    }
+}
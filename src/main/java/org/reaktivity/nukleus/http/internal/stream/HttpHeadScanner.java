@@ -0,0 +1,94 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static org.reaktivity.nukleus.http.internal.util.BufferUtil.indexOfByte;
+
+import org.agrona.DirectBuffer;
+
+/**
+ * Incrementally locates the empty line terminating an HTTP/1.x message head. Progress is remembered
+ * relative to the start of the head, so while a head arrives across several data frames each byte is
+ * examined only once, even if the buffered head is moved within its slot.
+ */
+final class HttpHeadScanner
+{
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte LINE_FEED = '\n';
+    private static final int CRLFCRLF_LENGTH = 4;
+
+    private int scanned;
+    private int matched;
+
+    void reset()
+    {
+        scanned = 0;
+        matched = 0;
+    }
+
+    /**
+     * @param buffer  the buffer containing the (partial) message head
+     * @param offset  the offset of the start of the message head
+     * @param limit   the limit of the data available in buffer
+     * @return the limit of the message head, including the terminating empty line, or -1 if not yet complete
+     */
+    int limitOfHead(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        assert offset + scanned <= limit;
+
+        int cursor = offset + scanned;
+        int state = matched;
+        while (cursor < limit && state < CRLFCRLF_LENGTH)
+        {
+            if (state == 0)
+            {
+                final int carriageReturnAt = indexOfByte(buffer, cursor, limit, CARRIAGE_RETURN);
+                cursor = carriageReturnAt == -1 ? limit : carriageReturnAt + 1;
+                state = carriageReturnAt == -1 ? 0 : 1;
+            }
+            else
+            {
+                final byte ch = buffer.getByte(cursor++);
+
+                // state is the length of the CRLFCRLF prefix ending at cursor, so a mismatch on CR restarts at 1
+                if (ch == ((state & 1) == 0 ? CARRIAGE_RETURN : LINE_FEED))
+                {
+                    state++;
+                }
+                else
+                {
+                    state = ch == CARRIAGE_RETURN ? 1 : 0;
+                }
+            }
+        }
+
+        int result = -1;
+        if (state == CRLFCRLF_LENGTH)
+        {
+            reset();
+            result = cursor;
+        }
+        else
+        {
+            scanned = cursor - offset;
+            matched = state;
+        }
+        return result;
+    }
+}
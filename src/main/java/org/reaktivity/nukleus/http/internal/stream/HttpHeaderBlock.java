@@ -0,0 +1,120 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.agrona.DirectBuffer;
+import org.reaktivity.nukleus.http.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http.internal.types.ListFW;
+
+/**
+ * Flat block of header name and value byte ranges, referring to the buffers the headers were decoded from.
+ * Passed to {@link MessageWriter#doHttpBegin} to copy the header bytes straight into the {@code HttpBeginExFW}.
+ */
+final class HttpHeaderBlock implements Consumer<ListFW.Builder<HttpHeaderFW.Builder, HttpHeaderFW>>
+{
+    private static final int NAME_OFFSET = 0;
+    private static final int NAME_LENGTH = 1;
+    private static final int VALUE_OFFSET = 2;
+    private static final int VALUE_LENGTH = 3;
+    private static final int RANGE_SIZE = 4;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Consumer<HttpHeaderFW.Builder> encodeHeader = this::encodeHeader;
+
+    private DirectBuffer[] names;
+    private DirectBuffer[] values;
+    private int[] ranges;
+    private int count;
+    private int encodeIndex;
+
+    HttpHeaderBlock()
+    {
+        this.names = new DirectBuffer[INITIAL_CAPACITY];
+        this.values = new DirectBuffer[INITIAL_CAPACITY];
+        this.ranges = new int[INITIAL_CAPACITY * RANGE_SIZE];
+    }
+
+    HttpHeaderBlock reset()
+    {
+        Arrays.fill(names, 0, count, null);
+        Arrays.fill(values, 0, count, null);
+        count = 0;
+        return this;
+    }
+
+    int count()
+    {
+        return count;
+    }
+
+    HttpHeaderBlock header(
+        DirectBuffer name,
+        DirectBuffer value)
+    {
+        return header(name, 0, name.capacity(), value, 0, value.capacity());
+    }
+
+    HttpHeaderBlock header(
+        DirectBuffer name,
+        int nameOffset,
+        int nameLength,
+        DirectBuffer value,
+        int valueOffset,
+        int valueLength)
+    {
+        if (count == names.length)
+        {
+            names = Arrays.copyOf(names, count << 1);
+            values = Arrays.copyOf(values, count << 1);
+            ranges = Arrays.copyOf(ranges, (count << 1) * RANGE_SIZE);
+        }
+
+        final int range = count * RANGE_SIZE;
+        names[count] = name;
+        values[count] = value;
+        ranges[range + NAME_OFFSET] = nameOffset;
+        ranges[range + NAME_LENGTH] = nameLength;
+        ranges[range + VALUE_OFFSET] = valueOffset;
+        ranges[range + VALUE_LENGTH] = valueLength;
+        count++;
+
+        return this;
+    }
+
+    @Override
+    public void accept(
+        ListFW.Builder<HttpHeaderFW.Builder, HttpHeaderFW> headers)
+    {
+        for (encodeIndex = 0; encodeIndex < count; encodeIndex++)
+        {
+            headers.item(encodeHeader);
+        }
+    }
+
+    private void encodeHeader(
+        HttpHeaderFW.Builder header)
+    {
+        final int index = encodeIndex;
+        final int range = index * RANGE_SIZE;
+        header.representation((byte) 0)
+              .name(names[index], ranges[range + NAME_OFFSET], ranges[range + NAME_LENGTH])
+              .value(values[index], ranges[range + VALUE_OFFSET], ranges[range + VALUE_LENGTH]);
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.util.function.Consumer;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.reaktivity.nukleus.http.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http.internal.types.ListFW;
+import org.reaktivity.nukleus.http.internal.types.String16FW;
+import org.reaktivity.nukleus.http.internal.types.StringFW;
+
+/**
+ * Builds the key identifying requests that may share a single response: the method, authority and path,
+ * followed by the values of the configured vary headers, each terminated by a zero byte.
+ */
+final class HttpRequestKey
+{
+    private static final byte[] METHOD = ":method".getBytes(US_ASCII);
+    private static final byte[] AUTHORITY = ":authority".getBytes(US_ASCII);
+    private static final byte[] PATH = ":path".getBytes(US_ASCII);
+
+    // StringFW and String16FW are prefixed by an 8-bit and a 16-bit length respectively
+    private static final int NAME_LENGTH_SIZE = 1;
+    private static final int VALUE_LENGTH_SIZE = 2;
+
+    private final byte[][] names;
+    private final MutableDirectBuffer key;
+    private final Consumer<HttpHeaderFW> appendValue = this::appendValue;
+
+    private byte[] name;
+    private int limit;
+    private boolean found;
+
+    /**
+     * @param varyHeaders  names of the request headers, other than the method, authority and path, whose values
+     *                     must also be equal for requests to share a response
+     * @param capacity     maximum length of the key
+     */
+    HttpRequestKey(
+        String[] varyHeaders,
+        int capacity)
+    {
+        this.names = new byte[3 + varyHeaders.length][];
+        this.names[0] = METHOD;
+        this.names[1] = AUTHORITY;
+        this.names[2] = PATH;
+        for (int i = 0; i < varyHeaders.length; i++)
+        {
+            this.names[3 + i] = varyHeaders[i].trim().toLowerCase().getBytes(US_ASCII);
+        }
+        this.key = new UnsafeBuffer(new byte[capacity]);
+    }
+
+    /**
+     * @return false if the request has no method or path, or the key is longer than the capacity
+     */
+    boolean wrap(
+        ListFW<HttpHeaderFW> headers)
+    {
+        return wrap(headers, names, 3);
+    }
+
+    /**
+     * Builds the key from the values of the given request headers only, such as those named by the Vary header
+     * of a stored response.
+     *
+     * @param lowerCaseNames  the lower case names of the request headers
+     * @return false if the key is longer than the capacity
+     */
+    boolean wrapVary(
+        ListFW<HttpHeaderFW> headers,
+        byte[][] lowerCaseNames)
+    {
+        return wrap(headers, lowerCaseNames, 0);
+    }
+
+    private boolean wrap(
+        ListFW<HttpHeaderFW> headers,
+        byte[][] keyNames,
+        int pseudoHeaders)
+    {
+        limit = 0;
+        boolean valid = true;
+        for (int i = 0; valid && i < keyNames.length; i++)
+        {
+            name = keyNames[i];
+            found = false;
+            headers.forEach(appendValue);
+            valid = limit < key.capacity() && (found || name == AUTHORITY || i >= pseudoHeaders);
+            if (valid)
+            {
+                key.putByte(limit++, (byte) 0);
+            }
+        }
+        return valid;
+    }
+
+    int hash()
+    {
+        return HttpRouteTable.hash(key, 0, limit);
+    }
+
+    boolean equals(
+        byte[] other)
+    {
+        return HttpRouteTable.equals(key, 0, limit, other);
+    }
+
+    byte[] toByteArray()
+    {
+        final byte[] bytes = new byte[limit];
+        key.getBytes(0, bytes);
+        return bytes;
+    }
+
+    private void appendValue(
+        HttpHeaderFW header)
+    {
+        final StringFW headerName = header.name();
+        final int nameOffset = headerName.offset() + NAME_LENGTH_SIZE;
+        if (HttpHeadParser.equalsIgnoreCase(headerName.buffer(), nameOffset, headerName.limit() - nameOffset, name))
+        {
+            final String16FW value = header.value();
+            final int offset = value.offset() + VALUE_LENGTH_SIZE;
+            final int length = value.limit() - offset;
+            if (found && limit < key.capacity())
+            {
+                // repeated header values are combined as a comma-separated list
+                key.putByte(limit++, (byte) ',');
+            }
+            if (limit + length < key.capacity())
+            {
+                key.putBytes(limit, value.buffer(), offset, length);
+            }
+            limit += length;
+            found = true;
+        }
+    }
+}
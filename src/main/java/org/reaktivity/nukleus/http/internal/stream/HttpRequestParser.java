@@ -0,0 +1,322 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.reaktivity.nukleus.http.internal.stream.HttpRouteTable.hash;
+
+import java.util.Arrays;
+
+import org.agrona.DirectBuffer;
+import org.reaktivity.nukleus.http.internal.stream.ServerStreamFactory.StandardMethods;
+
+/**
+ * Parses a complete HTTP/1.x request head (request-line and header fields) in place.
+ */
+final class HttpRequestParser extends HttpHeadParser implements HttpRouteTable.RequestHeaders
+{
+    private static final byte[] SCHEME = ":scheme".getBytes(US_ASCII);
+    private static final byte[] METHOD = ":method".getBytes(US_ASCII);
+    private static final byte[] PATH = ":path".getBytes(US_ASCII);
+    private static final byte[] AUTHORITY = ":authority".getBytes(US_ASCII);
+    private static final byte[] HTTP = "http".getBytes(US_ASCII);
+
+    StandardMethods method;
+    int pathOffset;
+    int pathLength;
+    int authorityOffset;
+    int authorityLength;
+    boolean userInfo;
+
+    HttpRequestParser(
+        int maximumHeadSize)
+    {
+        super(maximumHeadSize);
+    }
+
+    /**
+     * @param buffer  the buffer containing the request head
+     * @param offset  the offset of the request-line
+     * @param limit   the limit of the request head, including the terminating empty line
+     * @return true if the request head is well-formed, otherwise false with httpStatus describing the problem
+     */
+    boolean parse(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        reset(buffer);
+        final int cursor = parseRequestLine(offset, limit);
+        return cursor != -1 && parseFields(cursor, limit);
+    }
+
+    boolean hasAuthority()
+    {
+        return authorityLength > 0 || hostField != -1;
+    }
+
+    /**
+     * @return true if the authority came from an absolute-form request-target rather than the Host header
+     */
+    boolean hasTargetAuthority()
+    {
+        return authorityLength > 0;
+    }
+
+    @Override
+    public int authorityHash()
+    {
+        int authorityHash = 0;
+        if (hasTargetAuthority())
+        {
+            authorityHash = hash(buffer, authorityOffset, authorityLength);
+        }
+        else if (hostField != -1)
+        {
+            authorityHash = hash(buffer, valueOffset(hostField), valueLength(hostField));
+        }
+        return authorityHash;
+    }
+
+    @Override
+    public boolean matches(
+        byte[] name,
+        byte[] value)
+    {
+        boolean matches = false;
+
+        if (Arrays.equals(name, AUTHORITY))
+        {
+            matches = hasTargetAuthority() ?
+                    HttpRouteTable.equals(buffer, authorityOffset, authorityLength, value) :
+                    hostField != -1 && HttpRouteTable.equals(buffer, valueOffset(hostField), valueLength(hostField), value);
+        }
+        else if (Arrays.equals(name, PATH))
+        {
+            matches = HttpRouteTable.equals(buffer, pathOffset, pathLength, value);
+        }
+        else if (Arrays.equals(name, METHOD))
+        {
+            matches = method.matches(value);
+        }
+        else if (Arrays.equals(name, SCHEME))
+        {
+            matches = Arrays.equals(value, HTTP);
+        }
+        else
+        {
+            for (int field = 0; !matches && field < fieldCount; field++)
+            {
+                matches = HttpRouteTable.equals(nameBuffer(), nameOffset(field), nameLength(field), name) &&
+                        HttpRouteTable.equals(buffer, valueOffset(field), valueLength(field), value);
+            }
+        }
+
+        return matches;
+    }
+
+    @Override
+    void reset(
+        DirectBuffer buffer)
+    {
+        super.reset(buffer);
+        this.method = null;
+        this.pathOffset = 0;
+        this.pathLength = 0;
+        this.authorityOffset = 0;
+        this.authorityLength = 0;
+        this.userInfo = false;
+    }
+
+    private int parseRequestLine(
+        int offset,
+        int limit)
+    {
+        // RFC 7230 3.1.1: request-line = method SP request-target SP HTTP-version CRLF
+        int lineLimit = offset;
+        while (lineLimit + 1 < limit && (buffer.getByte(lineLimit) != '\r' || buffer.getByte(lineLimit + 1) != '\n'))
+        {
+            lineLimit++;
+        }
+
+        final int methodOffset = offset;
+        final int methodLimit = skipNonWhitespace(methodOffset, lineLimit);
+        final int targetOffset = skipWhitespace(methodLimit, lineLimit);
+        final int targetLimit = skipNonWhitespace(targetOffset, lineLimit);
+        final int versionOffset = skipWhitespace(targetLimit, lineLimit);
+        final int versionLimit = skipNonWhitespace(versionOffset, lineLimit);
+
+        if (lineLimit + 1 >= limit ||
+            methodLimit == methodOffset ||
+            targetLimit == targetOffset ||
+            versionLimit == versionOffset ||
+            skipWhitespace(versionLimit, lineLimit) != lineLimit)
+        {
+            invalid(400, "Bad Request");
+            return -1;
+        }
+
+        if (!isHttp1xVersion(versionOffset, versionLimit - versionOffset))
+        {
+            if (isHttpVersion(versionOffset, versionLimit - versionOffset))
+            {
+                invalid(505, "HTTP Version Not Supported");
+            }
+            else
+            {
+                invalid(400, "Bad Request");
+            }
+            return -1;
+        }
+
+        method = StandardMethods.parse(buffer, methodOffset, methodLimit - methodOffset);
+        if (method == null)
+        {
+            invalid(501, "Not Implemented");
+            return -1;
+        }
+
+        if (!parseTarget(targetOffset, targetLimit))
+        {
+            invalid(400, "Bad Request");
+            return -1;
+        }
+
+        return lineLimit + 2;
+    }
+
+    private boolean parseTarget(
+        int offset,
+        int limit)
+    {
+        for (int cursor = offset; cursor < limit; cursor++)
+        {
+            final byte ch = buffer.getByte(cursor);
+            if (ch == '%')
+            {
+                if (cursor + 2 >= limit ||
+                    !isClass(buffer.getByte(cursor + 1), CHAR_HEX) ||
+                    !isClass(buffer.getByte(cursor + 2), CHAR_HEX))
+                {
+                    return false;
+                }
+            }
+            else if (!isClass(ch, CHAR_TARGET))
+            {
+                return false;
+            }
+        }
+
+        int pathStart = offset;
+        final byte first = buffer.getByte(offset);
+        if (first != '/' && first != '*')
+        {
+            // absolute-form: scheme "://" authority path-abempty [ "?" query ]
+            int cursor = offset;
+            while (cursor < limit && isSchemeChar(buffer.getByte(cursor), cursor == offset))
+            {
+                cursor++;
+            }
+
+            if (cursor > offset && cursor + 2 < limit &&
+                buffer.getByte(cursor) == ':' &&
+                buffer.getByte(cursor + 1) == '/' &&
+                buffer.getByte(cursor + 2) == '/')
+            {
+                authorityOffset = cursor + 3;
+                int authorityLimit = authorityOffset;
+                while (authorityLimit < limit && !isPathDelimiter(buffer.getByte(authorityLimit)))
+                {
+                    userInfo |= buffer.getByte(authorityLimit) == '@';
+                    authorityLimit++;
+                }
+                authorityLength = authorityLimit - authorityOffset;
+                pathStart = authorityLimit;
+            }
+        }
+
+        int pathLimit = pathStart;
+        while (pathLimit < limit && buffer.getByte(pathLimit) != '?' && buffer.getByte(pathLimit) != '#')
+        {
+            pathLimit++;
+        }
+        pathOffset = pathStart;
+        pathLength = pathLimit - pathStart;
+
+        return true;
+    }
+
+    private boolean isHttp1xVersion(
+        int offset,
+        int length)
+    {
+        return isHttpVersion(offset, length) && buffer.getByte(offset + 5) == '1';
+    }
+
+    private boolean isHttpVersion(
+        int offset,
+        int length)
+    {
+        // HTTP-version = "HTTP/" DIGIT "." DIGIT
+        return length == 8 &&
+               buffer.getByte(offset) == 'H' &&
+               buffer.getByte(offset + 1) == 'T' &&
+               buffer.getByte(offset + 2) == 'T' &&
+               buffer.getByte(offset + 3) == 'P' &&
+               buffer.getByte(offset + 4) == '/' &&
+               isClass(buffer.getByte(offset + 5), CHAR_DIGIT) &&
+               buffer.getByte(offset + 6) == '.' &&
+               isClass(buffer.getByte(offset + 7), CHAR_DIGIT);
+    }
+
+    private int skipWhitespace(
+        int offset,
+        int limit)
+    {
+        int cursor = offset;
+        while (cursor < limit && isClass(buffer.getByte(cursor), CHAR_WHITESPACE))
+        {
+            cursor++;
+        }
+        return cursor;
+    }
+
+    private int skipNonWhitespace(
+        int offset,
+        int limit)
+    {
+        int cursor = offset;
+        while (cursor < limit && !isClass(buffer.getByte(cursor), CHAR_WHITESPACE))
+        {
+            cursor++;
+        }
+        return cursor;
+    }
+
+    private static boolean isSchemeChar(
+        byte ch,
+        boolean first)
+    {
+        final boolean alpha = (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z');
+        return first ? alpha : alpha || isClass(ch, CHAR_DIGIT) || ch == '+' || ch == '-' || ch == '.';
+    }
+
+    private static boolean isPathDelimiter(
+        byte ch)
+    {
+        return ch == '/' || ch == '?' || ch == '#';
+    }
+}
@@ -0,0 +1,712 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.reaktivity.nukleus.http.internal.stream.HttpHeadParser.equalsIgnoreCase;
+import static org.reaktivity.nukleus.http.internal.stream.HttpHeadParser.hasConnectionOption;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.reaktivity.nukleus.http.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http.internal.types.ListFW;
+import org.reaktivity.nukleus.http.internal.types.String16FW;
+import org.reaktivity.nukleus.http.internal.types.StringFW;
+import org.reaktivity.nukleus.http.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.http.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.http.internal.types.stream.EndFW;
+import org.reaktivity.nukleus.http.internal.types.stream.HttpBeginExFW;
+
+/**
+ * Shared cache (RFC 7234) of responses to GET requests when the HTTP nukleus is acting as a client. The head and
+ * body of each stored response are kept in a chain of fixed size blocks of off-heap memory, and the least recently
+ * used responses are evicted to make room for new ones. A stored response is found by the method, authority and
+ * path of the request, and must also have been stored for the same values of the request headers named by its Vary
+ * header. Only responses with an explicit max-age or s-maxage, or marked no-cache, are stored, and a stale response
+ * is revalidated with its ETag or Last-Modified validator before it is reused.
+ */
+final class HttpResponseCache
+{
+    static final int BLOCK_SIZE = 4096;
+    static final int NO_BLOCK = -1;
+
+    private static final byte[] METHOD = ":method".getBytes(US_ASCII);
+    private static final byte[] STATUS = ":status".getBytes(US_ASCII);
+    private static final byte[] GET = "GET".getBytes(US_ASCII);
+    private static final byte[] CACHE_CONTROL = "cache-control".getBytes(US_ASCII);
+    private static final byte[] PRAGMA = "pragma".getBytes(US_ASCII);
+    private static final byte[] AUTHORIZATION = "authorization".getBytes(US_ASCII);
+    private static final byte[] RANGE = "range".getBytes(US_ASCII);
+    private static final byte[] IF_PREFIX = "if-".getBytes(US_ASCII);
+    private static final byte[] AGE = "age".getBytes(US_ASCII);
+    private static final byte[] VARY = "vary".getBytes(US_ASCII);
+    private static final byte[] ETAG = "etag".getBytes(US_ASCII);
+    private static final byte[] LAST_MODIFIED = "last-modified".getBytes(US_ASCII);
+    private static final byte[] CONTENT_LENGTH = "content-length".getBytes(US_ASCII);
+    private static final byte[] SET_COOKIE = "set-cookie".getBytes(US_ASCII);
+    private static final byte[] NO_CACHE = "no-cache".getBytes(US_ASCII);
+    private static final byte[] NO_STORE = "no-store".getBytes(US_ASCII);
+    private static final byte[] PRIVATE = "private".getBytes(US_ASCII);
+    private static final byte[] MAX_AGE = "max-age".getBytes(US_ASCII);
+    private static final byte[] S_MAXAGE = "s-maxage".getBytes(US_ASCII);
+    private static final byte[] ANY = "*".getBytes(US_ASCII);
+
+    private static final DirectBuffer AGE_NAME = new UnsafeBuffer(AGE);
+
+    // RFC 7231 6.1: status codes that are cacheable by default
+    private static final int[] CACHEABLE_STATUSES = { 200, 203, 204, 300, 301, 404, 405, 410, 414, 501 };
+
+    // StringFW and String16FW are prefixed by an 8-bit and a 16-bit length respectively
+    private static final int NAME_LENGTH_SIZE = 1;
+    private static final int VALUE_LENGTH_SIZE = 2;
+
+    private static final byte[][] NO_NAMES = new byte[0][];
+
+    private final MutableDirectBuffer arena;
+    private final int[] nextBlocks;
+    private final Long2ObjectHashMap<HttpCacheEntry> entries;
+    private final HttpRequestKey requestKey;
+    private final LongSupplier currentTimeMillis;
+    private final MutableDirectBuffer headBuffer;
+    private final MutableDirectBuffer ageBuffer;
+    private final MutableDirectBuffer requestBuffer;
+    private final ListFW<HttpHeaderFW> requestHeadersRO = new ListFW<>(new HttpHeaderFW());
+    private final Consumer<HttpHeaderFW> scanRequestHeader = this::scanRequestHeader;
+    private final Consumer<HttpHeaderFW> scanResponseHeader = this::scanResponseHeader;
+    private final Consumer<HttpHeaderFW> storedHeader = this::storedHeader;
+
+    final BeginFW beginRO = new BeginFW();
+    final DataFW dataRO = new DataFW();
+    final EndFW endRO = new EndFW();
+    final HttpBeginExFW beginExRO = new HttpBeginExFW();
+
+    final int maximumEntrySize;
+
+    private int freeBlock;
+    private HttpCacheEntry mostRecentlyUsed;
+    private HttpCacheEntry leastRecentlyUsed;
+
+    private boolean get;
+    private boolean storable;
+    private boolean servable;
+    private HttpHeaderBlock storedHeaders;
+
+    // set by scanResponse, the freshness lifetime being -1 when the response has no explicit lifetime
+    int status;
+    long freshnessLifetime;
+    long age;
+    byte[] etag;
+    byte[] lastModified;
+    byte[][] varyNames;
+    private boolean noStore;
+    private boolean noCache;
+    private long maxAge;
+    private long sharedMaxAge;
+    private long contentLength;
+    private List<byte[]> vary;
+
+    /**
+     * @param capacity          size in bytes of the off-heap memory storing responses
+     * @param maximumEntrySize  maximum size in bytes of a stored response head and body
+     * @param headCapacity      maximum size in bytes of a request or response head
+     */
+    HttpResponseCache(
+        int capacity,
+        int maximumEntrySize,
+        int headCapacity,
+        LongSupplier currentTimeMillis)
+    {
+        final int blocks = capacity / BLOCK_SIZE;
+        this.arena = new UnsafeBuffer(ByteBuffer.allocateDirect(blocks * BLOCK_SIZE));
+        this.nextBlocks = new int[blocks];
+        for (int block = 0; block < blocks; block++)
+        {
+            nextBlocks[block] = block + 1 < blocks ? block + 1 : NO_BLOCK;
+        }
+        this.freeBlock = blocks > 0 ? 0 : NO_BLOCK;
+        this.maximumEntrySize = Math.min(maximumEntrySize, blocks * BLOCK_SIZE);
+        this.entries = new Long2ObjectHashMap<>();
+        this.requestKey = new HttpRequestKey(new String[0], headCapacity);
+        this.currentTimeMillis = currentTimeMillis;
+        this.headBuffer = new UnsafeBuffer(new byte[headCapacity]);
+        this.ageBuffer = new UnsafeBuffer(new byte[20]);
+        this.requestBuffer = new UnsafeBuffer(new byte[0]);
+    }
+
+    /**
+     * Scans a request for the header fields deciding whether it may be served from the cache or its response
+     * stored, then finds the response stored for it, if any.
+     *
+     * @return the stored response, fresh or revalidatable, or null if none may be used for the request
+     */
+    HttpCacheEntry lookup(
+        ListFW<HttpHeaderFW> headers)
+    {
+        get = false;
+        storable = true;
+        servable = true;
+        headers.forEach(scanRequestHeader);
+        storable &= get;
+        servable &= get;
+
+        HttpCacheEntry entry = null;
+        if (servable && requestKey.wrap(headers))
+        {
+            final HttpCacheEntry stored = entries.get(requestKey.hash());
+            if (stored != null && requestKey.equals(stored.key) && matchesVary(stored, headers))
+            {
+                entry = stored;
+            }
+        }
+
+        if (entry != null && !entry.fresh() && !entry.revalidatable())
+        {
+            // a stale response without a validator can only be replaced
+            remove(entry);
+            entry = null;
+        }
+
+        if (entry != null)
+        {
+            touch(entry);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Prepares to store the response to the request most recently passed to {@link #lookup}.
+     *
+     * @param stale  the stale stored response being revalidated by the request, or null
+     * @return the entry to store the response in, or null if the response to the request may not be stored
+     */
+    HttpCacheEntry newEntry(
+        ListFW<HttpHeaderFW> headers,
+        HttpCacheEntry stale)
+    {
+        HttpCacheEntry entry = null;
+        if (storable && requestKey.wrap(headers))
+        {
+            final byte[] request = new byte[headers.sizeof()];
+            headers.buffer().getBytes(headers.offset(), request);
+            entry = new HttpCacheEntry(this, requestKey.toByteArray(), requestKey.hash(), request, stale);
+        }
+        return entry;
+    }
+
+    long currentTimeMillis()
+    {
+        return currentTimeMillis.getAsLong();
+    }
+
+    /**
+     * Scans the headers of a response for its status and the header fields deciding whether it may be stored,
+     * its freshness lifetime and its validators.
+     *
+     * @return true if the response may be stored
+     */
+    boolean scanResponse(
+        ListFW<HttpHeaderFW> headers)
+    {
+        status = 0;
+        freshnessLifetime = -1L;
+        age = 0L;
+        etag = null;
+        lastModified = null;
+        varyNames = NO_NAMES;
+        noStore = false;
+        noCache = false;
+        maxAge = -1L;
+        sharedMaxAge = -1L;
+        contentLength = -1L;
+        vary = null;
+
+        headers.forEach(scanResponseHeader);
+
+        // a shared cache prefers s-maxage, and a response marked no-cache is stored but always revalidated
+        if (noCache)
+        {
+            freshnessLifetime = 0L;
+        }
+        else if (sharedMaxAge != -1L || maxAge != -1L)
+        {
+            freshnessLifetime = (sharedMaxAge != -1L ? sharedMaxAge : maxAge) * 1000L;
+        }
+
+        boolean anyVary = false;
+        if (vary != null)
+        {
+            varyNames = vary.toArray(NO_NAMES);
+            for (int i = 0; i < varyNames.length; i++)
+            {
+                anyVary |= Arrays.equals(varyNames[i], ANY);
+            }
+        }
+
+        return isCacheableStatus(status) && !noStore && !anyVary && freshnessLifetime != -1L &&
+               contentLength <= maximumEntrySize;
+    }
+
+    /**
+     * @return the request headers copied by {@link #newEntry}
+     */
+    ListFW<HttpHeaderFW> requestHeaders(
+        byte[] request)
+    {
+        requestBuffer.wrap(request);
+        return requestHeadersRO.wrap(requestBuffer, 0, request.length);
+    }
+
+    /**
+     * Builds the key from the values of the given request headers, for a response that varies by them.
+     *
+     * @return the key, or null if it is too long
+     */
+    byte[] varyKey(
+        ListFW<HttpHeaderFW> headers,
+        byte[][] names)
+    {
+        return requestKey.wrapVary(headers, names) ? requestKey.toByteArray() : null;
+    }
+
+    /**
+     * Adds a stored response to the cache, replacing any response stored for the same request.
+     */
+    void store(
+        HttpCacheEntry entry)
+    {
+        final HttpCacheEntry replaced = entries.get(entry.keyHash);
+        if (replaced != null)
+        {
+            remove(replaced);
+        }
+        entries.put(entry.keyHash, entry);
+        linkMostRecentlyUsed(entry);
+    }
+
+    void remove(
+        HttpCacheEntry entry)
+    {
+        if (entries.get(entry.keyHash) == entry)
+        {
+            entries.remove(entry.keyHash);
+            unlink(entry);
+            entry.evict();
+        }
+    }
+
+    /**
+     * Allocates a block, evicting least recently used responses if no block is free.
+     *
+     * @return the block, or {@link #NO_BLOCK} if all blocks hold responses being read or written
+     */
+    int allocateBlock()
+    {
+        HttpCacheEntry candidate = leastRecentlyUsed;
+        while (freeBlock == NO_BLOCK && candidate != null)
+        {
+            final HttpCacheEntry evicted = candidate;
+            candidate = candidate.moreRecentlyUsed;
+            if (!evicted.retained())
+            {
+                remove(evicted);
+            }
+        }
+
+        final int block = freeBlock;
+        if (block != NO_BLOCK)
+        {
+            freeBlock = nextBlocks[block];
+            nextBlocks[block] = NO_BLOCK;
+        }
+        return block;
+    }
+
+    void linkBlock(
+        int block,
+        int nextBlock)
+    {
+        nextBlocks[block] = nextBlock;
+    }
+
+    int nextBlock(
+        int block)
+    {
+        return nextBlocks[block];
+    }
+
+    /**
+     * @return the block holding the given position of a chain of blocks
+     */
+    int block(
+        int firstBlock,
+        int position)
+    {
+        int block = firstBlock;
+        for (int i = position / BLOCK_SIZE; i > 0; i--)
+        {
+            block = nextBlocks[block];
+        }
+        return block;
+    }
+
+    /**
+     * Returns a chain of blocks to the free blocks.
+     */
+    void releaseBlocks(
+        int firstBlock)
+    {
+        int block = firstBlock;
+        while (block != NO_BLOCK)
+        {
+            final int nextBlock = nextBlocks[block];
+            nextBlocks[block] = freeBlock;
+            freeBlock = block;
+            block = nextBlock;
+        }
+    }
+
+    MutableDirectBuffer arena()
+    {
+        return arena;
+    }
+
+    /**
+     * Copies the stored headers of a response, adding an Age header (RFC 7234 5.1) for the time spent in the cache.
+     */
+    HttpHeaderBlock storedHeaders(
+        HttpCacheEntry entry,
+        HttpHeaderBlock headers)
+    {
+        final int headLength = entry.headLength;
+        int position = 0;
+        for (int block = entry.firstBlock; position < headLength; block = nextBlocks[block])
+        {
+            final int length = Math.min(headLength - position, BLOCK_SIZE);
+            headBuffer.putBytes(position, arena, block * BLOCK_SIZE, length);
+            position += length;
+        }
+
+        storedHeaders = headers.reset();
+        beginExRO.wrap(headBuffer, 0, headLength).headers().forEach(storedHeader);
+
+        final long currentAge = entry.currentAge(currentTimeMillis()) / 1000L;
+        final String value = Long.toString(currentAge);
+        ageBuffer.putBytes(0, value.getBytes(US_ASCII));
+        storedHeaders.header(AGE_NAME, 0, AGE_NAME.capacity(), ageBuffer, 0, value.length());
+        storedHeaders = null;
+
+        return headers;
+    }
+
+    private boolean matchesVary(
+        HttpCacheEntry entry,
+        ListFW<HttpHeaderFW> headers)
+    {
+        return entry.varyNames.length == 0 ||
+               requestKey.wrapVary(headers, entry.varyNames) && requestKey.equals(entry.varyKey);
+    }
+
+    private void touch(
+        HttpCacheEntry entry)
+    {
+        if (entry != mostRecentlyUsed)
+        {
+            unlink(entry);
+            linkMostRecentlyUsed(entry);
+        }
+    }
+
+    private void linkMostRecentlyUsed(
+        HttpCacheEntry entry)
+    {
+        entry.lessRecentlyUsed = mostRecentlyUsed;
+        entry.moreRecentlyUsed = null;
+        if (mostRecentlyUsed != null)
+        {
+            mostRecentlyUsed.moreRecentlyUsed = entry;
+        }
+        mostRecentlyUsed = entry;
+        if (leastRecentlyUsed == null)
+        {
+            leastRecentlyUsed = entry;
+        }
+    }
+
+    private void unlink(
+        HttpCacheEntry entry)
+    {
+        if (entry.lessRecentlyUsed != null)
+        {
+            entry.lessRecentlyUsed.moreRecentlyUsed = entry.moreRecentlyUsed;
+        }
+        else
+        {
+            leastRecentlyUsed = entry.moreRecentlyUsed;
+        }
+
+        if (entry.moreRecentlyUsed != null)
+        {
+            entry.moreRecentlyUsed.lessRecentlyUsed = entry.lessRecentlyUsed;
+        }
+        else
+        {
+            mostRecentlyUsed = entry.lessRecentlyUsed;
+        }
+
+        entry.lessRecentlyUsed = null;
+        entry.moreRecentlyUsed = null;
+    }
+
+    private void scanRequestHeader(
+        HttpHeaderFW header)
+    {
+        final StringFW name = header.name();
+        final DirectBuffer nameBuffer = name.buffer();
+        final int nameOffset = name.offset() + NAME_LENGTH_SIZE;
+        final int nameLength = name.limit() - nameOffset;
+
+        final String16FW value = header.value();
+        final DirectBuffer valueBuffer = value.buffer();
+        final int valueOffset = value.offset() + VALUE_LENGTH_SIZE;
+        final int valueLimit = value.limit();
+
+        if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, METHOD))
+        {
+            get = HttpRouteTable.equals(valueBuffer, valueOffset, valueLimit - valueOffset, GET);
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, CACHE_CONTROL))
+        {
+            // RFC 7234 5.2.1: the request may still update the stored response unless it is marked no-store
+            final boolean noStore = hasConnectionOption(valueBuffer, valueOffset, valueLimit, NO_STORE);
+            storable &= !noStore;
+            servable &= !noStore && !hasConnectionOption(valueBuffer, valueOffset, valueLimit, NO_CACHE) &&
+                        deltaSeconds(valueBuffer, valueOffset, valueLimit, MAX_AGE) != 0L;
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, PRAGMA))
+        {
+            servable &= !hasConnectionOption(valueBuffer, valueOffset, valueLimit, NO_CACHE);
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, AUTHORIZATION) ||
+                 equalsIgnoreCase(nameBuffer, nameOffset, nameLength, RANGE) ||
+                 nameLength > IF_PREFIX.length && equalsIgnoreCase(nameBuffer, nameOffset, IF_PREFIX.length, IF_PREFIX))
+        {
+            // responses to authorized, partial and conditional requests are neither stored nor served
+            storable = false;
+            servable = false;
+        }
+    }
+
+    private void scanResponseHeader(
+        HttpHeaderFW header)
+    {
+        final StringFW name = header.name();
+        final DirectBuffer nameBuffer = name.buffer();
+        final int nameOffset = name.offset() + NAME_LENGTH_SIZE;
+        final int nameLength = name.limit() - nameOffset;
+
+        final String16FW value = header.value();
+        final DirectBuffer valueBuffer = value.buffer();
+        final int valueOffset = value.offset() + VALUE_LENGTH_SIZE;
+        final int valueLimit = value.limit();
+        final int valueLength = valueLimit - valueOffset;
+
+        if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, STATUS))
+        {
+            status = (int) parseDeltaSeconds(valueBuffer, valueOffset, valueLimit);
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, CACHE_CONTROL))
+        {
+            noStore |= hasConnectionOption(valueBuffer, valueOffset, valueLimit, NO_STORE) ||
+                       hasConnectionOption(valueBuffer, valueOffset, valueLimit, PRIVATE);
+            noCache |= hasConnectionOption(valueBuffer, valueOffset, valueLimit, NO_CACHE);
+            maxAge = Math.max(maxAge, deltaSeconds(valueBuffer, valueOffset, valueLimit, MAX_AGE));
+            sharedMaxAge = Math.max(sharedMaxAge, deltaSeconds(valueBuffer, valueOffset, valueLimit, S_MAXAGE));
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, AGE))
+        {
+            age = Math.max(parseDeltaSeconds(valueBuffer, valueOffset, valueLimit), 0L) * 1000L;
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, ETAG))
+        {
+            etag = new byte[valueLength];
+            valueBuffer.getBytes(valueOffset, etag);
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, LAST_MODIFIED))
+        {
+            lastModified = new byte[valueLength];
+            valueBuffer.getBytes(valueOffset, lastModified);
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, CONTENT_LENGTH))
+        {
+            contentLength = parseDeltaSeconds(valueBuffer, valueOffset, valueLimit);
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, SET_COOKIE))
+        {
+            // cookies are specific to a user, so are not shared even when the response permits it
+            noStore = true;
+        }
+        else if (equalsIgnoreCase(nameBuffer, nameOffset, nameLength, VARY))
+        {
+            vary = vary != null ? vary : new ArrayList<>();
+            appendVaryNames(valueBuffer, valueOffset, valueLimit, vary);
+        }
+    }
+
+    private void storedHeader(
+        HttpHeaderFW header)
+    {
+        final StringFW name = header.name();
+        final DirectBuffer nameBuffer = name.buffer();
+        final int nameOffset = name.offset() + NAME_LENGTH_SIZE;
+        final int nameLength = name.limit() - nameOffset;
+
+        if (!equalsIgnoreCase(nameBuffer, nameOffset, nameLength, AGE))
+        {
+            final String16FW value = header.value();
+            final int valueOffset = value.offset() + VALUE_LENGTH_SIZE;
+            storedHeaders.header(nameBuffer, nameOffset, nameLength, value.buffer(), valueOffset, value.limit() - valueOffset);
+        }
+    }
+
+    private static void appendVaryNames(
+        DirectBuffer buffer,
+        int offset,
+        int limit,
+        List<byte[]> names)
+    {
+        int cursor = offset;
+        while (cursor < limit)
+        {
+            while (cursor < limit && (buffer.getByte(cursor) == ',' ||
+                   HttpHeadParser.isClass(buffer.getByte(cursor), HttpHeadParser.CHAR_WHITESPACE)))
+            {
+                cursor++;
+            }
+
+            final int nameOffset = cursor;
+            while (cursor < limit && buffer.getByte(cursor) != ',' &&
+                   !HttpHeadParser.isClass(buffer.getByte(cursor), HttpHeadParser.CHAR_WHITESPACE))
+            {
+                cursor++;
+            }
+
+            if (cursor > nameOffset)
+            {
+                final byte[] name = new byte[cursor - nameOffset];
+                for (int i = 0; i < name.length; i++)
+                {
+                    name[i] = HttpHeadParser.toLowerCase(buffer.getByte(nameOffset + i));
+                }
+                names.add(name);
+            }
+        }
+    }
+
+    /**
+     * @return the value of a delta-seconds cache directive (RFC 7234 1.2.1), or -1 if absent or invalid
+     */
+    static long deltaSeconds(
+        DirectBuffer buffer,
+        int offset,
+        int limit,
+        byte[] lowerCaseDirective)
+    {
+        long value = -1L;
+        int cursor = offset;
+        while (value == -1L && cursor < limit)
+        {
+            while (cursor < limit && (buffer.getByte(cursor) == ',' ||
+                   HttpHeadParser.isClass(buffer.getByte(cursor), HttpHeadParser.CHAR_WHITESPACE)))
+            {
+                cursor++;
+            }
+
+            final int directiveOffset = cursor;
+            while (cursor < limit && HttpHeadParser.isClass(buffer.getByte(cursor), HttpHeadParser.CHAR_TOKEN))
+            {
+                cursor++;
+            }
+
+            final boolean found = equalsIgnoreCase(buffer, directiveOffset, cursor - directiveOffset, lowerCaseDirective);
+
+            int valueLimit = cursor;
+            while (valueLimit < limit && buffer.getByte(valueLimit) != ',')
+            {
+                valueLimit++;
+            }
+
+            if (found && cursor < valueLimit && buffer.getByte(cursor) == '=')
+            {
+                // the quoted-string form is accepted too, RFC 7234 5.2
+                int valueOffset = cursor + 1;
+                int digitsLimit = valueLimit;
+                while (digitsLimit > valueOffset &&
+                       HttpHeadParser.isClass(buffer.getByte(digitsLimit - 1), HttpHeadParser.CHAR_WHITESPACE))
+                {
+                    digitsLimit--;
+                }
+                if (digitsLimit - valueOffset > 1 && buffer.getByte(valueOffset) == '"' &&
+                    buffer.getByte(digitsLimit - 1) == '"')
+                {
+                    valueOffset++;
+                    digitsLimit--;
+                }
+                value = parseDeltaSeconds(buffer, valueOffset, digitsLimit);
+            }
+
+            cursor = valueLimit;
+        }
+        return value;
+    }
+
+    /**
+     * @return the non-negative integer value, capped at 2^31 as required for delta-seconds, or -1 if invalid
+     */
+    private static long parseDeltaSeconds(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        long value = limit > offset ? 0L : -1L;
+        for (int i = offset; value != -1L && i < limit; i++)
+        {
+            final byte ch = buffer.getByte(i);
+            value = ch >= '0' && ch <= '9' ? Math.min(value * 10 + ch - '0', 1L << 31) : -1L;
+        }
+        return value;
+    }
+
+    private static boolean isCacheableStatus(
+        int status)
+    {
+        boolean cacheable = false;
+        for (int i = 0; !cacheable && i < CACHEABLE_STATUSES.length; i++)
+        {
+            cacheable = CACHEABLE_STATUSES[i] == status;
+        }
+        return cacheable;
+    }
+}
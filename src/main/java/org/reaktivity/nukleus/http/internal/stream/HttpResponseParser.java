@@ -0,0 +1,127 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import org.agrona.DirectBuffer;
+
+/**
+ * Parses a complete HTTP/1.x response head (status-line and header fields) in place.
+ */
+final class HttpResponseParser extends HttpHeadParser
+{
+    // RFC 7230 3.1.2: status-line = HTTP-version SP status-code SP reason-phrase CRLF
+    static final int STATUS_LENGTH = 3;
+    private static final int STATUS_OFFSET = "HTTP/1.x ".length();
+
+    int status;
+    int statusOffset;
+
+    HttpResponseParser(
+        int maximumHeadSize)
+    {
+        super(maximumHeadSize);
+    }
+
+    /**
+     * @param buffer  the buffer containing the response head
+     * @param offset  the offset of the status-line
+     * @param limit   the limit of the response head, including the terminating empty line
+     * @return true if the response head is well-formed, otherwise false
+     */
+    boolean parse(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        reset(buffer);
+        final int cursor = parseStatusLine(offset, limit);
+        return cursor != -1 && parseFields(cursor, limit);
+    }
+
+    @Override
+    void reset(
+        DirectBuffer buffer)
+    {
+        super.reset(buffer);
+        this.status = 0;
+        this.statusOffset = 0;
+    }
+
+    private int parseStatusLine(
+        int offset,
+        int limit)
+    {
+        final int statusOffset = offset + STATUS_OFFSET;
+        final int statusLimit = statusOffset + STATUS_LENGTH;
+
+        if (statusLimit >= limit ||
+            buffer.getByte(offset) != 'H' ||
+            buffer.getByte(offset + 1) != 'T' ||
+            buffer.getByte(offset + 2) != 'T' ||
+            buffer.getByte(offset + 3) != 'P' ||
+            buffer.getByte(offset + 4) != '/' ||
+            buffer.getByte(offset + 5) != '1' ||
+            buffer.getByte(offset + 6) != '.' ||
+            !isClass(buffer.getByte(offset + 7), CHAR_DIGIT) ||
+            buffer.getByte(offset + 8) != ' ')
+        {
+            invalid(400, "Bad Response");
+            return -1;
+        }
+
+        int value = 0;
+        for (int cursor = statusOffset; cursor < statusLimit; cursor++)
+        {
+            final byte ch = buffer.getByte(cursor);
+            if (!isClass(ch, CHAR_DIGIT))
+            {
+                invalid(400, "Bad Response");
+                return -1;
+            }
+            value = value * 10 + ch - '0';
+        }
+
+        // reason-phrase may be empty, but must be separated from the status-code when present
+        int cursor = statusLimit;
+        final byte next = buffer.getByte(cursor);
+        if (next != ' ' && next != '\r')
+        {
+            invalid(400, "Bad Response");
+            return -1;
+        }
+
+        while (cursor + 1 < limit && (buffer.getByte(cursor) != '\r' || buffer.getByte(cursor + 1) != '\n'))
+        {
+            final byte ch = buffer.getByte(cursor);
+            if (!isClass(ch, CHAR_FIELD_VALUE))
+            {
+                invalid(400, "Bad Response");
+                return -1;
+            }
+            cursor++;
+        }
+
+        if (cursor + 1 >= limit)
+        {
+            invalid(400, "Bad Response");
+            return -1;
+        }
+
+        this.status = value;
+        this.statusOffset = statusOffset;
+        return cursor + 2;
+    }
+}
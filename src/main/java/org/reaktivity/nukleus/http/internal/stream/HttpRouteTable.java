@@ -0,0 +1,475 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Int2ObjectHashMap;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.reaktivity.nukleus.http.internal.types.Flyweight;
+import org.reaktivity.nukleus.http.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http.internal.types.OctetsFW;
+import org.reaktivity.nukleus.http.internal.types.control.HttpRouteExFW;
+import org.reaktivity.nukleus.http.internal.types.control.RouteFW;
+import org.reaktivity.nukleus.http.internal.types.control.UnrouteFW;
+
+/**
+ * Index of the routes of one route kind, maintained by the nukleus route handler as routes are added and removed.
+ * Routes are found by source name and sourceRef, then by the hash of their {@code :authority} header value,
+ * so that resolving a request does not scan or decode every route. Requests matching several routes can be
+ * balanced across the route targets by their outstanding requests.
+ */
+public final class HttpRouteTable
+{
+    private static final byte[] AUTHORITY_BYTES = ":authority".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[][] NO_HEADERS = new byte[0][];
+
+    private final RouteFW routeRO = new RouteFW();
+    private final UnrouteFW unrouteRO = new UnrouteFW();
+    private final HttpRouteExFW routeExRO = new HttpRouteExFW();
+    private final Consumer<HttpHeaderFW> compileHeader = this::compileHeader;
+
+    private final Long2ObjectHashMap<SourceRoutes> routesBySourceRef;
+    private final List<byte[]> compiledHeaders;
+
+    private int rotation;
+
+    public HttpRouteTable()
+    {
+        this.routesBySourceRef = new Long2ObjectHashMap<>();
+        this.compiledHeaders = new ArrayList<>();
+    }
+
+    /**
+     * Route handler, see {@code NukleusBuilder.routeHandler}, called with each route before it is added
+     * and with each unroute after the matching routes have been removed.
+     */
+    public boolean handleRoute(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        switch (msgTypeId)
+        {
+        case RouteFW.TYPE_ID:
+            final RouteFW route = routeRO.wrap(buffer, index, index + length);
+            addRoute(route);
+            break;
+        case UnrouteFW.TYPE_ID:
+            final UnrouteFW unroute = unrouteRO.wrap(buffer, index, index + length);
+            removeRoutes(unroute.source().asString(), unroute.sourceRef(),
+                         unroute.target().asString(), unroute.targetRef());
+            break;
+        default:
+            break;
+        }
+        return true;
+    }
+
+    /**
+     * @return any route from the given source and sourceRef, or null if none
+     */
+    RouteFW resolve(
+        String source,
+        long sourceRef)
+    {
+        final SourceRoutes routes = sourceRoutes(source, sourceRef);
+        return routes != null ? routes.first().route : null;
+    }
+
+    /**
+     * @return the first route from the given source and sourceRef whose headers all match the request,
+     *         preferring routes on the request authority, or null if none
+     */
+    RouteFW resolve(
+        String source,
+        long sourceRef,
+        RequestHeaders headers)
+    {
+        RouteFW resolved = null;
+
+        final SourceRoutes routes = sourceRoutes(source, sourceRef);
+        if (routes != null)
+        {
+            final List<Route> candidates = routes.byAuthority.get(headers.authorityHash());
+            if (candidates != null)
+            {
+                resolved = resolve(candidates, headers);
+            }
+
+            if (resolved == null)
+            {
+                resolved = resolve(routes.unindexed, headers);
+            }
+        }
+
+        return resolved;
+    }
+
+    /**
+     * @return the route from the given source and sourceRef whose headers all match the request and whose target
+     *         has the lowest load, preferring routes on the request authority, or null if none.
+     *         Targets with equally low load are chosen in rotation.
+     */
+    RouteFW resolve(
+        String source,
+        long sourceRef,
+        RequestHeaders headers,
+        TargetLoad load)
+    {
+        RouteFW resolved = null;
+
+        final SourceRoutes routes = sourceRoutes(source, sourceRef);
+        if (routes != null)
+        {
+            final List<Route> candidates = routes.byAuthority.get(headers.authorityHash());
+            if (candidates != null)
+            {
+                resolved = resolve(candidates, headers, load);
+            }
+
+            if (resolved == null)
+            {
+                resolved = resolve(routes.unindexed, headers, load);
+            }
+        }
+
+        return resolved;
+    }
+
+    static int hash(
+        DirectBuffer buffer,
+        int offset,
+        int length)
+    {
+        int hash = 0;
+        for (int i = 0; i < length; i++)
+        {
+            hash = 31 * hash + buffer.getByte(offset + i);
+        }
+        return hash;
+    }
+
+    static boolean equals(
+        DirectBuffer buffer,
+        int offset,
+        int length,
+        byte[] value)
+    {
+        boolean equals = length == value.length;
+        for (int i = 0; equals && i < length; i++)
+        {
+            equals = buffer.getByte(offset + i) == value[i];
+        }
+        return equals;
+    }
+
+    private static RouteFW resolve(
+        List<Route> candidates,
+        RequestHeaders headers)
+    {
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            final Route candidate = candidates.get(i);
+            if (candidate.matches(headers))
+            {
+                return candidate.route;
+            }
+        }
+        return null;
+    }
+
+    private RouteFW resolve(
+        List<Route> candidates,
+        RequestHeaders headers,
+        TargetLoad load)
+    {
+        Route resolved = null;
+        int resolvedLoad = Integer.MAX_VALUE;
+
+        final int size = candidates.size();
+        if (size != 0)
+        {
+            final int start = (rotation++ & Integer.MAX_VALUE) % size;
+            for (int i = 0; i < size; i++)
+            {
+                final Route candidate = candidates.get((start + i) % size);
+                if (candidate.matches(headers))
+                {
+                    final int candidateLoad = load.load(candidate.target, candidate.targetRef);
+                    if (candidateLoad < resolvedLoad)
+                    {
+                        resolved = candidate;
+                        resolvedLoad = candidateLoad;
+                    }
+                }
+            }
+        }
+
+        return resolved != null ? resolved.route : null;
+    }
+
+    private SourceRoutes sourceRoutes(
+        String source,
+        long sourceRef)
+    {
+        SourceRoutes routes = routesBySourceRef.get(sourceRef);
+        while (routes != null && !routes.source.equals(source))
+        {
+            routes = routes.next;
+        }
+        return routes;
+    }
+
+    private void addRoute(
+        RouteFW route)
+    {
+        final String source = route.source().asString();
+        final long sourceRef = route.sourceRef();
+
+        SourceRoutes routes = sourceRoutes(source, sourceRef);
+        if (routes == null)
+        {
+            routes = new SourceRoutes(source, routesBySourceRef.get(sourceRef));
+            routesBySourceRef.put(sourceRef, routes);
+        }
+
+        final UnsafeBuffer copy = new UnsafeBuffer(new byte[route.sizeof()]);
+        copy.putBytes(0, route.buffer(), route.offset(), route.sizeof());
+
+        routes.add(new Route(copy, compileHeaders(route.extension())));
+    }
+
+    private void removeRoutes(
+        String source,
+        long sourceRef,
+        String target,
+        long targetRef)
+    {
+        final SourceRoutes routes = sourceRoutes(source, sourceRef);
+        if (routes != null)
+        {
+            routes.removeIf(target, targetRef);
+
+            if (routes.isEmpty())
+            {
+                SourceRoutes previous = null;
+                SourceRoutes current = routesBySourceRef.get(sourceRef);
+                while (current != routes)
+                {
+                    previous = current;
+                    current = current.next;
+                }
+
+                if (previous != null)
+                {
+                    previous.next = routes.next;
+                }
+                else if (routes.next != null)
+                {
+                    routesBySourceRef.put(sourceRef, routes.next);
+                }
+                else
+                {
+                    routesBySourceRef.remove(sourceRef);
+                }
+            }
+        }
+    }
+
+    private byte[][] compileHeaders(
+        OctetsFW extension)
+    {
+        byte[][] headers = NO_HEADERS;
+
+        if (extension.sizeof() > 0)
+        {
+            final HttpRouteExFW routeEx = extension.get(routeExRO::wrap);
+            compiledHeaders.clear();
+            routeEx.headers().forEach(compileHeader);
+            headers = compiledHeaders.toArray(NO_HEADERS);
+        }
+
+        return headers;
+    }
+
+    private void compileHeader(
+        HttpHeaderFW header)
+    {
+        final byte[] name = contentBytes(header.name(), 1);
+        for (int i = 0; i < name.length; i++)
+        {
+            name[i] = HttpHeadParser.toLowerCase(name[i]);
+        }
+        compiledHeaders.add(name);
+        compiledHeaders.add(contentBytes(header.value(), 2));
+    }
+
+    private static byte[] contentBytes(
+        Flyweight string,
+        int lengthSize)
+    {
+        final int offset = string.offset() + lengthSize;
+        final byte[] bytes = new byte[Math.max(string.limit() - offset, 0)];
+        string.buffer().getBytes(offset, bytes);
+        return bytes;
+    }
+
+    /**
+     * Request header view used to match routes without decoding the request headers into objects.
+     */
+    interface RequestHeaders
+    {
+        /**
+         * @return the hash of the request authority, see {@link HttpRouteTable#hash(DirectBuffer, int, int)}
+         */
+        int authorityHash();
+
+        /**
+         * @return true if the request has a header with the given name and value
+         */
+        boolean matches(
+            byte[] name,
+            byte[] value);
+    }
+
+    /**
+     * Load of route targets, used to balance requests matching several routes.
+     */
+    interface TargetLoad
+    {
+        int EJECTED = Integer.MAX_VALUE - 1;
+
+        /**
+         * @return the number of requests queued for or awaiting a response from the given target name and ref,
+         *         or {@link #EJECTED} if the target is not to be selected unless all matching targets are ejected
+         */
+        int load(
+            String target,
+            long targetRef);
+    }
+
+    private static final class Route
+    {
+        private final RouteFW route;
+        private final String target;
+        private final long targetRef;
+        private final byte[][] headers;
+        private final boolean indexed;
+        private final int authorityHash;
+
+        private Route(
+            DirectBuffer buffer,
+            byte[][] headers)
+        {
+            this.route = new RouteFW().wrap(buffer, 0, buffer.capacity());
+            this.target = route.target().asString();
+            this.targetRef = route.targetRef();
+            this.headers = headers;
+
+            byte[] authority = null;
+            for (int i = 0; authority == null && i < headers.length; i += 2)
+            {
+                if (Arrays.equals(headers[i], AUTHORITY_BYTES))
+                {
+                    authority = headers[i + 1];
+                }
+            }
+            this.indexed = authority != null;
+            this.authorityHash = indexed ? hash(new UnsafeBuffer(authority), 0, authority.length) : 0;
+        }
+
+        private boolean matches(
+            RequestHeaders request)
+        {
+            boolean matches = true;
+            for (int i = 0; matches && i < headers.length; i += 2)
+            {
+                matches = request.matches(headers[i], headers[i + 1]);
+            }
+            return matches;
+        }
+    }
+
+    private static final class SourceRoutes
+    {
+        private final String source;
+        private final List<Route> routes;
+        private final Int2ObjectHashMap<List<Route>> byAuthority;
+        private final List<Route> unindexed;
+        private SourceRoutes next;
+
+        private SourceRoutes(
+            String source,
+            SourceRoutes next)
+        {
+            this.source = source;
+            this.next = next;
+            this.routes = new ArrayList<>();
+            this.byAuthority = new Int2ObjectHashMap<>();
+            this.unindexed = new ArrayList<>();
+        }
+
+        private void add(
+            Route route)
+        {
+            routes.add(route);
+            index(route);
+        }
+
+        private void removeIf(
+            String target,
+            long targetRef)
+        {
+            if (routes.removeIf(r -> r.targetRef == targetRef && r.target.equals(target)))
+            {
+                byAuthority.clear();
+                unindexed.clear();
+                routes.forEach(this::index);
+            }
+        }
+
+        private boolean isEmpty()
+        {
+            return routes.isEmpty();
+        }
+
+        private Route first()
+        {
+            return routes.get(0);
+        }
+
+        private void index(
+            Route route)
+        {
+            if (route.indexed)
+            {
+                byAuthority.computeIfAbsent(route.authorityHash, h -> new ArrayList<>()).add(route);
+            }
+            else
+            {
+                unindexed.add(route);
+            }
+        }
+    }
+}
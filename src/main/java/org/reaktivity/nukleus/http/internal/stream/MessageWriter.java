@@ -33,6 +33,7 @@ import org.reaktivity.nukleus.http.internal.types.stream.BeginFW;
 import org.reaktivity.nukleus.http.internal.types.stream.DataFW;
 import org.reaktivity.nukleus.http.internal.types.stream.EndFW;
 import org.reaktivity.nukleus.http.internal.types.stream.HttpBeginExFW;
+import org.reaktivity.nukleus.http.internal.types.stream.HttpEndExFW;
 import org.reaktivity.nukleus.http.internal.types.stream.ResetFW;
 import org.reaktivity.nukleus.http.internal.types.stream.WindowFW;
 
@@ -47,11 +48,19 @@ final class MessageWriter
     private AbortFW.Builder abortRW = new AbortFW.Builder();
 
     private final HttpBeginExFW.Builder httpBeginExRW = new HttpBeginExFW.Builder();
+    private final HttpEndExFW.Builder httpEndExRW = new HttpEndExFW.Builder();
 
     private final WindowFW.Builder windowRW = new WindowFW.Builder();
     private final ResetFW.Builder resetRW = new ResetFW.Builder();
 
+    private final Flyweight.Builder.Visitor visitHttpBeginEx = this::visitHttpBeginEx;
+    private final Consumer<OctetsFW.Builder> setHttpBeginEx = e -> e.set(visitHttpBeginEx);
+    private final Flyweight.Builder.Visitor visitHttpEndEx = this::visitHttpEndEx;
+    private final Consumer<OctetsFW.Builder> setHttpEndEx = e -> e.set(visitHttpEndEx);
+
     private MutableDirectBuffer writeBuffer;
+    private Consumer<ListFW.Builder<HttpHeaderFW.Builder, HttpHeaderFW>> httpBeginExHeaders;
+    private Consumer<ListFW.Builder<HttpHeaderFW.Builder, HttpHeaderFW>> httpEndExTrailers;
 
     MessageWriter(MutableDirectBuffer writeBuffer)
     {
@@ -75,6 +84,24 @@ final class MessageWriter
         stream.accept(begin.typeId(), begin.buffer(), begin.offset(), begin.sizeof());
     }
 
+    void doBegin(
+        MessageConsumer stream,
+        long targetId,
+        long targetRef,
+        long correlationId,
+        OctetsFW extension)
+    {
+        BeginFW begin = beginRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                .streamId(targetId)
+                .source(SOURCE_NAME_BUFFER, 0, SOURCE_NAME_BUFFER.capacity())
+                .sourceRef(targetRef)
+                .correlationId(correlationId)
+                .extension(e -> e.set(extension))
+                .build();
+
+        stream.accept(begin.typeId(), begin.buffer(), begin.offset(), begin.sizeof());
+    }
+
     void doData(
         MessageConsumer stream,
         long streamId,
@@ -105,6 +132,22 @@ final class MessageWriter
         stream.accept(data.typeId(), data.buffer(), data.offset(), data.sizeof());
     }
 
+    void doHttpChunk(
+        MessageConsumer stream,
+        long streamId,
+        DirectBuffer payload,
+        int offset,
+        int length)
+    {
+        DataFW data = dataRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                .streamId(streamId)
+                .payload(p -> p.set((b, o, l) -> HttpHeadEncoder.encodeChunk(b, o, l, payload, offset, length) - o))
+                .extension(e -> e.reset())
+                .build();
+
+        stream.accept(data.typeId(), data.buffer(), data.offset(), data.sizeof());
+    }
+
     void doEnd(
         MessageConsumer stream,
         long targetId)
@@ -117,6 +160,19 @@ final class MessageWriter
         stream.accept(end.typeId(), end.buffer(), end.offset(), end.sizeof());
     }
 
+    void doEnd(
+        MessageConsumer stream,
+        long targetId,
+        OctetsFW extension)
+    {
+        EndFW end = endRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                .streamId(targetId)
+                .extension(e -> e.set(extension))
+                .build();
+
+        stream.accept(end.typeId(), end.buffer(), end.offset(), end.sizeof());
+    }
+
     void doAbort(MessageConsumer stream, long targetId)
     {
         AbortFW abort = abortRW.wrap(writeBuffer, 0, writeBuffer.capacity())
@@ -133,12 +189,13 @@ final class MessageWriter
         long correlationId,
         Consumer<ListFW.Builder<HttpHeaderFW.Builder, HttpHeaderFW>> mutator)
     {
+        httpBeginExHeaders = mutator;
         BeginFW begin = beginRW.wrap(writeBuffer, 0, writeBuffer.capacity())
                 .streamId(targetId)
                 .source(SOURCE_NAME_BUFFER, 0, SOURCE_NAME_BUFFER.capacity())
                 .sourceRef(targetRef)
                 .correlationId(correlationId)
-                .extension(e -> e.set(visitHttpBeginEx(mutator)))
+                .extension(setHttpBeginEx)
                 .build();
 
         stream.accept(begin.typeId(), begin.buffer(), begin.offset(), begin.sizeof());
@@ -172,6 +229,20 @@ final class MessageWriter
         stream.accept(end.typeId(), end.buffer(), end.offset(), end.sizeof());
     }
 
+    void doHttpEnd(
+        MessageConsumer stream,
+        long targetId,
+        Consumer<ListFW.Builder<HttpHeaderFW.Builder, HttpHeaderFW>> trailers)
+    {
+        httpEndExTrailers = trailers;
+        EndFW end = endRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                .streamId(targetId)
+                .extension(setHttpEndEx)
+                .build();
+
+        stream.accept(end.typeId(), end.buffer(), end.offset(), end.sizeof());
+    }
+
     void doWindow(
         final MessageConsumer throttle,
         final long throttleId,
@@ -198,14 +269,26 @@ final class MessageWriter
         throttle.accept(reset.typeId(), reset.buffer(), reset.offset(), reset.sizeof());
     }
 
-    private Flyweight.Builder.Visitor visitHttpBeginEx(
-        Consumer<ListFW.Builder<HttpHeaderFW.Builder, HttpHeaderFW>> headers)
+    private int visitHttpBeginEx(
+        MutableDirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        return httpBeginExRW.wrap(buffer, offset, limit)
+                            .headers(httpBeginExHeaders)
+                            .build()
+                            .sizeof();
+    }
+
+    private int visitHttpEndEx(
+        MutableDirectBuffer buffer,
+        int offset,
+        int limit)
     {
-        return (buffer, offset, limit) ->
-            httpBeginExRW.wrap(buffer, offset, limit)
-                         .headers(headers)
-                         .build()
-                         .sizeof();
+        return httpEndExRW.wrap(buffer, offset, limit)
+                          .trailers(httpEndExTrailers)
+                          .build()
+                          .sizeof();
     }
 
 }
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+/**
+ * Passive health of the target of a connection pool. Consecutive failures (lost requests, 5xx responses
+ * or responses beyond the latency threshold) eject the target from selection for a back-off time that
+ * doubles with each ejection. Once the back-off time has passed, requests are let through one at a time
+ * as probes, until a probe succeeds and the target is healthy again or a probe fails and it is ejected again.
+ */
+final class OutlierDetector
+{
+    private static final int HEALTHY = 0;
+    private static final int EJECTED = 1;
+    private static final int PROBING = 2;
+
+    private final int consecutiveFailuresThreshold;
+    private final long ejectionTime;
+    private final long maximumEjectionTime;
+
+    private int state = HEALTHY;
+    private int consecutiveFailures;
+    private int ejections;
+    private long ejectedUntil;
+
+    OutlierDetector(
+        int consecutiveFailuresThreshold,
+        long ejectionTime,
+        long maximumEjectionTime)
+    {
+        this.consecutiveFailuresThreshold = consecutiveFailuresThreshold;
+        this.ejectionTime = ejectionTime;
+        this.maximumEjectionTime = Math.max(ejectionTime, maximumEjectionTime);
+    }
+
+    /**
+     * @return true if requests can be sent to the target, only one request at a time while probing
+     */
+    boolean isSelectable(
+        long now,
+        int outstandingRequests)
+    {
+        if (state == EJECTED && now >= ejectedUntil)
+        {
+            state = PROBING;
+        }
+
+        return state == HEALTHY || (state == PROBING && outstandingRequests == 0);
+    }
+
+    void onSuccess()
+    {
+        consecutiveFailures = 0;
+        if (state == PROBING)
+        {
+            state = HEALTHY;
+            ejections = 0;
+        }
+    }
+
+    void onFailure(
+        long now)
+    {
+        if (state == PROBING ||
+            (state == HEALTHY && consecutiveFailuresThreshold > 0 &&
+             ++consecutiveFailures >= consecutiveFailuresThreshold))
+        {
+            eject(now);
+        }
+    }
+
+    private void eject(
+        long now)
+    {
+        final int backoff = Math.min(ejections, 30);
+        ejectedUntil = now + Math.min(ejectionTime << backoff, maximumEjectionTime);
+        ejections++;
+        consecutiveFailures = 0;
+        state = EJECTED;
+    }
+}
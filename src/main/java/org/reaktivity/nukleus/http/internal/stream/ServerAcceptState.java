@@ -18,32 +18,59 @@ package org.reaktivity.nukleus.http.internal.stream;
 import java.util.function.Consumer;
 
 import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.http.internal.stream.ServerStreamFactory.StandardMethods;
 import org.reaktivity.nukleus.route.RouteManager;
 
 /**
  * This class represents state shared between the server accept (source input) and server accept reply
  * (source output established) streams.
+ * <p>
+ * Pipelined requests are recorded in arrival order, and each response is written to the accept reply only
+ * once all responses to earlier requests have completed.
  */
 final class ServerAcceptState
 {
+    private static final int INITIAL_PIPELINE_CAPACITY = 4;
+
     final String acceptReplyName;
     final long replyStreamId;
     final MessageConsumer acceptReply;
     private final MessageConsumer initialThrottle;
     final Consumer<MessageConsumer> setThrottle;
+    private final int maximumPipelinedRequests;
+    private final Runnable resumeRequests;
+
+    private long[] correlationIds;
+    private StandardMethods[] methods;
+    private int[] acceptedCodings;
+    private ServerConnectReplyStream[] responses;
+    private int mask;
+    private int requestSequence;
+    private int responseSequence;
+
     int window;
     int pendingRequests;
     boolean endRequested;
     boolean persistent = true;
+    boolean responsesReset;
+    Runnable afterResponses;
 
     ServerAcceptState(String acceptReplyName, long replyStreamId, MessageConsumer acceptReply, MessageWriter writer,
-            MessageConsumer initialThrottle, RouteManager router)
+            MessageConsumer initialThrottle, RouteManager router, int maximumPipelinedRequests, Runnable resumeRequests)
     {
         this.replyStreamId = replyStreamId;
         this.acceptReply = acceptReply;
         this.initialThrottle = initialThrottle;
         this.acceptReplyName = acceptReplyName;
         this.setThrottle = (t) -> router.setThrottle(acceptReplyName, replyStreamId, t);
+        // at least one request, otherwise no request could ever be decoded
+        this.maximumPipelinedRequests = Math.max(1, maximumPipelinedRequests);
+        this.resumeRequests = resumeRequests;
+        this.correlationIds = new long[INITIAL_PIPELINE_CAPACITY];
+        this.methods = new StandardMethods[INITIAL_PIPELINE_CAPACITY];
+        this.acceptedCodings = new int[INITIAL_PIPELINE_CAPACITY];
+        this.responses = new ServerConnectReplyStream[INITIAL_PIPELINE_CAPACITY];
+        this.mask = INITIAL_PIPELINE_CAPACITY - 1;
         setThrottle.accept(initialThrottle);
     }
 
@@ -73,6 +100,158 @@ final class ServerAcceptState
         }
     }
 
-}
+    boolean isPipelineFull()
+    {
+        return pendingRequests >= maximumPipelinedRequests;
+    }
+
+    void onRequest(
+        long correlationId,
+        StandardMethods method,
+        int acceptedCodings)
+    {
+        if (pendingRequests == correlationIds.length)
+        {
+            growPipeline();
+        }
+
+        final int index = requestSequence & mask;
+        correlationIds[index] = correlationId;
+        methods[index] = method;
+        this.acceptedCodings[index] = acceptedCodings;
+        responses[index] = null;
+        requestSequence++;
+        pendingRequests++;
+    }
+
+    /**
+     * Registers the response to a pipelined request.
+     *
+     * @return {@code true} if all responses to earlier requests have completed, so the response can be written now
+     */
+    boolean onResponse(
+        long correlationId,
+        ServerConnectReplyStream response)
+    {
+        final int sequence = sequence(correlationId);
+
+        if (sequence != requestSequence)
+        {
+            responses[sequence & mask] = response;
+        }
+
+        return sequence != requestSequence && sequence == responseSequence;
+    }
+
+    /**
+     * Returns the method of a pipelined request, or null if no request with the correlation id is pending.
+     */
+    StandardMethods method(
+        long correlationId)
+    {
+        final int sequence = sequence(correlationId);
+        return sequence != requestSequence ? methods[sequence & mask] : null;
+    }
+
+    /**
+     * Returns the content-codings accepted by a pipelined request, as a combination of
+     * {@link HttpContentEncoder#CODING_GZIP} and {@link HttpContentEncoder#CODING_DEFLATE}, or 0 if none.
+     */
+    int acceptedCodings(
+        long correlationId)
+    {
+        final int sequence = sequence(correlationId);
+        return sequence != requestSequence ? acceptedCodings[sequence & mask] : 0;
+    }
+
+    void onResponseComplete(
+        MessageWriter writer)
+    {
+        responses[responseSequence & mask] = null;
+        responseSequence++;
+        pendingRequests--;
+        restoreInitialThrottle();
+
+        if (pendingRequests == 0 && afterResponses != null)
+        {
+            final Runnable deferred = afterResponses;
+            afterResponses = null;
+            deferred.run();
+        }
+        else if (pendingRequests == 0 && endRequested)
+        {
+            writer.doEnd(acceptReply, replyStreamId);
+        }
+        else
+        {
+            final ServerConnectReplyStream next = responses[responseSequence & mask];
+            if (pendingRequests != 0 && next != null)
+            {
+                next.beginResponse();
+            }
+            resumeRequests.run();
+        }
+    }
 
+    void resetResponses()
+    {
+        responsesReset = true;
+        for (int sequence = responseSequence; sequence != requestSequence; sequence++)
+        {
+            final int index = sequence & mask;
+            final ServerConnectReplyStream response = responses[index];
+            if (response != null)
+            {
+                responses[index] = null;
+                response.doReset();
+            }
+        }
+    }
 
+    void doAbort(
+        MessageWriter writer)
+    {
+        if (!responsesReset)
+        {
+            writer.doAbort(acceptReply, replyStreamId);
+            resetResponses();
+        }
+    }
+
+    private int sequence(
+        long correlationId)
+    {
+        int sequence = responseSequence;
+        while (sequence != requestSequence && correlationIds[sequence & mask] != correlationId)
+        {
+            sequence++;
+        }
+        return sequence;
+    }
+
+    private void growPipeline()
+    {
+        final int newCapacity = correlationIds.length << 1;
+        final long[] newCorrelationIds = new long[newCapacity];
+        final StandardMethods[] newMethods = new StandardMethods[newCapacity];
+        final int[] newAcceptedCodings = new int[newCapacity];
+        final ServerConnectReplyStream[] newResponses = new ServerConnectReplyStream[newCapacity];
+
+        for (int i = 0; i < pendingRequests; i++)
+        {
+            final int index = (responseSequence + i) & mask;
+            newCorrelationIds[i] = correlationIds[index];
+            newMethods[i] = methods[index];
+            newAcceptedCodings[i] = acceptedCodings[index];
+            newResponses[i] = responses[index];
+        }
+
+        correlationIds = newCorrelationIds;
+        methods = newMethods;
+        acceptedCodings = newAcceptedCodings;
+        responses = newResponses;
+        mask = newCapacity - 1;
+        responseSequence = 0;
+        requestSequence = pendingRequests;
+    }
+}
@@ -15,30 +15,17 @@
  */
 package org.reaktivity.nukleus.http.internal.stream;
 
-import static java.lang.Integer.parseInt;
 import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
 import static org.reaktivity.nukleus.http.internal.util.BufferUtil.limitOfBytes;
 
-import java.net.URI;
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.reaktivity.nukleus.function.MessageConsumer;
-import org.reaktivity.nukleus.function.MessagePredicate;
-import org.reaktivity.nukleus.http.internal.stream.ServerStreamFactory.DecoderState;
-import org.reaktivity.nukleus.http.internal.stream.ServerStreamFactory.HttpStatus;
 import org.reaktivity.nukleus.http.internal.stream.ServerStreamFactory.StandardMethods;
 import org.reaktivity.nukleus.http.internal.types.OctetsFW;
-import org.reaktivity.nukleus.http.internal.types.control.HttpRouteExFW;
 import org.reaktivity.nukleus.http.internal.types.control.RouteFW;
 import org.reaktivity.nukleus.http.internal.types.stream.BeginFW;
 import org.reaktivity.nukleus.http.internal.types.stream.DataFW;
@@ -49,22 +36,51 @@ import org.reaktivity.nukleus.http.internal.types.stream.WindowFW;
 
 final class ServerAcceptStream implements MessageConsumer
 {
-    private final HttpStatus httpStatus = new HttpStatus();
+    private static final DirectBuffer SCHEME_NAME = new UnsafeBuffer(":scheme".getBytes(StandardCharsets.US_ASCII));
+    private static final DirectBuffer SCHEME_HTTP = new UnsafeBuffer("http".getBytes(StandardCharsets.US_ASCII));
+    private static final DirectBuffer METHOD_NAME = new UnsafeBuffer(":method".getBytes(StandardCharsets.US_ASCII));
+    private static final DirectBuffer PATH_NAME = new UnsafeBuffer(":path".getBytes(StandardCharsets.US_ASCII));
+    private static final DirectBuffer AUTHORITY_NAME = new UnsafeBuffer(":authority".getBytes(StandardCharsets.US_ASCII));
+    private static final byte[] ACCEPT_ENCODING = "accept-encoding".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int STREAM_BEFORE_BEGIN = 0;
+    private static final int STREAM_AFTER_BEGIN_OR_DATA = 1;
+    private static final int STREAM_WITH_DEFERRED_DATA = 2;
+    private static final int STREAM_BEFORE_END = 3;
+    private static final int STREAM_AFTER_END = 4;
+    private static final int STREAM_AFTER_RESET = 5;
+
+    private static final int THROTTLE_IGNORE_WINDOW = 0;
+    private static final int THROTTLE_FOR_HTTP_DATA = 1;
+    private static final int THROTTLE_FOR_HTTP_DATA_AFTER_UPGRADE = 2;
+    private static final int THROTTLE_PROPAGATE_WINDOW = 3;
+    private static final int THROTTLE_FOR_ERROR_RESPONSE = 4;
+
+    private static final int DECODE_NONE = 0;
+    private static final int DECODE_BEFORE_HTTP_BEGIN = 1;
+    private static final int DECODE_HTTP_BEGIN = 2;
+    private static final int DECODE_HTTP_DATA = 3;
+    private static final int DECODE_HTTP_CHUNK = 4;
+    private static final int DECODE_HTTP_CHUNK_DATA = 5;
+    private static final int DECODE_HTTP_CHUNK_END = 6;
+    private static final int DECODE_HTTP_DATA_AFTER_UPGRADE = 7;
+    private static final int DECODE_SKIP_DATA = 8;
+    private static final int DECODE_HTTP_CHUNK_TRAILERS = 9;
 
-    private final MutableDirectBuffer temporarySlot;
     private final int maximumHeadersSize;
 
-
     private ServerStreamFactory factory;
     private final MessageConsumer acceptThrottle;
     private final long acceptId;
     private final long acceptRef;
     private final String acceptName;
     private final long acceptCorrelationId;
+    private final HttpHeadScanner headScanner = new HttpHeadScanner();
+    private final MessageConsumer throttle;
 
-    private MessageConsumer streamState;
-    private MessageConsumer throttleState;
-    private DecoderState decoderState;
+    private int streamState;
+    private int throttleState;
+    private int decoderState;
     private int slotIndex = NO_SLOT;
     private int slotOffset = 0;
     private int slotPosition;
@@ -81,6 +97,8 @@ final class ServerAcceptStream implements MessageConsumer
     private boolean hasUpgrade;
     private Correlation<ServerAcceptState> correlation;
     private boolean targetBeginIssued;
+    private DirectBuffer errorResponse;
+    private int errorResponseOffset;
 
     @Override
     public String toString()
@@ -93,21 +111,41 @@ final class ServerAcceptStream implements MessageConsumer
                        long acceptId, long acceptRef, String acceptName, long acceptCorrelationId)
     {
         this.factory = factory;
-        this.streamState = this::streamBeforeBegin;
-        this.throttleState = this::throttleIgnoreWindow;
+        this.streamState = STREAM_BEFORE_BEGIN;
+        this.throttleState = THROTTLE_IGNORE_WINDOW;
         this.acceptThrottle = acceptThrottle;
         this.acceptId = acceptId;
         this.acceptRef = acceptRef;
         this.acceptCorrelationId = acceptCorrelationId;
         this.acceptName = acceptName;
-        this.temporarySlot = new UnsafeBuffer(ByteBuffer.allocateDirect(factory.bufferPool.slotCapacity()));
         this.maximumHeadersSize = factory.bufferPool.slotCapacity();
+        this.throttle = this::handleThrottle;
     }
 
     @Override
     public void accept(int msgTypeId, DirectBuffer buffer, int index, int length)
     {
-        streamState.accept(msgTypeId, buffer, index, length);
+        switch (streamState)
+        {
+        case STREAM_BEFORE_BEGIN:
+            streamBeforeBegin(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_AFTER_BEGIN_OR_DATA:
+            streamAfterBeginOrData(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_WITH_DEFERRED_DATA:
+            streamWithDeferredData(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_BEFORE_END:
+            streamBeforeEnd(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_AFTER_END:
+            streamAfterEnd(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_AFTER_RESET:
+            streamAfterReset(msgTypeId, buffer, index, length);
+            break;
+        }
     }
 
     private void streamBeforeBegin(
@@ -208,7 +246,7 @@ final class ServerAcceptStream implements MessageConsumer
         else if (msgTypeId == EndFW.TYPE_ID)
         {
             factory.endRO.wrap(buffer, index, index + length);
-            this.streamState = this::streamAfterEnd;
+            this.streamState = STREAM_AFTER_END;
         }
     }
 
@@ -228,18 +266,18 @@ final class ServerAcceptStream implements MessageConsumer
     {
         factory.writer.doReset(acceptThrottle, streamId);
 
-        this.streamState = this::streamAfterReset;
+        this.streamState = STREAM_AFTER_RESET;
     }
 
     private void processInvalidRequest(int status, String message)
     {
-        this.decoderState = this::decodeSkipData;
-        this.streamState = this::streamAfterReset;
+        this.decoderState = DECODE_SKIP_DATA;
+        this.streamState = STREAM_AFTER_RESET;
         releaseSlotIfNecessary();
         if (targetBeginIssued)
         {
             // Drain data from source before resetting to allow its writes to complete
-            throttleState = ServerAcceptStream.this::throttlePropagateWindow;
+            throttleState = THROTTLE_PROPAGATE_WINDOW;
             doSourceWindow(maximumHeadersSize);
 
             // We can't write back an HTTP error response because we already forwarded the request to the target
@@ -263,6 +301,21 @@ final class ServerAcceptStream implements MessageConsumer
     }
 
     private void writeErrorResponse(int status, String message)
+    {
+        final ServerAcceptState state = correlation.state();
+        if (state.pendingRequests > 0)
+        {
+            // write the error response in order, after responses to earlier pipelined requests
+            state.persistent = false;
+            state.afterResponses = () -> doErrorResponse(status, message);
+        }
+        else
+        {
+            doErrorResponse(status, message);
+        }
+    }
+
+    private void doErrorResponse(int status, String message)
     {
         long serverAcceptReplyStreamId = correlation.state().replyStreamId;
         switchTarget(acceptName, serverAcceptReplyStreamId);
@@ -281,43 +334,14 @@ final class ServerAcceptStream implements MessageConsumer
         }
         if (writableBytes < payload.capacity())
         {
-            this.throttleState = new MessageConsumer()
-            {
-                int offset = writableBytes;
-
-                @Override
-                public void accept(int msgTypeId, DirectBuffer buffer, int index, int length)
-                {
-                    switch (msgTypeId)
-                    {
-                    case WindowFW.TYPE_ID:
-                        WindowFW window = factory.windowRO.wrap(buffer, index, index + length);
-                        int update = window.update();
-                        int writableBytes = Math.min(update, payload.capacity() - offset);
-                        ServerAcceptStream.this.factory.writer.doData(target, targetId, payload, offset, writableBytes);
-                        offset += writableBytes;
-                        if (offset == payload.capacity())
-                        {
-                            // Drain data from source before resetting to allow its writes to complete
-                            throttleState = ServerAcceptStream.this::throttlePropagateWindow;
-                            doSourceWindow(ServerAcceptStream.this.maximumHeadersSize);
-                            ServerAcceptStream.this.factory.writer.doReset(acceptThrottle, acceptId);
-                        }
-                        break;
-                    case ResetFW.TYPE_ID:
-                        processReset(buffer, index, length);
-                        break;
-                    default:
-                        // ignore
-                        break;
-                    }
-                }
-            };
+            this.errorResponse = payload;
+            this.errorResponseOffset = writableBytes;
+            this.throttleState = THROTTLE_FOR_ERROR_RESPONSE;
         }
         else
         {
             // Drain data from source before resetting to allow its writes to complete
-            throttleState = ServerAcceptStream.this::throttlePropagateWindow;
+            throttleState = THROTTLE_PROPAGATE_WINDOW;
             doSourceWindow(maximumHeadersSize);
             factory.writer.doReset(acceptThrottle, acceptId);
         }
@@ -328,14 +352,14 @@ final class ServerAcceptStream implements MessageConsumer
         int index,
         int length)
     {
-        this.streamState = this::streamAfterBeginOrData;
-        this.decoderState = this::decodeBeforeHttpBegin;
+        this.streamState = STREAM_AFTER_BEGIN_OR_DATA;
+        this.decoderState = DECODE_BEFORE_HTTP_BEGIN;
 
         // Proactively issue BEGIN on server accept reply since we only support bidirectional transport
         long replyStreamId = factory.supplyStreamId.getAsLong();
         final MessageConsumer acceptReply = factory.router.supplyTarget(acceptName);
         ServerAcceptState state = new ServerAcceptState(acceptName, replyStreamId, acceptReply, factory.writer,
-                 this::loopBackThrottle, factory.router);
+                 this::loopBackThrottle, factory.router, factory.maximumPipelinedRequests, this::resumeRequests);
         factory.writer.doBegin(acceptReply, replyStreamId, 0L, acceptCorrelationId);
         this.correlation = new Correlation<>(acceptCorrelationId, acceptName, state);
 
@@ -375,7 +399,7 @@ final class ServerAcceptStream implements MessageConsumer
                 }
                 else
                 {
-                    streamState = this::streamWithDeferredData;
+                    streamState = STREAM_WITH_DEFERRED_DATA;
                     deferAndProcessData(buffer, offset, limit);
                 }
             }
@@ -384,16 +408,44 @@ final class ServerAcceptStream implements MessageConsumer
 
     private int decode(DirectBuffer buffer, int offset, int limit)
     {
-        boolean decoderStateChanged = true;
-        while (offset < limit && decoderStateChanged)
+        boolean decoderProgressed = true;
+        while (offset < limit && decoderProgressed)
         {
-            DecoderState previous = decoderState;
-            offset = decoderState.decode(buffer, offset, limit);
-            decoderStateChanged = previous != decoderState;
+            final int previousState = decoderState;
+            final int previousOffset = offset;
+            offset = decode(decoderState, buffer, offset, limit);
+            decoderProgressed = previousState != decoderState || previousOffset != offset;
         }
         return offset;
     }
 
+    private int decode(int decoderState, DirectBuffer buffer, int offset, int limit)
+    {
+        switch (decoderState)
+        {
+        case DECODE_BEFORE_HTTP_BEGIN:
+            return decodeBeforeHttpBegin(buffer, offset, limit);
+        case DECODE_HTTP_BEGIN:
+            return decodeHttpBegin(buffer, offset, limit);
+        case DECODE_HTTP_DATA:
+            return decodeHttpData(buffer, offset, limit);
+        case DECODE_HTTP_CHUNK:
+            return decodeHttpChunk(buffer, offset, limit);
+        case DECODE_HTTP_CHUNK_DATA:
+            return decodeHttpChunkData(buffer, offset, limit);
+        case DECODE_HTTP_CHUNK_END:
+            return decodeHttpChunkEnd(buffer, offset, limit);
+        case DECODE_HTTP_CHUNK_TRAILERS:
+            return decodeHttpChunkTrailers(buffer, offset, limit);
+        case DECODE_HTTP_DATA_AFTER_UPGRADE:
+            return decodeHttpDataAfterUpgrade(buffer, offset, limit);
+        case DECODE_SKIP_DATA:
+            return decodeSkipData(buffer, offset, limit);
+        default:
+            return offset;
+        }
+    }
+
     private void processEnd(
         DirectBuffer buffer,
         int index,
@@ -407,8 +459,8 @@ final class ServerAcceptStream implements MessageConsumer
 
     private void doEnd()
     {
-        decoderState = (b, o, l) -> o;
-        streamState = this::streamAfterEnd;
+        decoderState = DECODE_NONE;
+        streamState = STREAM_AFTER_END;
 
         releaseSlotIfNecessary();
 
@@ -453,7 +505,7 @@ final class ServerAcceptStream implements MessageConsumer
             // Increase source window to ensure we can receive the largest possible amount of data we can factory.slab
             int cachedBytes = slotPosition - slotOffset;
             ensureSourceWindow(factory.bufferPool.slotCapacity() - cachedBytes);
-            if (window == 0)
+            if (window == 0 && !correlation.state().isPipelineFull())
             {
                 throw new IllegalStateException("Decoder failed to detect headers or chunk too long");
             }
@@ -468,7 +520,7 @@ final class ServerAcceptStream implements MessageConsumer
         if (slotOffset == slotPosition)
         {
             releaseSlotIfNecessary();
-            streamState = this::streamAfterBeginOrData;
+            streamState = STREAM_AFTER_BEGIN_OR_DATA;
             if (endDeferred)
             {
                 doEnd();
@@ -492,8 +544,8 @@ final class ServerAcceptStream implements MessageConsumer
     {
         int dataLength = slotPosition - slotOffset;
         MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
-        temporarySlot.putBytes(0, slot, slotOffset, dataLength);
-        slot.putBytes(0, temporarySlot, 0, dataLength);
+        // overlapping move towards the start of the slot, copyMemory has memmove semantics
+        slot.putBytes(0, slot, slotOffset, dataLength);
         slotOffset = 0;
         slotPosition = dataLength;
     }
@@ -504,7 +556,7 @@ final class ServerAcceptStream implements MessageConsumer
             final int limit)
     {
         int result = limit;
-        final int endOfHeadersAt = limitOfBytes(payload, offset, limit, ServerStreamFactory.CRLFCRLF_BYTES);
+        final int endOfHeadersAt = headScanner.limitOfHead(payload, offset, limit);
         if (endOfHeadersAt == -1)
         {
             // Incomplete request, signal we can't consume the data
@@ -513,19 +565,15 @@ final class ServerAcceptStream implements MessageConsumer
             int length = limit - offset;
             int firstSpaceCheckLimit = Math.min(offset + 1 + ServerStreamFactory.MAXIMUM_METHOD_BYTES, limit);
             int firstSpace = limitOfBytes(payload, offset, firstSpaceCheckLimit, ServerStreamFactory.SPACE);
-            if (firstSpace != -1)
+            if (firstSpace != -1 && StandardMethods.parse(payload, offset, firstSpace - 1 - offset) == null)
             {
-                String method = payload.getStringWithoutLengthUtf8(offset, length).split("\\s+")[0];
-                if (StandardMethods.parse(method) == null)
-                {
-                    processInvalidRequest(501, "Not Implemented");
-                }
+                processInvalidRequest(501, "Not Implemented");
             }
-            else  if (firstSpace == -1 && length > ServerStreamFactory.MAXIMUM_METHOD_BYTES)
+            else if (firstSpace == -1 && length > ServerStreamFactory.MAXIMUM_METHOD_BYTES)
             {
                 processInvalidRequest(400, "Bad Request");
             }
-            if (length >= maximumHeadersSize)
+            else if (length >= maximumHeadersSize)
             {
                 int firstCRLF = limitOfBytes(payload, offset, limit, ServerStreamFactory.CRLF_BYTES);
                 if (firstCRLF == -1 || firstCRLF > maximumHeadersSize)
@@ -553,7 +601,11 @@ final class ServerAcceptStream implements MessageConsumer
     {
         int length = limit - offset;
         int result = offset;
-        if (payload.getByte(offset) == '\r')
+        if (correlation.state().isPipelineFull())
+        {
+            // wait for a response to complete before decoding the next pipelined request
+        }
+        else if (payload.getByte(offset) == '\r')
         {
             if (length > 1 && payload.getByte(offset+1) == '\n')
             {
@@ -563,7 +615,7 @@ final class ServerAcceptStream implements MessageConsumer
         }
         else
         {
-            decoderState = this::decodeHttpBegin;
+            decoderState = DECODE_HTTP_BEGIN;
         }
         return result;
     };
@@ -573,205 +625,129 @@ final class ServerAcceptStream implements MessageConsumer
         final int offset,
         final int length)
     {
-        // TODO: replace with lightweight approach (start)
-        String[] lines = payload.getStringWithoutLengthUtf8(offset, length).split("\r\n");
-        String[] start = lines[0].split("\\s+");
+        final HttpRequestParser request = factory.requestParser;
 
-        if (start.length != 3)
+        if (!request.parse(payload, offset, offset + length))
         {
-            processInvalidRequest(400, "Bad Request");
-            return;
+            processInvalidRequest(request.httpStatus.status, request.httpStatus.message);
         }
-
-        Pattern versionPattern = Pattern.compile("HTTP/1\\.(\\d)");
-        Matcher versionMatcher = versionPattern.matcher(start[2]);
-        if (!versionMatcher.matches())
+        else if (!request.hasAuthority() || request.userInfo)
         {
-            Pattern validVersionPattern = Pattern.compile("HTTP/(\\d)\\.(\\d)");
-            Matcher validVersionMatcher = validVersionPattern.matcher(start[2]);
-            if (validVersionMatcher.matches())
-            {
-                processInvalidRequest(505, "HTTP Version Not Supported");
-            }
-            else
-            {
-                processInvalidRequest(400, "Bad Request");
-            }
-        }
-        else if (null == StandardMethods.parse(start[0]))
-        {
-            processInvalidRequest(501, "Not Implemented");
+            processInvalidRequest(400, "Bad Request");
         }
         else
         {
-            final URI requestURI = URI.create(start[1]);
-
-            httpStatus.reset();
-            final Map<String, String> headers = decodeHttpHeaders(start, lines, requestURI, httpStatus);
+            final HttpHeaderBlock headers = decodeHttpHeaders(request, factory.headerBlock);
+            contentRemaining = request.contentLength;
+            isChunkedTransfer = request.chunked;
 
-            // TODO: replace with lightweight approach (end)
-
-            if (httpStatus.status != 200)
-            {
-                processInvalidRequest(httpStatus.status, httpStatus.message);
-            }
-            else if (headers.get(":authority") == null || requestURI.getUserInfo() != null)
+            final RouteFW route = factory.routes.resolve(acceptName, acceptRef, request);
+            if (route != null)
             {
-                processInvalidRequest(400, "Bad Request");
-            }
-            else
-            {
-                final RouteFW route = resolveTarget(acceptRef, headers);
-                if (route != null)
+                final String newTarget = route.target().asString();
+                final long targetRef = route.targetRef();
+                final long newTargetId = factory.supplyStreamId.getAsLong();
+
+                long newTargetCorrelationId = factory.supplyCorrelationId.getAsLong();
+                factory.correlations.put(newTargetCorrelationId, correlation);
+                final int acceptedCodings = factory.contentEncoder != null ? acceptedCodings(request) : 0;
+                correlation.state().onRequest(newTargetCorrelationId, request.method, acceptedCodings);
+
+                availableTargetWindow = 0;
+                switchTarget(newTarget, newTargetId);
+                factory.writer.doHttpBegin(target, newTargetId, targetRef, newTargetCorrelationId, headers);
+                targetBeginIssued = true;
+
+                hasUpgrade = request.upgrade;
+                if (request.connectionClose)
                 {
-
-                    final String newTarget = route.target().asString();
-                    final long targetRef = route.targetRef();
-                    final long newTargetId = factory.supplyStreamId.getAsLong();
-
-                    long newTargetCorrelationId = factory.supplyCorrelationId.getAsLong();
-                    factory.correlations.put(newTargetCorrelationId, correlation);
-                    correlation.state().pendingRequests++;
-
-                    availableTargetWindow = 0;
-                    switchTarget(newTarget, newTargetId);
-                    factory.writer.doHttpBegin(target, newTargetId, targetRef, newTargetCorrelationId,
-                            hs -> headers.forEach((k, v) -> hs.item(i -> i.name(k).value(v))));
-                    targetBeginIssued = true;
-
-                    hasUpgrade = headers.containsKey("upgrade");
-                    String connectionOptions = headers.get("connection");
-                    if (connectionOptions != null)
-                    {
-                        Arrays.asList(connectionOptions.toLowerCase().split(",")).stream().forEach((element) ->
-                        {
-                            if (element.equals("close"))
-                            {
-                                correlation.state().persistent = false;
-                            }
-                        });
-                    }
-                    if (hasUpgrade)
-                    {
-                        // TODO: wait for 101 first
-                        decoderState = this::decodeHttpDataAfterUpgrade;
-                        throttleState = this::throttleForHttpDataAfterUpgrade;
-                        correlation.state().persistent = false;
-                    }
-                    else if (contentRemaining > 0)
-                    {
-                        decoderState = this::decodeHttpData;
-                        throttleState = this::throttleForHttpData;
-                    }
-                    else if (isChunkedTransfer)
-                    {
-                        decoderState = this::decodeHttpChunk;
-                        throttleState = this::throttleForHttpData;
-                    }
-                    else
-                    {
-                        // no content
-                        httpRequestComplete();
-                    }
+                    correlation.state().persistent = false;
+                }
+                if (hasUpgrade)
+                {
+                    // TODO: wait for 101 first
+                    decoderState = DECODE_HTTP_DATA_AFTER_UPGRADE;
+                    throttleState = THROTTLE_FOR_HTTP_DATA_AFTER_UPGRADE;
+                    correlation.state().persistent = false;
+                }
+                else if (contentRemaining > 0)
+                {
+                    decoderState = DECODE_HTTP_DATA;
+                    throttleState = THROTTLE_FOR_HTTP_DATA;
+                }
+                else if (isChunkedTransfer)
+                {
+                    decoderState = DECODE_HTTP_CHUNK;
+                    throttleState = THROTTLE_FOR_HTTP_DATA;
                 }
                 else
                 {
-                    processInvalidRequest(404, "Not Found");
+                    // no content
+                    httpRequestComplete();
                 }
             }
+            else
+            {
+                processInvalidRequest(404, "Not Found");
+            }
         }
     }
 
-    private Map<String, String> decodeHttpHeaders(
-        String[] start,
-        String[] lines,
-        URI requestURI,
-        HttpStatus httpStatus)
+    private static HttpHeaderBlock decodeHttpHeaders(
+        HttpRequestParser request,
+        HttpHeaderBlock headers)
     {
-        String authority = requestURI.getAuthority();
+        final DirectBuffer values = request.valueBuffer();
+        final DirectBuffer names = request.nameBuffer();
 
-        final Map<String, String> headers = new LinkedHashMap<>();
-        headers.put(":scheme", "http");            headers.put(":method", start[0]);
-        headers.put(":path", requestURI.getRawPath());
+        headers.reset()
+               .header(SCHEME_NAME, SCHEME_HTTP)
+               .header(METHOD_NAME, request.method.buffer)
+               .header(PATH_NAME, 0, PATH_NAME.capacity(), values, request.pathOffset, request.pathLength);
 
-        if (authority != null)
+        if (request.hasTargetAuthority())
         {
-            headers.put(":authority", authority);
+            headers.header(AUTHORITY_NAME, 0, AUTHORITY_NAME.capacity(),
+                           values, request.authorityOffset, request.authorityLength);
         }
 
-        Pattern headerPattern = Pattern.compile("([^\\s:]+):\\s*(.*)");
-        boolean contentLengthFound = false;
-        contentRemaining = 0;
-        isChunkedTransfer = false;
-        for (int i = 1; i < lines.length; i++)
+        for (int field = 0; field < request.fieldCount(); field++)
         {
-            Matcher headerMatcher = headerPattern.matcher(lines[i]);
-            if (!headerMatcher.matches())
-            {
-                httpStatus.status = 400;
-                httpStatus.message = "Bad Request";
-                if (lines[i].startsWith(" "))
-                {
-                    httpStatus.message = "Bad Request - obsolete line folding not supported";
-                }
-                break;
-            }
-
-            String name = headerMatcher.group(1).toLowerCase();
-            String value = headerMatcher.group(2);
-
             // rfc7230#section-5.5
-            if ("host".equals(name))
+            if (!request.isHost(field))
             {
-                if (authority == null)
-                {
-                    headers.put(":authority", value);
-                }
+                headers.header(names, request.nameOffset(field), request.nameLength(field),
+                               values, request.valueOffset(field), request.valueLength(field));
             }
-            else if ("transfer-encoding".equals(name))
+            else if (field == request.hostField && !request.hasTargetAuthority())
             {
-                if (contentLengthFound)
-                {
-                    httpStatus.status = 400;
-                    httpStatus.message = "Bad Request";
-                }
-                else if (!"chunked".equals(value))
-                {
-                    // TODO: support other transfer encodings
-                    httpStatus.status = 501;
-                    httpStatus.message = "Unsupported transfer-encoding " + value;
-                    break;
-                }
-                else
-                {
-                    isChunkedTransfer = true;
-                    headers.put(name, value);
-                }
-
-            }
-            else if ("content-length".equals(name))
-            {
-                if (contentLengthFound || isChunkedTransfer)
-                {
-                    httpStatus.status = 400;
-                    httpStatus.message = "Bad Request";
-                }
-                else
-                {
-                    contentRemaining = parseInt(value);
-                    contentLengthFound = true;
-                    headers.put(name, value);
-                }
-            }
-            else
-            {
-                headers.put(name, value);
+                headers.header(AUTHORITY_NAME, 0, AUTHORITY_NAME.capacity(),
+                               values, request.valueOffset(field), request.valueLength(field));
             }
         }
 
         return headers;
     }
 
+    private static int acceptedCodings(
+        HttpRequestParser request)
+    {
+        final DirectBuffer values = request.valueBuffer();
+        final DirectBuffer names = request.nameBuffer();
+
+        int acceptedCodings = 0;
+        for (int field = 0; field < request.fieldCount(); field++)
+        {
+            if (HttpHeadParser.equalsIgnoreCase(names, request.nameOffset(field), request.nameLength(field), ACCEPT_ENCODING))
+            {
+                final int valueOffset = request.valueOffset(field);
+                acceptedCodings |= HttpContentEncoder.acceptedCodings(values, valueOffset,
+                        valueOffset + request.valueLength(field));
+            }
+        }
+        return acceptedCodings;
+    }
+
     private int decodeHttpData(
             final DirectBuffer payload,
             final int offset,
@@ -812,27 +788,21 @@ final class ServerAcceptStream implements MessageConsumer
         }
         else
         {
-            final int colonAt = limitOfBytes(payload, offset, chunkHeaderLimit, ServerStreamFactory.SEMICOLON_BYTES);
-            final int chunkSizeLimit = colonAt == -1 ? chunkHeaderLimit - 2 : colonAt - 1;
-            final int chunkSizeLength = chunkSizeLimit - offset;
-
-            try
-            {
-                final String chunkSizeHex = payload.getStringWithoutLengthUtf8(offset, chunkSizeLength);
-                chunkSizeRemaining = Integer.parseInt(chunkSizeHex, 16);
-            }
-            catch (NumberFormatException ex)
+            final int chunkSize = HttpChunkParser.chunkSize(payload, offset,
+                    chunkHeaderLimit - ServerStreamFactory.CRLF_BYTES.length);
+            if (chunkSize == HttpChunkParser.CHUNK_SIZE_INVALID)
             {
                 processInvalidRequest(400,  "Bad Request");
             }
-
-            if (chunkSizeRemaining == 0)
+            else if (chunkSize == 0)
             {
-                httpRequestComplete();
+                decoderState = DECODE_HTTP_CHUNK_TRAILERS;
+                result = chunkHeaderLimit;
             }
             else
             {
-                decoderState = this::decodeHttpChunkData;
+                chunkSizeRemaining = chunkSize;
+                decoderState = DECODE_HTTP_CHUNK_DATA;
                 result = chunkHeaderLimit;
             }
         }
@@ -856,13 +826,54 @@ final class ServerAcceptStream implements MessageConsumer
             }
             else
             {
-                decoderState = this::decodeHttpChunk;
+                decoderState = DECODE_HTTP_CHUNK;
                 result = offset + 2;
             }
         }
         return result;
     };
 
+    private int decodeHttpChunkTrailers(
+            final DirectBuffer payload,
+            final int offset,
+            final int limit)
+    {
+        int result = offset;
+        if (limit - offset > 1 && payload.getByte(offset) == '\r' && payload.getByte(offset + 1) == '\n')
+        {
+            httpRequestComplete();
+            result = offset + ServerStreamFactory.CRLF_BYTES.length;
+        }
+        else
+        {
+            final int trailersLimit = limitOfBytes(payload, offset, limit, ServerStreamFactory.CRLFCRLF_BYTES);
+            if (trailersLimit == -1)
+            {
+                if (limit - offset >= maximumHeadersSize)
+                {
+                    processInvalidRequest(400, "Bad Request");
+                    result = limit;
+                }
+                else
+                {
+                    ensureSourceWindow(maximumHeadersSize - (limit - offset));
+                }
+            }
+            else if (!factory.chunkParser.parseTrailers(payload, offset, trailersLimit))
+            {
+                processInvalidRequest(400, "Bad Request");
+                result = limit;
+            }
+            else
+            {
+                factory.writer.doHttpEnd(target, targetId, factory.chunkParser.trailers(factory.headerBlock));
+                httpRequestEnded();
+                result = trailersLimit;
+            }
+        }
+        return result;
+    };
+
     private int decodeHttpChunkData(
             final DirectBuffer payload,
             final int offset,
@@ -885,7 +896,7 @@ final class ServerAcceptStream implements MessageConsumer
 
         if (chunkSizeRemaining == 0)
         {
-            decoderState = this::decodeHttpChunkEnd;
+            decoderState = DECODE_HTTP_CHUNK_END;
         }
         return result;
     }
@@ -913,56 +924,45 @@ final class ServerAcceptStream implements MessageConsumer
         return limit;
     };
 
-    @SuppressWarnings("unused")
-    private int decodeHttpEnd(
-            final DirectBuffer payload,
-            final int offset,
-            final int limit)
+    private void httpRequestComplete()
     {
-        // TODO: consider chunks, trailers
         factory.writer.doHttpEnd(target, targetId);
-        return limit;
-    };
+        httpRequestEnded();
+    }
 
-    private void httpRequestComplete()
+    private void httpRequestEnded()
     {
-        factory.writer.doHttpEnd(target, targetId);
         // TODO: target.removeThrottle(targetId);
-        decoderState = this::decodeBeforeHttpBegin;
-        throttleState = this::throttleIgnoreWindow;
+        decoderState = DECODE_BEFORE_HTTP_BEGIN;
+        throttleState = THROTTLE_IGNORE_WINDOW;
 
         if (correlation.state().persistent)
         {
-            this.streamState = this::streamAfterBeginOrData;
-            this.decoderState = this::decodeBeforeHttpBegin;
+            this.streamState = STREAM_AFTER_BEGIN_OR_DATA;
+            this.decoderState = DECODE_BEFORE_HTTP_BEGIN;
             ensureSourceWindow(maximumHeadersSize);
         }
         else
         {
-            this.streamState = this::streamBeforeEnd;
+            this.streamState = STREAM_BEFORE_END;
         }
     }
 
-    private RouteFW resolveTarget(
-        long sourceRef,
-        Map<String, String> headers)
+    private void resumeRequests()
     {
-        final MessagePredicate filter = (t, b, o, l) ->
+        if (streamState == STREAM_WITH_DEFERRED_DATA && decoderState == DECODE_BEFORE_HTTP_BEGIN)
         {
-            final RouteFW route = factory.routeRO.wrap(b, o, l);
-            final OctetsFW extension = route.extension();
-            boolean headersMatch = true;
-            if (extension.sizeof() > 0)
+            processDeferredData();
+
+            if (slotIndex != NO_SLOT)
             {
-                final HttpRouteExFW routeEx = extension.get(factory.routeExRO::wrap);
-                headersMatch = routeEx.headers().anyMatch(
-                        h -> !Objects.equals(h.value(), headers.get(h.name())));
+                ensureSourceWindow(factory.bufferPool.slotCapacity() - (slotPosition - slotOffset));
             }
-            return route.sourceRef() == sourceRef && headersMatch;
-        };
-
-        return factory.router.resolve(filter, (msgTypeId, buffer, index, length) ->
-            factory.routeRO.wrap(buffer, index, index + length));
+            else if (streamState == STREAM_AFTER_BEGIN_OR_DATA)
+            {
+                ensureSourceWindow(maximumHeadersSize);
+            }
+        }
     }
 
     private void handleThrottle(
@@ -976,7 +976,24 @@ final class ServerAcceptStream implements MessageConsumer
         long streamId = frame.streamId();
         if (streamId == targetId)
         {
-            throttleState.accept(msgTypeId, buffer, index, length);
+            switch (throttleState)
+            {
+            case THROTTLE_IGNORE_WINDOW:
+                throttleIgnoreWindow(msgTypeId, buffer, index, length);
+                break;
+            case THROTTLE_FOR_HTTP_DATA:
+                throttleForHttpData(msgTypeId, buffer, index, length);
+                break;
+            case THROTTLE_FOR_HTTP_DATA_AFTER_UPGRADE:
+                throttleForHttpDataAfterUpgrade(msgTypeId, buffer, index, length);
+                break;
+            case THROTTLE_PROPAGATE_WINDOW:
+                throttlePropagateWindow(msgTypeId, buffer, index, length);
+                break;
+            case THROTTLE_FOR_ERROR_RESPONSE:
+                throttleForErrorResponse(msgTypeId, buffer, index, length);
+                break;
+            }
         }
     }
 
@@ -1037,6 +1054,37 @@ final class ServerAcceptStream implements MessageConsumer
         }
     }
 
+    private void throttleForErrorResponse(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        switch (msgTypeId)
+        {
+        case WindowFW.TYPE_ID:
+            WindowFW window = factory.windowRO.wrap(buffer, index, index + length);
+            int update = window.update();
+            int writableBytes = Math.min(update, errorResponse.capacity() - errorResponseOffset);
+            factory.writer.doData(target, targetId, errorResponse, errorResponseOffset, writableBytes);
+            errorResponseOffset += writableBytes;
+            if (errorResponseOffset == errorResponse.capacity())
+            {
+                // Drain data from source before resetting to allow its writes to complete
+                throttleState = THROTTLE_PROPAGATE_WINDOW;
+                doSourceWindow(maximumHeadersSize);
+                factory.writer.doReset(acceptThrottle, acceptId);
+            }
+            break;
+        case ResetFW.TYPE_ID:
+            processReset(buffer, index, length);
+            break;
+        default:
+            // ignore
+            break;
+        }
+    }
+
     private void throttlePropagateWindow(
         int msgTypeId,
         DirectBuffer buffer,
@@ -1107,7 +1155,7 @@ final class ServerAcceptStream implements MessageConsumer
             if (this.window == availableTargetWindow)
             {
                 // Windows are now aligned
-                throttleState = this::throttlePropagateWindow;
+                throttleState = THROTTLE_PROPAGATE_WINDOW;
             }
         }
     }
@@ -1156,7 +1204,7 @@ final class ServerAcceptStream implements MessageConsumer
         targetId = newTargetId;
         targetName = newTargetName;
         targetBeginIssued = false;
-        factory.router.setThrottle(targetName, newTargetId, this::handleThrottle);
-        throttleState = this::throttleIgnoreWindow;
+        factory.router.setThrottle(targetName, newTargetId, throttle);
+        throttleState = THROTTLE_IGNORE_WINDOW;
     }
 }
\ No newline at end of file
@@ -17,47 +17,63 @@ package org.reaktivity.nukleus.http.internal.stream;
 
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
-import static org.reaktivity.nukleus.http.internal.util.HttpUtil.appendHeader;
-
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import static org.reaktivity.nukleus.http.internal.stream.HttpHeadEncoder.TRANSFER_ENCODING_CHUNKED_CRLF;
+import static org.reaktivity.nukleus.http.internal.stream.ServerStreamFactory.CRLF_BYTES;
+import static org.reaktivity.nukleus.http.internal.stream.ServerStreamFactory.StandardMethods.CONNECT;
+import static org.reaktivity.nukleus.http.internal.stream.ServerStreamFactory.StandardMethods.HEAD;
 
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.http.internal.stream.ServerStreamFactory.StandardMethods;
+import org.reaktivity.nukleus.http.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http.internal.types.ListFW;
 import org.reaktivity.nukleus.http.internal.types.OctetsFW;
 import org.reaktivity.nukleus.http.internal.types.stream.BeginFW;
 import org.reaktivity.nukleus.http.internal.types.stream.DataFW;
 import org.reaktivity.nukleus.http.internal.types.stream.EndFW;
 import org.reaktivity.nukleus.http.internal.types.stream.FrameFW;
-import org.reaktivity.nukleus.http.internal.types.stream.HttpBeginExFW;
 import org.reaktivity.nukleus.http.internal.types.stream.ResetFW;
 import org.reaktivity.nukleus.http.internal.types.stream.WindowFW;
 
 public final class ServerConnectReplyStream implements MessageConsumer
 {
-    private static final Map<String, String> EMPTY_HEADERS = Collections.emptyMap();
+    private static final int STREAM_BEFORE_BEGIN = 0;
+    private static final int STREAM_AFTER_BEGIN_OR_DATA = 1;
+    private static final int STREAM_AFTER_END = 2;
+    private static final int STREAM_AFTER_REJECT_OR_RESET = 3;
 
     public static final byte[] RESPONSE_HEADERS_TOO_LONG_RESPONSE =
             "HTTP/1.1 507 Insufficient Storage\r\n\r\n".getBytes(US_ASCII);
 
+    // space kept free in the slot for the header field inserted when a buffered response ends or overflows
+    private static final int BUFFERED_RESPONSE_RESERVE = Math.max(TRANSFER_ENCODING_CHUNKED_CRLF.length,
+            HttpHeadEncoder.contentLengthFieldLength(Integer.MAX_VALUE)) + HttpHeadEncoder.LAST_CHUNK_LENGTH;
+
     private final ServerStreamFactory factory;
     private final MessageConsumer connectReplyThrottle;
     private final long connectReplyId;
     private final String connectReplyName;
 
-    private MessageConsumer streamState;
-    private MessageConsumer throttleState;
+    private final MessageConsumer throttle;
+
+    private int streamState;
 
     private ServerAcceptState acceptState;
+    private boolean responding;
 
-    private int slotIndex;
+    private int slotIndex = NO_SLOT;
     private int slotPosition;
     private int slotOffset;
+    private int sourceWindow;
     private boolean endDeferred;
 
-
+    private boolean chunked;
+    private int headLimit;
+    private int headRemaining;
+    private int lastChunkLength;
+    private int bufferThreshold;
+    private HttpContentEncoder.Encoding encoding;
 
     public ServerConnectReplyStream(
         ServerStreamFactory factory,
@@ -70,26 +86,51 @@ public final class ServerConnectReplyStream implements MessageConsumer
         this.connectReplyId = connectReplyId;
         this.connectReplyName = connectReplyName;
 
-        this.streamState = this::streamBeforeBegin;
-        this.throttleState = this::throttleBeforeBegin;
+        this.streamState = STREAM_BEFORE_BEGIN;
+        this.throttle = this::handleThrottle;
     }
 
     @Override
     public void accept(int msgTypeId, DirectBuffer buffer, int index, int length)
     {
-        streamState.accept(msgTypeId, buffer, index, length);
+        switch (streamState)
+        {
+        case STREAM_BEFORE_BEGIN:
+            streamBeforeBegin(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_AFTER_BEGIN_OR_DATA:
+            streamAfterBeginOrData(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_AFTER_END:
+            streamAfterEnd(msgTypeId, buffer, index, length);
+            break;
+        case STREAM_AFTER_REJECT_OR_RESET:
+            streamAfterRejectOrReset(msgTypeId, buffer, index, length);
+            break;
+        }
     }
 
     public void handleThrottle(int msgTypeId, DirectBuffer buffer, int index, int length)
     {
-        throttleState.accept(msgTypeId, buffer, index, length);
+        switch (msgTypeId)
+        {
+        case WindowFW.TYPE_ID:
+            processWindow(buffer, index, length);
+            break;
+        case ResetFW.TYPE_ID:
+            processReset(buffer, index, length);
+            break;
+        default:
+            // ignore
+            break;
+        }
     }
 
     @Override
     public String toString()
     {
-        return String.format("%s[source=%s, connectReplyId=%016x, window=%d, targetStream=%s]",
-                getClass().getSimpleName(), connectReplyName, connectReplyId, acceptState);
+        return String.format("%s[source=%s, connectReplyId=%016x, sourceWindow=%d, targetStream=%s]",
+                getClass().getSimpleName(), connectReplyName, connectReplyId, sourceWindow, acceptState);
     }
 
     private void streamBeforeBegin(
@@ -108,24 +149,6 @@ public final class ServerConnectReplyStream implements MessageConsumer
         }
     }
 
-    private void streamBeforeHeadersWritten(
-        int msgTypeId,
-        DirectBuffer buffer,
-        int index,
-        int length)
-    {
-        switch (msgTypeId)
-        {
-        case EndFW.TYPE_ID:
-            endDeferred = true;
-            break;
-        default:
-            factory.bufferPool.release(slotIndex);
-            processUnexpected(buffer, index, length);
-            break;
-        }
-    }
-
     private void streamAfterBeginOrData(
         int msgTypeId,
         DirectBuffer buffer,
@@ -169,7 +192,7 @@ public final class ServerConnectReplyStream implements MessageConsumer
         }
         else if (msgTypeId == EndFW.TYPE_ID)
         {
-            this.streamState = this::streamAfterEnd;
+            this.streamState = STREAM_AFTER_END;
         }
     }
 
@@ -178,7 +201,7 @@ public final class ServerConnectReplyStream implements MessageConsumer
         int index,
         int length)
     {
-        BeginFW begin =factory.beginRO.wrap(buffer, index, index + length);
+        BeginFW begin = factory.beginRO.wrap(buffer, index, index + length);
 
         final long sourceRef = begin.sourceRef();
         final long targetCorrelationId = begin.correlationId();
@@ -192,70 +215,51 @@ public final class ServerConnectReplyStream implements MessageConsumer
         {
             acceptState = correlation.state();
 
-            Map<String, String> headers = EMPTY_HEADERS;
-            if (extension.sizeof() > 0)
-            {
-                final HttpBeginExFW beginEx = extension.get(factory.beginExRO::wrap);
-                Map<String, String> headers0 = new LinkedHashMap<>();
-                beginEx.headers().forEach(h -> headers0.put(h.name().asString(), h.value().asString()));
-                headers = headers0;
-            }
-
-            acceptState.setThrottle.accept(this::handleThrottle);
-
-            // default status (and reason)
-            String[] status = new String[] { "200", "OK" };
-
-            StringBuilder headersChars = new StringBuilder();
-            headers.forEach((name, value) ->
-            {
-                if (":status".equals(name))
-                {
-                    status[0] = value;
-                    if ("101".equals(status[0]))
-                    {
-                        status[1] = "Switching Protocols";
-                    }
-                }
-                else
-                {
-                    appendHeader(headersChars, name, value);
-                }
-            });
-
-            String payloadChars =
-                    new StringBuilder().append("HTTP/1.1 ").append(status[0]).append(" ").append(status[1]).append("\r\n")
-                                       .append(headersChars).append("\r\n").toString();
+            final ListFW<HttpHeaderFW> headers = extension.sizeof() > 0 ?
+                    extension.get(factory.beginExRO::wrap).headers() : null;
 
-            slotIndex = factory.bufferPool.acquire(connectReplyId);
+            slotIndex = acceptState.responsesReset ? NO_SLOT : factory.bufferPool.acquire(connectReplyId);
             if (slotIndex == NO_SLOT)
             {
                 factory.writer.doReset(connectReplyThrottle, connectReplyId);
-                this.streamState = this::streamAfterRejectOrReset;
+                this.streamState = STREAM_AFTER_REJECT_OR_RESET;
+
+                // responses to later pipelined requests can no longer be delivered in order
+                acceptState.doAbort(factory.writer);
             }
             else
             {
-                slotPosition = 0;
                 MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
-                if (payloadChars.length() > slot.capacity())
+                int headLimit = factory.headEncoder.encodeResponse(headers, slot, 0, slot.capacity());
+                if (headLimit == HttpHeadEncoder.HEAD_TOO_LONG)
                 {
                     slot.putBytes(0,  RESPONSE_HEADERS_TOO_LONG_RESPONSE);
-                    factory.writer.doData(acceptState.acceptReply, acceptState.replyStreamId,
-                                  slot, 0, RESPONSE_HEADERS_TOO_LONG_RESPONSE.length);
+                    headLimit = RESPONSE_HEADERS_TOO_LONG_RESPONSE.length;
+                    endDeferred = true;
                     factory.writer.doReset(connectReplyThrottle, connectReplyId);
+                    this.streamState = STREAM_AFTER_REJECT_OR_RESET;
                 }
                 else
                 {
-                    byte[] bytes = payloadChars.getBytes(US_ASCII);
-                    slot.putBytes(0, bytes);
-                    slotPosition = bytes.length;
-                    slotOffset = 0;
-                    this.streamState = this::streamBeforeHeadersWritten;
-                    this.throttleState = this::throttleBeforeHeadersWritten;
-                    if (acceptState.window > 0)
-                    {
-                        useTargetWindowToWriteResponseHeaders();
-                    }
+                    this.streamState = STREAM_AFTER_BEGIN_OR_DATA;
+                }
+
+                slotOffset = 0;
+                slotPosition = headLimit;
+
+                if (streamState == STREAM_AFTER_BEGIN_OR_DATA)
+                {
+                    delimitResponseBody(targetCorrelationId, headers, headLimit);
+                }
+
+                if (acceptState.onResponse(targetCorrelationId, this))
+                {
+                    beginResponse();
+                }
+                else
+                {
+                    // buffer the response until responses to earlier pipelined requests have completed
+                    updateSourceWindow();
                 }
             }
         }
@@ -265,23 +269,145 @@ public final class ServerConnectReplyStream implements MessageConsumer
         }
     }
 
+    private void delimitResponseBody(
+        long correlationId,
+        ListFW<HttpHeaderFW> headers,
+        int headLimit)
+    {
+        final HttpHeadEncoder encoder = factory.headEncoder;
+        final boolean hasBody = hasResponseBody(acceptState.method(correlationId), encoder.status);
+
+        this.headLimit = headLimit;
+        this.chunked = encoder.chunked && hasBody;
+
+        final int coding = hasBody ? selectCoding(correlationId, headers) : 0;
+        if (coding == 0 || !encodeContentEncoding(headers, coding))
+        {
+            if (hasBody && !encoder.contentLength && !encoder.transferEncoding)
+            {
+                // buffer a small response until it ends so it can be sent with a Content-Length header
+                final int slotAvailable = factory.bufferPool.slotCapacity() - headLimit - BUFFERED_RESPONSE_RESERVE;
+                bufferThreshold = Math.max(Math.min(factory.responseBufferThreshold, slotAvailable), 0);
+
+                if (bufferThreshold == 0 && factory.chunkedResponses && slotAvailable >= 0)
+                {
+                    encodeChunkedTransferEncoding();
+                }
+            }
+        }
+
+        headRemaining = this.headLimit;
+    }
+
+    private int selectCoding(
+        long correlationId,
+        ListFW<HttpHeaderFW> headers)
+    {
+        final HttpContentEncoder contentEncoder = factory.contentEncoder;
+        final HttpHeadEncoder encoder = factory.headEncoder;
+
+        // partial content and bodies already encoded or marked no-transform are sent as is (RFC 7234 5.2.2.4)
+        final boolean compressible = contentEncoder != null &&
+                encoder.status != 206 &&
+                !encoder.contentEncoding &&
+                (!encoder.transferEncoding || encoder.chunked) &&
+                (!encoder.contentLength || encoder.contentLengthValue >= contentEncoder.minimumSize) &&
+                encoder.contentTypeOffset != -1 &&
+                contentEncoder.compressible(headers.buffer(), encoder.contentTypeOffset, encoder.contentTypeLength);
+
+        return compressible ? HttpContentEncoder.selectCoding(acceptState.acceptedCodings(correlationId)) : 0;
+    }
+
+    private boolean encodeContentEncoding(
+        ListFW<HttpHeaderFW> headers,
+        int coding)
+    {
+        final HttpHeadEncoder encoder = factory.headEncoder;
+        final MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+        final int encodedLimit = encoder.encodeResponse(headers, slot, 0, slot.capacity(),
+                HttpContentEncoder.contentEncoding(coding));
+
+        final boolean encoded = encodedLimit != HttpHeadEncoder.HEAD_TOO_LONG;
+        if (encoded)
+        {
+            headLimit = slotPosition = encodedLimit;
+            chunked = true;
+            encoding = factory.contentEncoder.supplyEncoding(coding);
+        }
+        else
+        {
+            // the body is sent uncompressed when the head has no room for the Content-Encoding header field
+            encoder.encodeResponse(headers, slot, 0, slot.capacity());
+        }
+        return encoded;
+    }
+
+    void beginResponse()
+    {
+        responding = true;
+        acceptState.setThrottle.accept(throttle);
+        flushDeferredData();
+        updateSourceWindow();
+    }
+
+    void doReset()
+    {
+        releaseSlotIfNecessary();
+        releaseEncodingIfNecessary();
+        responding = false;
+
+        if (streamState == STREAM_BEFORE_BEGIN || streamState == STREAM_AFTER_BEGIN_OR_DATA)
+        {
+            factory.writer.doReset(connectReplyThrottle, connectReplyId);
+            this.streamState = STREAM_AFTER_REJECT_OR_RESET;
+        }
+    }
+
     private void processData(
         DirectBuffer buffer,
         int index,
         int length)
     {
-
         DataFW data = factory.dataRO.wrap(buffer, index, index + length);
+        final int dataLength = data.length();
 
-        if (acceptState.window < data.length())
+        if (sourceWindow < dataLength)
         {
             processUnexpected(buffer, index, length);
         }
         else
         {
+            sourceWindow -= dataLength;
+
             final OctetsFW payload = data.payload();
-            factory.writer.doData(acceptState.acceptReply, acceptState.replyStreamId, payload);
-            acceptState.window -=  data.length();
+            if (responding && slotIndex == NO_SLOT && !chunked && dataLength <= acceptState.window)
+            {
+                factory.writer.doData(acceptState.acceptReply, acceptState.replyStreamId, payload);
+                acceptState.window -= dataLength;
+            }
+            else if (responding && slotIndex == NO_SLOT && chunked && encoding == null &&
+                     HttpHeadEncoder.chunkLength(dataLength) <= acceptState.window)
+            {
+                doChunk(payload);
+            }
+            else if (deferData(payload.buffer(), payload.offset(), payload.limit()))
+            {
+                if (bufferThreshold > 0 && slotPosition - headLimit > bufferThreshold)
+                {
+                    endBuffering();
+                }
+
+                if (responding)
+                {
+                    flushDeferredData();
+                }
+            }
+            else
+            {
+                processUnexpected(buffer, index, length);
+            }
+
+            updateSourceWindow();
         }
     }
 
@@ -290,25 +416,54 @@ public final class ServerConnectReplyStream implements MessageConsumer
         int index,
         int length)
     {
-        factory.endRO.wrap(buffer, index, index + length);
-        doEnd();
-    }
+        final EndFW end = factory.endRO.wrap(buffer, index, index + length);
+        this.streamState = STREAM_AFTER_END;
 
-    private void doEnd()
-    {
-        if (acceptState != null && acceptState.endRequested && --acceptState.pendingRequests == 0)
+        if (chunked && !deferLastChunk(end.extension()))
         {
-            factory.writer.doEnd(acceptState.acceptReply, acceptState.replyStreamId);
-            acceptState.restoreInitialThrottle();
-            this.streamState = this::streamAfterEnd;
+            processUnexpected(buffer, index, length);
+        }
+        else if (responding && slotIndex == NO_SLOT)
+        {
+            doEnd();
         }
         else
         {
-            throttleState = this::throttleBetweenResponses;
-            streamState = this::streamBeforeBegin;
+            endDeferred = true;
+
+            if (bufferThreshold > 0)
+            {
+                endBuffering();
+            }
+
+            if (responding)
+            {
+                flushDeferredData();
+            }
+        }
+    }
+
+    private void doChunk(
+        OctetsFW payload)
+    {
+        final int payloadLength = payload.sizeof();
+
+        // an empty chunk would end the response body
+        if (payloadLength > 0)
+        {
+            factory.writer.doHttpChunk(acceptState.acceptReply, acceptState.replyStreamId,
+                                       payload.buffer(), payload.offset(), payloadLength);
+            acceptState.window -= HttpHeadEncoder.chunkLength(payloadLength);
         }
     }
 
+    private void doEnd()
+    {
+        releaseEncodingIfNecessary();
+        responding = false;
+        acceptState.onResponseComplete(factory.writer);
+    }
+
     private void processUnexpected(
         DirectBuffer buffer,
         int index,
@@ -320,133 +475,260 @@ public final class ServerConnectReplyStream implements MessageConsumer
 
         factory.writer.doReset(connectReplyThrottle, streamId);
 
-        this.streamState = this::streamAfterRejectOrReset;
-    }
+        this.streamState = STREAM_AFTER_REJECT_OR_RESET;
 
-    private void throttleBeforeBegin(
-        int msgTypeId,
-        DirectBuffer buffer,
-        int index,
-        int length)
-    {
-        switch (msgTypeId)
+        if (acceptState != null)
         {
-        case ResetFW.TYPE_ID:
-            processReset(buffer, index, length);
-            break;
-        default:
-            // ignore
-            break;
+            releaseSlotIfNecessary();
+            releaseEncodingIfNecessary();
+            acceptState.doAbort(factory.writer);
         }
     }
 
-    private void throttleBeforeHeadersWritten(
-        int msgTypeId,
+    private boolean deferData(
         DirectBuffer buffer,
-        int index,
-        int length)
+        int offset,
+        int limit)
     {
-        switch (msgTypeId)
+        if (slotIndex == NO_SLOT)
         {
-        case WindowFW.TYPE_ID:
-            WindowFW window = factory.windowRO.wrap(buffer, index, index + length);
-            int update = window.update();
-            acceptState.window += update;
-            useTargetWindowToWriteResponseHeaders();
-            break;
-        case ResetFW.TYPE_ID:
-            processReset(buffer, index, length);
-            break;
-        default:
-            // ignore
-            break;
+            slotIndex = factory.bufferPool.acquire(connectReplyId);
+            slotOffset = slotPosition = 0;
         }
+
+        final boolean deferred = slotIndex != NO_SLOT;
+        if (deferred)
+        {
+            final int dataLength = limit - offset;
+            if (slotPosition + dataLength > factory.bufferPool.slotCapacity())
+            {
+                alignSlotData();
+            }
+            MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+            slot.putBytes(slotPosition, buffer, offset, dataLength);
+            slotPosition += dataLength;
+        }
+        return deferred;
     }
 
-    private void throttleBetweenResponses(
-        int msgTypeId,
-        DirectBuffer buffer,
-        int index,
-        int length)
+    private boolean deferLastChunk(
+        OctetsFW extension)
     {
-        switch (msgTypeId)
+        final ListFW<HttpHeaderFW> trailers = extension.sizeof() > 0 ?
+                extension.get(factory.endExRO::wrap).trailers() : null;
+
+        if (slotIndex == NO_SLOT)
         {
-        case WindowFW.TYPE_ID:
-            WindowFW window = factory.windowRO.wrap(buffer, index, index + length);
-            int update = window.update();
-            acceptState.window += update;
-            break;
-        case ResetFW.TYPE_ID:
-            processReset(buffer, index, length);
-            break;
-        default:
-            // ignore
-            break;
+            slotIndex = factory.bufferPool.acquire(connectReplyId);
+            slotOffset = slotPosition = 0;
+        }
+
+        int lastChunkLimit = HttpHeadEncoder.HEAD_TOO_LONG;
+        if (slotIndex != NO_SLOT)
+        {
+            alignSlotData();
+            MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+            lastChunkLimit = factory.headEncoder.encodeLastChunk(trailers, slot, slotPosition, slot.capacity());
+            if (lastChunkLimit == HttpHeadEncoder.HEAD_TOO_LONG)
+            {
+                // the trailer is optional metadata, so it is dropped rather than the response when it does not fit
+                lastChunkLimit = factory.headEncoder.encodeLastChunk(null, slot, slotPosition, slot.capacity());
+            }
+        }
+
+        final boolean deferred = lastChunkLimit != HttpHeadEncoder.HEAD_TOO_LONG;
+        if (deferred)
+        {
+            lastChunkLength = lastChunkLimit - slotPosition;
+            slotPosition = lastChunkLimit;
         }
+        return deferred;
     }
 
-    private void throttleNextWindow(
-        int msgTypeId,
-        DirectBuffer buffer,
-        int index,
-        int length)
+    private void endBuffering()
     {
-        switch (msgTypeId)
+        if (endDeferred)
         {
-        case WindowFW.TYPE_ID:
-            processWindow(buffer, index, length);
-            break;
-        case ResetFW.TYPE_ID:
-            processReset(buffer, index, length);
-            break;
-        default:
-            // ignore
-            break;
+            final int contentLength = slotPosition - headLimit;
+            final int fieldLength = HttpHeadEncoder.contentLengthFieldLength(contentLength);
+            MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+            HttpHeadEncoder.encodeContentLength(slot, insertHeaderField(fieldLength), slot.capacity(), contentLength);
+        }
+        else if (factory.chunkedResponses)
+        {
+            encodeChunkedTransferEncoding();
         }
+
+        headRemaining = headLimit;
+        bufferThreshold = 0;
     }
 
-    private void useTargetWindowToWriteResponseHeaders()
+    private void encodeChunkedTransferEncoding()
     {
-        int bytesDeferred = slotPosition - slotOffset;
-        int writableBytes = Math.min(bytesDeferred, acceptState.window);
         MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
-        factory.writer.doData(acceptState.acceptReply, acceptState.replyStreamId, slot, slotOffset, writableBytes);
-        acceptState.window -= writableBytes;
-        slotOffset += writableBytes;
-        bytesDeferred -= writableBytes;
-        if (bytesDeferred == 0)
+        slot.putBytes(insertHeaderField(TRANSFER_ENCODING_CHUNKED_CRLF.length), TRANSFER_ENCODING_CHUNKED_CRLF);
+        chunked = true;
+    }
+
+    private int insertHeaderField(
+        int fieldLength)
+    {
+        // header fields are inserted before the empty line ending the head, moving any buffered body along
+        final int fieldOffset = headLimit - CRLF_BYTES.length;
+        MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+        slot.putBytes(fieldOffset + fieldLength, slot, fieldOffset, slotPosition - fieldOffset);
+        slotPosition += fieldLength;
+        headLimit += fieldLength;
+        return fieldOffset;
+    }
+
+    private void flushDeferredData()
+    {
+        // a buffered response is held back until its body is known to end or to exceed the threshold
+        if (bufferThreshold == 0)
         {
-            factory.bufferPool.release(slotIndex);
-            slotIndex = NO_SLOT;
-            if (endDeferred)
+            if (chunked)
             {
-                doEnd();
+                headRemaining -= flushData(headRemaining);
+                if (headRemaining == 0 && encoding != null)
+                {
+                    flushEncodedChunks();
+                }
+                else if (headRemaining == 0)
+                {
+                    flushChunk();
+                }
+                if (headRemaining == 0 && slotPosition - slotOffset == lastChunkLength &&
+                    (encoding == null || encoding.finished()))
+                {
+                    lastChunkLength -= flushData(lastChunkLength);
+                }
             }
             else
             {
-                streamState = this::streamAfterBeginOrData;
-                throttleState = this::throttleNextWindow;
-                if (acceptState.window > 0)
+                flushData(slotPosition - slotOffset);
+            }
+
+            if (slotPosition == slotOffset)
+            {
+                releaseSlotIfNecessary();
+                if (endDeferred)
                 {
-                    doSourceWindow(acceptState.window);
+                    doEnd();
                 }
             }
         }
     }
 
+    private int flushData(
+        int bytesDeferred)
+    {
+        final int writableBytes = Math.max(Math.min(bytesDeferred, acceptState.window), 0);
+        if (writableBytes > 0)
+        {
+            MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+            factory.writer.doData(acceptState.acceptReply, acceptState.replyStreamId, slot, slotOffset, writableBytes);
+            acceptState.window -= writableBytes;
+            slotOffset += writableBytes;
+        }
+        return writableBytes;
+    }
+
+    private void flushChunk()
+    {
+        final int window = acceptState.window;
+        final int bodyBytes = slotPosition - lastChunkLength - slotOffset;
+        final int payloadLength = window > 0 ? Math.min(bodyBytes, window - (HttpHeadEncoder.chunkLength(window) - window)) : 0;
+        if (payloadLength > 0)
+        {
+            MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+            factory.writer.doHttpChunk(acceptState.acceptReply, acceptState.replyStreamId, slot, slotOffset, payloadLength);
+            acceptState.window -= HttpHeadEncoder.chunkLength(payloadLength);
+            slotOffset += payloadLength;
+        }
+    }
+
+    private void flushEncodedChunks()
+    {
+        // compressed bodies are always deferred, the deflater consuming them from the slot as the window allows
+        final HttpContentEncoder contentEncoder = factory.contentEncoder;
+        boolean progress = true;
+        while (progress && !encoding.finished())
+        {
+            final int window = acceptState.window;
+            final int bodyBytes = slotPosition - lastChunkLength - slotOffset;
+            final int maximumLength = window > 0 ? window - (HttpHeadEncoder.chunkLength(window) - window) : 0;
+
+            int encodedLength = 0;
+            int consumed = 0;
+            if (maximumLength > 0 && (bodyBytes > 0 || endDeferred))
+            {
+                MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+                encodedLength = encoding.encode(slot, slotOffset, bodyBytes, endDeferred, maximumLength);
+                consumed = encoding.consumed();
+                slotOffset += consumed;
+            }
+
+            // an empty chunk would end the response body
+            if (encodedLength > 0)
+            {
+                factory.writer.doHttpChunk(acceptState.acceptReply, acceptState.replyStreamId,
+                                           contentEncoder.output(), 0, encodedLength);
+                acceptState.window -= HttpHeadEncoder.chunkLength(encodedLength);
+            }
+
+            progress = encodedLength > 0 || consumed > 0;
+        }
+    }
+
+    private void alignSlotData()
+    {
+        int dataLength = slotPosition - slotOffset;
+        MutableDirectBuffer slot = factory.bufferPool.buffer(slotIndex);
+        slot.putBytes(0, slot, slotOffset, dataLength);
+        slotOffset = 0;
+        slotPosition = dataLength;
+    }
+
     private void processWindow(
         DirectBuffer buffer,
         int index,
         int length)
     {
         WindowFW window = factory.windowRO.wrap(buffer, index, index + length);
-        final int update = window.update();
-        acceptState.window += update;
-        doSourceWindow(update);
+        acceptState.window += window.update();
+
+        if (slotIndex != NO_SLOT)
+        {
+            flushDeferredData();
+        }
+        updateSourceWindow();
+    }
+
+    private void updateSourceWindow()
+    {
+        if (streamState == STREAM_AFTER_BEGIN_OR_DATA)
+        {
+            // write through while responding, otherwise bounded by the space left in the slot
+            final int slotReserve = bufferThreshold > 0 ? BUFFERED_RESPONSE_RESERVE :
+                    chunked ? HttpHeadEncoder.LAST_CHUNK_LENGTH : 0;
+            final int slotWindow = factory.bufferPool.slotCapacity() - slotReserve -
+                    (slotIndex != NO_SLOT ? slotPosition - slotOffset : 0);
+
+            final int window = acceptState.window;
+            final int maximumWindow = !responding || slotIndex != NO_SLOT || encoding != null ? slotWindow :
+                    chunked ? Math.min(window - (HttpHeadEncoder.chunkLength(window) - window), slotWindow) : window;
+
+            if (maximumWindow > sourceWindow)
+            {
+                doSourceWindow(maximumWindow - sourceWindow);
+            }
+        }
     }
 
     private void doSourceWindow(int update)
     {
+        sourceWindow += update;
         factory.writer.doWindow(connectReplyThrottle, connectReplyId, update, update);
     }
 
@@ -456,9 +738,25 @@ public final class ServerConnectReplyStream implements MessageConsumer
         int length)
     {
         factory.resetRO.wrap(buffer, index, index + length);
-        releaseSlotIfNecessary();
+        doReset();
+        acceptState.resetResponses();
+    }
+
+    private static boolean hasResponseBody(
+        StandardMethods method,
+        int status)
+    {
+        // RFC 7230 3.3.3: responses to HEAD, 2xx responses to CONNECT and 1xx, 204 and 304 responses have no body
+        return method != HEAD && (method != CONNECT || status >= 300) && status >= 200 && status != 204 && status != 304;
+    }
 
-        factory.writer.doReset(connectReplyThrottle, connectReplyId);
+    private void releaseEncodingIfNecessary()
+    {
+        if (encoding != null)
+        {
+            encoding.release();
+            encoding = null;
+        }
     }
 
     private void releaseSlotIfNecessary()
@@ -470,4 +768,3 @@ public final class ServerConnectReplyStream implements MessageConsumer
         }
     }
 }
-
@@ -18,22 +18,23 @@ package org.reaktivity.nukleus.http.internal.stream;
 import static java.util.Objects.requireNonNull;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.function.LongSupplier;
 
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.agrona.collections.Long2ObjectHashMap;
-import org.reaktivity.nukleus.Configuration;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.reaktivity.nukleus.buffer.BufferPool;
 import org.reaktivity.nukleus.function.MessageConsumer;
-import org.reaktivity.nukleus.function.MessagePredicate;
-import org.reaktivity.nukleus.http.internal.types.control.HttpRouteExFW;
+import org.reaktivity.nukleus.http.internal.HttpConfiguration;
 import org.reaktivity.nukleus.http.internal.types.control.RouteFW;
 import org.reaktivity.nukleus.http.internal.types.stream.BeginFW;
 import org.reaktivity.nukleus.http.internal.types.stream.DataFW;
 import org.reaktivity.nukleus.http.internal.types.stream.EndFW;
 import org.reaktivity.nukleus.http.internal.types.stream.FrameFW;
 import org.reaktivity.nukleus.http.internal.types.stream.HttpBeginExFW;
+import org.reaktivity.nukleus.http.internal.types.stream.HttpEndExFW;
 import org.reaktivity.nukleus.http.internal.types.stream.ResetFW;
 import org.reaktivity.nukleus.http.internal.types.stream.WindowFW;
 import org.reaktivity.nukleus.route.RouteManager;
@@ -41,34 +42,42 @@ import org.reaktivity.nukleus.stream.StreamFactory;
 
 public final class ServerStreamFactory implements StreamFactory
 {
-    static final byte[] CRLFCRLF_BYTES = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
     static final byte[] CRLF_BYTES = "\r\n".getBytes(StandardCharsets.US_ASCII);
-    static final byte[] SEMICOLON_BYTES = ";".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] CRLFCRLF_BYTES = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
     static final byte[] SPACE = " ".getBytes(StandardCharsets.US_ASCII);
     static final int MAXIMUM_METHOD_BYTES = "OPTIONS".length();
 
     final MessageWriter writer;
 
     final FrameFW frameRO = new FrameFW();
-    final RouteFW routeRO = new RouteFW();
-    final HttpRouteExFW routeExRO = new HttpRouteExFW();
     final BeginFW beginRO = new BeginFW();
     final DataFW dataRO = new DataFW();
     final EndFW endRO = new EndFW();
     final WindowFW windowRO = new WindowFW();
     final ResetFW resetRO = new ResetFW();
     final HttpBeginExFW beginExRO = new HttpBeginExFW();
+    final HttpEndExFW endExRO = new HttpEndExFW();
 
     final RouteManager router;
+    final HttpRouteTable routes;
     final LongSupplier supplyStreamId;
     final LongSupplier supplyCorrelationId;
     final BufferPool bufferPool;
+    final HttpRequestParser requestParser;
+    final HttpChunkParser chunkParser;
+    final HttpHeaderBlock headerBlock;
+    final HttpHeadEncoder headEncoder;
+    final int maximumPipelinedRequests;
+    final boolean chunkedResponses;
+    final int responseBufferThreshold;
+    final HttpContentEncoder contentEncoder;
 
     Long2ObjectHashMap<Correlation<?>> correlations;
 
     public ServerStreamFactory(
-        Configuration config,
+        HttpConfiguration configuration,
         RouteManager router,
+        HttpRouteTable routes,
         MutableDirectBuffer writeBuffer,
         BufferPool bufferPool,
         LongSupplier supplyStreamId,
@@ -76,11 +85,22 @@ public final class ServerStreamFactory implements StreamFactory
         Long2ObjectHashMap<Correlation<?>> correlations)
     {
         this.router = requireNonNull(router);
+        this.routes = requireNonNull(routes);
         this.writer = new MessageWriter(requireNonNull(writeBuffer));
         this.bufferPool = requireNonNull(bufferPool);
         this.supplyStreamId = requireNonNull(supplyStreamId);
         this.supplyCorrelationId = supplyCorrelationId;
         this.correlations = requireNonNull(correlations);
+        this.requestParser = new HttpRequestParser(bufferPool.slotCapacity());
+        this.chunkParser = new HttpChunkParser(bufferPool.slotCapacity());
+        this.headerBlock = new HttpHeaderBlock();
+        this.headEncoder = new HttpHeadEncoder();
+        this.maximumPipelinedRequests = configuration.maximumPipelinedRequests();
+        this.chunkedResponses = configuration.chunkedResponses();
+        this.responseBufferThreshold = configuration.responseBufferThreshold();
+        this.contentEncoder = configuration.responseCompression() ?
+                new HttpContentEncoder(bufferPool.slotCapacity(), configuration.responseCompressionMinimumSize(),
+                        configuration.responseCompressionContentTypes()) : null;
     }
 
     @Override
@@ -115,14 +135,7 @@ public final class ServerStreamFactory implements StreamFactory
         final long acceptRef = begin.sourceRef();
         final String acceptName = begin.source().asString();
 
-        final MessagePredicate filter = (t, b, o, l) ->
-        {
-            final RouteFW route = routeRO.wrap(b, o, l);
-            return acceptRef == route.sourceRef() &&
-                    acceptName.equals(route.source().asString());
-        };
-
-        final RouteFW route = router.resolve(filter, this::wrapRoute);
+        final RouteFW route = routes.resolve(acceptName, acceptRef);
 
         MessageConsumer newStream = null;
 
@@ -147,16 +160,6 @@ public final class ServerStreamFactory implements StreamFactory
                 connectReplyName);
     }
 
-    private RouteFW wrapRoute(int msgTypeId, DirectBuffer buffer, int index, int length)
-    {
-        return routeRO.wrap(buffer, index, index + length);
-    }
-
-    @FunctionalInterface interface DecoderState
-    {
-        int decode(DirectBuffer buffer, int offset, int limit);
-    }
-
     static final class HttpStatus
     {
         int status;
@@ -180,16 +183,39 @@ public final class ServerStreamFactory implements StreamFactory
         OPTIONS,
         TRACE;
 
-        static StandardMethods parse(String name)
+        private static final StandardMethods[] METHODS = values();
+
+        final DirectBuffer buffer;
+
+        private final byte[] bytes;
+
+        StandardMethods()
         {
-            StandardMethods result;
-            try
-            {
-                result = valueOf(name);
-            }
-            catch (IllegalArgumentException e)
+            this.bytes = name().getBytes(StandardCharsets.US_ASCII);
+            this.buffer = new UnsafeBuffer(bytes);
+        }
+
+        boolean matches(
+            byte[] value)
+        {
+            return Arrays.equals(bytes, value);
+        }
+
+        static StandardMethods parse(
+            DirectBuffer buffer,
+            int offset,
+            int length)
+        {
+            StandardMethods result = null;
+            for (int i = 0; result == null && i < METHODS.length; i++)
             {
-                result = null;
+                final byte[] candidate = METHODS[i].bytes;
+                boolean matches = candidate.length == length;
+                for (int j = 0; matches && j < length; j++)
+                {
+                    matches = buffer.getByte(offset + j) == candidate[j];
+                }
+                result = matches ? METHODS[i] : null;
             }
             return result;
         }
@@ -22,6 +22,7 @@ import org.agrona.MutableDirectBuffer;
 import org.agrona.collections.Long2ObjectHashMap;
 import org.reaktivity.nukleus.Configuration;
 import org.reaktivity.nukleus.buffer.BufferPool;
+import org.reaktivity.nukleus.http.internal.HttpConfiguration;
 import org.reaktivity.nukleus.route.RouteManager;
 import org.reaktivity.nukleus.stream.StreamFactory;
 import org.reaktivity.nukleus.stream.StreamFactoryBuilder;
@@ -29,6 +30,7 @@ import org.reaktivity.nukleus.stream.StreamFactoryBuilder;
 public final class ServerStreamFactoryBuilder implements StreamFactoryBuilder
 {
     private final Configuration config;
+    private final HttpRouteTable routes;
     private final Long2ObjectHashMap<Correlation<?>> correlations;
 
     private RouteManager router;
@@ -38,9 +40,11 @@ public final class ServerStreamFactoryBuilder implements StreamFactoryBuilder
     private Supplier<BufferPool> supplyBufferPool;
 
     public ServerStreamFactoryBuilder(
-        Configuration config)
+        Configuration config,
+        HttpRouteTable routes)
     {
         this.config = config;
+        this.routes = routes;
         this.correlations = new Long2ObjectHashMap<>();
     }
 
@@ -89,7 +93,7 @@ public final class ServerStreamFactoryBuilder implements StreamFactoryBuilder
     {
         final BufferPool bufferPool = supplyBufferPool.get();
 
-        return new ServerStreamFactory(config, router, writeBuffer,
+        return new ServerStreamFactory((HttpConfiguration) config, router, routes, writeBuffer,
                 bufferPool, supplyStreamId, supplyCorrelationId, correlations);
     }
 }
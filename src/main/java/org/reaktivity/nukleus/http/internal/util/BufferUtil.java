@@ -15,30 +15,39 @@
  */
 package org.reaktivity.nukleus.http.internal.util;
 
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+
 import org.agrona.DirectBuffer;
 
 public final class BufferUtil
 {
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
     public static int limitOfBytes(
         DirectBuffer buffer,
         int offset,
         int limit,
         byte[] value)
     {
-        int matchedBytes = 0;
+        final int lastStart = limit - value.length;
 
-        for (int cursor = offset; cursor < limit; cursor++)
+        int cursor = offset;
+        while (cursor <= lastStart)
         {
-            if (buffer.getByte(cursor) != value[matchedBytes])
+            final int candidate = indexOfByte(buffer, cursor, lastStart + 1, value[0]);
+            if (candidate == -1)
             {
-                matchedBytes = 0;
-                continue;
+                break;
             }
 
-            if (value.length == ++matchedBytes)
+            if (startsWith(buffer, candidate + 1, value, 1, value.length))
             {
-                return cursor + 1;
+                return candidate + value.length;
             }
+
+            cursor = candidate + 1;
         }
 
         return -1;
@@ -53,39 +62,80 @@ public final class BufferUtil
             int limit2,
             byte[] value)
     {
-        int matchedBytes = 0;
-
-        for (int cursor = offset1; cursor < limit1; cursor++)
+        if (limitOfBytes(fragment, offset1, limit1, value) != -1)
         {
-            if (fragment.getByte(cursor) != value[matchedBytes])
-            {
-                matchedBytes = 0;
-                continue;
-            }
+            throw new IllegalArgumentException("Full match found in fragment buffer");
+        }
 
-            if (value.length == ++matchedBytes)
+        // earliest match straddling both buffers has the longest prefix in the fragment
+        final int maxPrefix = Math.min(value.length - 1, limit1 - offset1);
+        for (int prefix = maxPrefix; prefix > 0; prefix--)
+        {
+            final int suffix = value.length - prefix;
+            if (suffix <= limit2 - offset2 &&
+                startsWith(fragment, limit1 - prefix, value, 0, prefix) &&
+                startsWith(buffer, offset2, value, prefix, value.length))
             {
-                throw new IllegalArgumentException("Full match found in fragment buffer");
+                return offset2 + suffix;
             }
         }
 
-        for (int cursor = offset2; cursor < limit2; cursor++)
+        return limitOfBytes(buffer, offset2, limit2, value);
+    }
+
+    /**
+     * Locates a byte value, examining eight bytes at a time.
+     *
+     * @return the index of the first occurrence of value in [offset, limit), or -1 if not found
+     */
+    public static int indexOfByte(
+        DirectBuffer buffer,
+        int offset,
+        int limit,
+        byte value)
+    {
+        final long pattern = (value & 0xffL) * LOW_BITS;
+
+        int cursor = offset;
+        for (; cursor + SIZE_OF_LONG <= limit; cursor += SIZE_OF_LONG)
         {
-            if (buffer.getByte(cursor) != value[matchedBytes])
+            // bytes equal to value become zero, then the lowest zero byte is flagged by its high bit
+            final long word = buffer.getLong(cursor, LITTLE_ENDIAN) ^ pattern;
+            final long zeros = (word - LOW_BITS) & ~word & HIGH_BITS;
+            if (zeros != 0L)
             {
-                matchedBytes = 0;
-                continue;
+                return cursor + (Long.numberOfTrailingZeros(zeros) >>> 3);
             }
+        }
 
-            if (value.length == ++matchedBytes)
+        for (; cursor < limit; cursor++)
+        {
+            if (buffer.getByte(cursor) == value)
             {
-                return cursor + 1;
+                return cursor;
             }
         }
 
         return -1;
     }
 
+    /**
+     * @return true if the bytes of buffer at offset match value[from, to)
+     */
+    private static boolean startsWith(
+        DirectBuffer buffer,
+        int offset,
+        byte[] value,
+        int from,
+        int to)
+    {
+        boolean matches = true;
+        for (int i = from; matches && i < to; i++)
+        {
+            matches = buffer.getByte(offset + i - from) == value[i];
+        }
+        return matches;
+    }
 
     private BufferUtil()
     {
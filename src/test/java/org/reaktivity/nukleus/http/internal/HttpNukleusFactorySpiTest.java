@@ -30,6 +30,7 @@ import org.reaktivity.nukleus.Configuration;
 import org.reaktivity.nukleus.Nukleus;
 import org.reaktivity.nukleus.NukleusBuilder;
 import org.reaktivity.nukleus.NukleusFactory;
+import org.reaktivity.nukleus.function.MessagePredicate;
 import org.reaktivity.nukleus.stream.StreamFactoryBuilder;
 
 public class HttpNukleusFactorySpiTest
@@ -50,9 +51,17 @@ public class HttpNukleusFactorySpiTest
         context.checking(new Expectations()
         {
             {
+                oneOf(builder).routeHandler(with(CLIENT), with(any(MessagePredicate.class)));
+                will(returnValue(builder));
+                oneOf(builder).routeHandler(with(SERVER), with(any(MessagePredicate.class)));
+                will(returnValue(builder));
                 oneOf(builder).streamFactory(with(CLIENT), with(any(StreamFactoryBuilder.class)));
                 will(returnValue(builder));
                 oneOf(builder).streamFactory(with(SERVER), with(any(StreamFactoryBuilder.class)));
+                will(returnValue(builder));
+                oneOf(builder).inject(with(any(Nukleus.class)));
+                will(returnValue(builder));
+                oneOf(builder).build();
             }
         });
 
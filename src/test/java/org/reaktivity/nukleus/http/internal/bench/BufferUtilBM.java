@@ -0,0 +1,138 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.bench;
+
+import static java.nio.ByteBuffer.allocateDirect;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.reaktivity.nukleus.http.internal.util.BufferUtil;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Fork(3)
+@Warmup(iterations = 5, time = 1, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = SECONDS)
+@OutputTimeUnit(SECONDS)
+public class BufferUtilBM
+{
+    private static final byte[] CRLFCRLF_BYTES = "\r\n\r\n".getBytes(US_ASCII);
+    private static final byte[] CRLF_BYTES = "\r\n".getBytes(US_ASCII);
+
+    @Param({ "64", "512", "4096" })
+    public int headerBytes;
+
+    private MutableDirectBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void init()
+    {
+        StringBuilder request = new StringBuilder("GET /path/to/resource?query=value HTTP/1.1\r\nHost: localhost:8080\r\n");
+        while (request.length() < headerBytes)
+        {
+            request.append("X-Header-").append(request.length()).append(": some header value\r\n");
+        }
+        request.append("\r\n");
+
+        byte[] bytes = request.toString().getBytes(US_ASCII);
+        buffer = new UnsafeBuffer(allocateDirect(bytes.length));
+        buffer.putBytes(0, bytes);
+    }
+
+    @Benchmark
+    public int endOfHeadersByteWise()
+    {
+        return limitOfBytesByteWise(buffer, 0, buffer.capacity(), CRLFCRLF_BYTES);
+    }
+
+    @Benchmark
+    public int endOfHeadersWordWise()
+    {
+        return BufferUtil.limitOfBytes(buffer, 0, buffer.capacity(), CRLFCRLF_BYTES);
+    }
+
+    @Benchmark
+    public int endOfLineByteWise()
+    {
+        return limitOfBytesByteWise(buffer, 0, buffer.capacity(), CRLF_BYTES);
+    }
+
+    @Benchmark
+    public int endOfLineWordWise()
+    {
+        return BufferUtil.limitOfBytes(buffer, 0, buffer.capacity(), CRLF_BYTES);
+    }
+
+    // previous BufferUtil.limitOfBytes implementation, retained as the comparison baseline
+    private static int limitOfBytesByteWise(
+        DirectBuffer buffer,
+        int offset,
+        int limit,
+        byte[] value)
+    {
+        int matchedBytes = 0;
+
+        for (int cursor = offset; cursor < limit; cursor++)
+        {
+            if (buffer.getByte(cursor) != value[matchedBytes])
+            {
+                matchedBytes = 0;
+                continue;
+            }
+
+            if (value.length == ++matchedBytes)
+            {
+                return cursor + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+                .include(BufferUtilBM.class.getSimpleName())
+                .forks(0)
+                .threads(1)
+                .warmupIterations(3)
+                .measurementIterations(3)
+                .measurementTime(new TimeValue(1, SECONDS))
+                .build();
+
+        new Runner(opt).run();
+    }
+}
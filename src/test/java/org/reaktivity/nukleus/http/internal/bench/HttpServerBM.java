@@ -49,6 +49,7 @@ import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -63,6 +64,7 @@ import org.openjdk.jmh.runner.options.TimeValue;
 import org.reaktivity.nukleus.Configuration;
 import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.function.MessagePredicate;
+import org.reaktivity.nukleus.http.internal.HttpConfiguration;
 import org.reaktivity.nukleus.http.internal.HttpController;
 import org.reaktivity.nukleus.http.internal.types.stream.BeginFW;
 import org.reaktivity.nukleus.http.internal.types.stream.DataFW;
@@ -89,6 +91,10 @@ public class HttpServerBM
             properties.setProperty(DIRECTORY_PROPERTY_NAME, "target/nukleus-benchmarks");
             properties.setProperty(STREAMS_BUFFER_CAPACITY_PROPERTY_NAME, Long.toString(1024L * 1024L * 16L));
 
+            // responses are never written, so allow requests to remain pipelined indefinitely
+            properties.setProperty(HttpConfiguration.MAXIMUM_PIPELINED_REQUESTS_PROPERTY_NAME,
+                    Integer.toString(Integer.MAX_VALUE));
+
             configuration = new Configuration(properties);
             ensureDirectoryExists(configuration.directory().toFile(), configuration.directory().toString());
 
@@ -111,6 +117,10 @@ public class HttpServerBM
                              .build();
         }
 
+        // number of requests written in each data frame, reported throughput is frames per second
+        @Param({"1", "8"})
+        public int pipelinedRequests;
+
         private final BeginFW beginRO = new BeginFW();
         private final DataFW dataRO = new DataFW();
         private final WindowFW windowRO = new WindowFW();
@@ -146,7 +156,7 @@ public class HttpServerBM
             this.sourceInputId = random.nextLong();
             this.sourceOutputEstHandler = this::processBegin;
 
-            final AtomicBuffer writeBuffer = new UnsafeBuffer(new byte[256]);
+            final AtomicBuffer writeBuffer = new UnsafeBuffer(new byte[4096]);
 
             BeginFW begin = beginRW.wrap(writeBuffer, 0, writeBuffer.capacity())
                     .streamId(sourceInputId)
@@ -158,13 +168,18 @@ public class HttpServerBM
 
             this.sourceInput.streams.test(begin.typeId(), begin.buffer(), begin.offset(), begin.sizeof());
 
-            String payload =
+            String request =
                     "POST / HTTP/1.1\r\n" +
                     "Host: localhost:8080\r\n" +
                     "Content-Length:12\r\n" +
                     "\r\n" +
                     "Hello, world";
-            byte[] sendArray = payload.getBytes(StandardCharsets.UTF_8);
+            StringBuilder payload = new StringBuilder();
+            for (int i = 0; i < pipelinedRequests; i++)
+            {
+                payload.append(request);
+            }
+            byte[] sendArray = payload.toString().getBytes(StandardCharsets.UTF_8);
 
             this.data = dataRW.wrap(writeBuffer, 0, writeBuffer.capacity())
                               .streamId(sourceInputId)
@@ -0,0 +1,419 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.buffer.BufferPool;
+import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.http.internal.HttpConfiguration;
+import org.reaktivity.nukleus.http.internal.stream.ConnectionPool.Connection;
+import org.reaktivity.nukleus.http.internal.types.OctetsFW;
+import org.reaktivity.nukleus.http.internal.types.control.Role;
+import org.reaktivity.nukleus.http.internal.types.control.RouteFW;
+import org.reaktivity.nukleus.http.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.http.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.http.internal.types.stream.EndFW;
+import org.reaktivity.nukleus.http.internal.types.stream.HttpBeginExFW;
+import org.reaktivity.nukleus.http.internal.types.stream.ResetFW;
+import org.reaktivity.nukleus.http.internal.types.stream.WindowFW;
+import org.reaktivity.nukleus.route.RouteManager;
+
+public class ClientAcceptStreamTest
+{
+    private final MutableDirectBuffer frameBuffer = new UnsafeBuffer(new byte[1024]);
+    private final MutableDirectBuffer extension = new UnsafeBuffer(new byte[512]);
+    private final MutableDirectBuffer slot = new UnsafeBuffer(new byte[1024]);
+
+    private final BeginFW beginRO = new BeginFW();
+    private final DataFW dataRO = new DataFW();
+    private final HttpBeginExFW beginExRO = new HttpBeginExFW();
+
+    private final Long2ObjectHashMap<Correlation<?>> correlations = new Long2ObjectHashMap<>();
+    private final Long2ObjectHashMap<Connection> connections = new Long2ObjectHashMap<>();
+    private final Long2ObjectHashMap<MessageConsumer> throttles = new Long2ObjectHashMap<>();
+    private final List<Long> connectCorrelationIds = new ArrayList<>();
+    private final Long2ObjectHashMap<StringBuilder> written = new Long2ObjectHashMap<>();
+    private final List<String> statuses = new ArrayList<>();
+
+    private final MessageConsumer target = this::handleTarget;
+    private final MessageConsumer acceptReply = this::handleAcceptReply;
+    private final MessageConsumer acceptThrottle = (t, b, o, l) -> { };
+
+    private RouteManager router;
+    private BufferPool bufferPool;
+    private ClientStreamFactory factory;
+    private long acceptId;
+    private long nextId;
+    private long currentTimeMillis;
+    private final ConnectionPoolTimer timer = new ConnectionPoolTimer(() -> currentTimeMillis);
+
+    @Rule
+    public JUnitRuleMockery context = new JUnitRuleMockery()
+    {
+        {
+            router = mock(RouteManager.class, "router");
+            bufferPool = mock(BufferPool.class, "bufferPool");
+        }
+    };
+
+    @Before
+    public void setUp()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                allowing(bufferPool).slotCapacity();
+                will(returnValue(slot.capacity()));
+                allowing(bufferPool).acquire(with(any(long.class)));
+                will(returnValue(0));
+                allowing(bufferPool).buffer(0);
+                will(returnValue(slot));
+                allowing(bufferPool).release(0);
+                allowing(router).supplyTarget("target");
+                will(returnValue(target));
+                allowing(router).supplyTarget("source");
+                will(returnValue(acceptReply));
+                allowing(router).setThrottle(with(any(String.class)), with(any(long.class)),
+                        with(any(MessageConsumer.class)));
+                will(new CustomAction("setThrottle")
+                {
+                    @Override
+                    public Object invoke(
+                        Invocation invocation)
+                    {
+                        throttles.put((long) invocation.getParameter(1), (MessageConsumer) invocation.getParameter(2));
+                        return null;
+                    }
+                });
+            }
+        });
+
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.MAXIMUM_CONNECTIONS_PROPERTY_NAME, "2");
+        properties.setProperty(HttpConfiguration.HEDGED_REQUEST_DELAY_PROPERTY_NAME, "100");
+        properties.setProperty(HttpConfiguration.HEDGED_REQUEST_BUDGET_PROPERTY_NAME, "100");
+        HttpConfiguration config = new HttpConfiguration(new Configuration(properties));
+
+        HttpRouteTable routes = new HttpRouteTable();
+        RouteFW route = new RouteFW.Builder()
+                .wrap(frameBuffer, 0, frameBuffer.capacity())
+                .correlationId(0L)
+                .role(b -> b.set(Role.CLIENT))
+                .source("source")
+                .sourceRef(1L)
+                .target("target")
+                .targetRef(2L)
+                .extension(extension, 0, 0)
+                .build();
+        routes.handleRoute(RouteFW.TYPE_ID, frameBuffer, route.offset(), route.sizeof());
+
+        factory = new ClientStreamFactory(config, router, routes, new UnsafeBuffer(new byte[1024]), bufferPool,
+                () -> ++nextId, () -> ++nextId, correlations, connections, timer);
+    }
+
+    @Test
+    public void shouldHedgeRequestAfterDelay()
+    {
+        hedgedRequest();
+        final Connection original = connection(0);
+
+        currentTimeMillis = 99L;
+        timer.process();
+        assertEquals(1, connectCorrelationIds.size());
+
+        currentTimeMillis = 100L;
+        timer.process();
+        assertEquals(2, connectCorrelationIds.size());
+
+        final Connection hedge = connection(1);
+        window(hedge, slot.capacity());
+        assertEquals(written(original), written(hedge));
+    }
+
+    @Test
+    public void shouldCloseHedgeWhenOriginalResponds()
+    {
+        hedgedRequest();
+        currentTimeMillis = 100L;
+        timer.process();
+        final Connection original = connection(0);
+        final Connection hedge = connection(1);
+        window(hedge, slot.capacity());
+
+        respond(original);
+
+        assertEquals(asList("200"), statuses);
+        assertTrue(hedge.endSent);
+        assertFalse(original.endSent);
+    }
+
+    @Test
+    public void shouldCloseOriginalWhenHedgeResponds()
+    {
+        hedgedRequest();
+        currentTimeMillis = 100L;
+        timer.process();
+        final Connection original = connection(0);
+        final Connection hedge = connection(1);
+        window(hedge, slot.capacity());
+
+        respond(hedge);
+
+        assertEquals(asList("200"), statuses);
+        assertTrue(original.endSent);
+        assertFalse(hedge.endSent);
+    }
+
+    @Test
+    public void shouldAwaitHedgeResponseWhenOriginalLost()
+    {
+        hedgedRequest();
+        currentTimeMillis = 100L;
+        timer.process();
+        final Connection original = connection(0);
+        final Connection hedge = connection(1);
+        window(hedge, slot.capacity());
+
+        reset(original);
+        assertEquals(emptyList(), statuses);
+
+        respond(hedge);
+        assertEquals(asList("200"), statuses);
+    }
+
+    @Test
+    public void shouldRejectRequestWhenOriginalLostBeforeHedgeWritten()
+    {
+        hedgedRequest();
+        currentTimeMillis = 100L;
+        timer.process();
+        final Connection original = connection(0);
+        final Connection hedge = connection(1);
+        window(hedge, 8);
+
+        reset(original);
+
+        assertEquals(asList("503"), statuses);
+        assertTrue(hedge.endSent);
+        assertEquals(8, written(hedge).length());
+    }
+
+    @Test
+    public void shouldEncodeBodyOfUnknownLengthAsChunks()
+    {
+        final MessageConsumer request = beginRequest("POST");
+        window(connection(0), slot.capacity());
+        data(request, "hello");
+        end(request);
+
+        assertEquals("POST / HTTP/1.1\r\nHost: localhost:8080\r\nTransfer-Encoding: chunked\r\n\r\n" +
+                     "5\r\nhello\r\n0\r\n\r\n", written(connection(0)));
+    }
+
+    @Test
+    public void shouldNotEncodeChunksForBodylessRequest()
+    {
+        final MessageConsumer request = beginRequest("TRACE");
+        window(connection(0), slot.capacity());
+        end(request);
+
+        assertEquals("TRACE / HTTP/1.1\r\nHost: localhost:8080\r\n\r\n", written(connection(0)));
+    }
+
+    private void hedgedRequest()
+    {
+        final MessageConsumer request = beginRequest("GET");
+        window(connection(0), slot.capacity());
+        assertTrue(written(connection(0)).length() > 0);
+        end(request);
+    }
+
+    private MessageConsumer beginRequest(
+        String method)
+    {
+        acceptId = ++nextId;
+        final HttpBeginExFW beginEx = new HttpBeginExFW.Builder()
+                .wrap(extension, 0, extension.capacity())
+                .headers(hs ->
+                {
+                    hs.item(h -> h.representation((byte) 0).name(":scheme").value("http"));
+                    hs.item(h -> h.representation((byte) 0).name(":method").value(method));
+                    hs.item(h -> h.representation((byte) 0).name(":path").value("/"));
+                    hs.item(h -> h.representation((byte) 0).name(":authority").value("localhost:8080"));
+                })
+                .build();
+        final BeginFW begin = new BeginFW.Builder()
+                .wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(acceptId)
+                .source("source")
+                .sourceRef(1L)
+                .correlationId(++nextId)
+                .extension(extension, 0, beginEx.sizeof())
+                .build();
+        final MessageConsumer request = factory.newStream(BeginFW.TYPE_ID, frameBuffer, begin.offset(), begin.sizeof(),
+                acceptThrottle);
+        request.accept(BeginFW.TYPE_ID, frameBuffer, begin.offset(), begin.sizeof());
+        return request;
+    }
+
+    private void data(
+        MessageConsumer request,
+        String payload)
+    {
+        final byte[] bytes = payload.getBytes(US_ASCII);
+        final DataFW data = new DataFW.Builder()
+                .wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(acceptId)
+                .length(bytes.length)
+                .payload(new UnsafeBuffer(bytes), 0, bytes.length)
+                .build();
+        request.accept(DataFW.TYPE_ID, frameBuffer, data.offset(), data.sizeof());
+    }
+
+    private void end(
+        MessageConsumer request)
+    {
+        final EndFW end = new EndFW.Builder()
+                .wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(acceptId)
+                .extension(extension, 0, 0)
+                .build();
+        request.accept(EndFW.TYPE_ID, frameBuffer, end.offset(), end.sizeof());
+    }
+
+    private void window(
+        Connection connection,
+        int update)
+    {
+        final WindowFW window = new WindowFW.Builder()
+                .wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(connection.connectStreamId)
+                .update(update)
+                .frames(update)
+                .build();
+        throttles.get(connection.connectStreamId).accept(WindowFW.TYPE_ID, frameBuffer, window.offset(), window.sizeof());
+    }
+
+    private void reset(
+        Connection connection)
+    {
+        final ResetFW reset = new ResetFW.Builder()
+                .wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(connection.connectStreamId)
+                .build();
+        throttles.get(connection.connectStreamId).accept(ResetFW.TYPE_ID, frameBuffer, reset.offset(), reset.sizeof());
+    }
+
+    private void respond(
+        Connection connection)
+    {
+        final BeginFW begin = new BeginFW.Builder()
+                .wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(++nextId)
+                .source("target")
+                .sourceRef(0L)
+                .correlationId(connection.correlationId)
+                .build();
+        final MessageConsumer stream = factory.newStream(BeginFW.TYPE_ID, frameBuffer, begin.offset(), begin.sizeof(),
+                (t, b, o, l) -> { });
+        stream.accept(BeginFW.TYPE_ID, frameBuffer, begin.offset(), begin.sizeof());
+
+        final byte[] response = "HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n".getBytes(US_ASCII);
+        final DataFW data = new DataFW.Builder()
+                .wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(begin.streamId())
+                .length(response.length)
+                .payload(new UnsafeBuffer(response), 0, response.length)
+                .build();
+        stream.accept(DataFW.TYPE_ID, frameBuffer, data.offset(), data.sizeof());
+    }
+
+    private String written(
+        Connection connection)
+    {
+        final StringBuilder payload = written.get(connection.connectStreamId);
+        return payload != null ? payload.toString() : "";
+    }
+
+    private Connection connection(
+        int index)
+    {
+        return connections.get(connectCorrelationIds.get(index));
+    }
+
+    private void handleTarget(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        switch (msgTypeId)
+        {
+        case BeginFW.TYPE_ID:
+            connectCorrelationIds.add(beginRO.wrap(buffer, index, index + length).correlationId());
+            break;
+        case DataFW.TYPE_ID:
+            final DataFW data = dataRO.wrap(buffer, index, index + length);
+            final OctetsFW payload = data.payload();
+            written.computeIfAbsent(data.streamId(), id -> new StringBuilder())
+                   .append(payload.buffer().getStringWithoutLengthUtf8(payload.offset(), payload.sizeof()));
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void handleAcceptReply(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        if (msgTypeId == BeginFW.TYPE_ID)
+        {
+            final BeginFW begin = beginRO.wrap(buffer, index, index + length);
+            begin.extension().get(beginExRO::wrap).headers().forEach(h ->
+            {
+                if (":status".equals(h.name().asString()))
+                {
+                    statuses.add(h.value().asString());
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.buffer.BufferPool;
+import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.http.internal.HttpConfiguration;
+import org.reaktivity.nukleus.http.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.http.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.http.internal.types.stream.EndFW;
+import org.reaktivity.nukleus.http.internal.types.stream.FrameFW;
+import org.reaktivity.nukleus.http.internal.types.stream.HttpBeginExFW;
+import org.reaktivity.nukleus.http.internal.types.stream.ResetFW;
+import org.reaktivity.nukleus.http.internal.types.stream.WindowFW;
+import org.reaktivity.nukleus.route.RouteManager;
+
+public class CollapsedResponseTest
+{
+    private final MutableDirectBuffer extension = new UnsafeBuffer(new byte[1024]);
+    private final List<MessageConsumer> throttles = new ArrayList<>();
+    private final List<String> frames = new ArrayList<>();
+    private final FrameFW frameRO = new FrameFW();
+    private final WindowFW windowRO = new WindowFW();
+    private final MessageConsumer target = this::onFrame;
+
+    private RouteManager router;
+    private BufferPool bufferPool;
+    private ClientStreamFactory factory;
+    private CollapsedResponse response;
+    private long nextId;
+    private int windowUpdate;
+    private boolean reset;
+
+    @Rule
+    public JUnitRuleMockery context = new JUnitRuleMockery()
+    {
+        {
+            router = mock(RouteManager.class, "router");
+            bufferPool = mock(BufferPool.class, "bufferPool");
+        }
+    };
+
+    @Before
+    public void setUp()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                allowing(bufferPool).slotCapacity();
+                will(returnValue(1024));
+                allowing(router).supplyTarget(with(any(String.class)));
+                will(returnValue(target));
+                allowing(router).setThrottle(with(any(String.class)), with(any(long.class)),
+                        with(any(MessageConsumer.class)));
+                will(new CustomAction("capture throttle")
+                {
+                    @Override
+                    public Object invoke(
+                        Invocation invocation)
+                    {
+                        throttles.add((MessageConsumer) invocation.getParameter(2));
+                        return null;
+                    }
+                });
+            }
+        });
+
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.COLLAPSED_FORWARDING_PROPERTY_NAME, "true");
+        HttpConfiguration config = new HttpConfiguration(new Configuration(properties));
+        factory = new ClientStreamFactory(config, router, new HttpRouteTable(),
+                new UnsafeBuffer(new byte[1024]), bufferPool, () -> ++nextId, () -> ++nextId,
+                new Long2ObjectHashMap<>(), new Long2ObjectHashMap<>(), new ConnectionPoolTimer(() -> 0L));
+
+        factory.requestKey.wrap(new HttpBeginExFW.Builder()
+                .wrap(extension, 0, extension.capacity())
+                .headers(hs -> hs.item(h -> h.name(":method").value("GET")).item(h -> h.name(":path").value("/")))
+                .build()
+                .headers());
+        response = new CollapsedResponse(factory, factory.requestKey);
+        response.subscribe("source", 1L);
+        response.subscribe("source", 2L);
+        response.setThrottle(this::onThrottle, 42L);
+    }
+
+    @Test
+    public void shouldWriteResponseToEachSubscriber()
+    {
+        factory.writer.doHttpBegin(response, 0L, 0L, 1L, hs -> hs.item(h -> h.name(":status").value("200")));
+        factory.writer.doHttpData(response, 0L, new UnsafeBuffer(new byte[10]), 0, 10);
+        factory.writer.doHttpEnd(response, 0L);
+
+        assertEquals(2, throttles.size());
+        assertEquals(asList("BEGIN 1", "BEGIN 2", "DATA 1", "DATA 2", "END 1", "END 2"), frames);
+    }
+
+    @Test
+    public void shouldGrantLeastWindowOfSubscribers()
+    {
+        factory.writer.doHttpBegin(response, 0L, 0L, 1L, hs -> hs.item(h -> h.name(":status").value("200")));
+
+        factory.writer.doWindow(throttles.get(0), 0L, 100, 100);
+        assertEquals(0, windowUpdate);
+
+        factory.writer.doWindow(throttles.get(1), 0L, 60, 60);
+        assertEquals(60, windowUpdate);
+
+        factory.writer.doWindow(throttles.get(1), 0L, 60, 60);
+        assertEquals(100, windowUpdate);
+    }
+
+    @Test
+    public void shouldIgnoreWindowOfResetSubscriber()
+    {
+        factory.writer.doHttpBegin(response, 0L, 0L, 1L, hs -> hs.item(h -> h.name(":status").value("200")));
+
+        factory.writer.doWindow(throttles.get(0), 0L, 100, 100);
+        factory.writer.doReset(throttles.get(1), 0L);
+        assertEquals(100, windowUpdate);
+
+        factory.writer.doHttpData(response, 0L, new UnsafeBuffer(new byte[10]), 0, 10);
+        assertEquals(asList("BEGIN 1", "BEGIN 2", "DATA 1"), frames);
+        assertFalse(reset);
+
+        factory.writer.doReset(throttles.get(0), 0L);
+        assertTrue(reset);
+    }
+
+    private void onFrame(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        final FrameFW frame = frameRO.wrap(buffer, index, index + length);
+        switch (msgTypeId)
+        {
+        case BeginFW.TYPE_ID:
+            frames.add("BEGIN " + new BeginFW().wrap(buffer, index, index + length).correlationId());
+            break;
+        case DataFW.TYPE_ID:
+            frames.add("DATA " + frame.streamId());
+            break;
+        case EndFW.TYPE_ID:
+            frames.add("END " + frame.streamId());
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void onThrottle(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        assertEquals(42L, frameRO.wrap(buffer, index, index + length).streamId());
+        switch (msgTypeId)
+        {
+        case WindowFW.TYPE_ID:
+            windowUpdate += windowRO.wrap(buffer, index, index + length).update();
+            break;
+        case ResetFW.TYPE_ID:
+            reset = true;
+            break;
+        default:
+            break;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ConnectionLimiterTest
+{
+    @Test
+    public void shouldStartAtMinimum()
+    {
+        ConnectionLimiter limiter = new ConnectionLimiter(2, 10, 100L);
+
+        assertEquals(2, limiter.limit());
+    }
+
+    @Test
+    public void shouldNotBackoffBelowOneConnection()
+    {
+        ConnectionLimiter limiter = new ConnectionLimiter(0, 10, 100L);
+        assertEquals(1, limiter.limit());
+
+        limiter.onDropped();
+        limiter.onResponse(200L, 1);
+        assertEquals(1, limiter.limit());
+
+        limiter.onResponse(50L, 1);
+        assertEquals(2, limiter.limit());
+    }
+
+    @Test
+    public void shouldIncreaseByOnePerLimitResponsesWithinThreshold()
+    {
+        ConnectionLimiter limiter = new ConnectionLimiter(2, 10, 100L);
+
+        limiter.onResponse(50L, 2);
+        assertEquals(2, limiter.limit());
+
+        limiter.onResponse(50L, 2);
+        assertEquals(3, limiter.limit());
+    }
+
+    @Test
+    public void shouldNotIncreaseWhenConnectionsUnderused()
+    {
+        ConnectionLimiter limiter = new ConnectionLimiter(4, 10, 100L);
+
+        for (int i = 0; i < 10; i++)
+        {
+            limiter.onResponse(50L, 1);
+        }
+
+        assertEquals(4, limiter.limit());
+    }
+
+    @Test
+    public void shouldNotIncreaseBeyondMaximum()
+    {
+        ConnectionLimiter limiter = new ConnectionLimiter(2, 3, 100L);
+
+        for (int i = 0; i < 100; i++)
+        {
+            limiter.onResponse(50L, 3);
+        }
+
+        assertEquals(3, limiter.limit());
+    }
+
+    @Test
+    public void shouldBackoffWhenResponseSlowOrDropped()
+    {
+        ConnectionLimiter limiter = new ConnectionLimiter(2, 100, 100L);
+        for (int i = 2; i < 40; i++)
+        {
+            for (int j = 0; j < i; j++)
+            {
+                limiter.onResponse(50L, 100);
+            }
+        }
+        assertEquals(40, limiter.limit());
+
+        limiter.onResponse(150L, 40);
+        assertEquals(36, limiter.limit());
+
+        limiter.onDropped();
+        assertEquals(32, limiter.limit());
+    }
+
+    @Test
+    public void shouldNotBackoffBelowMinimum()
+    {
+        ConnectionLimiter limiter = new ConnectionLimiter(2, 10, 100L);
+
+        limiter.onDropped();
+        limiter.onResponse(150L, 2);
+
+        assertEquals(2, limiter.limit());
+    }
+}
@@ -0,0 +1,728 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.util.Properties;
+import java.util.function.Consumer;
+
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.buffer.BufferPool;
+import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.http.internal.HttpConfiguration;
+import org.reaktivity.nukleus.http.internal.stream.ConnectionPool.Connection;
+import org.reaktivity.nukleus.http.internal.stream.ConnectionPool.ConnectionRequest;
+import org.reaktivity.nukleus.http.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.http.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.http.internal.types.stream.ResetFW;
+import org.reaktivity.nukleus.route.RouteManager;
+
+public class ConnectionPoolTest
+{
+    private final Long2ObjectHashMap<Correlation<?>> correlations = new Long2ObjectHashMap<>();
+    private final MessageConsumer target = (t, b, o, l) -> this.begins += t == BeginFW.TYPE_ID ? 1 : 0;
+
+    private RouteManager router;
+    private BufferPool bufferPool;
+    private ClientStreamFactory factory;
+    private ConnectionPool pool;
+    private long nextId;
+    private int begins;
+    private long currentTimeMillis;
+    private final ConnectionPoolTimer timer = new ConnectionPoolTimer(() -> currentTimeMillis);
+
+    @Rule
+    public JUnitRuleMockery context = new JUnitRuleMockery()
+    {
+        {
+            router = mock(RouteManager.class, "router");
+            bufferPool = mock(BufferPool.class, "bufferPool");
+        }
+    };
+
+    @Before
+    public void setUp()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                allowing(bufferPool).slotCapacity();
+                will(returnValue(1024));
+                allowing(router).supplyTarget(with(any(String.class)));
+                will(returnValue(target));
+                allowing(router).setThrottle(with(any(String.class)), with(any(long.class)),
+                        with(any(MessageConsumer.class)));
+            }
+        });
+
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.MAXIMUM_CONNECTIONS_PROPERTY_NAME, "1");
+        properties.setProperty(HttpConfiguration.MAXIMUM_PIPELINED_REQUESTS_PER_CONNECTION_PROPERTY_NAME, "2");
+        properties.setProperty(HttpConfiguration.MAXIMUM_QUEUED_REQUESTS_PROPERTY_NAME, "2");
+        properties.setProperty(HttpConfiguration.MAXIMUM_QUEUED_REQUEST_WAIT_PROPERTY_NAME, "100");
+        pool = newConnectionPool(properties);
+    }
+
+    private ConnectionPool newConnectionPool(
+        Properties properties)
+    {
+        HttpConfiguration config = new HttpConfiguration(new Configuration(properties));
+
+        factory = new ClientStreamFactory(config, router, new HttpRouteTable(),
+                new UnsafeBuffer(new byte[1024]), bufferPool, () -> ++nextId, () -> ++nextId, correlations,
+                new Long2ObjectHashMap<>(), timer);
+        return new ConnectionPool(factory, "target", 1L);
+    }
+
+    @Test
+    public void shouldPipelineIdempotentRequestsOnBusyConnection()
+    {
+        Request first = new Request(true);
+        Request second = new Request(true);
+        Request third = new Request(true);
+
+        pool.acquire(first);
+        Connection connection = first.connection;
+        pool.addRequest(connection, first.correlation);
+        pool.requestComplete(connection);
+
+        pool.acquire(second);
+        assertSame(connection, second.connection);
+        pool.addRequest(connection, second.correlation);
+        pool.requestComplete(connection);
+
+        pool.acquire(third);
+        assertNull(third.connection);
+
+        assertSame(first.correlation, correlations.get(connection.correlationId));
+        correlations.remove(connection.correlationId);
+        pool.release(connection, true);
+
+        assertSame(second.correlation, correlations.get(connection.correlationId));
+        assertSame(connection, third.connection);
+    }
+
+    @Test
+    public void shouldNotPipelineNonIdempotentRequests()
+    {
+        Request first = new Request(true);
+        Request second = new Request(false);
+
+        pool.acquire(first);
+        Connection connection = first.connection;
+        pool.addRequest(connection, first.correlation);
+        pool.requestComplete(connection);
+
+        pool.acquire(second);
+        assertNull(second.connection);
+
+        correlations.remove(connection.correlationId);
+        pool.release(connection, true);
+
+        assertSame(connection, second.connection);
+    }
+
+    @Test
+    public void shouldNotPipelineWhileRequestInProgress()
+    {
+        Request first = new Request(true);
+        Request second = new Request(true);
+
+        pool.acquire(first);
+        Connection connection = first.connection;
+        pool.addRequest(connection, first.correlation);
+
+        pool.acquire(second);
+        assertNull(second.connection);
+
+        pool.requestComplete(connection);
+        assertSame(connection, second.connection);
+    }
+
+    @Test
+    public void shouldReleasePipelinedRequestsWhenConnectionCloses()
+    {
+        Request first = new Request(true);
+        Request second = new Request(true);
+        Request third = new Request(false);
+
+        pool.acquire(first);
+        Connection connection = first.connection;
+        pool.addRequest(connection, first.correlation);
+        pool.requestComplete(connection);
+        pool.acquire(second);
+        pool.addRequest(connection, second.correlation);
+        pool.requestComplete(connection);
+        pool.acquire(third);
+
+        connection.persistent = false;
+        pool.release(connection, false);
+
+        assertNull(correlations.get(connection.correlationId));
+        assertTrue(connection.pipelinedCorrelations.isEmpty());
+        assertNotNull(third.connection);
+        assertNotSame(connection, third.connection);
+    }
+
+    @Test
+    public void shouldRejectRequestsWhenQueueFull()
+    {
+        Request first = new Request(false);
+        Request second = new Request(false);
+        Request third = new Request(false);
+        Request fourth = new Request(false);
+
+        pool.acquire(first);
+        pool.acquire(second);
+        pool.acquire(third);
+        pool.acquire(fourth);
+
+        assertNotNull(first.connection);
+        assertFalse(second.rejected);
+        assertFalse(third.rejected);
+        assertTrue(fourth.rejected);
+
+        first.connection.persistent = false;
+        pool.release(first.connection, true);
+
+        assertNotNull(second.connection);
+        assertNull(third.connection);
+    }
+
+    @Test
+    public void shouldRejectQueuedRequestsAfterDeadline()
+    {
+        Request first = new Request(false);
+        Request second = new Request(false);
+        Request third = new Request(false);
+
+        pool.acquire(first);
+        currentTimeMillis = 10L;
+        pool.acquire(second);
+        currentTimeMillis = 50L;
+        pool.acquire(third);
+
+        currentTimeMillis = 109L;
+        assertEquals(0, timer.process());
+
+        currentTimeMillis = 110L;
+        assertEquals(1, timer.process());
+        assertTrue(second.rejected);
+        assertFalse(third.rejected);
+
+        currentTimeMillis = 200L;
+        assertEquals(1, timer.process());
+        assertTrue(third.rejected);
+
+        first.connection.persistent = false;
+        pool.release(first.connection, true);
+        assertNull(second.connection);
+        assertNull(third.connection);
+    }
+
+    @Test
+    public void shouldReuseMostRecentlyUsedConnection()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.MAXIMUM_CONNECTIONS_PROPERTY_NAME, "2");
+        pool = newConnectionPool(properties);
+
+        Request first = new Request(false);
+        Request second = new Request(false);
+        Request third = new Request(false);
+
+        pool.acquire(first);
+        pool.acquire(second);
+        assertNotSame(first.connection, second.connection);
+
+        completeRequest(first);
+        completeRequest(second);
+
+        pool.acquire(third);
+        assertSame(second.connection, third.connection);
+    }
+
+    @Test
+    public void shouldEvictIdleConnectionAfterKeepaliveTimeout()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.KEEPALIVE_TIMEOUT_PROPERTY_NAME, "1000");
+        pool = newConnectionPool(properties);
+
+        Request first = new Request(false);
+        Request second = new Request(false);
+
+        pool.acquire(first);
+        completeRequest(first);
+
+        currentTimeMillis = 999L;
+        assertEquals(0, timer.process());
+        assertFalse(first.connection.endSent);
+
+        currentTimeMillis = 1000L;
+        assertEquals(1, timer.process());
+        assertTrue(first.connection.endSent);
+
+        pool.acquire(second);
+        assertNotNull(second.connection);
+        assertNotSame(first.connection, second.connection);
+    }
+
+    @Test
+    public void shouldNotEvictConnectionReusedBeforeKeepaliveTimeout()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.KEEPALIVE_TIMEOUT_PROPERTY_NAME, "1000");
+        pool = newConnectionPool(properties);
+
+        Request first = new Request(false);
+        Request second = new Request(false);
+
+        pool.acquire(first);
+        completeRequest(first);
+
+        currentTimeMillis = 500L;
+        pool.acquire(second);
+        assertSame(first.connection, second.connection);
+
+        currentTimeMillis = 1000L;
+        assertEquals(0, timer.process());
+        assertFalse(second.connection.endSent);
+    }
+
+    @Test
+    public void shouldCloseConnectionAfterMaximumLifetime()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.KEEPALIVE_TIMEOUT_PROPERTY_NAME, "1000");
+        properties.setProperty(HttpConfiguration.MAXIMUM_CONNECTION_LIFETIME_PROPERTY_NAME, "1500");
+        pool = newConnectionPool(properties);
+
+        Request first = new Request(false);
+        Request second = new Request(false);
+        Request third = new Request(false);
+
+        pool.acquire(first);
+        completeRequest(first);
+
+        currentTimeMillis = 900L;
+        pool.acquire(second);
+        assertSame(first.connection, second.connection);
+
+        currentTimeMillis = 1600L;
+        completeRequest(second);
+        assertTrue(second.connection.endSent);
+
+        pool.acquire(third);
+        assertNotSame(second.connection, third.connection);
+    }
+
+    @Test
+    public void shouldPrewarmMinimumIdleConnections()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.MAXIMUM_CONNECTIONS_PROPERTY_NAME, "3");
+        properties.setProperty(HttpConfiguration.MINIMUM_IDLE_CONNECTIONS_PROPERTY_NAME, "2");
+        pool = newConnectionPool(properties);
+
+        assertEquals(2, pool.idleConnections());
+
+        Request first = new Request(false);
+        Request second = new Request(false);
+
+        pool.acquire(first);
+        assertEquals(2, pool.idleConnections());
+
+        pool.acquire(second);
+        assertNotSame(first.connection, second.connection);
+        assertEquals(1, pool.idleConnections());
+    }
+
+    @Test
+    public void shouldKeepMinimumIdleConnectionsBeyondKeepaliveTimeout()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.MAXIMUM_CONNECTIONS_PROPERTY_NAME, "2");
+        properties.setProperty(HttpConfiguration.MINIMUM_IDLE_CONNECTIONS_PROPERTY_NAME, "1");
+        properties.setProperty(HttpConfiguration.KEEPALIVE_TIMEOUT_PROPERTY_NAME, "1000");
+        pool = newConnectionPool(properties);
+
+        Request first = new Request(false);
+        Request second = new Request(false);
+
+        pool.acquire(first);
+        pool.acquire(second);
+        completeRequest(first);
+        completeRequest(second);
+        assertEquals(2, pool.idleConnections());
+
+        currentTimeMillis = 1000L;
+        assertEquals(2, timer.process());
+        assertEquals(1, pool.idleConnections());
+        assertTrue(first.connection.endSent);
+        assertFalse(second.connection.endSent);
+
+        currentTimeMillis = 2000L;
+        timer.process();
+        assertEquals(1, pool.idleConnections());
+        assertFalse(second.connection.endSent);
+    }
+
+    @Test
+    public void shouldReplaceMinimumIdleConnectionAfterMaximumLifetime()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.MINIMUM_IDLE_CONNECTIONS_PROPERTY_NAME, "1");
+        properties.setProperty(HttpConfiguration.KEEPALIVE_TIMEOUT_PROPERTY_NAME, "1000");
+        properties.setProperty(HttpConfiguration.MAXIMUM_CONNECTION_LIFETIME_PROPERTY_NAME, "1500");
+        pool = newConnectionPool(properties);
+
+        Request first = new Request(false);
+        Request second = new Request(false);
+
+        pool.acquire(first);
+        completeRequest(first);
+
+        currentTimeMillis = 1500L;
+        timer.process();
+        assertTrue(first.connection.endSent);
+        assertEquals(1, pool.idleConnections());
+
+        pool.acquire(second);
+        assertNotSame(first.connection, second.connection);
+    }
+
+    @Test
+    public void shouldBackOffPrewarmingAfterConnectionRefused()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.MAXIMUM_CONNECTIONS_PROPERTY_NAME, "1");
+        properties.setProperty(HttpConfiguration.MINIMUM_IDLE_CONNECTIONS_PROPERTY_NAME, "1");
+        pool = newConnectionPool(properties);
+        assertEquals(1, begins);
+
+        Request first = new Request(false);
+        pool.acquire(first);
+        first.connection.handleThrottleDefault(ResetFW.TYPE_ID, new UnsafeBuffer(new byte[0]), 0, 0);
+        assertEquals(1, begins);
+        assertEquals(0, pool.idleConnections());
+
+        currentTimeMillis = 100L;
+        timer.process();
+        assertEquals(2, begins);
+        assertEquals(1, pool.idleConnections());
+
+        Request second = new Request(false);
+        pool.acquire(second);
+        second.connection.handleThrottleDefault(ResetFW.TYPE_ID, new UnsafeBuffer(new byte[0]), 0, 0);
+
+        currentTimeMillis = 200L;
+        timer.process();
+        assertEquals(2, begins);
+
+        currentTimeMillis = 300L;
+        timer.process();
+        assertEquals(3, begins);
+    }
+
+    @Test
+    public void shouldAdaptConnectionLimitToResponseLatency()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.MINIMUM_CONNECTIONS_PROPERTY_NAME, "1");
+        properties.setProperty(HttpConfiguration.MAXIMUM_CONNECTIONS_PROPERTY_NAME, "3");
+        properties.setProperty(HttpConfiguration.RESPONSE_LATENCY_THRESHOLD_PROPERTY_NAME, "100");
+        pool = newConnectionPool(properties);
+
+        Request first = new Request(false);
+        Request second = new Request(false);
+        Request third = new Request(false);
+
+        pool.acquire(first);
+        pool.acquire(second);
+        pool.acquire(third);
+        assertNull(second.connection);
+
+        completeRequest(first);
+        assertSame(first.connection, second.connection);
+        assertNotNull(third.connection);
+        assertNotSame(first.connection, third.connection);
+
+        Connection connection = second.connection;
+        pool.addRequest(connection, second.correlation);
+        pool.requestComplete(connection);
+        connection.responseLatency = 200L;
+        correlations.remove(connection.correlationId);
+        pool.release(connection, true);
+
+        assertTrue(connection.endSent);
+        assertEquals(0, pool.idleConnections());
+    }
+
+    @Test
+    public void shouldMeasureResponseLatencyToResponseHead()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.MINIMUM_CONNECTIONS_PROPERTY_NAME, "1");
+        properties.setProperty(HttpConfiguration.MAXIMUM_CONNECTIONS_PROPERTY_NAME, "3");
+        properties.setProperty(HttpConfiguration.RESPONSE_LATENCY_THRESHOLD_PROPERTY_NAME, "100");
+        pool = newConnectionPool(properties);
+
+        Request first = new Request(false);
+        pool.acquire(first);
+
+        Connection connection = first.connection;
+        pool.addRequest(connection, first.correlation);
+        pool.requestComplete(connection);
+        connection.responseLatency = 50L;
+        currentTimeMillis = 200L;
+        correlations.remove(connection.correlationId);
+        pool.release(connection, true);
+
+        assertFalse(connection.endSent);
+        assertEquals(1, pool.idleConnections());
+    }
+
+    @Test
+    public void shouldCountOutstandingRequests()
+    {
+        Request first = new Request(true);
+        Request second = new Request(true);
+        Request third = new Request(false);
+
+        pool.acquire(first);
+        Connection connection = first.connection;
+        pool.addRequest(connection, first.correlation);
+        pool.requestComplete(connection);
+        pool.acquire(second);
+        pool.addRequest(connection, second.correlation);
+        pool.requestComplete(connection);
+        pool.acquire(third);
+        assertEquals(3, pool.outstandingRequests());
+
+        correlations.remove(connection.correlationId);
+        pool.release(connection, true);
+        assertEquals(2, pool.outstandingRequests());
+
+        connection.persistent = false;
+        pool.release(connection, false);
+        assertEquals(0, pool.outstandingRequests());
+
+        pool.addRequest(third.connection, third.correlation);
+        assertEquals(1, pool.outstandingRequests());
+    }
+
+    @Test
+    public void shouldEjectTargetAfterConsecutiveServerErrors()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.OUTLIER_CONSECUTIVE_FAILURES_PROPERTY_NAME, "2");
+        properties.setProperty(HttpConfiguration.OUTLIER_EJECTION_TIME_PROPERTY_NAME, "1000");
+        pool = newConnectionPool(properties);
+
+        Request first = new Request(false);
+        Request second = new Request(false);
+
+        pool.acquire(first);
+        first.connection.responseStatus = 503;
+        completeRequest(first);
+        assertEquals(0, pool.targetLoad());
+
+        pool.acquire(second);
+        second.connection.responseStatus = 500;
+        completeRequest(second);
+        assertEquals(HttpRouteTable.TargetLoad.EJECTED, pool.targetLoad());
+
+        currentTimeMillis = 1000L;
+        assertEquals(0, pool.targetLoad());
+    }
+
+    @Test
+    public void shouldLimitHedgesToBudget()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.MAXIMUM_CONNECTIONS_PROPERTY_NAME, "4");
+        properties.setProperty(HttpConfiguration.HEDGED_REQUEST_BUDGET_PROPERTY_NAME, "50");
+        pool = newConnectionPool(properties);
+
+        Request first = new Request(false);
+        Request second = new Request(false);
+
+        pool.acquire(first);
+        assertNull(pool.acquireHedge());
+
+        pool.acquire(second);
+        Connection hedge = pool.acquireHedge();
+        assertNotNull(hedge);
+        assertNotSame(first.connection, hedge);
+        assertNotSame(second.connection, hedge);
+
+        assertNull(pool.acquireHedge());
+    }
+
+    @Test
+    public void shouldCancelAwaitedResponse()
+    {
+        Request first = new Request(false);
+        Request second = new Request(false);
+
+        pool.acquire(first);
+        Connection connection = first.connection;
+        pool.addRequest(connection, first.correlation);
+        pool.requestComplete(connection);
+        pool.acquire(second);
+
+        pool.cancel(connection);
+
+        assertTrue(connection.endSent);
+        assertNull(correlations.get(connection.correlationId));
+        assertNotNull(second.connection);
+        assertNotSame(connection, second.connection);
+        assertEquals(0, pool.outstandingRequests());
+    }
+
+    @Test
+    public void shouldResetUnsolicitedResponseOnPrewarmedConnection()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConfiguration.MAXIMUM_CONNECTIONS_PROPERTY_NAME, "1");
+        properties.setProperty(HttpConfiguration.MINIMUM_IDLE_CONNECTIONS_PROPERTY_NAME, "1");
+        pool = newConnectionPool(properties);
+
+        Request first = new Request(false);
+        pool.acquire(first);
+        final Connection connection = first.connection;
+
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[256]);
+        final int[] resets = new int[1];
+        final MessageConsumer throttle = (t, b, o, l) -> resets[0] += t == ResetFW.TYPE_ID ? 1 : 0;
+
+        final BeginFW begin = new BeginFW.Builder().wrap(buffer, 0, buffer.capacity())
+                .streamId(++nextId)
+                .source("target")
+                .sourceRef(0L)
+                .correlationId(connection.correlationId)
+                .build();
+        final MessageConsumer stream = factory.newStream(BeginFW.TYPE_ID, buffer, begin.offset(), begin.sizeof(), throttle);
+        stream.accept(BeginFW.TYPE_ID, buffer, begin.offset(), begin.sizeof());
+
+        final byte[] response = "HTTP/1.1 408 Request Timeout\r\n\r\n".getBytes(US_ASCII);
+        final DataFW data = new DataFW.Builder().wrap(buffer, 0, buffer.capacity())
+                .streamId(begin.streamId())
+                .length(response.length)
+                .payload(new UnsafeBuffer(response), 0, response.length)
+                .build();
+        stream.accept(DataFW.TYPE_ID, buffer, data.offset(), data.sizeof());
+
+        assertEquals(1, resets[0]);
+        assertFalse(connection.persistent);
+        assertNull(factory.connections.get(connection.correlationId));
+    }
+
+    private void completeRequest(
+        Request request)
+    {
+        final Connection connection = request.connection;
+        pool.addRequest(connection, request.correlation);
+        pool.requestComplete(connection);
+        correlations.remove(connection.correlationId);
+        pool.release(connection, true);
+    }
+
+    private final class Request implements ConnectionRequest, Consumer<Connection>
+    {
+        private final boolean pipelinable;
+        private final Correlation<?> correlation;
+        private ConnectionRequest next;
+        private Connection connection;
+        private long deadline;
+        private boolean rejected;
+
+        private Request(
+            boolean pipelinable)
+        {
+            this.pipelinable = pipelinable;
+            this.correlation = new Correlation<>(++nextId, "source");
+        }
+
+        @Override
+        public Consumer<Connection> getConsumer()
+        {
+            return this;
+        }
+
+        @Override
+        public void next(
+            ConnectionRequest next)
+        {
+            this.next = next;
+        }
+
+        @Override
+        public ConnectionRequest next()
+        {
+            return next;
+        }
+
+        @Override
+        public boolean pipelinable()
+        {
+            return pipelinable;
+        }
+
+        @Override
+        public void deadline(
+            long deadline)
+        {
+            this.deadline = deadline;
+        }
+
+        @Override
+        public long deadline()
+        {
+            return deadline;
+        }
+
+        @Override
+        public void reject()
+        {
+            this.rejected = true;
+        }
+
+        @Override
+        public void accept(
+            Connection connection)
+        {
+            this.connection = connection;
+        }
+    }
+}
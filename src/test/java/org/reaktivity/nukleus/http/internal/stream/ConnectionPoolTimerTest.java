@@ -0,0 +1,111 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.reaktivity.nukleus.http.internal.stream.ConnectionPoolTimer.Timeout;
+
+public class ConnectionPoolTimerTest
+{
+    private long currentTimeMillis;
+    private int expired;
+
+    private final ConnectionPoolTimer timer = new ConnectionPoolTimer(() -> currentTimeMillis);
+
+    @Test
+    public void shouldExpireTimeoutOnFirstTickAfterDeadline()
+    {
+        Timeout timeout = new Timeout(() -> expired++);
+        timer.schedule(timeout, 250L);
+
+        currentTimeMillis = 250L;
+        assertEquals(0, timer.process());
+
+        currentTimeMillis = 299L;
+        assertEquals(0, timer.process());
+        assertTrue(timeout.isScheduled());
+
+        currentTimeMillis = 300L;
+        assertEquals(1, timer.process());
+        assertEquals(1, expired);
+        assertFalse(timeout.isScheduled());
+    }
+
+    @Test
+    public void shouldExpireTimeoutBeyondOneRevolution()
+    {
+        Timeout timeout = new Timeout(() -> expired++);
+        timer.schedule(timeout, 100_000L);
+
+        currentTimeMillis = 99_999L;
+        assertEquals(0, timer.process());
+
+        currentTimeMillis = 150_000L;
+        assertEquals(1, timer.process());
+        assertEquals(1, expired);
+    }
+
+    @Test
+    public void shouldNotExpireCancelledTimeout()
+    {
+        Timeout first = new Timeout(() -> expired++);
+        Timeout second = new Timeout(() -> expired += 10);
+        timer.schedule(first, 100L);
+        timer.schedule(second, 100L);
+        timer.cancel(second);
+
+        currentTimeMillis = 100L;
+        assertEquals(1, timer.process());
+        assertEquals(1, expired);
+    }
+
+    @Test
+    public void shouldNotExpireTimeoutCancelledByExpiredTimeout()
+    {
+        Timeout third = new Timeout(() -> expired += 100);
+        Timeout second = new Timeout(() -> expired += 10);
+        Timeout first = new Timeout(() ->
+        {
+            expired++;
+            timer.cancel(second);
+        });
+        timer.schedule(first, 100L);
+        timer.schedule(second, 100L);
+        timer.schedule(third, 100L);
+
+        currentTimeMillis = 100L;
+        assertEquals(2, timer.process());
+        assertEquals(101, expired);
+    }
+
+    @Test
+    public void shouldRescheduleTimeout()
+    {
+        Timeout timeout = new Timeout(() -> expired++);
+        timer.schedule(timeout, 100L);
+        timer.schedule(timeout, 300L);
+
+        currentTimeMillis = 200L;
+        assertEquals(0, timer.process());
+
+        currentTimeMillis = 300L;
+        assertEquals(1, timer.process());
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.reaktivity.nukleus.http.internal.stream.HttpChunkParser.CHUNK_SIZE_INVALID;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+public class HttpChunkParserTest
+{
+    private final HttpChunkParser parser = new HttpChunkParser(1024);
+
+    @Test
+    public void shouldParseHexChunkSize()
+    {
+        assertEquals(0x1aF, chunkSize("1aF"));
+        assertEquals(0, chunkSize("0"));
+        assertEquals(Integer.MAX_VALUE, chunkSize("0007fffffff"));
+    }
+
+    @Test
+    public void shouldIgnoreChunkExtensions()
+    {
+        assertEquals(16, chunkSize("10;name=value"));
+        assertEquals(16, chunkSize("10 ; name=\"quoted\";other"));
+    }
+
+    @Test
+    public void shouldRejectInvalidChunkSize()
+    {
+        assertEquals(CHUNK_SIZE_INVALID, chunkSize(""));
+        assertEquals(CHUNK_SIZE_INVALID, chunkSize(";name"));
+        assertEquals(CHUNK_SIZE_INVALID, chunkSize("1g"));
+        assertEquals(CHUNK_SIZE_INVALID, chunkSize("-1"));
+        assertEquals(CHUNK_SIZE_INVALID, chunkSize("80000000"));
+    }
+
+    @Test
+    public void shouldParseTrailers()
+    {
+        final DirectBuffer buffer = buffer("xChecksum: abc\r\nExpires: never \r\n\r\n");
+
+        assertTrue(parser.parseTrailers(buffer, 1, buffer.capacity()));
+        assertEquals(2, parser.fieldCount());
+        assertEquals("checksum", parser.nameBuffer().getStringWithoutLengthUtf8(parser.nameOffset(0), parser.nameLength(0)));
+        assertEquals("abc", buffer.getStringWithoutLengthUtf8(parser.valueOffset(0), parser.valueLength(0)));
+        assertEquals("never", buffer.getStringWithoutLengthUtf8(parser.valueOffset(1), parser.valueLength(1)));
+        assertEquals(2, parser.trailers(new HttpHeaderBlock()).count());
+    }
+
+    @Test
+    public void shouldRejectMalformedTrailers()
+    {
+        final DirectBuffer buffer = buffer("Checksum abc\r\n\r\n");
+
+        assertFalse(parser.parseTrailers(buffer, 0, buffer.capacity()));
+    }
+
+    private static int chunkSize(
+        String line)
+    {
+        final DirectBuffer buffer = buffer(" " + line + "\r\n");
+        return HttpChunkParser.chunkSize(buffer, 1, buffer.capacity() - 2);
+    }
+
+    private static DirectBuffer buffer(
+        String text)
+    {
+        return new UnsafeBuffer(text.getBytes(US_ASCII));
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.reaktivity.nukleus.http.internal.stream.HttpContentEncoder.CODING_DEFLATE;
+import static org.reaktivity.nukleus.http.internal.stream.HttpContentEncoder.CODING_GZIP;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+public class HttpContentEncoderTest
+{
+    private final HttpContentEncoder encoder = new HttpContentEncoder(1024, 256, new String[] { "text/*", " application/json" });
+
+    @Test
+    public void shouldParseAcceptedCodings()
+    {
+        assertEquals(CODING_GZIP | CODING_DEFLATE, acceptedCodings("gzip, deflate, br"));
+        assertEquals(CODING_GZIP, acceptedCodings("x-gzip;q=0.5"));
+        assertEquals(CODING_DEFLATE, acceptedCodings("GZIP;q=0, Deflate;q=1.0"));
+        assertEquals(CODING_GZIP, acceptedCodings("*, deflate; q=0.000"));
+        assertEquals(0, acceptedCodings("identity, br"));
+        assertEquals(0, acceptedCodings(""));
+    }
+
+    @Test
+    public void shouldPreferGzip()
+    {
+        assertEquals(CODING_GZIP, HttpContentEncoder.selectCoding(CODING_GZIP | CODING_DEFLATE));
+        assertEquals(CODING_DEFLATE, HttpContentEncoder.selectCoding(CODING_DEFLATE));
+        assertEquals(0, HttpContentEncoder.selectCoding(0));
+    }
+
+    @Test
+    public void shouldMatchCompressibleContentTypes()
+    {
+        assertTrue(compressible("text/html"));
+        assertTrue(compressible("Text/Plain; charset=utf-8"));
+        assertTrue(compressible("application/json "));
+        assertFalse(compressible("application/json-seq"));
+        assertFalse(compressible("image/png"));
+        assertFalse(compressible("text"));
+    }
+
+    @Test
+    public void shouldCompressWithGzip() throws IOException
+    {
+        final byte[] data = data(4000);
+
+        assertArrayEquals(data, decompress(new GZIPInputStream(new ByteArrayInputStream(encode(CODING_GZIP, data, 64)))));
+    }
+
+    @Test
+    public void shouldCompressWithDeflate() throws IOException
+    {
+        final byte[] data = data(4000);
+
+        assertArrayEquals(data, decompress(new InflaterInputStream(new ByteArrayInputStream(encode(CODING_DEFLATE, data, 64)))));
+    }
+
+    @Test
+    public void shouldCompressEmptyBody() throws IOException
+    {
+        final byte[] data = new byte[0];
+
+        assertArrayEquals(data, decompress(new GZIPInputStream(new ByteArrayInputStream(encode(CODING_GZIP, data, 1024)))));
+    }
+
+    @Test
+    public void shouldNotEncodeIntoLessThanMinimumOutput()
+    {
+        final HttpContentEncoder.Encoding encoding = encoder.supplyEncoding(CODING_GZIP);
+
+        assertEquals(0, encoding.encode(new UnsafeBuffer(data(100)), 0, 100, true, 16));
+        assertEquals(0, encoding.consumed());
+        assertFalse(encoding.finished());
+        encoding.release();
+    }
+
+    private byte[] encode(
+        int coding,
+        byte[] data,
+        int maximumLength)
+    {
+        final DirectBuffer buffer = new UnsafeBuffer(data);
+        final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        final HttpContentEncoder.Encoding encoding = encoder.supplyEncoding(coding);
+
+        // offer the data in pieces, as it is received, and drain the output into a limited window
+        int offset = 0;
+        int received = 0;
+        while (!encoding.finished())
+        {
+            received = Math.min(received + 700, data.length);
+            final int length = encoding.encode(buffer, offset, received - offset, received == data.length, maximumLength);
+            encoded.write(encoder.output().byteArray(), 0, length);
+            offset += encoding.consumed();
+        }
+        encoding.release();
+
+        return encoded.toByteArray();
+    }
+
+    private static byte[] decompress(
+        InputStream input) throws IOException
+    {
+        final ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        final byte[] bytes = new byte[256];
+        for (int length = input.read(bytes); length != -1; length = input.read(bytes))
+        {
+            decompressed.write(bytes, 0, length);
+        }
+        return decompressed.toByteArray();
+    }
+
+    private static byte[] data(
+        int length)
+    {
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++)
+        {
+            data[i] = (byte) ("lorem ipsum dolor sit amet ".charAt(i % 27) + i / 1000);
+        }
+        return data;
+    }
+
+    private boolean compressible(
+        String contentType)
+    {
+        return encoder.compressible(new UnsafeBuffer(contentType.getBytes(US_ASCII)), 0, contentType.length());
+    }
+
+    private static int acceptedCodings(
+        String value)
+    {
+        return HttpContentEncoder.acceptedCodings(new UnsafeBuffer(value.getBytes(US_ASCII)), 0, value.length());
+    }
+}
@@ -0,0 +1,327 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+import org.reaktivity.nukleus.http.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http.internal.types.ListFW;
+import org.reaktivity.nukleus.http.internal.types.stream.HttpBeginExFW;
+
+public class HttpHeadEncoderTest
+{
+    private final MutableDirectBuffer extension = new UnsafeBuffer(new byte[1024]);
+    private final MutableDirectBuffer slot = new UnsafeBuffer(new byte[256]);
+    private final HttpHeadEncoder encoder = new HttpHeadEncoder();
+
+    @Test
+    public void shouldEncodeResponseWithReasonPhraseAndCanonicalNames()
+    {
+        ListFW<HttpHeaderFW> headers = headers(":status", "404", "content-type", "text/plain",
+                                               "etag", "\"abc\"", "x-custom-header-name", "value");
+
+        assertEquals("HTTP/1.1 404 Not Found\r\n" +
+                     "Content-Type: text/plain\r\n" +
+                     "ETag: \"abc\"\r\n" +
+                     "X-Custom-Header-Name: value\r\n" +
+                     "\r\n", encodeResponse(headers));
+    }
+
+    @Test
+    public void shouldEncodeStatusAfterOtherHeaders()
+    {
+        ListFW<HttpHeaderFW> headers = headers("upgrade", "websocket", ":status", "101");
+
+        assertEquals("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\n\r\n", encodeResponse(headers));
+    }
+
+    @Test
+    public void shouldEncodeDefaultStatusWithoutHeaders()
+    {
+        assertEquals("HTTP/1.1 200 OK\r\n\r\n", encodeResponse(null));
+    }
+
+    @Test
+    public void shouldEncodeUnregisteredStatusWithEmptyReason()
+    {
+        assertEquals("HTTP/1.1 299 \r\n\r\n", encodeResponse(headers(":status", "299")));
+    }
+
+    @Test
+    public void shouldEncodeStatusBeyondRegisteredRangeWithEmptyReason()
+    {
+        assertEquals("HTTP/1.1 600 \r\n\r\n", encodeResponse(headers(":status", "600")));
+        assertEquals("HTTP/1.1 999 \r\n\r\n", encodeResponse(headers(":status", "999")));
+        assertEquals(999, encoder.status);
+    }
+
+    @Test
+    public void shouldNotEncodeResponseBeyondLimit()
+    {
+        ListFW<HttpHeaderFW> headers = headers(":status", "200", "content-length", "12");
+
+        assertEquals(-1, encoder.encodeResponse(headers, slot, 0, 20));
+    }
+
+    @Test
+    public void shouldDetectResponseBodyDelimiters()
+    {
+        encodeResponse(headers(":status", "204", "transfer-encoding", "Chunked"));
+        assertEquals(204, encoder.status);
+        assertFalse(encoder.contentLength);
+        assertTrue(encoder.transferEncoding);
+        assertTrue(encoder.chunked);
+
+        encodeResponse(headers("content-length", "0"));
+        assertEquals(200, encoder.status);
+        assertTrue(encoder.contentLength);
+        assertFalse(encoder.transferEncoding);
+        assertFalse(encoder.chunked);
+    }
+
+    @Test
+    public void shouldEncodeChunkWithHexadecimalSize()
+    {
+        final UnsafeBuffer payload = new UnsafeBuffer(new byte[26]);
+        payload.putStringWithoutLengthUtf8(0, "abcdefghijklmnopqrstuvwxyz");
+
+        final int limit = HttpHeadEncoder.encodeChunk(slot, 0, slot.capacity(), payload, 0, 26);
+
+        assertEquals("1a\r\nabcdefghijklmnopqrstuvwxyz\r\n", slot.getStringWithoutLengthUtf8(0, limit));
+        assertEquals(limit, HttpHeadEncoder.chunkLength(26));
+        assertEquals(-1, HttpHeadEncoder.encodeChunk(slot, 0, limit - 1, payload, 0, 26));
+    }
+
+    @Test
+    public void shouldEncodeLastChunkWithTrailer()
+    {
+        final int limit = encoder.encodeLastChunk(headers("connection", "close"), slot, 0, slot.capacity());
+
+        assertEquals("0\r\nConnection: close\r\n\r\n", slot.getStringWithoutLengthUtf8(0, limit));
+        assertEquals(HttpHeadEncoder.LAST_CHUNK_LENGTH, encoder.encodeLastChunk(null, slot, 0, slot.capacity()));
+    }
+
+    @Test
+    public void shouldEncodeContentLength()
+    {
+        final int limit = HttpHeadEncoder.encodeContentLength(slot, 0, slot.capacity(), 1024);
+
+        assertEquals("Content-Length: 1024\r\n", slot.getStringWithoutLengthUtf8(0, limit));
+        assertEquals(limit, HttpHeadEncoder.contentLengthFieldLength(1024));
+    }
+
+    @Test
+    public void shouldDetectCompressibleResponses()
+    {
+        encodeResponse(headers(":status", "200", "content-type", "text/html", "content-length", "2048"));
+        assertEquals(2048L, encoder.contentLengthValue);
+        assertEquals("text/html", extensionString(encoder.contentTypeOffset, encoder.contentTypeLength));
+        assertFalse(encoder.contentEncoding);
+
+        encodeResponse(headers(":status", "200", "cache-control", "public, No-Transform"));
+        assertEquals(-1L, encoder.contentLengthValue);
+        assertEquals(-1, encoder.contentTypeOffset);
+        assertTrue(encoder.contentEncoding);
+
+        encodeResponse(headers(":status", "200", "content-encoding", "br"));
+        assertTrue(encoder.contentEncoding);
+    }
+
+    @Test
+    public void shouldEncodeCompressedResponse()
+    {
+        ListFW<HttpHeaderFW> headers = headers(":status", "200", "content-type", "text/plain", "content-length", "2048");
+        final int limit = encoder.encodeResponse(headers, slot, 0, slot.capacity(),
+                HttpContentEncoder.CONTENT_ENCODING_GZIP_CRLF);
+
+        assertEquals("HTTP/1.1 200 OK\r\n" +
+                     "Content-Type: text/plain\r\n" +
+                     "Content-Encoding: gzip\r\n" +
+                     "Vary: Accept-Encoding\r\n" +
+                     "Transfer-Encoding: chunked\r\n" +
+                     "\r\n", slot.getStringWithoutLengthUtf8(0, limit));
+    }
+
+    @Test
+    public void shouldAddAcceptEncodingToVary()
+    {
+        ListFW<HttpHeaderFW> headers = headers(":status", "200", "vary", "Accept-Language", "transfer-encoding", "chunked");
+        final int limit = encoder.encodeResponse(headers, slot, 0, slot.capacity(),
+                HttpContentEncoder.CONTENT_ENCODING_DEFLATE_CRLF);
+
+        assertEquals("HTTP/1.1 200 OK\r\n" +
+                     "Vary: Accept-Language, Accept-Encoding\r\n" +
+                     "Content-Encoding: deflate\r\n" +
+                     "Transfer-Encoding: chunked\r\n" +
+                     "\r\n", slot.getStringWithoutLengthUtf8(0, limit));
+    }
+
+    @Test
+    public void shouldEncodeRequestLineAndHost()
+    {
+        ListFW<HttpHeaderFW> headers = headers(":method", "GET", ":scheme", "http", ":path", "/index.html",
+                                               ":authority", "localhost:8080", "host", "localhost:8080",
+                                               "content-type", "text/plain");
+
+        assertEquals("GET /index.html HTTP/1.1\r\n" +
+                     "Host: localhost:8080\r\n" +
+                     "Content-Type: text/plain\r\n" +
+                     "\r\n", encodeRequest(headers));
+        assertTrue(encoder.persistent);
+    }
+
+    @Test
+    public void shouldTakeAuthorityFromHostHeader()
+    {
+        ListFW<HttpHeaderFW> headers = headers(":method", "GET", ":scheme", "http", ":path", "/", "Host", "example.com");
+
+        assertEquals("GET / HTTP/1.1\r\nHost: example.com\r\n\r\n", encodeRequest(headers));
+    }
+
+    @Test
+    public void shouldDetectNonPersistentRequests()
+    {
+        encodeRequest(headers(":method", "POST", ":scheme", "http", ":path", "/", ":authority", "example.com"));
+        assertFalse(encoder.persistent);
+
+        encodeRequest(headers(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "example.com",
+                              "connection", "keep-alive, Close"));
+        assertFalse(encoder.persistent);
+    }
+
+    @Test
+    public void shouldDetectIdempotentRequests()
+    {
+        encodeRequest(headers(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "example.com"));
+        assertTrue(encoder.idempotent);
+
+        encodeRequest(headers(":method", "POST", ":scheme", "http", ":path", "/", ":authority", "example.com"));
+        assertFalse(encoder.idempotent);
+    }
+
+    @Test
+    public void shouldDetectSafeRequests()
+    {
+        encodeRequest(headers(":method", "HEAD", ":scheme", "http", ":path", "/", ":authority", "example.com"));
+        assertTrue(encoder.safe);
+
+        encodeRequest(headers(":method", "PUT", ":scheme", "http", ":path", "/", ":authority", "example.com"));
+        assertFalse(encoder.safe);
+        assertTrue(encoder.idempotent);
+    }
+
+    @Test
+    public void shouldDetectBodylessRequests()
+    {
+        encodeRequest(headers(":method", "TRACE", ":scheme", "http", ":path", "/", ":authority", "example.com"));
+        assertTrue(encoder.bodyless);
+
+        encodeRequest(headers(":method", "DELETE", ":scheme", "http", ":path", "/", ":authority", "example.com"));
+        assertTrue(encoder.bodyless);
+
+        encodeRequest(headers(":method", "POST", ":scheme", "http", ":path", "/", ":authority", "example.com"));
+        assertFalse(encoder.bodyless);
+    }
+
+    @Test
+    public void shouldDetectRequestBodyDelimiters()
+    {
+        encodeRequest(headers(":method", "PUT", ":scheme", "http", ":path", "/", ":authority", "example.com",
+                              "content-length", "12"));
+        assertTrue(encoder.contentLength);
+        assertFalse(encoder.transferEncoding);
+
+        encodeRequest(headers(":method", "CONNECT", ":scheme", "http", ":path", "/", ":authority", "example.com"));
+        assertFalse(encoder.contentLength);
+        assertTrue(encoder.connect);
+    }
+
+    @Test
+    public void shouldAddChunkedTransferEncodingToHead()
+    {
+        final int headLimit = encoder.encodeRequest(
+                headers(":method", "POST", ":scheme", "http", ":path", "/", ":authority", "example.com"),
+                slot, 0, slot.capacity());
+        final int limit = HttpHeadEncoder.encodeChunkedTransferEncoding(slot, headLimit, slot.capacity());
+
+        assertEquals("POST / HTTP/1.1\r\nHost: example.com\r\nTransfer-Encoding: chunked\r\n\r\n",
+                     slot.getStringWithoutLengthUtf8(0, limit));
+        assertEquals(-1, HttpHeadEncoder.encodeChunkedTransferEncoding(slot, headLimit, limit - 1));
+    }
+
+    @Test
+    public void shouldRejectInvalidRequests()
+    {
+        ListFW<HttpHeaderFW> missingPath = headers(":method", "GET", ":scheme", "http", ":authority", "example.com");
+        assertEquals(HttpHeadEncoder.HEAD_INVALID, encoder.encodeRequest(missingPath, slot, 0, slot.capacity()));
+
+        ListFW<HttpHeaderFW> hostMismatch = headers(":method", "GET", ":scheme", "http", ":path", "/",
+                                                    ":authority", "example.com", "host", "other.com");
+        assertEquals(HttpHeadEncoder.HEAD_INVALID, encoder.encodeRequest(hostMismatch, slot, 0, slot.capacity()));
+    }
+
+    @Test
+    public void shouldNotEncodeRequestBeyondLimit()
+    {
+        ListFW<HttpHeaderFW> headers = headers(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "example.com");
+
+        assertEquals(HttpHeadEncoder.HEAD_TOO_LONG, encoder.encodeRequest(headers, slot, 0, 20));
+    }
+
+    private String encodeRequest(
+        ListFW<HttpHeaderFW> headers)
+    {
+        final int limit = encoder.encodeRequest(headers, slot, 0, slot.capacity());
+        return slot.getStringWithoutLengthUtf8(0, limit);
+    }
+
+    private String encodeResponse(
+        ListFW<HttpHeaderFW> headers)
+    {
+        final int limit = encoder.encodeResponse(headers, slot, 0, slot.capacity());
+        return slot.getStringWithoutLengthUtf8(0, limit);
+    }
+
+    private String extensionString(
+        int offset,
+        int length)
+    {
+        return extension.getStringWithoutLengthUtf8(offset, length);
+    }
+
+    private ListFW<HttpHeaderFW> headers(
+        String... namesAndValues)
+    {
+        return new HttpBeginExFW.Builder()
+                .wrap(extension, 0, extension.capacity())
+                .headers(hs ->
+                {
+                    for (int i = 0; i < namesAndValues.length; i += 2)
+                    {
+                        final String name = namesAndValues[i];
+                        final String value = namesAndValues[i + 1];
+                        hs.item(h -> h.name(name).value(value));
+                    }
+                })
+                .build()
+                .headers();
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+public class HttpHeadScannerTest
+{
+    private final HttpHeadScanner scanner = new HttpHeadScanner();
+
+    @Test
+    public void shouldFindEndOfHeadInSingleBuffer()
+    {
+        MutableDirectBuffer buffer = buffer("GET / HTTP/1.1\r\nHost: a\r\n\r\nbody");
+        assertEquals(buffer.capacity() - 4, scanner.limitOfHead(buffer, 0, buffer.capacity()));
+    }
+
+    @Test
+    public void shouldFindEndOfHeadArrivingByteByByte()
+    {
+        MutableDirectBuffer buffer = buffer("GET / HTTP/1.1\r\nHost: a\r\n\r\n");
+        for (int limit = 0; limit < buffer.capacity(); limit++)
+        {
+            assertEquals(-1, scanner.limitOfHead(buffer, 0, limit));
+        }
+        assertEquals(buffer.capacity(), scanner.limitOfHead(buffer, 0, buffer.capacity()));
+    }
+
+    @Test
+    public void shouldRestartMatchOnCarriageReturn()
+    {
+        MutableDirectBuffer buffer = buffer("a\r\n\r\r\n\r\n");
+        assertEquals(buffer.capacity(), scanner.limitOfHead(buffer, 0, buffer.capacity()));
+    }
+
+    @Test
+    public void shouldResumeAfterHeadIsMoved()
+    {
+        MutableDirectBuffer buffer = buffer("xxxxGET / HTTP/1.1\r\nHost: a\r\n\r\n");
+        assertEquals(-1, scanner.limitOfHead(buffer, 4, 30));
+
+        buffer.putBytes(0, buffer, 4, buffer.capacity() - 4);
+        assertEquals(buffer.capacity() - 4, scanner.limitOfHead(buffer, 0, buffer.capacity() - 4));
+    }
+
+    @Test
+    public void shouldResetAfterEndOfHead()
+    {
+        MutableDirectBuffer buffer = buffer("a\r\n\r\nb\r\n\r\n");
+        assertEquals(5, scanner.limitOfHead(buffer, 0, buffer.capacity()));
+        assertEquals(buffer.capacity(), scanner.limitOfHead(buffer, 5, buffer.capacity()));
+    }
+
+    private static MutableDirectBuffer buffer(
+        String data)
+    {
+        return new UnsafeBuffer(data.getBytes(US_ASCII));
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+import org.reaktivity.nukleus.http.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.http.internal.types.stream.HttpBeginExFW;
+
+public class HttpHeaderBlockTest
+{
+    private final MessageWriter writer = new MessageWriter(new UnsafeBuffer(new byte[1024]));
+    private final HttpHeaderBlock headers = new HttpHeaderBlock();
+
+    @Test
+    public void shouldWriteHeaderRangesIntoBeginEx()
+    {
+        DirectBuffer source = new UnsafeBuffer("GET /path HTTP/1.1\r\nhost: example.com\r\n\r\n".getBytes(US_ASCII));
+
+        headers.reset()
+               .header(buffer(":method"), buffer("GET"))
+               .header(buffer(":path"), 0, ":path".length(), source, 4, 5)
+               .header(source, 20, 4, source, 26, 11);
+
+        assertEquals(3, headers.count());
+        assertEquals("[:method=GET, :path=/path, host=example.com]", writeHeaders().toString());
+
+        headers.reset();
+        assertEquals(0, headers.count());
+        assertEquals("[]", writeHeaders().toString());
+    }
+
+    @Test
+    public void shouldGrowBeyondInitialCapacity()
+    {
+        headers.reset();
+        for (int i = 0; i < 40; i++)
+        {
+            headers.header(buffer("name" + i), buffer("value" + i));
+        }
+
+        final List<String> written = writeHeaders();
+        assertEquals(40, written.size());
+        assertEquals("name39=value39", written.get(39));
+    }
+
+    private List<String> writeHeaders()
+    {
+        final List<String> written = new ArrayList<>();
+        writer.doHttpBegin((t, b, o, l) ->
+        {
+            final BeginFW begin = new BeginFW().wrap(b, o, o + l);
+            final HttpBeginExFW beginEx = begin.extension().get(new HttpBeginExFW()::wrap);
+            beginEx.headers().forEach(h -> written.add(h.name().asString() + "=" + h.value().asString()));
+        }, 1L, 0L, 2L, headers);
+        return written;
+    }
+
+    private static DirectBuffer buffer(
+        String value)
+    {
+        return new UnsafeBuffer(value.getBytes(US_ASCII));
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+import org.reaktivity.nukleus.http.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http.internal.types.ListFW;
+import org.reaktivity.nukleus.http.internal.types.stream.HttpBeginExFW;
+
+public class HttpRequestKeyTest
+{
+    private final MutableDirectBuffer extension = new UnsafeBuffer(new byte[1024]);
+    private final HttpRequestKey requestKey = new HttpRequestKey(new String[] { "Accept-Encoding" }, 64);
+
+    @Test
+    public void shouldIgnoreHeadersNotVaried()
+    {
+        assertTrue(requestKey.wrap(headers(":method", "GET", ":path", "/", ":authority", "localhost",
+                                           "accept-encoding", "gzip", "user-agent", "one")));
+        final byte[] key = requestKey.toByteArray();
+        final int hash = requestKey.hash();
+
+        assertTrue(requestKey.wrap(headers(":authority", "localhost", ":path", "/", ":method", "GET",
+                                           "user-agent", "two", "Accept-Encoding", "gzip")));
+        assertTrue(requestKey.equals(key));
+        assertEquals(hash, requestKey.hash());
+    }
+
+    @Test
+    public void shouldDistinguishVariedHeaders()
+    {
+        assertTrue(requestKey.wrap(headers(":method", "GET", ":path", "/", "accept-encoding", "gzip")));
+        final byte[] key = requestKey.toByteArray();
+
+        assertTrue(requestKey.wrap(headers(":method", "GET", ":path", "/", "accept-encoding", "br")));
+        assertFalse(requestKey.equals(key));
+
+        assertTrue(requestKey.wrap(headers(":method", "GET", ":path", "/")));
+        assertFalse(requestKey.equals(key));
+    }
+
+    @Test
+    public void shouldDistinguishMethods()
+    {
+        assertTrue(requestKey.wrap(headers(":method", "GET", ":path", "/")));
+        final int hash = requestKey.hash();
+
+        assertTrue(requestKey.wrap(headers(":method", "HEAD", ":path", "/")));
+        assertNotEquals(hash, requestKey.hash());
+    }
+
+    @Test
+    public void shouldNotWrapRequestWithoutPath()
+    {
+        assertFalse(requestKey.wrap(headers(":method", "GET")));
+    }
+
+    @Test
+    public void shouldNotWrapKeyBeyondCapacity()
+    {
+        assertFalse(requestKey.wrap(headers(":method", "GET", ":path", "/0123456789012345678901234567890123456789",
+                                            "accept-encoding", "gzip, deflate, br")));
+    }
+
+    private ListFW<HttpHeaderFW> headers(
+        String... namesAndValues)
+    {
+        return new HttpBeginExFW.Builder()
+                .wrap(extension, 0, extension.capacity())
+                .headers(hs ->
+                {
+                    for (int i = 0; i < namesAndValues.length; i += 2)
+                    {
+                        final String name = namesAndValues[i];
+                        final String value = namesAndValues[i + 1];
+                        hs.item(h -> h.name(name).value(value));
+                    }
+                })
+                .build()
+                .headers();
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+import org.reaktivity.nukleus.http.internal.stream.ServerStreamFactory.StandardMethods;
+
+public class HttpRequestParserTest
+{
+    private final HttpRequestParser parser = new HttpRequestParser(1024);
+
+    @Test
+    public void shouldParseRequestWithHeaders()
+    {
+        assertTrue(parse("GET /path?query HTTP/1.1\r\nHost: example.com:8080 \r\nContent-Length: 12\r\n\r\n"));
+        assertEquals(StandardMethods.GET, parser.method);
+        assertEquals("/path", path());
+        assertTrue(parser.hasAuthority());
+        assertFalse(parser.hasTargetAuthority());
+        assertEquals(2, parser.fieldCount());
+        assertEquals("host", name(0));
+        assertEquals("example.com:8080", value(0));
+        assertEquals("content-length", name(1));
+        assertEquals(12, parser.contentLength);
+    }
+
+    @Test
+    public void shouldParseAbsoluteFormRequestTarget()
+    {
+        assertTrue(parse("GET http://example.com:8080/path HTTP/1.1\r\nHost: other\r\n\r\n"));
+        assertTrue(parser.hasTargetAuthority());
+        assertEquals("example.com:8080", parser.buffer.getStringWithoutLengthUtf8(parser.authorityOffset,
+                parser.authorityLength));
+        assertEquals("/path", path());
+        assertFalse(parser.userInfo);
+    }
+
+    @Test
+    public void shouldDetectUserInfo()
+    {
+        assertTrue(parse("GET http://user@example.com/ HTTP/1.1\r\n\r\n"));
+        assertTrue(parser.userInfo);
+    }
+
+    @Test
+    public void shouldDetectChunkedTransferAndConnectionOptions()
+    {
+        assertTrue(parse("POST / HTTP/1.1\r\nHost: a\r\nTransfer-Encoding: Chunked\r\nConnection: keep-alive, close\r\n\r\n"));
+        assertTrue(parser.chunked);
+        assertTrue(parser.connectionClose);
+        assertFalse(parser.upgrade);
+    }
+
+    @Test
+    public void shouldRejectMissingVersion()
+    {
+        assertFalse(parse("GET /\r\nHost: a\r\n\r\n"));
+        assertEquals(400, parser.httpStatus.status);
+    }
+
+    @Test
+    public void shouldRejectUnsupportedVersion()
+    {
+        assertFalse(parse("GET / HTTP/2.0\r\nHost: a\r\n\r\n"));
+        assertEquals(505, parser.httpStatus.status);
+    }
+
+    @Test
+    public void shouldRejectInvalidVersion()
+    {
+        assertFalse(parse("GET / HTTP/1.x\r\nHost: a\r\n\r\n"));
+        assertEquals(400, parser.httpStatus.status);
+    }
+
+    @Test
+    public void shouldRejectUnimplementedMethod()
+    {
+        assertFalse(parse("BREW / HTTP/1.1\r\nHost: a\r\n\r\n"));
+        assertEquals(501, parser.httpStatus.status);
+    }
+
+    @Test
+    public void shouldRejectSpaceBeforeColon()
+    {
+        assertFalse(parse("GET / HTTP/1.1\r\nHost : a\r\n\r\n"));
+        assertEquals(400, parser.httpStatus.status);
+    }
+
+    @Test
+    public void shouldRejectObsoleteLineFolding()
+    {
+        assertFalse(parse("GET / HTTP/1.1\r\nHost: a\r\nX-Folded: b\r\n c\r\n\r\n"));
+        assertEquals(400, parser.httpStatus.status);
+        assertEquals("Bad Request - obsolete line folding not supported", parser.httpStatus.message);
+    }
+
+    @Test
+    public void shouldRejectMultipleContentLengths()
+    {
+        assertFalse(parse("POST / HTTP/1.1\r\nHost: a\r\nContent-Length: 1\r\nContent-Length: 2\r\n\r\n"));
+        assertEquals(400, parser.httpStatus.status);
+    }
+
+    @Test
+    public void shouldRejectInvalidContentLength()
+    {
+        assertFalse(parse("POST / HTTP/1.1\r\nHost: a\r\nContent-Length: 1a\r\n\r\n"));
+        assertEquals(400, parser.httpStatus.status);
+    }
+
+    @Test
+    public void shouldRejectUnknownTransferEncoding()
+    {
+        assertFalse(parse("POST / HTTP/1.1\r\nHost: a\r\nTransfer-Encoding: gzip\r\n\r\n"));
+        assertEquals(501, parser.httpStatus.status);
+    }
+
+    @Test
+    public void shouldRejectMalformedPercentEncoding()
+    {
+        assertFalse(parse("GET /%zz HTTP/1.1\r\nHost: a\r\n\r\n"));
+        assertEquals(400, parser.httpStatus.status);
+    }
+
+    private boolean parse(
+        String request)
+    {
+        DirectBuffer buffer = new UnsafeBuffer(request.getBytes(US_ASCII));
+        return parser.parse(buffer, 0, buffer.capacity());
+    }
+
+    private String path()
+    {
+        return parser.buffer.getStringWithoutLengthUtf8(parser.pathOffset, parser.pathLength);
+    }
+
+    private String name(
+        int field)
+    {
+        return parser.nameBuffer().getStringWithoutLengthUtf8(parser.nameOffset(field), parser.nameLength(field));
+    }
+
+    private String value(
+        int field)
+    {
+        return parser.valueBuffer().getStringWithoutLengthUtf8(parser.valueOffset(field), parser.valueLength(field));
+    }
+}
@@ -0,0 +1,274 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+import org.reaktivity.nukleus.http.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http.internal.types.ListFW;
+import org.reaktivity.nukleus.http.internal.types.stream.HttpBeginExFW;
+
+public class HttpResponseCacheTest
+{
+    private final MutableDirectBuffer request = new UnsafeBuffer(new byte[1024]);
+    private final MutableDirectBuffer response = new UnsafeBuffer(new byte[1024]);
+    private final DirectBuffer body = new UnsafeBuffer("Hello, world".getBytes(US_ASCII));
+
+    private long now = 1_000_000L;
+    private final HttpResponseCache cache = new HttpResponseCache(2 * HttpResponseCache.BLOCK_SIZE,
+            2 * HttpResponseCache.BLOCK_SIZE, 1024, () -> now);
+
+    @Test
+    public void shouldServeStoredResponse()
+    {
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/")));
+        store(request(":method", "GET", ":path", "/"), ":status", "200", "cache-control", "max-age=60");
+
+        final HttpCacheEntry entry = cache.lookup(request(":method", "GET", ":path", "/"));
+        assertNotNull(entry);
+        assertTrue(entry.fresh());
+        assertTrue(entry.headLength > 0);
+    }
+
+    @Test
+    public void shouldNotStoreResponseToRequestOtherThanGet()
+    {
+        cache.lookup(request(":method", "POST", ":path", "/"));
+        assertNull(cache.newEntry(request(":method", "POST", ":path", "/"), null));
+    }
+
+    @Test
+    public void shouldNotStoreResponseWithoutExplicitLifetime()
+    {
+        store(request(":method", "GET", ":path", "/"), ":status", "200");
+
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/")));
+    }
+
+    @Test
+    public void shouldNotStorePrivateResponse()
+    {
+        store(request(":method", "GET", ":path", "/"), ":status", "200", "cache-control", "private, max-age=60");
+
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/")));
+    }
+
+    @Test
+    public void shouldNotStoreResponseWithUncacheableStatus()
+    {
+        store(request(":method", "GET", ":path", "/"), ":status", "500", "cache-control", "max-age=60");
+
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/")));
+    }
+
+    @Test
+    public void shouldNotServeRequestWithNoCache()
+    {
+        store(request(":method", "GET", ":path", "/"), ":status", "200", "cache-control", "max-age=60");
+
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/", "cache-control", "no-cache")));
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/", "cache-control", "max-age=0")));
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/", "pragma", "no-cache")));
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/", "authorization", "Basic dXNlcg==")));
+        assertNotNull(cache.lookup(request(":method", "GET", ":path", "/")));
+    }
+
+    @Test
+    public void shouldServeResponseOnlyForSameVariedHeaders()
+    {
+        store(request(":method", "GET", ":path", "/", "accept-encoding", "gzip"),
+              ":status", "200", "cache-control", "s-maxage=60", "vary", "Accept-Encoding");
+
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/", "accept-encoding", "br")));
+        assertNotNull(cache.lookup(request(":method", "GET", ":path", "/", "accept-encoding", "gzip")));
+    }
+
+    @Test
+    public void shouldNotStoreResponseVaryingByAnyHeader()
+    {
+        store(request(":method", "GET", ":path", "/"), ":status", "200", "cache-control", "max-age=60", "vary", "*");
+
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/")));
+    }
+
+    @Test
+    public void shouldRemoveStaleResponseWithoutValidator()
+    {
+        store(request(":method", "GET", ":path", "/"), ":status", "200", "cache-control", "max-age=60", "age", "30");
+
+        now += 29_000L;
+        assertTrue(cache.lookup(request(":method", "GET", ":path", "/")).fresh());
+
+        now += 1_000L;
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/")));
+    }
+
+    @Test
+    public void shouldRevalidateStaleResponse()
+    {
+        store(request(":method", "GET", ":path", "/"), ":status", "200", "cache-control", "no-cache", "etag", "\"v1\"");
+
+        final HttpCacheEntry stale = cache.lookup(request(":method", "GET", ":path", "/"));
+        assertNotNull(stale);
+        assertFalse(stale.fresh());
+
+        final MutableDirectBuffer head = new UnsafeBuffer(new byte[64]);
+        head.putBytes(0, "GET / HTTP/1.1\r\n\r\n".getBytes(US_ASCII));
+        final int headLimit = stale.encodeConditions(head, 18, head.capacity());
+        assertEquals("GET / HTTP/1.1\r\nIf-None-Match: \"v1\"\r\n\r\n", head.getStringWithoutLengthUtf8(0, headLimit));
+        assertEquals(-1, stale.encodeConditions(head, 18, 32));
+
+        final HttpCacheEntry entry = cache.newEntry(request(":method", "GET", ":path", "/"), stale);
+        entry.onResponseBegin(response(":status", "304", "cache-control", "max-age=60"));
+        entry.onResponseEnd(false);
+
+        assertTrue(stale.fresh());
+        assertSame(stale, cache.lookup(request(":method", "GET", ":path", "/")));
+    }
+
+    @Test
+    public void shouldReplaceResponseStoredForSameRequest()
+    {
+        store(request(":method", "GET", ":path", "/"), ":status", "200", "cache-control", "max-age=60");
+        final HttpCacheEntry replaced = cache.lookup(request(":method", "GET", ":path", "/"));
+
+        store(request(":method", "GET", ":path", "/"), ":status", "200", "cache-control", "max-age=60");
+        final HttpCacheEntry entry = cache.lookup(request(":method", "GET", ":path", "/"));
+
+        assertNotNull(entry);
+        assertFalse(replaced == entry);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedResponse()
+    {
+        store(request(":method", "GET", ":path", "/one"), ":status", "200", "cache-control", "max-age=60");
+        store(request(":method", "GET", ":path", "/two"), ":status", "200", "cache-control", "max-age=60");
+        assertNotNull(cache.lookup(request(":method", "GET", ":path", "/one")));
+
+        store(request(":method", "GET", ":path", "/three"), ":status", "200", "cache-control", "max-age=60");
+
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/two")));
+        assertNotNull(cache.lookup(request(":method", "GET", ":path", "/one")));
+        assertNotNull(cache.lookup(request(":method", "GET", ":path", "/three")));
+    }
+
+    @Test
+    public void shouldNotEvictResponseBeingRead()
+    {
+        store(request(":method", "GET", ":path", "/one"), ":status", "200", "cache-control", "max-age=60");
+        store(request(":method", "GET", ":path", "/two"), ":status", "200", "cache-control", "max-age=60");
+        cache.lookup(request(":method", "GET", ":path", "/one")).retain();
+        cache.lookup(request(":method", "GET", ":path", "/two")).retain();
+
+        store(request(":method", "GET", ":path", "/three"), ":status", "200", "cache-control", "max-age=60");
+
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/three")));
+        assertNotNull(cache.lookup(request(":method", "GET", ":path", "/one")));
+    }
+
+    @Test
+    public void shouldNotStoreResponseBeyondMaximumEntrySize()
+    {
+        final ListFW<HttpHeaderFW> headers = request(":method", "GET", ":path", "/");
+        cache.lookup(headers);
+        final HttpCacheEntry entry = cache.newEntry(headers, null);
+        entry.onResponseBegin(response(":status", "200", "cache-control", "max-age=60"));
+        for (int i = 0; i < 1024; i++)
+        {
+            entry.onResponseData(body, 0, body.capacity());
+        }
+        entry.onResponseEnd(false);
+
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/")));
+    }
+
+    @Test
+    public void shouldNotStoreResponseWithTrailers()
+    {
+        final ListFW<HttpHeaderFW> headers = request(":method", "GET", ":path", "/");
+        cache.lookup(headers);
+        final HttpCacheEntry entry = cache.newEntry(headers, null);
+        entry.onResponseBegin(response(":status", "200", "cache-control", "max-age=60"));
+        entry.onResponseEnd(true);
+
+        assertNull(cache.lookup(request(":method", "GET", ":path", "/")));
+    }
+
+    @Test
+    public void shouldParseDeltaSeconds()
+    {
+        final DirectBuffer value = new UnsafeBuffer("public, max-age=\"120\", s-maxage=x".getBytes(US_ASCII));
+
+        assertEquals(120L, HttpResponseCache.deltaSeconds(value, 0, value.capacity(), "max-age".getBytes(US_ASCII)));
+        assertEquals(-1L, HttpResponseCache.deltaSeconds(value, 0, value.capacity(), "s-maxage".getBytes(US_ASCII)));
+        assertEquals(-1L, HttpResponseCache.deltaSeconds(value, 0, value.capacity(), "public".getBytes(US_ASCII)));
+    }
+
+    private void store(
+        ListFW<HttpHeaderFW> headers,
+        String... namesAndValues)
+    {
+        cache.lookup(headers);
+        final HttpCacheEntry entry = cache.newEntry(headers, null);
+        entry.onResponseBegin(response(namesAndValues));
+        for (int i = 0; i < 256; i++)
+        {
+            entry.onResponseData(body, 0, body.capacity());
+        }
+        entry.onResponseEnd(false);
+    }
+
+    private ListFW<HttpHeaderFW> request(
+        String... namesAndValues)
+    {
+        return beginEx(request, namesAndValues).headers();
+    }
+
+    private HttpBeginExFW response(
+        String... namesAndValues)
+    {
+        return beginEx(response, namesAndValues);
+    }
+
+    private static HttpBeginExFW beginEx(
+        MutableDirectBuffer buffer,
+        String... namesAndValues)
+    {
+        return new HttpBeginExFW.Builder()
+                .wrap(buffer, 0, buffer.capacity())
+                .headers(hs ->
+                {
+                    for (int i = 0; i < namesAndValues.length; i += 2)
+                    {
+                        final String name = namesAndValues[i];
+                        final String value = namesAndValues[i + 1];
+                        hs.item(h -> h.name(name).value(value));
+                    }
+                })
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+public class HttpResponseParserTest
+{
+    private final HttpResponseParser parser = new HttpResponseParser(1024);
+
+    @Test
+    public void shouldParseResponseWithHeaders()
+    {
+        assertTrue(parse("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: 12\r\n\r\n"));
+        assertEquals(200, parser.status);
+        assertEquals("200", parser.buffer.getStringWithoutLengthUtf8(parser.statusOffset, HttpResponseParser.STATUS_LENGTH));
+        assertEquals(2, parser.fieldCount());
+        assertEquals("content-type", name(0));
+        assertEquals("text/plain", value(0));
+        assertTrue(parser.contentLengthFound);
+        assertEquals(12, parser.contentLength);
+    }
+
+    @Test
+    public void shouldParseResponseWithEmptyReasonPhrase()
+    {
+        assertTrue(parse("HTTP/1.1 204 \r\n\r\n"));
+        assertEquals(204, parser.status);
+        assertTrue(parse("HTTP/1.0 304\r\n\r\n"));
+        assertEquals(304, parser.status);
+    }
+
+    @Test
+    public void shouldDetectChunkedTransferAndConnectionClose()
+    {
+        assertTrue(parse("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\nConnection: close\r\n\r\n"));
+        assertTrue(parser.chunked);
+        assertTrue(parser.connectionClose);
+    }
+
+    @Test
+    public void shouldRejectUnsupportedVersion()
+    {
+        assertFalse(parse("HTTP/2.0 200 OK\r\n\r\n"));
+    }
+
+    @Test
+    public void shouldRejectInvalidStatusCode()
+    {
+        assertFalse(parse("HTTP/1.1 2x0 OK\r\n\r\n"));
+        assertFalse(parse("HTTP/1.1 2000 OK\r\n\r\n"));
+    }
+
+    @Test
+    public void shouldRejectMalformedHeader()
+    {
+        assertFalse(parse("HTTP/1.1 200 OK\r\nno-colon\r\n\r\n"));
+    }
+
+    @Test
+    public void shouldRejectContentLengthWithChunkedTransfer()
+    {
+        assertFalse(parse("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\nContent-Length: 5\r\n\r\n"));
+    }
+
+    private boolean parse(
+        String response)
+    {
+        DirectBuffer buffer = new UnsafeBuffer(response.getBytes(US_ASCII));
+        return parser.parse(buffer, 0, buffer.capacity());
+    }
+
+    private String name(
+        int field)
+    {
+        return parser.nameBuffer().getStringWithoutLengthUtf8(parser.nameOffset(field), parser.nameLength(field));
+    }
+
+    private String value(
+        int field)
+    {
+        return parser.valueBuffer().getStringWithoutLengthUtf8(parser.valueOffset(field), parser.valueLength(field));
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+import org.reaktivity.nukleus.http.internal.types.control.HttpRouteExFW;
+import org.reaktivity.nukleus.http.internal.types.control.Role;
+import org.reaktivity.nukleus.http.internal.types.control.RouteFW;
+import org.reaktivity.nukleus.http.internal.types.control.UnrouteFW;
+import org.reaktivity.nukleus.http.internal.types.stream.HttpBeginExFW;
+
+public class HttpRouteTableTest
+{
+    private final MutableDirectBuffer buffer = new UnsafeBuffer(new byte[1024]);
+    private final MutableDirectBuffer extension = new UnsafeBuffer(new byte[512]);
+
+    private final HttpRouteTable routes = new HttpRouteTable();
+    private final HttpRequestParser request = new HttpRequestParser(1024);
+    private final HttpBeginExHeaders beginExHeaders = new HttpBeginExHeaders();
+    private final Long2LongHashMap outstandingRequests = new Long2LongHashMap(0L);
+    private final HttpRouteTable.TargetLoad load = (t, r) -> (int) outstandingRequests.get(r);
+
+    @Test
+    public void shouldResolveRouteBySourceAndSourceRef()
+    {
+        route("source", 1L, "target", 2L);
+
+        assertEquals(2L, routes.resolve("source", 1L).targetRef());
+        assertNull(routes.resolve("source", 2L));
+        assertNull(routes.resolve("other", 1L));
+    }
+
+    @Test
+    public void shouldResolveRouteByAuthority()
+    {
+        route("source", 1L, "target", 2L, ":authority", "example.com:8080");
+        route("source", 1L, "target", 3L, ":authority", "localhost:8080");
+
+        assertTrue(parse("GET / HTTP/1.1\r\nHost: localhost:8080\r\n\r\n"));
+        assertEquals(3L, routes.resolve("source", 1L, request).targetRef());
+
+        assertTrue(parse("GET http://example.com:8080/ HTTP/1.1\r\nHost: localhost:8080\r\n\r\n"));
+        assertEquals(2L, routes.resolve("source", 1L, request).targetRef());
+
+        assertTrue(parse("GET / HTTP/1.1\r\nHost: other:8080\r\n\r\n"));
+        assertNull(routes.resolve("source", 1L, request));
+    }
+
+    @Test
+    public void shouldRequireAllRouteHeadersToMatch()
+    {
+        route("source", 1L, "target", 2L, ":authority", "localhost:8080", "content-type", "text/plain");
+        route("source", 1L, "target", 3L, ":path", "/other");
+
+        assertTrue(parse("GET / HTTP/1.1\r\nHost: localhost:8080\r\nContent-Type: text/plain\r\n\r\n"));
+        assertEquals(2L, routes.resolve("source", 1L, request).targetRef());
+
+        assertTrue(parse("GET /other HTTP/1.1\r\nHost: localhost:8080\r\nContent-Type: text/html\r\n\r\n"));
+        assertEquals(3L, routes.resolve("source", 1L, request).targetRef());
+
+        assertTrue(parse("GET / HTTP/1.1\r\nHost: localhost:8080\r\n\r\n"));
+        assertNull(routes.resolve("source", 1L, request));
+    }
+
+    @Test
+    public void shouldResolveRouteByBeginExHeaders()
+    {
+        route("source", 1L, "target", 2L, ":authority", "localhost:8080", ":method", "GET");
+
+        HttpBeginExFW beginEx = new HttpBeginExFW.Builder()
+                .wrap(extension, 0, extension.capacity())
+                .headers(hs -> hs.item(h -> h.name(":method").value("GET"))
+                                 .item(h -> h.name(":authority").value("localhost:8080")))
+                .build();
+
+        assertEquals(2L, routes.resolve("source", 1L, beginExHeaders.wrap(beginEx.headers())).targetRef());
+        assertNull(routes.resolve("source", 1L, beginExHeaders.wrap(null)));
+    }
+
+    @Test
+    public void shouldRemoveUnroutedRoutes()
+    {
+        route("source", 1L, "target", 2L, ":authority", "localhost:8080");
+        route("source", 1L, "target", 3L);
+
+        unroute("source", 1L, "target", 2L);
+
+        assertTrue(parse("GET / HTTP/1.1\r\nHost: localhost:8080\r\n\r\n"));
+        assertEquals(3L, routes.resolve("source", 1L, request).targetRef());
+
+        unroute("source", 1L, "target", 3L);
+
+        assertNull(routes.resolve("source", 1L));
+    }
+
+    @Test
+    public void shouldBalanceMatchingRoutesByOutstandingRequests()
+    {
+        route("source", 1L, "target", 2L, ":authority", "localhost:8080");
+        route("source", 1L, "target", 3L, ":authority", "localhost:8080");
+        route("source", 1L, "target", 4L, ":authority", "localhost:8080", ":path", "/other");
+
+        assertTrue(parse("GET / HTTP/1.1\r\nHost: localhost:8080\r\n\r\n"));
+
+        outstandingRequests.put(2L, 5L);
+        outstandingRequests.put(3L, 1L);
+        assertEquals(3L, routes.resolve("source", 1L, request, load).targetRef());
+        assertEquals(3L, routes.resolve("source", 1L, request, load).targetRef());
+
+        outstandingRequests.put(3L, 6L);
+        assertEquals(2L, routes.resolve("source", 1L, request, load).targetRef());
+    }
+
+    @Test
+    public void shouldRotateEquallyLoadedRoutes()
+    {
+        route("source", 1L, "target", 2L);
+        route("source", 1L, "target", 3L);
+
+        assertTrue(parse("GET / HTTP/1.1\r\nHost: localhost:8080\r\n\r\n"));
+
+        long targetRef = routes.resolve("source", 1L, request, load).targetRef();
+        assertNotEquals(targetRef, routes.resolve("source", 1L, request, load).targetRef());
+        assertEquals(targetRef, routes.resolve("source", 1L, request, load).targetRef());
+    }
+
+    @Test
+    public void shouldPreferAuthorityRoutesWhenBalancing()
+    {
+        route("source", 1L, "target", 2L, ":authority", "localhost:8080");
+        route("source", 1L, "target", 3L);
+
+        outstandingRequests.put(2L, 10L);
+
+        assertTrue(parse("GET / HTTP/1.1\r\nHost: localhost:8080\r\n\r\n"));
+        assertEquals(2L, routes.resolve("source", 1L, request, load).targetRef());
+
+        assertTrue(parse("GET / HTTP/1.1\r\nHost: other:8080\r\n\r\n"));
+        assertEquals(3L, routes.resolve("source", 1L, request, load).targetRef());
+    }
+
+    private void route(
+        String source,
+        long sourceRef,
+        String target,
+        long targetRef,
+        String... headers)
+    {
+        HttpRouteExFW routeEx = new HttpRouteExFW.Builder()
+                .wrap(extension, 0, extension.capacity())
+                .headers(hs ->
+                {
+                    for (int i = 0; i < headers.length; i += 2)
+                    {
+                        final String name = headers[i];
+                        final String value = headers[i + 1];
+                        hs.item(h -> h.name(name).value(value));
+                    }
+                })
+                .build();
+        final int extensionSize = headers.length > 0 ? routeEx.sizeof() : 0;
+
+        RouteFW route = new RouteFW.Builder()
+                .wrap(buffer, 0, buffer.capacity())
+                .correlationId(0L)
+                .role(b -> b.set(Role.SERVER))
+                .source(source)
+                .sourceRef(sourceRef)
+                .target(target)
+                .targetRef(targetRef)
+                .extension(extension, 0, extensionSize)
+                .build();
+
+        assertTrue(routes.handleRoute(route.typeId(), route.buffer(), route.offset(), route.sizeof()));
+    }
+
+    private void unroute(
+        String source,
+        long sourceRef,
+        String target,
+        long targetRef)
+    {
+        UnrouteFW unroute = new UnrouteFW.Builder()
+                .wrap(buffer, 0, buffer.capacity())
+                .correlationId(0L)
+                .role(b -> b.set(Role.SERVER))
+                .source(source)
+                .sourceRef(sourceRef)
+                .target(target)
+                .targetRef(targetRef)
+                .extension(extension, 0, 0)
+                .build();
+
+        assertTrue(routes.handleRoute(unroute.typeId(), unroute.buffer(), unroute.offset(), unroute.sizeof()));
+    }
+
+    private boolean parse(
+        String request)
+    {
+        DirectBuffer buffer = new UnsafeBuffer(request.getBytes(US_ASCII));
+        return this.request.parse(buffer, 0, buffer.capacity());
+    }
+}
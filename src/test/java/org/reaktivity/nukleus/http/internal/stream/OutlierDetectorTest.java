@@ -0,0 +1,98 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class OutlierDetectorTest
+{
+    private final OutlierDetector detector = new OutlierDetector(3, 1000L, 3000L);
+
+    @Test
+    public void shouldEjectAfterConsecutiveFailures()
+    {
+        detector.onFailure(0L);
+        detector.onFailure(0L);
+        assertTrue(detector.isSelectable(0L, 0));
+
+        detector.onFailure(0L);
+        assertFalse(detector.isSelectable(0L, 0));
+        assertFalse(detector.isSelectable(999L, 0));
+        assertTrue(detector.isSelectable(1000L, 0));
+    }
+
+    @Test
+    public void shouldResetConsecutiveFailuresOnSuccess()
+    {
+        detector.onFailure(0L);
+        detector.onFailure(0L);
+        detector.onSuccess();
+        detector.onFailure(0L);
+        detector.onFailure(0L);
+
+        assertTrue(detector.isSelectable(0L, 0));
+    }
+
+    @Test
+    public void shouldProbeOneRequestAtATime()
+    {
+        ejectAt(0L);
+
+        assertTrue(detector.isSelectable(1000L, 0));
+        assertFalse(detector.isSelectable(1000L, 1));
+
+        detector.onSuccess();
+        assertTrue(detector.isSelectable(1000L, 1));
+    }
+
+    @Test
+    public void shouldDoubleEjectionTimeWhenProbeFails()
+    {
+        ejectAt(0L);
+        assertTrue(detector.isSelectable(1000L, 0));
+
+        detector.onFailure(1000L);
+        assertFalse(detector.isSelectable(2999L, 0));
+        assertTrue(detector.isSelectable(3000L, 0));
+
+        detector.onFailure(3000L);
+        assertFalse(detector.isSelectable(5999L, 0));
+        assertTrue(detector.isSelectable(6000L, 0));
+    }
+
+    @Test
+    public void shouldNotEjectWhenDisabled()
+    {
+        OutlierDetector disabled = new OutlierDetector(0, 1000L, 3000L);
+        for (int i = 0; i < 10; i++)
+        {
+            disabled.onFailure(0L);
+        }
+
+        assertTrue(disabled.isSelectable(0L, 0));
+    }
+
+    private void ejectAt(
+        long now)
+    {
+        detector.onFailure(now);
+        detector.onFailure(now);
+        detector.onFailure(now);
+    }
+}
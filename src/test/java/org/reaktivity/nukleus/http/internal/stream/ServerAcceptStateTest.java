@@ -0,0 +1,170 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.reaktivity.nukleus.http.internal.stream.HttpContentEncoder.CODING_GZIP;
+import static org.reaktivity.nukleus.http.internal.stream.ServerStreamFactory.StandardMethods.GET;
+import static org.reaktivity.nukleus.http.internal.stream.ServerStreamFactory.StandardMethods.HEAD;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Rule;
+import org.junit.Test;
+import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.http.internal.types.stream.EndFW;
+import org.reaktivity.nukleus.route.RouteManager;
+
+public class ServerAcceptStateTest
+{
+    private final MessageWriter writer = new MessageWriter(new UnsafeBuffer(new byte[1024]));
+    private final List<Integer> frames = new ArrayList<>();
+    private final MessageConsumer acceptReply = (t, b, o, l) -> frames.add(t);
+    private final MessageConsumer initialThrottle = (t, b, o, l) -> { };
+
+    private int resumed;
+
+    private RouteManager router;
+
+    @Rule
+    public JUnitRuleMockery context = new JUnitRuleMockery()
+    {
+        {
+            router = mock(RouteManager.class, "router");
+        }
+    };
+
+    @Test
+    public void shouldOnlyReleaseResponsesInRequestOrder()
+    {
+        final ServerAcceptState state = newState(8);
+
+        state.onRequest(1L, GET, 0);
+        state.onRequest(2L, GET, 0);
+        state.onRequest(3L, GET, 0);
+
+        assertFalse(state.onResponse(3L, null));
+        assertFalse(state.onResponse(2L, null));
+        assertTrue(state.onResponse(1L, null));
+        assertFalse(state.onResponse(4L, null));
+
+        state.onResponseComplete(writer);
+        assertTrue(state.onResponse(2L, null));
+        assertEquals(1, resumed);
+    }
+
+    @Test
+    public void shouldDecodeOneRequestAtLeast()
+    {
+        final ServerAcceptState state = newState(0);
+
+        assertFalse(state.isPipelineFull());
+        state.onRequest(1L, GET, 0);
+        assertTrue(state.isPipelineFull());
+    }
+
+    @Test
+    public void shouldGrowPipelineUpToMaximumRequests()
+    {
+        final ServerAcceptState state = newState(6);
+
+        for (long correlationId = 1L; correlationId <= 6L; correlationId++)
+        {
+            assertFalse(state.isPipelineFull());
+            state.onRequest(correlationId, GET, 0);
+        }
+
+        assertTrue(state.isPipelineFull());
+        assertTrue(state.onResponse(1L, null));
+        assertFalse(state.onResponse(6L, null));
+
+        state.onResponseComplete(writer);
+        assertFalse(state.isPipelineFull());
+        assertTrue(state.onResponse(2L, null));
+    }
+
+    @Test
+    public void shouldRecordMethodOfPendingRequests()
+    {
+        final ServerAcceptState state = newState(8);
+
+        for (long correlationId = 1L; correlationId <= 6L; correlationId++)
+        {
+            state.onRequest(correlationId, correlationId == 5L ? HEAD : GET, correlationId == 5L ? CODING_GZIP : 0);
+        }
+
+        state.onResponseComplete(writer);
+        assertNull(state.method(1L));
+        assertEquals(GET, state.method(2L));
+        assertEquals(HEAD, state.method(5L));
+        assertNull(state.method(7L));
+        assertEquals(0, state.acceptedCodings(2L));
+        assertEquals(CODING_GZIP, state.acceptedCodings(5L));
+    }
+
+    @Test
+    public void shouldEndAfterLastPendingResponse()
+    {
+        final ServerAcceptState state = newState(8);
+
+        state.onRequest(1L, GET, 0);
+        state.onRequest(2L, GET, 0);
+        state.doEnd(writer);
+        assertTrue(frames.isEmpty());
+
+        state.onResponseComplete(writer);
+        assertTrue(frames.isEmpty());
+
+        state.onResponseComplete(writer);
+        assertEquals(1, frames.size());
+        assertEquals(EndFW.TYPE_ID, frames.get(0).intValue());
+    }
+
+    @Test
+    public void shouldRunDeferredErrorResponseAfterLastPendingResponse()
+    {
+        final ServerAcceptState state = newState(8);
+        final List<String> deferred = new ArrayList<>();
+
+        state.onRequest(1L, GET, 0);
+        state.afterResponses = () -> deferred.add("error");
+
+        state.onResponseComplete(writer);
+        assertEquals(1, deferred.size());
+        assertTrue(frames.isEmpty());
+    }
+
+    private ServerAcceptState newState(
+        int maximumPipelinedRequests)
+    {
+        context.checking(new Expectations()
+        {
+            {
+                allowing(router).setThrottle(with("source"), with(1L), with(any(MessageConsumer.class)));
+            }
+        });
+
+        return new ServerAcceptState("source", 1L, acceptReply, writer, initialThrottle, router,
+                maximumPipelinedRequests, () -> resumed++);
+    }
+}
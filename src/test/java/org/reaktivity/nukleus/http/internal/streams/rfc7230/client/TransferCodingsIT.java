@@ -52,7 +52,6 @@ public class TransferCodingsIT
         "${route}/client/controller",
         "${client}/request.transfer.encoding.chunked/client",
         "${server}/request.transfer.encoding.chunked/server" })
-    @Ignore // TODO: implement chunked request encoding
     public void requestTransferEncodingChunked() throws Exception
     {
         k3po.finish();
@@ -87,7 +86,6 @@ public class TransferCodingsIT
         "${route}/client/controller",
         "${client}/request.transfer.encoding.chunked.with.trailer/client",
         "${server}/request.transfer.encoding.chunked.with.trailer/server" })
-    @Ignore // TODO: implement chunked request encoding
     public void requestTransferEncodingChunkedWithTrailer() throws Exception
     {
         k3po.finish();
@@ -98,7 +96,6 @@ public class TransferCodingsIT
         "${route}/client/controller",
         "${client}/response.transfer.encoding.chunked.with.trailer/client",
         "${server}/response.transfer.encoding.chunked.with.trailer/server" })
-    @Ignore // TODO: implement chunked response trailer decoding
     public void responseTransferEncodingChunkedWithTrailer() throws Exception
     {
         k3po.finish();
@@ -72,7 +72,6 @@ public class TransferCodingsIT
         "${route}/server/controller",
         "${client}/response.transfer.encoding.chunked/client",
         "${server}/response.transfer.encoding.chunked/server" })
-    @Ignore // TODO: implement encoding chunked responses
     public void responseTransferEncodingChunked() throws Exception
     {
         k3po.finish();
@@ -97,7 +96,6 @@ public class TransferCodingsIT
         "${route}/server/controller",
         "${client}/request.transfer.encoding.chunked.with.trailer/client",
         "${server}/request.transfer.encoding.chunked.with.trailer/server" })
-    @Ignore // TODO: implement chunked request trailer decoding
     public void requestTransferEncodingChunkedWithTrailer() throws Exception
     {
         k3po.finish();
@@ -108,7 +106,6 @@ public class TransferCodingsIT
         "${route}/server/controller",
         "${client}/response.transfer.encoding.chunked.with.trailer/client",
         "${server}/response.transfer.encoding.chunked.with.trailer/server" })
-    @Ignore // TODO: implement encoding chunked responses
     public void responseTransferEncodingChunkedWithTrailer() throws Exception
     {
         k3po.finish();
@@ -18,6 +18,8 @@ package org.reaktivity.nukleus.http.internal.util;
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+
 import org.agrona.DirectBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.junit.Test;
@@ -74,5 +76,47 @@ public class BufferUtilTest
         assertEquals(4, BufferUtil.limitOfBytes(buffer1, 0, 4, buffer2, 0, buffer2.capacity(), CRLFCRLF));
     }
 
-}
+    @Test
+    public void shouldLocateValueAtEveryAlignment()
+    {
+        for (int position = 0; position < 20; position++)
+        {
+            byte[] bytes = new byte[24];
+            Arrays.fill(bytes, (byte) 'a');
+            System.arraycopy(CRLFCRLF, 0, bytes, position, CRLFCRLF.length);
+            DirectBuffer buffer = new UnsafeBuffer(bytes);
+            assertEquals(position + CRLFCRLF.length, BufferUtil.limitOfBytes(buffer, 0, buffer.capacity(), CRLFCRLF));
+        }
+    }
 
+    @Test
+    public void shouldLocateValueAfterPartialMatch()
+    {
+        DirectBuffer buffer = new UnsafeBuffer("get / HTTP/1.1\r\n\r\r\n\r\n".getBytes(US_ASCII));
+        assertEquals(buffer.capacity(), BufferUtil.limitOfBytes(buffer, 0, buffer.capacity(), CRLFCRLF));
+    }
+
+    @Test
+    public void shouldNotLocateValueBeyondLimit()
+    {
+        DirectBuffer buffer = new UnsafeBuffer("get / HTTP/1.1\r\n\r\n".getBytes(US_ASCII));
+        assertEquals(-1, BufferUtil.limitOfBytes(buffer, 0, buffer.capacity() - 1, CRLFCRLF));
+    }
+
+    @Test
+    public void shouldLocateByteWithHighBitSet()
+    {
+        byte[] bytes = { 0x7f, (byte) 0x81, 0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0x80 };
+        DirectBuffer buffer = new UnsafeBuffer(bytes);
+        assertEquals(9, BufferUtil.indexOfByte(buffer, 0, buffer.capacity(), (byte) 0x80));
+        assertEquals(-1, BufferUtil.indexOfByte(buffer, 0, 9, (byte) 0x80));
+    }
+
+    @Test
+    public void shouldLocateFragmentedValueAtBufferOffset()
+    {
+        DirectBuffer buffer1 = new UnsafeBuffer("..\r\n".getBytes(US_ASCII));
+        DirectBuffer buffer2 = new UnsafeBuffer("...\r\n....".getBytes(US_ASCII));
+        assertEquals(5, BufferUtil.limitOfBytes(buffer1, 0, 4, buffer2, 3, buffer2.capacity(), CRLFCRLF));
+    }
+}